@@ -0,0 +1,92 @@
+package com.oops.library.command;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.oops.library.entity.CommandJournalEntry;
+
+/**
+ * Open loans per book, rebuilt by applying command journal entries in
+ * sequence order. Can be written out as a compact checkpoint and read back.
+ * Not thread-safe.
+ */
+public class LoanLedger {
+
+	public record OpenLoan(Long borrowLogId, Long borrowerId, LocalDateTime dueDate) {
+	}
+
+	private final Map<Long, OpenLoan> openLoans = new HashMap<>();
+	// last entry applied per book, so an entry seen twice can't undo a later one
+	private final Map<Long, Long> bookSequences = new HashMap<>();
+	private long sequence;
+
+	public void apply(CommandJournalEntry entry) {
+		Long applied = bookSequences.get(entry.getBookId());
+		if (applied != null && applied >= entry.getSequence()) {
+			return;
+		}
+		bookSequences.put(entry.getBookId(), entry.getSequence());
+		switch (entry.getType()) {
+			case BORROW, RENEW, UNDO_RETURN -> openLoans.put(entry.getBookId(),
+					new OpenLoan(entry.getBorrowLogId(), entry.getBorrowerId(), entry.getDueDate()));
+			case RETURN -> openLoans.remove(entry.getBookId());
+		}
+		sequence = Math.max(sequence, entry.getSequence());
+	}
+
+	/**
+	 * Sequence number of the last entry applied.
+	 */
+	public long sequence() {
+		return sequence;
+	}
+
+	public OpenLoan openLoan(Long bookId) {
+		return openLoans.get(bookId);
+	}
+
+	public int size() {
+		return openLoans.size();
+	}
+
+	public Map<Long, OpenLoan> openLoans() {
+		return Map.copyOf(openLoans);
+	}
+
+	/**
+	 * One line per open loan: {@code bookId,borrowLogId,borrowerId,dueDate},
+	 * empty fields for nulls.
+	 */
+	public String encode() {
+		StringBuilder out = new StringBuilder();
+		openLoans.forEach((bookId, loan) -> out.append(bookId).append(',')
+				.append(field(loan.borrowLogId())).append(',')
+				.append(field(loan.borrowerId())).append(',')
+				.append(field(loan.dueDate())).append('\n'));
+		return out.toString();
+	}
+
+	public static LoanLedger decode(long sequence, String encoded) {
+		LoanLedger ledger = new LoanLedger();
+		ledger.sequence = sequence;
+		if (encoded == null) {
+			return ledger;
+		}
+		for (String line : encoded.split("\n")) {
+			if (line.isEmpty()) {
+				continue;
+			}
+			String[] fields = line.split(",", -1);
+			ledger.openLoans.put(Long.valueOf(fields[0]), new OpenLoan(
+					fields[1].isEmpty() ? null : Long.valueOf(fields[1]),
+					fields[2].isEmpty() ? null : Long.valueOf(fields[2]),
+					fields[3].isEmpty() ? null : LocalDateTime.parse(fields[3])));
+		}
+		return ledger;
+	}
+
+	private static String field(Object value) {
+		return value == null ? "" : value.toString();
+	}
+}
@@ -12,6 +12,8 @@ public class ReturnBookCommand implements Command {
 
 	private final BorrowLog borrowLog;
     private final Book book;
+    // the loan's due date; execute() overwrites it with the return time
+    private final LocalDateTime dueDate;
     private final BorrowLogRepository borrowLogRepository;
     private final BookRepository bookRepository;
 
@@ -19,12 +21,29 @@ public class ReturnBookCommand implements Command {
                               Book book,
                               BorrowLogRepository borrowLogRepository,
                               BookRepository bookRepository) {
+        this(borrowLog, book, borrowLog.getReturnDate(), borrowLogRepository, bookRepository);
+    }
+
+    /**
+     * For undoing a return recorded earlier, when {@code borrowLog} already
+     * holds the return time and the due date comes from the command journal.
+     */
+    public ReturnBookCommand(BorrowLog borrowLog,
+                              Book book,
+                              LocalDateTime dueDate,
+                              BorrowLogRepository borrowLogRepository,
+                              BookRepository bookRepository) {
         this.borrowLog = borrowLog;
         this.book = book;
+        this.dueDate = dueDate;
         this.borrowLogRepository = borrowLogRepository;
         this.bookRepository = bookRepository;
     }
 
+    public LocalDateTime getDueDate() {
+        return dueDate;
+    }
+
     @Override
     public void execute() {
         // Update borrow log
@@ -37,14 +56,20 @@ public class ReturnBookCommand implements Command {
         bookRepository.save(book);
     }
 
+    /**
+     * Reopens the loan with its original due date.
+     *
+     * @throws IllegalStateException if the copy has been lent again since
+     */
     @Override
     public void undo() {
-        // Optional: reverse the return
-        borrowLog.setReturned(false);
-        borrowLog.setReturnDate(null);
+        if (bookRepository.updateStatusIf(book.getId(), BookStatus.AVAILABLE, BookStatus.BORROWED) == 0) {
+            throw new IllegalStateException("'" + book.getTitle() + "' is no longer available to put back on loan");
+        }
         book.setStatus(BookStatus.BORROWED);
+        borrowLog.setReturned(false);
+        borrowLog.setReturnDate(dueDate);
         borrowLogRepository.save(borrowLog);
-        bookRepository.save(book);
     }
 
 }
@@ -0,0 +1,195 @@
+package com.oops.library.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * Versioned schema changes, each applied once, in version order.
+ *
+ * Scripts live in {@code classpath:db/migration} as
+ * {@code V<version>__<description>.sql}, as Flyway names them. Every
+ * applied version is recorded in {@code schema_migration} with a checksum
+ * of its script, and an applied script that has since changed stops
+ * startup. Tables still come from Hibernate's {@code ddl-auto=update}, so
+ * the migrations run after it and carry what it does not manage well:
+ * tuned indexes, and later data fixes.
+ *
+ * A node claims a version by recording it before running the script and
+ * marks it successful afterwards, so nodes starting together do not apply
+ * it twice; the others wait for the claim to finish.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@ConditionalOnProperty(name = "app.schema.migrations.enabled", matchIfMissing = true)
+public class SchemaMigrations implements InitializingBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrations.class);
+    private static final String LOCATION = "classpath*:db/migration/V*__*.sql";
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(.+)\\.sql");
+    private static final long POLL_MILLIS = 1000;
+
+    record Migration(int version, String description, Resource script, long checksum) {
+    }
+
+    private record Recorded(long checksum, boolean success, LocalDateTime installedAt) {
+    }
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final long waitMillis;
+
+    public SchemaMigrations(DataSource dataSource,
+                            @Value("${app.schema.migrations.wait-ms:300000}") long waitMillis) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.waitMillis = waitMillis;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        migrate();
+    }
+
+    /**
+     * Applies every migration not yet recorded.
+     *
+     * @return the versions applied now
+     */
+    public List<Integer> migrate() throws IOException {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS schema_migration ("
+                + "version INT NOT NULL PRIMARY KEY, description VARCHAR(200) NOT NULL, checksum BIGINT NOT NULL, "
+                + "success BOOLEAN NOT NULL, installed_at TIMESTAMP NOT NULL)");
+
+        List<Integer> ran = new ArrayList<>();
+        for (Migration migration : migrations()) {
+            if (apply(migration)) {
+                ran.add(migration.version());
+            }
+        }
+        if (!ran.isEmpty()) {
+            log.info("Applied schema migrations {}", ran);
+        }
+        return ran;
+    }
+
+    /**
+     * Runs {@code migration} unless it is recorded as applied. A version
+     * claimed by another node is waited for, as later scripts may build on
+     * it; one still unfinished after {@code app.schema.migrations.wait-ms}
+     * stops startup.
+     *
+     * @return true if it ran here
+     */
+    private boolean apply(Migration migration) {
+        long deadline = System.currentTimeMillis() + waitMillis;
+        boolean waiting = false;
+        while (true) {
+            List<Recorded> recorded = jdbcTemplate.query(
+                    "SELECT checksum, success, installed_at FROM schema_migration WHERE version = ?",
+                    (row, i) -> new Recorded(row.getLong(1), row.getBoolean(2), row.getTimestamp(3).toLocalDateTime()),
+                    migration.version());
+            if (recorded.isEmpty()) {
+                if (claim(migration)) {
+                    run(migration);
+                    return true;
+                }
+                continue;  // claimed by another node just now
+            }
+            Recorded claim = recorded.get(0);
+            if (claim.checksum() != migration.checksum()) {
+                throw new IllegalStateException("Migration V" + migration.version() + " ("
+                        + migration.description() + ") was changed after it was applied");
+            }
+            if (claim.success()) {
+                return false;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new IllegalStateException("Migration V" + migration.version() + " (" + migration.description()
+                        + ") was claimed at " + claim.installedAt() + " but has not finished; if the node applying it"
+                        + " died, check the schema and delete its schema_migration row");
+            }
+            if (!waiting) {
+                log.info("Waiting for migration V{}, being applied by another node", migration.version());
+                waiting = true;
+            }
+            try {
+                Thread.sleep(Math.min(POLL_MILLIS, waitMillis));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for migration V" + migration.version(), e);
+            }
+        }
+    }
+
+    private boolean claim(Migration migration) {
+        try {
+            jdbcTemplate.update("INSERT INTO schema_migration (version, description, checksum, success, installed_at) "
+                    + "VALUES (?, ?, ?, FALSE, CURRENT_TIMESTAMP)",
+                    migration.version(), migration.description(), migration.checksum());
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    private void run(Migration migration) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            ScriptUtils.executeSqlScript(connection, migration.script());
+        } catch (RuntimeException e) {
+            // DDL is not transactional on MySQL; release the claim so a fixed script can run again
+            jdbcTemplate.update("DELETE FROM schema_migration WHERE version = ?", migration.version());
+            throw new IllegalStateException("Migration V" + migration.version() + " (" + migration.description()
+                    + ") failed", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+        jdbcTemplate.update("UPDATE schema_migration SET success = TRUE WHERE version = ?", migration.version());
+    }
+
+    static List<Migration> migrations() throws IOException {
+        List<Migration> migrations = new ArrayList<>();
+        for (Resource script : new PathMatchingResourcePatternResolver().getResources(LOCATION)) {
+            Matcher name = SCRIPT_NAME.matcher(script.getFilename());
+            if (!name.matches()) {
+                continue;
+            }
+            migrations.add(new Migration(Integer.parseInt(name.group(1)), name.group(2).replace('_', ' '), script,
+                    checksum(script)));
+        }
+        migrations.sort(Comparator.comparingInt(Migration::version));
+        return migrations;
+    }
+
+    private static long checksum(Resource script) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = script.getInputStream()) {
+            crc.update(in.readAllBytes());
+        }
+        return crc.getValue();
+    }
+}
@@ -11,13 +11,27 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import com.oops.library.design.patterns.CatalogManager;
 import com.oops.library.entity.UserDetailsDTO; // Check if this is correct package
 import com.oops.library.entity.Book;
+import com.oops.library.entity.CommandJournalEntry;
 import com.oops.library.entity.Role;
 import com.oops.library.entity.User;
 import com.oops.library.enchanted.exception.EnchantedLibraryException;
+import com.oops.library.search.QueryResultCache;
 import com.oops.library.service.BookService;
+import com.oops.library.service.CatalogSearchService;
+import com.oops.library.service.CommandJournal;
+import com.oops.library.service.EmailDispatcher;
 import com.oops.library.service.FileStorageService;
+import com.oops.library.service.GroupCommitter;
+import com.oops.library.service.HoldService;
+import com.oops.library.service.IdempotencyService;
+import com.oops.library.service.JobCoordinator;
+import com.oops.library.service.LendingService;
+import com.oops.library.service.LoanExpiryService;
+import com.oops.library.service.LoanReconciler;
+import com.oops.library.service.OverdueNotificationScheduler;
 import com.oops.library.service.UserInformationService;
 
 @Controller
@@ -34,6 +48,39 @@ public class AdminController {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private CatalogSearchService catalogSearchService;
+
+    @Autowired
+    private EmailDispatcher emailDispatcher;
+
+    @Autowired
+    private CommandJournal commandJournal;
+
+    @Autowired
+    private LendingService lendingService;
+
+    @Autowired
+    private HoldService holdService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private GroupCommitter groupCommitter;
+
+    @Autowired
+    private OverdueNotificationScheduler overdueNotificationScheduler;
+
+    @Autowired
+    private LoanExpiryService loanExpiryService;
+
+    @Autowired
+    private JobCoordinator jobCoordinator;
+
+    @Autowired
+    private LoanReconciler loanReconciler;
+
     @GetMapping("/dashboard")
     public String showAdminDashboard(Model model) {
         System.out.println("========== ADMIN DASHBOARD METHOD CALLED ==========");
@@ -132,6 +179,124 @@ public class AdminController {
         return userService.getDashboardStatistics();
     }
 
+    /**
+     * Catalog cache hit/miss counters (AJAX endpoint)
+     */
+    @GetMapping("/catalog/cache")
+    @ResponseBody
+    public CatalogManager.CacheStats getCatalogCacheStats() {
+        return bookService.getCatalogCacheStats();
+    }
+
+    /**
+     * Dashboard search result cache counters (AJAX endpoint)
+     */
+    @GetMapping("/catalog/search-cache")
+    @ResponseBody
+    public QueryResultCache.Stats getSearchCacheStats() {
+        return catalogSearchService.getResultCacheStats();
+    }
+
+    /**
+     * Confirmation email queue depth and drop counters (AJAX endpoint)
+     */
+    @GetMapping("/mail/dispatcher")
+    @ResponseBody
+    public EmailDispatcher.Stats getEmailDispatcherStats() {
+        return emailDispatcher.getStats();
+    }
+
+    /**
+     * Hold queue sizes and promotion/expiry counters (AJAX endpoint)
+     */
+    @GetMapping("/holds")
+    @ResponseBody
+    public HoldService.Stats getHoldStats() {
+        return holdService.getStats();
+    }
+
+    /**
+     * Loans waiting on the expiry wheel and what it did when they fell due (AJAX endpoint)
+     */
+    @GetMapping("/loan-expiry")
+    @ResponseBody
+    public LoanExpiryService.Stats getLoanExpiryStats() {
+        return loanExpiryService.getStats();
+    }
+
+    /**
+     * Sent/failed/remaining counts of the running (or last) overdue reminder run (AJAX endpoint)
+     */
+    @GetMapping("/overdue-reminders")
+    @ResponseBody
+    public OverdueNotificationScheduler.Progress getOverdueReminderProgress() {
+        return overdueNotificationScheduler.getProgress();
+    }
+
+    /**
+     * Scheduled job leases: which node ran or holds each job (AJAX endpoint)
+     */
+    @GetMapping("/jobs")
+    @ResponseBody
+    public JobCoordinator.Stats getJobStats() {
+        return jobCoordinator.getStats();
+    }
+
+    /**
+     * Group commit sizes and fallbacks for borrow/return writes (AJAX endpoint)
+     */
+    @GetMapping("/group-commit")
+    @ResponseBody
+    public GroupCommitter.Stats getGroupCommitStats() {
+        return groupCommitter.getStats();
+    }
+
+    /**
+     * Idempotent replay counters for borrow/return POSTs (AJAX endpoint)
+     */
+    @GetMapping("/idempotency")
+    @ResponseBody
+    public IdempotencyService.Stats getIdempotencyStats() {
+        return idempotencyService.getStats();
+    }
+
+    /**
+     * Loan ledger recovery and checkpoint state (AJAX endpoint)
+     */
+    @GetMapping("/journal")
+    @ResponseBody
+    public CommandJournal.Stats getJournalStats() {
+        return commandJournal.getStats();
+    }
+
+    /**
+     * Outcome of the last loan reconciliation on this node (AJAX endpoint)
+     */
+    @GetMapping("/journal/reconciliation")
+    @ResponseBody
+    public LoanReconciler.Result getReconciliation() {
+        return loanReconciler.getLastResult();
+    }
+
+    /**
+     * Journal entries after a sequence number, oldest first (AJAX endpoint)
+     */
+    @GetMapping("/journal/entries")
+    @ResponseBody
+    public List<CommandJournalEntry> getJournalEntries(@RequestParam(defaultValue = "0") long after,
+                                                       @RequestParam(defaultValue = "100") int limit) {
+        return commandJournal.entriesAfter(after, Math.max(1, Math.min(limit, 1000)));
+    }
+
+    /**
+     * Reopen the loans closed by a mistaken return batch
+     */
+    @PostMapping("/journal/undo/{batchId}")
+    @ResponseBody
+    public LendingService.Undo undoReturns(@PathVariable String batchId) {
+        return lendingService.undoReturns(batchId);
+    }
+
     /**
      * Delete user (existing - keep as is)
      */
@@ -3,13 +3,14 @@ package com.oops.library.controller;
 import java.security.Principal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -19,13 +20,13 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.oops.library.command.ReturnBookCommand;
 import com.oops.library.design.patterns.BookFactory;
 import com.oops.library.design.patterns.CatalogManager;
 import com.oops.library.design.patterns.FacadeDashboard;
@@ -34,11 +35,13 @@ import com.oops.library.dto.RegistrationDto;
 import com.oops.library.enchanted.exception.EnchantedLibraryException;
 import com.oops.library.entity.AncientScript;
 import com.oops.library.entity.Book;
+import com.oops.library.entity.BookHold;
 import com.oops.library.entity.BookStatus;
 import com.oops.library.entity.BorrowLog;
 import com.oops.library.entity.GeneralBook;
 import com.oops.library.entity.Notification;
 import com.oops.library.entity.RareBook;
+import com.oops.library.entity.Role;
 import com.oops.library.entity.User;
 import com.oops.library.observer.BookNotifierService;
 import com.oops.library.observer.LibrarianNotifier;
@@ -46,10 +49,17 @@ import com.oops.library.repository.BookRepository;
 import com.oops.library.repository.BorrowLogRepository;
 import com.oops.library.repository.NotificationRepository;
 import com.oops.library.repository.UserRepository;
+import com.oops.library.search.CatalogQuery;
 import com.oops.library.service.BookService;
-import com.oops.library.service.BorrowLogService;
-import com.oops.library.service.EmailService;
+import com.oops.library.service.CatalogSearchService;
+import com.oops.library.service.EmailDispatcher;
+import com.oops.library.service.LendingService;
+import com.oops.library.service.FacetCountService;
 import com.oops.library.service.FileStorageService;
+import com.oops.library.service.GroupCommitter;
+import com.oops.library.service.HoldService;
+import com.oops.library.service.IdempotencyService;
+import com.oops.library.service.LateFeeLedger;
 import com.oops.library.service.RegistrationService;
 import com.oops.library.service.UserInformationService;
 import com.oops.library.strategy.LendingStrategy;
@@ -64,15 +74,19 @@ public class AuthController {
     private final NotificationRepository notificationRepository;
     private final LibrarianNotifier librarianNotifier;
     private final UserInformationService userInfoService;
-    private final EmailService emailService;
     private final FileStorageService fileStorageService;
     private static final Logger log = LoggerFactory.getLogger(AuthController.class);
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
     
     @Autowired
     private BookService bookService;
     
     @Autowired
-    private BorrowLogService borrowLogService;
+    private LendingService lendingService;
+
+    @Autowired
+    private EmailDispatcher emailDispatcher;
     
     @Autowired
     private UserRepository userRepository;
@@ -86,6 +100,24 @@ public class AuthController {
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private CatalogSearchService catalogSearchService;
+
+    @Autowired
+    private FacetCountService facetCountService;
+
+    @Autowired
+    private HoldService holdService;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private GroupCommitter groupCommitter;
+
+    @Autowired
+    private LateFeeLedger lateFeeLedger;
+
     // Constructor with @Autowired annotation
     @Autowired
     public AuthController(RegistrationService registrationService,
@@ -94,8 +126,7 @@ public class AuthController {
                           NotificationRepository notificationRepository,
                           LibrarianNotifier librarianNotifier,
                           UserInformationService userInfoService, 
-                          FileStorageService fileStorageService, 
-                          EmailService emailService) {
+                          FileStorageService fileStorageService) {
         this.registrationService = registrationService;
         // bootstrap singleton with your JPA repository
         this.catalog = CatalogManager.getInstance(bookRepo);
@@ -104,7 +135,6 @@ public class AuthController {
         this.librarianNotifier = librarianNotifier;
         this.userInfoService = userInfoService;
         this.fileStorageService = fileStorageService;
-        this.emailService = emailService;
     }
     
    
@@ -155,38 +185,61 @@ public class AuthController {
     public String dashboard(
         @RequestParam(value = "author", required = false) String author,
         @RequestParam(value = "title", required = false) String title,
+        @RequestParam(value = "page", defaultValue = "0") int page,
+        @RequestParam(value = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+        @RequestParam(value = "after", required = false) Long after,
+        @RequestParam(value = "fuzzy", defaultValue = "false") boolean fuzzy,
+        @RequestParam(value = "distance", required = false) Integer distance,
+        @RequestParam(value = "q", required = false) String text,
         Model model) {
         
         try {
             List<Book> books;
             boolean isSearch = false;
+            int pageSize = clampPageSize(size);
             
             // Check if search parameters are provided
             if ((author != null && !author.trim().isEmpty()) || 
-                (title != null && !title.trim().isEmpty())) {
+                (title != null && !title.trim().isEmpty()) ||
+                (text != null && !text.trim().isEmpty())) {
                 
-                // Perform search
-                books = searchBooks(author, title);
+                // Keywords are ranked by relevance; otherwise author/title, optionally typo-tolerant
+                CatalogQuery query;
+                if (text != null && !text.trim().isEmpty()) {
+                    query = CatalogQuery.ranked(text, author, title);
+                } else if (fuzzy) {
+                    query = CatalogQuery.fuzzy(author, title, distance != null ? distance : catalogSearchService.getMaxFuzzyEdits());
+                } else {
+                    query = CatalogQuery.contains(author, title);
+                }
+                Page<Book> results = searchBooks(query, page, pageSize);
+                books = results.getContent();
+                addSearchPaging(model, results);
                 model.addAttribute("searchAuthor", author);
                 model.addAttribute("searchTitle", title);
+                model.addAttribute("searchText", text);
                 isSearch = true;
                 
                 // Add search result message
-                if (books.isEmpty()) {
+                if (results.getTotalElements() == 0) {
                     model.addAttribute("searchMessage", 
                         "No books found matching your search criteria.");
                 } else {
                     model.addAttribute("searchMessage", 
-                        "Found " + books.size() + " book(s) matching your search.");
+                        "Found " + results.getTotalElements() + " book(s) matching your search.");
                 }
                 
             } else {
-                // No search, show all books
-                books = catalog.getAllBooks();
+                // No search, show one keyset page of the catalog
+                books = browseBooks(catalogSearchService.browse(after, pageSize + 1), pageSize, model);
             }
             
             model.addAttribute("books", books);
+            model.addAttribute("holdQueues", holdService.queueLengths(books.stream().map(Book::getId).toList()));
             model.addAttribute("isSearch", isSearch);
+            model.addAttribute("fuzzy", fuzzy);
+            model.addAttribute("distance", distance);
+            model.addAttribute("maxFuzzyEdits", catalogSearchService.getMaxFuzzyEdits());
 
             // Get logged-in user
             Authentication auth = SecurityContextHolder.getContext().getAuthentication();
@@ -219,32 +272,33 @@ public class AuthController {
      * Search books by author and/or title
      * Available to ALL users (Librarian, Scholar, Guest)
      */
-    private List<Book> searchBooks(String author, String title) {
-        List<Book> allBooks = catalog.getAllBooks();
-        
-        if (allBooks == null || allBooks.isEmpty()) {
-            return new ArrayList<>();
-        }
-        
-        return allBooks.stream()
-            .filter(book -> {
-                boolean matches = true;
-                
-                // Filter by author (case-insensitive, partial match)
-                if (author != null && !author.trim().isEmpty()) {
-                    String bookAuthor = book.getAuthor() != null ? book.getAuthor().toLowerCase() : "";
-                    matches = matches && bookAuthor.contains(author.trim().toLowerCase());
-                }
-                
-                // Filter by title (case-insensitive, partial match)
-                if (title != null && !title.trim().isEmpty()) {
-                    String bookTitle = book.getTitle() != null ? book.getTitle().toLowerCase() : "";
-                    matches = matches && bookTitle.contains(title.trim().toLowerCase());
-                }
-                
-                return matches;
-            })
-            .collect(Collectors.toList());
+    private Page<Book> searchBooks(CatalogQuery query, int page, int size) {
+        return catalogSearchService.search(query, PageRequest.of(Math.max(page, 0), size));
+    }
+
+    private static int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    /**
+     * Trims a keyset page fetched with one extra row and exposes the cursor
+     * for the next page.
+     */
+    private List<Book> browseBooks(List<Book> fetched, int pageSize, Model model) {
+        boolean hasNext = fetched.size() > pageSize;
+        List<Book> books = hasNext ? fetched.subList(0, pageSize) : fetched;
+        model.addAttribute("hasNext", hasNext);
+        model.addAttribute("nextCursor", books.isEmpty() ? null : books.get(books.size() - 1).getId());
+        model.addAttribute("pageSize", pageSize);
+        return books;
+    }
+
+    private void addSearchPaging(Model model, Page<Book> results) {
+        model.addAttribute("hasNext", results.hasNext());
+        model.addAttribute("hasPrevious", results.hasPrevious());
+        model.addAttribute("currentPage", results.getNumber());
+        model.addAttribute("totalPages", results.getTotalPages());
+        model.addAttribute("pageSize", results.getSize());
     }
 
 
@@ -323,10 +377,7 @@ public class AuthController {
     // TODO: add edit/delete mappings here, following same pattern—use catalog.updateBook(…) and catalog.removeBook(…)
     @GetMapping("/books/view/{id}")
     public String viewBook(@PathVariable Long id, Model model) {
-        Book book = catalog.getAllBooks().stream()
-            .filter(b -> b.getId().equals(id))
-            .findFirst()
-            .orElse(null);
+        Book book = catalog.getBookById(id);
 
         model.addAttribute("book", book);
 
@@ -375,7 +426,7 @@ public class AuthController {
                            @RequestParam(value = "manuscriptFile", required = false) MultipartFile manuscriptFile
     ) {
 
-        Book existing = catalog.getBookById(id);
+        Book existing = catalog.loadBookForEdit(id);
         if (existing == null) {
             return "redirect:/dashboard";
         }
@@ -434,81 +485,60 @@ public class AuthController {
     public String showDashboard(
         @RequestParam(value = "author", required = false) String author,
         @RequestParam(value = "title", required = false) String title,
+        @RequestParam(value = "page", defaultValue = "0") int page,
+        @RequestParam(value = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+        @RequestParam(value = "after", required = false) Long after,
         Model model) {
         
         try {
-            // Get all data from facade
-            Map<String, List<?>> collections = facadeDashboard.getBooksAndUsers();
-            List<Book> books = (List<Book>) collections.get("books");
+            int pageSize = clampPageSize(size);
+
+            // Get one page of books and the users from facade
+            Map<String, List<?>> collections = facadeDashboard.getBooksAndUsers(after, pageSize + 1);
             List<User> users = (List<User>) collections.get("users");
             
             boolean isSearch = false;
-            List<Book> booksToDisplay = books;
+            List<Book> booksToDisplay;
+            long totalBooks;
             
             // Check if search parameters are provided
             if ((author != null && !author.trim().isEmpty()) || 
                 (title != null && !title.trim().isEmpty())) {
                 
                 // Perform search on books
-                List<Book> filteredBooks = searchBooks(books, author, title);
+                Page<Book> results = searchBooks(CatalogQuery.contains(author, title), page, pageSize);
+                addSearchPaging(model, results);
                 model.addAttribute("searchAuthor", author);
                 model.addAttribute("searchTitle", title);
-                booksToDisplay = filteredBooks;
+                booksToDisplay = results.getContent();
+                totalBooks = results.getTotalElements();
                 isSearch = true;
                 
                 // Add search result message
-                if (filteredBooks.isEmpty()) {
+                if (totalBooks == 0) {
                     model.addAttribute("searchMessage", 
                         "No books found matching your search criteria.");
                 } else {
                     model.addAttribute("searchMessage", 
-                        "Found " + filteredBooks.size() + " book(s) matching your search.");
+                        "Found " + totalBooks + " book(s) matching your search.");
                 }
                 
+            } else {
+                booksToDisplay = browseBooks((List<Book>) collections.get("books"), pageSize, model);
+                totalBooks = facetCountService.totalBooks();
             }
             
-            // Calculate counts
-            int totalUsers = users != null ? users.size() : 0;
-            int librarianCount = 0;
-            int scholarCount = 0;
-            int guestCount=0;
-            
-            if (users != null) {
-                for (User user : users) {
-                    if ("LIBRARIAN".equals(user.getRole().name())) {
-                        librarianCount++;
-                    } else if ("SCHOLAR".equals(user.getRole().name())) {
-                        scholarCount++;
-                    }
-                    else if("GUEST".equals(user.getRole().name()))
-                    {
-                    	guestCount++;
-                    }
-                }
-            }
-            
-            int totalBooks = booksToDisplay != null ? booksToDisplay.size() : 0;
-            int availableCount = 0;
-            int borrowedCount = 0;
-            int repairCount = 0;
+            // Counts are maintained incrementally by the facet counters
+            long totalUsers = facetCountService.totalUsers();
+            Map<Role, Long> roleCounts = facetCountService.countUsersByRole();
+            long librarianCount = roleCounts.getOrDefault(Role.LIBRARIAN, 0L);
+            long scholarCount = roleCounts.getOrDefault(Role.SCHOLAR, 0L);
+            long guestCount = roleCounts.getOrDefault(Role.GUEST, 0L);
             
-            if (booksToDisplay != null) {
-                for (Book book : booksToDisplay) {
-                    if (book.getStatus() != null) {
-                        switch (book.getStatus()) {
-                            case AVAILABLE:
-                                availableCount++;
-                                break;
-                            case BORROWED:
-                                borrowedCount++;
-                                break;
-                            case RESTORATION_NEEDED:
-                                repairCount++;
-                                break;
-                        }
-                    }
-                }
-            }
+            Map<BookStatus, Long> statusCounts = facetCountService.countBooksByStatus();
+            long availableCount = statusCounts.getOrDefault(BookStatus.AVAILABLE, 0L);
+            long borrowedCount = statusCounts.getOrDefault(BookStatus.BORROWED, 0L);
+            long repairCount = statusCounts.getOrDefault(BookStatus.RESTORATION_NEEDED, 0L);
             
             // Add all attributes to model
             model.addAttribute("books", booksToDisplay);
@@ -538,86 +568,145 @@ public class AuthController {
         return "facade-dashboard";
     }
 
-    /**
-     * Search books by author and/or title
-     */
-    private List<Book> searchBooks(List<Book> books, String author, String title) {
-        if (books == null || books.isEmpty()) {
-            return new ArrayList<>();
-        }
-        
-        return books.stream()
-            .filter(book -> {
-                boolean matches = true;
-                
-                // Filter by author (case-insensitive, partial match)
-                if (author != null && !author.trim().isEmpty()) {
-                    String bookAuthor = book.getAuthor() != null ? book.getAuthor().toLowerCase() : "";
-                    matches = matches && bookAuthor.contains(author.trim().toLowerCase());
-                }
-                
-                // Filter by title (case-insensitive, partial match)
-                if (title != null && !title.trim().isEmpty()) {
-                    String bookTitle = book.getTitle() != null ? book.getTitle().toLowerCase() : "";
-                    matches = matches && bookTitle.contains(title.trim().toLowerCase());
-                }
-                
-                return matches;
-            })
-            .collect(Collectors.toList());
-    }
-
 
     
     @PostMapping("/books/borrow/{id}")
-    public String borrowBook(@PathVariable("id") Long bookId,@RequestParam("borrowType") String borrowType, Authentication authentication, Model model,RedirectAttributes redirectAttrs) {
+    public String borrowBook(@PathVariable("id") Long bookId,@RequestParam("borrowType") String borrowType, Authentication authentication, Model model,RedirectAttributes redirectAttrs,
+                             @RequestParam(value = "idempotencyKey", required = false) String idempotencyKey,
+                             @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyHeader) {
         // Extract email from Spring Security's authentication object
         String email = authentication.getName();
 
+        // A retried submission gets the first one's answer without borrowing again
+        IdempotencyService.Outcome outcome = idempotencyService.run(email + "|borrow/" + bookId,
+                idempotencyHeader != null ? idempotencyHeader : idempotencyKey,
+                () -> borrowOnce(bookId, borrowType, email));
+        return render(outcome, model, redirectAttrs);
+    }
+
+    private IdempotencyService.Outcome borrowOnce(Long bookId, String borrowType, String email) {
         // Fetch the User entity using the email
         User loggedInUser = userRepository.findByEmail(email)
                 .orElse(null);
 
         if (loggedInUser == null) {
-            model.addAttribute("error", "You must be logged in to borrow a book.");
-            return "login";
+            return IdempotencyService.Outcome.of("login").with("error", "You must be logged in to borrow a book.");
         }
 
-        // Fetch the book using the provided id
-        Book book = bookService.getBookById(bookId);
-        if (book == null || book.getStatus() == BookStatus.BORROWED) {
-            redirectAttrs.addFlashAttribute("error", "Book unavailable.");
-            return "redirect:/dashboard";
+        LendingStrategy strategy = strategyMap.get(borrowType);
+        if (strategy == null) {
+            return IdempotencyService.Outcome.of("redirect:/dashboard").with("error", "Invalid borrow type.");
+        }
+
+        // Atomically take the copy; a concurrent borrower of the same copy gets "unavailable"
+        BorrowLog borrowLog;
+        try {
+            borrowLog = groupCommitter.borrow(bookId, loggedInUser, strategy);
+        } catch (EnchantedLibraryException e) {
+            return IdempotencyService.Outcome.of("redirect:/dashboard").with("error", e.getMessage());
+        }
+        Book book = borrowLog.getBook();
+        LocalDateTime borrowDate = borrowLog.getBorrowDate();
+        LocalDateTime dueDate = borrowLog.getReturnDate();
+
+        emailDispatcher.dispatchBorrowConfirmation(loggedInUser.getEmail(), loggedInUser.getName(), book.getTitle(), dueDate);
+
+        return IdempotencyService.Outcome.of("redirect:/dashboard")
+                .with("message", "You have successfully borrowed the book: " + book.getTitle())
+                .with("borrowMessage", "Borrowed on: " + borrowDate + " | Return by: " + dueDate);
+    }
+
+    /**
+     * Shows an outcome: attributes go to the model, or to the flash scope for a redirect
+     */
+    private static String render(IdempotencyService.Outcome outcome, Model model, RedirectAttributes redirectAttrs) {
+        boolean redirect = outcome.view().startsWith("redirect:");
+        outcome.attributes().forEach((name, value) -> {
+            if (redirect) {
+                redirectAttrs.addFlashAttribute(name, value);
+            } else {
+                model.addAttribute(name, value);
+            }
+        });
+        return outcome.view();
+    }
+
+    /**
+     * Desk checkout: borrow several books at once, all or none
+     */
+    @PostMapping("/books/borrow/batch")
+    public String borrowBooks(@RequestParam(value = "bookIds", required = false) List<Long> bookIds,
+                              @RequestParam("borrowType") String borrowType,
+                              Authentication authentication, RedirectAttributes redirectAttrs) {
+        User loggedInUser = userRepository.findByEmail(authentication.getName()).orElse(null);
+        if (loggedInUser == null) {
+            return "redirect:/login";
         }
-        
         LendingStrategy strategy = strategyMap.get(borrowType);
         if (strategy == null) {
-            redirectAttrs.addFlashAttribute("error", "Invalid borrow type.");
+            redirectAttrs.addFlashAttribute("errorMessage", "Invalid borrow type.");
             return "redirect:/dashboard";
         }
 
-        // Change book status to BORROWED
-        book.setStatus(BookStatus.BORROWED);
-        bookService.saveBook(book);
-
-        // Create a new BorrowLog entry
-        LocalDateTime borrowDate = LocalDateTime.now();
-        LocalDateTime dueDate = strategy.calculateReturnDate(borrowDate);
-        BorrowLog borrowLog = new BorrowLog();
-        borrowLog.setBorrower(loggedInUser);
-        borrowLog.setBook(book);
-        borrowLog.setBorrowDate(borrowDate);
-        borrowLog.setReturnDate(dueDate);
-        borrowLog.setReturned(false);
-        borrowLogService.saveBorrowLog(borrowLog);
-
-        emailService.sendBorrowConfirmation(loggedInUser.getEmail(), loggedInUser.getName(), book.getTitle(), dueDate);
-
-        redirectAttrs.addFlashAttribute("message", "You have successfully borrowed the book: " + book.getTitle());
-        redirectAttrs.addFlashAttribute("borrowMessage", 
-                "Borrowed on: " + borrowDate + " | Return by: " + dueDate);
+        LendingService.Batch checkout;
+        try {
+            checkout = lendingService.borrowAll(bookIds != null ? bookIds : List.of(), loggedInUser, strategy);
+        } catch (EnchantedLibraryException e) {
+            redirectAttrs.addFlashAttribute("errorMessage", e.getMessage());
+            return "redirect:/dashboard";
+        }
+
+        emailDispatcher.dispatchBorrowConfirmation(loggedInUser.getEmail(), loggedInUser.getName(),
+                checkout.titles(), checkout.dueDate());
+
+        redirectAttrs.addFlashAttribute("message", "You have successfully borrowed " + checkout.books().size() + " books.");
+        redirectAttrs.addFlashAttribute("borrowMessage",
+                "Borrowed on: " + checkout.borrowDate() + " | Return by: " + checkout.dueDate());
         return "redirect:/dashboard";
+    }
 
+    /**
+     * Join the hold queue of a copy that is out
+     */
+    @PostMapping("/books/hold/{id}")
+    public String placeHold(@PathVariable("id") Long bookId, Authentication authentication,
+                            RedirectAttributes redirectAttrs) {
+        User loggedInUser = userRepository.findByEmail(authentication.getName()).orElse(null);
+        if (loggedInUser == null) {
+            return "redirect:/login";
+        }
+        try {
+            BookHold hold = holdService.placeHold(bookId, loggedInUser);
+            int position = holdService.position(bookId, hold.getId());
+            redirectAttrs.addFlashAttribute("message", position > 0
+                    ? "Hold placed on '" + hold.getBook().getTitle() + "'. You are number " + position + " in line; we'll email you when it's your turn."
+                    : "'" + hold.getBook().getTitle() + "' is already reserved for you; borrow it from the dashboard.");
+        } catch (EnchantedLibraryException e) {
+            redirectAttrs.addFlashAttribute("errorMessage", e.getMessage());
+        }
+        return "redirect:/dashboard";
+    }
+
+    @PostMapping("/books/renew/{borrowLogId}")
+    public String renewBook(@PathVariable Long borrowLogId, Principal principal, RedirectAttributes redirectAttrs) {
+        try {
+            BorrowLog renewed = lendingService.renew(borrowLogId, principal.getName());
+            redirectAttrs.addFlashAttribute("renewMessage",
+                    "'" + renewed.getBook().getTitle() + "' is now due " + renewed.getReturnDate() + ".");
+        } catch (EnchantedLibraryException e) {
+            redirectAttrs.addFlashAttribute("renewError", e.getMessage());
+        }
+        return "redirect:/user/borrowed-books";
+    }
+
+    @PostMapping("/holds/{holdId}/cancel")
+    public String cancelHold(@PathVariable Long holdId, Principal principal) {
+        try {
+            holdService.cancelHold(holdId, principal.getName());
+        } catch (EnchantedLibraryException e) {
+            return "redirect:/user/borrowed-books?error";
+        }
+        return "redirect:/user/borrowed-books?holdCancelled";
     }
 
     @GetMapping("/books/status")
@@ -644,24 +733,58 @@ public class AuthController {
     public String getBorrowedBooks(Model model, Principal principal) {
         List<BorrowLog> logs = borrowLogRepository.findByBorrowerEmailAndReturnedFalse(principal.getName());
         model.addAttribute("borrowedLogs", logs);
+        model.addAttribute("lateFeeBalance", userRepository.findByEmail(principal.getName())
+                .map(user -> lateFeeLedger.balance(user.getId()))
+                .orElse(0.0));
+        List<BookHold> holds = holdService.findActiveHolds(principal.getName());
+        model.addAttribute("holds", holds);
+        model.addAttribute("holdPositions", holds.stream().collect(Collectors.toMap(BookHold::getId,
+                hold -> holdService.position(hold.getBook().getId(), hold.getId()))));
         return "user-borrowed-books";
     }
 
     
+    @PostMapping("/books/return/batch")
+    public String returnBooks(@RequestParam(value = "borrowLogIds", required = false) List<Long> borrowLogIds,
+                              Principal principal) {
+        LendingService.Batch returned;
+        try {
+            returned = lendingService.returnAll(borrowLogIds != null ? borrowLogIds : List.of(), principal.getName());
+        } catch (EnchantedLibraryException e) {
+            log.warn("Batch return by {} rejected: {}", principal.getName(), e.getMessage());
+            return "redirect:/user/borrowed-books?error";
+        }
+
+        userRepository.findByEmail(principal.getName()).ifPresent(borrower ->
+                emailDispatcher.dispatchReturnConfirmation(borrower.getEmail(), borrower.getName(), returned.titles()));
+        return "redirect:/user/borrowed-books?success";
+    }
+
     @PostMapping("/books/return/{borrowLogId}")
-    public String returnBook(@PathVariable Long borrowLogId, Principal principal) {
+    public String returnBook(@PathVariable Long borrowLogId, Principal principal,
+                             @RequestParam(value = "idempotencyKey", required = false) String idempotencyKey,
+                             @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyHeader) {
+        return idempotencyService.run(principal.getName() + "|return/" + borrowLogId,
+                idempotencyHeader != null ? idempotencyHeader : idempotencyKey,
+                () -> IdempotencyService.Outcome.of(returnOnce(borrowLogId, principal.getName()))).view();
+    }
+
+    private String returnOnce(Long borrowLogId, String email) {
         Optional<BorrowLog> optionalLog = borrowLogRepository.findById(borrowLogId);
         if (optionalLog.isPresent()) {
             BorrowLog log = optionalLog.get();
 
-            if (!log.getBorrower().getEmail().equals(principal.getName())) {
+            if (!log.getBorrower().getEmail().equals(email)) {
                 return "redirect:/unauthorized"; // or return 403
             }
 
-            Command command = new ReturnBookCommand(log, log.getBook(), borrowLogRepository, bookRepository);
-            command.execute();
+            try {
+                groupCommitter.returnBook(borrowLogId, email);
+            } catch (EnchantedLibraryException e) {
+                return "redirect:/user/borrowed-books?error";
+            }
 
-            emailService.sendReturnConfirmation(log.getBorrower().getEmail(),
+            emailDispatcher.dispatchReturnConfirmation(log.getBorrower().getEmail(),
                     log.getBorrower().getName(),
                     log.getBook().getTitle());
 
@@ -3,6 +3,7 @@ package com.oops.library.controller;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -10,33 +11,35 @@ import org.springframework.web.bind.annotation.GetMapping;
 
 import com.oops.library.entity.BorrowLog;
 import com.oops.library.service.BorrowLogService;
-import com.oops.library.strategy.LateFeeService;
+import com.oops.library.service.LateFeeLedger;
 
 @Controller
 public class BorrowLogController {
     // Assuming borrowLogService is injected
     private final BorrowLogService borrowLogService;
 
-    private final LateFeeService lateFeeService;
+    private final LateFeeLedger lateFeeLedger;
 
-    public BorrowLogController(BorrowLogService borrowLogService, LateFeeService lateFeeService) {
+    public BorrowLogController(BorrowLogService borrowLogService, LateFeeLedger lateFeeLedger) {
         this.borrowLogService = borrowLogService;
-        this.lateFeeService = lateFeeService;
+        this.lateFeeLedger = lateFeeLedger;
     }
 
     @GetMapping("/borrowlogs")
     public String viewBorrowLogs(Model model) {
         List<BorrowLog> borrowLogs = borrowLogService.findAll();
+        // fees as last accrued or settled, read in one query
+        Map<Long, Double> accrued = lateFeeLedger.accruedFees(borrowLogs.stream()
+                .filter(Objects::nonNull)
+                .map(BorrowLog::getId)
+                .filter(Objects::nonNull)
+                .toList());
         Map<BorrowLog, Double> lateFees = new HashMap<>();
         for (BorrowLog log : borrowLogs) {
-            if (log != null && log.getBook() != null) {
-                lateFees.put(log, lateFeeService.calculateLateFee(log));
-            } else {
-                lateFees.put(log, 0.0);
-            }
+            lateFees.put(log, log != null ? accrued.getOrDefault(log.getId(), 0.0) : 0.0);
         }
         model.addAttribute("borrowLogs", borrowLogs);
         model.addAttribute("lateFees", lateFees);
         return "borrowlogs";
     }
-}
\ No newline at end of file
+}
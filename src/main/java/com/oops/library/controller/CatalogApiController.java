@@ -0,0 +1,101 @@
+package com.oops.library.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.oops.library.design.patterns.CatalogManager;
+import com.oops.library.entity.Book;
+import com.oops.library.repository.BookRepository;
+import com.oops.library.search.CompletionIndex.Completion;
+import com.oops.library.search.CompletionIndex.Field;
+import com.oops.library.search.Isbn;
+import com.oops.library.service.CatalogAutocompleteService;
+
+/**
+ * JSON endpoints used by the catalog pages' scripts.
+ */
+@Controller
+@RequestMapping("/api/catalog")
+public class CatalogApiController {
+
+    private static final int MAX_SUGGESTIONS = 20;
+    private static final int MAX_ISBN_BATCH = 500;
+
+    private final CatalogAutocompleteService autocompleteService;
+    private final CatalogManager catalog;
+
+    public CatalogApiController(CatalogAutocompleteService autocompleteService, BookRepository bookRepository) {
+        this.autocompleteService = autocompleteService;
+        this.catalog = CatalogManager.getInstance(bookRepository);
+    }
+
+    /**
+     * One scanned ISBN and the copies it resolved to; {@code isbn13} is null
+     * when the scan is not a valid ISBN.
+     */
+    public record IsbnResolution(String scanned, String isbn13, List<Book> books) {
+    }
+
+    /**
+     * Completions for a typed prefix; {@code field} is title, author or
+     * isbn, or omitted for all three.
+     */
+    @GetMapping("/autocomplete")
+    @ResponseBody
+    public List<Completion> autocomplete(@RequestParam("q") String prefix,
+                                         @RequestParam(value = "field", required = false) String field,
+                                         @RequestParam(value = "limit", defaultValue = "8") int limit) {
+        Field only = null;
+        if (field != null && !field.isBlank()) {
+            try {
+                only = Field.valueOf(field.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown field: " + field);
+            }
+        }
+        return autocompleteService.complete(prefix, only, Math.max(1, Math.min(limit, MAX_SUGGESTIONS)));
+    }
+
+    /**
+     * Copies of one ISBN, given in ISBN-10 or ISBN-13 form.
+     */
+    @GetMapping("/isbn/{isbn}")
+    @ResponseBody
+    public IsbnResolution resolveIsbn(@PathVariable String isbn) {
+        return new IsbnResolution(isbn, Isbn.toIsbn13(isbn), catalog.getBooksByIsbn(isbn));
+    }
+
+    /**
+     * Resolves a batch of scanned ISBNs with a single query; results are in
+     * scan order.
+     */
+    @PostMapping("/isbn/resolve")
+    @ResponseBody
+    public List<IsbnResolution> resolveIsbns(@RequestBody List<String> isbns) {
+        if (isbns.size() > MAX_ISBN_BATCH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + MAX_ISBN_BATCH + " ISBNs per request");
+        }
+        Map<String, List<Book>> byIsbn13 = catalog.getBooksByIsbns(isbns);
+        List<IsbnResolution> resolutions = new ArrayList<>(isbns.size());
+        for (String isbn : isbns) {
+            String isbn13 = Isbn.toIsbn13(isbn);
+            List<Book> books = isbn13 != null ? byIsbn13.get(isbn13) : List.of();
+            resolutions.add(new IsbnResolution(isbn, isbn13, books));
+        }
+        return resolutions;
+    }
+}
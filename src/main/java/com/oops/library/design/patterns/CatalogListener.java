@@ -0,0 +1,15 @@
+package com.oops.library.design.patterns;
+
+import com.oops.library.entity.Book;
+
+/**
+ * Receives catalog write events from {@link CatalogManager} so that
+ * derived structures (search indexes, counters, caches) stay in sync
+ * without re-reading the book table.
+ */
+public interface CatalogListener {
+
+	void onBookSaved(Book book);
+
+	void onBookRemoved(Long bookId);
+}
@@ -1,18 +1,81 @@
 package com.oops.library.design.patterns;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
 
 import com.oops.library.entity.Book;
 import com.oops.library.entity.BorrowLog;
 import com.oops.library.entity.RestorationLog;
 import com.oops.library.repository.BookRepository;
+import com.oops.library.search.Isbn;
 
+/**
+ * Single entry point for catalog reads and writes.
+ *
+ * Reads go through a bounded LRU cache keyed by book id and a full-catalog
+ * snapshot tagged with the catalog version. Every write bumps the version,
+ * which retires the snapshot, and replaces or evicts only the entry for the
+ * book it touched. Writes that reach the database some other way (borrow,
+ * return, admin delete) report themselves through {@link #notifySaved} and
+ * {@link #notifyRemoved}.
+ *
+ * Only this node's writes are reported, so cached books and the snapshot are
+ * also dropped {@link #DEFAULT_TTL_MILLIS} after they were read; that bounds
+ * how long a change made on another node can go unseen.
+ */
 public class CatalogManager {
-	
+
+    static final int DEFAULT_CACHE_CAPACITY = 1000;
+    static final long DEFAULT_TTL_MILLIS = 5_000;
+
 	private static CatalogManager instance;
     private final BookRepository bookRepo;
+    private final Set<CatalogListener> listeners = new CopyOnWriteArraySet<>();
+
+    private final int cacheCapacity;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Map<Long, Cached> cache;  // access-ordered; guarded by itself
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder snapshotHits = new LongAdder();
+    private final LongAdder snapshotMisses = new LongAdder();
+
     private CatalogManager(BookRepository bookRepo) {
+        this(bookRepo, DEFAULT_CACHE_CAPACITY);
+    }
+    CatalogManager(BookRepository bookRepo, int cacheCapacity) {
+        this(bookRepo, cacheCapacity, DEFAULT_TTL_MILLIS, System::currentTimeMillis);
+    }
+    CatalogManager(BookRepository bookRepo, int cacheCapacity, long ttlMillis, LongSupplier clock) {
         this.bookRepo = bookRepo;
+        this.cacheCapacity = cacheCapacity;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Cached> eldest) {
+                if (size() > CatalogManager.this.cacheCapacity) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
     }
     public static synchronized CatalogManager getInstance(BookRepository bookRepo) {
         if (instance == null) {
@@ -21,22 +84,255 @@ public class CatalogManager {
         return instance;
     }
 
+    public void addListener(CatalogListener listener) {
+        listeners.add(listener);
+    }
+    public void removeListener(CatalogListener listener) {
+        listeners.remove(listener);
+    }
+
     public Book addBook(Book book) {
-        return bookRepo.save(book);
+        Book saved = bookRepo.save(book);
+        notifySaved(saved);
+        return saved;
     }
     public Book updateBook(Book book) {
-        return bookRepo.save(book);
+        // readers keep the cached row until the save succeeds
+        evict(book.getId());
+        Book saved = bookRepo.save(book);
+        notifySaved(saved);
+        return saved;
     }
     public void removeBook(Long id) {
+        evict(id);
         bookRepo.deleteById(id);
+        notifyRemoved(id);
     }
+
     public List<Book> getAllBooks() {
-        return bookRepo.findAll();
+        Snapshot current = snapshot;
+        long seen = version.get();
+        long now = clock.getAsLong();
+        if (current != null && current.version() == seen && now - current.loadedAt() < ttlMillis) {
+            snapshotHits.increment();
+            return current.books();
+        }
+        snapshotMisses.increment();
+        List<Book> books = List.copyOf(bookRepo.findAll());
+        snapshot = new Snapshot(seen, now, books);
+        return books;
     }
+    /**
+     * The book as cached; shared with every other reader, so not to be
+     * modified. Edits start from {@link #loadBookForEdit}.
+     */
 	public Book getBookById(Long id) {
-		return bookRepo.findBookById(id);
+        if (id == null) {
+            return null;
+        }
+        long seen;
+        synchronized (cache) {
+            Book cached = fresh(id);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+            seen = version.get();
+        }
+        misses.increment();
+        Book book = bookRepo.findBookById(id);
+        if (book != null) {
+            synchronized (cache) {
+                // a write since the read may have made this row stale
+                if (version.get() == seen) {
+                    cache.put(id, new Cached(book, clock.getAsLong()));
+                }
+            }
+        }
+        return book;
 	}
-	
+
+    /**
+     * A fresh copy of the book from the database, neither taken from nor
+     * added to the cache, for a caller that changes it and then saves it
+     * through {@link #updateBook}.
+     */
+    public Book loadBookForEdit(Long id) {
+        return id != null ? bookRepo.findBookById(id) : null;
+    }
+
+    /**
+     * Books for {@code ids} in the given order, reading only the uncached ones
+     * from the database (in one query). Missing ids are skipped.
+     */
+    public List<Book> getBooksByIds(List<Long> ids) {
+        Map<Long, Book> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        long seen;
+        synchronized (cache) {
+            for (Long id : ids) {
+                Book cached = fresh(id);
+                if (cached != null) {
+                    found.put(id, cached);
+                } else {
+                    missing.add(id);
+                }
+            }
+            seen = version.get();
+        }
+        hits.add(found.size());
+        if (!missing.isEmpty()) {
+            misses.add(missing.size());
+            List<Book> loaded = bookRepo.findAllById(missing);
+            for (Book book : loaded) {
+                found.put(book.getId(), book);
+            }
+            cacheAll(loaded, seen);
+        }
+        List<Book> books = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Book book = found.get(id);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        return books;
+    }
+
+    /**
+     * Every copy whose ISBN matches {@code isbn} in either ISBN-10 or
+     * ISBN-13 form, ordered by id.
+     */
+    public List<Book> getBooksByIsbn(String isbn) {
+        String isbn13 = Isbn.toIsbn13(isbn);
+        if (isbn13 == null) {
+            return new ArrayList<>();
+        }
+        long seen = version.get();
+        List<Book> books = bookRepo.findByIsbn13OrderByIdAsc(isbn13);
+        cacheAll(books, seen);
+        return books;
+    }
+
+    /**
+     * Copies for a batch of scanned ISBNs in one query, keyed by ISBN-13.
+     * Unparseable ISBNs are left out; ISBNs without copies map to an empty list.
+     */
+    public Map<String, List<Book>> getBooksByIsbns(Collection<String> isbns) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String isbn : isbns) {
+            String isbn13 = Isbn.toIsbn13(isbn);
+            if (isbn13 != null) {
+                keys.add(isbn13);
+            }
+        }
+        Map<String, List<Book>> result = new LinkedHashMap<>();
+        keys.forEach(key -> result.put(key, new ArrayList<>()));
+        if (keys.isEmpty()) {
+            return result;
+        }
+        long seen = version.get();
+        List<Book> books = bookRepo.findByIsbn13InOrderByIdAsc(keys);
+        for (Book book : books) {
+            result.get(book.getIsbn13()).add(book);
+        }
+        cacheAll(books, seen);
+        return result;
+    }
+
+    /**
+     * Records a book saved outside {@link #addBook}/{@link #updateBook}.
+     */
+    public void notifySaved(Book book) {
+        if (book.getId() != null) {
+            synchronized (cache) {
+                cache.put(book.getId(), new Cached(book, clock.getAsLong()));
+                version.incrementAndGet();
+            }
+        } else {
+            version.incrementAndGet();
+        }
+        for (CatalogListener listener : listeners) {
+            listener.onBookSaved(book);
+        }
+        // results derived from listener state while it was being updated must not outlive it
+        version.incrementAndGet();
+    }
+    /**
+     * Records a book deleted outside {@link #removeBook}.
+     */
+    public void notifyRemoved(Long id) {
+        evict(id);
+        for (CatalogListener listener : listeners) {
+            listener.onBookRemoved(id);
+        }
+        version.incrementAndGet();
+    }
+
+    /**
+     * Changes on every catalog write.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    public CacheStats getCacheStats() {
+        int size;
+        synchronized (cache) {
+            size = cache.size();
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), size, cacheCapacity,
+                snapshotHits.sum(), snapshotMisses.sum(), version.get());
+    }
+
+    private void cacheAll(List<Book> books, long seen) {
+        long now = clock.getAsLong();
+        synchronized (cache) {
+            if (version.get() == seen) {
+                for (Book book : books) {
+                    cache.put(book.getId(), new Cached(book, now));
+                }
+            }
+        }
+    }
+
+    // the cached book if it is younger than the TTL; caller holds the cache lock
+    private Book fresh(Long id) {
+        Cached cached = cache.get(id);
+        if (cached == null) {
+            return null;
+        }
+        if (clock.getAsLong() - cached.cachedAt() >= ttlMillis) {
+            cache.remove(id);
+            return null;
+        }
+        return cached.book();
+    }
+
+    private void evict(Long id) {
+        synchronized (cache) {
+            if (id != null) {
+                cache.remove(id);
+            }
+            version.incrementAndGet();
+        }
+    }
+
+    private record Cached(Book book, long cachedAt) {
+    }
+
+    private record Snapshot(long version, long loadedAt, List<Book> books) {
+    }
+
+    public record CacheStats(long hits, long misses, long evictions, int size, int capacity,
+                             long snapshotHits, long snapshotMisses, long version) {
+
+        public double hitRatio() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+    }
+
 
 //    // hooks for logs:
 //    public List<BorrowLog> getBorrowLogs(Book b) { … }
@@ -23,10 +23,13 @@ public class FacadeDashboard {
 		this.userInfoService=userInfoService;
 	}
 	
-	public Map<String,List<?>> getBooksAndUsers() throws EnchantedLibraryException
+	/**
+	 * One keyset page of books (ids after {@code afterId}) plus the users.
+	 */
+	public Map<String,List<?>> getBooksAndUsers(Long afterId, int limit) throws EnchantedLibraryException
 	{
 		Map<String, List<?>> collections = new HashMap<>();
-		List<Book> getBooks=bookService.getAllBooks();
+		List<Book> getBooks=bookService.getBooksAfter(afterId, limit);
 		List<User> getUsers=userInfoService.getAllRegisteredUsers();
 		collections.put("books", getBooks);
 		collections.put("users", getUsers);
@@ -1,6 +1,9 @@
 package com.oops.library.entity;
+import com.oops.library.search.Isbn;
+
 import jakarta.persistence.*;
 @Entity
+@Table(indexes = @Index(name = "idx_book_isbn13", columnList = "isbn13"))
 @Inheritance(strategy=InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name="book_type")
 public abstract class Book {
@@ -15,6 +18,10 @@ public abstract class Book {
 	
 	private String isbn;
 	
+	// normalized lookup key derived from isbn; null when isbn is not a valid ISBN
+	@Column(length = 13)
+	private String isbn13;
+	
 	//Examples of sections can be General, Reserved, Restricted
 	private String section;
 	
@@ -23,12 +30,21 @@ public abstract class Book {
 	
 	@Column(name = "cover_image_url", length = 512)
     private String coverImagePath;
+
+	// optimistic lock; the default fills the column for rows that predate it
+	@Version
+	@Column(nullable = false, columnDefinition = "bigint default 0")
+	private long version;
 	
 	public abstract double getLateFeeRate();
 
 
 	public abstract String getType();
 
+	public long getVersion() {
+		return version;
+	}
+
 	public Long getId() {
 		return id;
 	}
@@ -59,6 +75,11 @@ public abstract class Book {
 
 	public void setIsbn(String isbn) {
 		this.isbn = isbn;
+		this.isbn13 = Isbn.toIsbn13(isbn);
+	}
+
+	public String getIsbn13() {
+		return isbn13;
 	}
 
 	public String getSection() {
@@ -0,0 +1,94 @@
+package com.oops.library.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+/**
+ * A patron's place in the queue for a copy that is out. Holds are served
+ * in id order; when the copy comes back the oldest WAITING hold becomes
+ * READY and the copy is RESERVED until {@link #getPickupBy()}.
+ */
+@Entity
+@Table(name = "book_hold", indexes = @Index(name = "idx_book_hold_book_status", columnList = "book_id, status"))
+public class BookHold {
+
+	public enum Status { WAITING, READY, FULFILLED, EXPIRED, CANCELLED }
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@ManyToOne(optional = false)
+	private Book book;
+
+	@ManyToOne(optional = false)
+	private User patron;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 16)
+	private Status status;
+
+	@Column(nullable = false)
+	private LocalDateTime placedAt;
+
+	private LocalDateTime readyAt;
+
+	private LocalDateTime pickupBy;
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public Book getBook() {
+		return book;
+	}
+
+	public void setBook(Book book) {
+		this.book = book;
+	}
+
+	public User getPatron() {
+		return patron;
+	}
+
+	public void setPatron(User patron) {
+		this.patron = patron;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public void setStatus(Status status) {
+		this.status = status;
+	}
+
+	public LocalDateTime getPlacedAt() {
+		return placedAt;
+	}
+
+	public void setPlacedAt(LocalDateTime placedAt) {
+		this.placedAt = placedAt;
+	}
+
+	public LocalDateTime getReadyAt() {
+		return readyAt;
+	}
+
+	public void setReadyAt(LocalDateTime readyAt) {
+		this.readyAt = readyAt;
+	}
+
+	public LocalDateTime getPickupBy() {
+		return pickupBy;
+	}
+
+	public void setPickupBy(LocalDateTime pickupBy) {
+		this.pickupBy = pickupBy;
+	}
+}
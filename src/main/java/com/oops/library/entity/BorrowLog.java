@@ -2,6 +2,7 @@ package com.oops.library.entity;
 
 import java.time.LocalDateTime;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -25,6 +26,16 @@ public class BorrowLog {
 	private LocalDateTime returnDate;
 	
 	private boolean returned;
+	
+	@Column(nullable = false, columnDefinition = "int default 0")
+	private int renewals;
+
+	// Issued as a reading-room loan, so returned automatically when due
+	@Column(nullable = false, columnDefinition = "boolean default false")
+	private boolean readingRoom;
+
+	// Due date the overdue notice was last sent for; claimed by one node per due date
+	private LocalDateTime overdueNoticeFor;
 
 	public Long getId() {
 		return id;
@@ -73,6 +84,30 @@ public class BorrowLog {
 	public void setReturned(boolean returned) {
 		this.returned = returned;
 	}
+
+	public int getRenewals() {
+		return renewals;
+	}
+
+	public void setRenewals(int renewals) {
+		this.renewals = renewals;
+	}
+
+	public boolean isReadingRoom() {
+		return readingRoom;
+	}
+
+	public void setReadingRoom(boolean readingRoom) {
+		this.readingRoom = readingRoom;
+	}
+
+	public LocalDateTime getOverdueNoticeFor() {
+		return overdueNoticeFor;
+	}
+
+	public void setOverdueNoticeFor(LocalDateTime overdueNoticeFor) {
+		this.overdueNoticeFor = overdueNoticeFor;
+	}
 	
 	
 
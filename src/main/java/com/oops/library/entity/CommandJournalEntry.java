@@ -0,0 +1,90 @@
+package com.oops.library.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+/**
+ * One borrow or return, as appended to the command journal. Entries are
+ * never updated; a mistaken return is reversed by a later UNDO_RETURN entry.
+ */
+@Entity
+@Table(name = "command_journal", indexes = {
+		@Index(name = "idx_command_journal_batch", columnList = "batchId"),
+		@Index(name = "idx_command_journal_book", columnList = "bookId, sequence")})
+public class CommandJournalEntry {
+
+	public enum Type { BORROW, RENEW, RETURN, UNDO_RETURN }
+
+	// assigned in append order
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long sequence;
+
+	@Enumerated(EnumType.STRING)
+	@Column(nullable = false, length = 16)
+	private Type type;
+
+	// groups the entries written by one request, e.g. a desk return of several books
+	@Column(nullable = false, length = 36)
+	private String batchId;
+
+	@Column(nullable = false)
+	private Long bookId;
+
+	private Long borrowLogId;
+
+	private Long borrowerId;
+
+	// due date of the loan, so an undone return restores it
+	private LocalDateTime dueDate;
+
+	@Column(nullable = false)
+	private LocalDateTime recordedAt;
+
+	protected CommandJournalEntry() {
+	}
+
+	public CommandJournalEntry(Type type, String batchId, Long bookId, Long borrowLogId, Long borrowerId,
+			LocalDateTime dueDate) {
+		this.type = type;
+		this.batchId = batchId;
+		this.bookId = bookId;
+		this.borrowLogId = borrowLogId;
+		this.borrowerId = borrowerId;
+		this.dueDate = dueDate;
+		this.recordedAt = LocalDateTime.now();
+	}
+
+	public Long getSequence() {
+		return sequence;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public String getBatchId() {
+		return batchId;
+	}
+
+	public Long getBookId() {
+		return bookId;
+	}
+
+	public Long getBorrowLogId() {
+		return borrowLogId;
+	}
+
+	public Long getBorrowerId() {
+		return borrowerId;
+	}
+
+	public LocalDateTime getDueDate() {
+		return dueDate;
+	}
+
+	public LocalDateTime getRecordedAt() {
+		return recordedAt;
+	}
+}
@@ -0,0 +1,63 @@
+package com.oops.library.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+/**
+ * The outcome of a POST sent with an idempotency key, so a retry of the
+ * same request gets the same answer instead of running again.
+ */
+@Entity
+@Table(name = "idempotency_record", indexes = @Index(name = "idx_idempotency_created", columnList = "createdAt"))
+public class IdempotencyRecord {
+
+	// hex SHA-256 of "<user>|<endpoint>|<key>", so one patron's key can't replay another's request
+	@Id
+	@Column(length = 64)
+	private String scopedKey;
+
+	@Column(nullable = false)
+	private String view;
+
+	// flash attributes of the outcome, as a JSON object
+	@Column(length = 4000)
+	private String attributes;
+
+	@Column(nullable = false)
+	private LocalDateTime createdAt;
+
+	// claimed by a request that is still running; view and attributes are not set yet
+	@Column(nullable = false, columnDefinition = "boolean default false")
+	private boolean pending;
+
+	protected IdempotencyRecord() {
+	}
+
+	public IdempotencyRecord(String scopedKey, String view, String attributes) {
+		this.scopedKey = scopedKey;
+		this.view = view;
+		this.attributes = attributes;
+		this.createdAt = LocalDateTime.now();
+	}
+
+	public String getScopedKey() {
+		return scopedKey;
+	}
+
+	public String getView() {
+		return view;
+	}
+
+	public String getAttributes() {
+		return attributes;
+	}
+
+	public LocalDateTime getCreatedAt() {
+		return createdAt;
+	}
+
+	public boolean isPending() {
+		return pending;
+	}
+}
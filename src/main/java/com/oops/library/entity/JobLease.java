@@ -0,0 +1,67 @@
+package com.oops.library.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+/**
+ * Who may run a scheduled job (or one partition of it) across the cluster.
+ * A node holds the lease until {@link #getExpiresAt()} and keeps pushing
+ * that forward while it works; every new holder gets a higher
+ * {@link #getFencingToken()}, so a node that lost its lease can tell.
+ * {@link #getCompletedRun()} records the last run that finished, so the
+ * same run is not repeated by a node that arrives late.
+ */
+@Entity
+@Table(name = "job_lease")
+public class JobLease {
+
+	// job name, "<job>#<partition>" for a partition
+	@Id
+	@Column(length = 100)
+	private String name;
+
+	private String owner;
+
+	private long fencingToken;
+
+	@Column(nullable = false)
+	private LocalDateTime expiresAt;
+
+	private String completedRun;
+
+	private LocalDateTime completedAt;
+
+	protected JobLease() {
+	}
+
+	public JobLease(String name) {
+		this.name = name;
+		// free from the start
+		this.expiresAt = LocalDateTime.of(1970, 1, 1, 0, 0);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getOwner() {
+		return owner;
+	}
+
+	public long getFencingToken() {
+		return fencingToken;
+	}
+
+	public LocalDateTime getExpiresAt() {
+		return expiresAt;
+	}
+
+	public String getCompletedRun() {
+		return completedRun;
+	}
+
+	public LocalDateTime getCompletedAt() {
+		return completedAt;
+	}
+}
@@ -0,0 +1,54 @@
+package com.oops.library.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+/**
+ * Open loans as of a command journal sequence number, so recovery only
+ * replays the entries after it.
+ */
+@Entity
+@Table(name = "journal_checkpoint")
+public class JournalCheckpoint {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(nullable = false)
+	private long sequence;
+
+	@Column(nullable = false)
+	private LocalDateTime createdAt;
+
+	// LoanLedger.encode() output
+	@Lob
+	@Column(columnDefinition = "LONGTEXT")
+	private String openLoans;
+
+	protected JournalCheckpoint() {
+	}
+
+	public JournalCheckpoint(long sequence, String openLoans) {
+		this.sequence = sequence;
+		this.openLoans = openLoans;
+		this.createdAt = LocalDateTime.now();
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public long getSequence() {
+		return sequence;
+	}
+
+	public LocalDateTime getCreatedAt() {
+		return createdAt;
+	}
+
+	public String getOpenLoans() {
+		return openLoans;
+	}
+}
@@ -0,0 +1,137 @@
+package com.oops.library.entity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+/**
+ * The late fee run up by one loan. Accrued nightly while the loan is out
+ * and overdue, carried forward when it is renewed, and fixed when it is
+ * returned ({@link #isSettled()}).
+ * Rows outlive their borrow log so the patron's balance stays explained.
+ */
+@Entity
+@Table(name = "late_fee", indexes = {
+		@Index(name = "idx_late_fee_open", columnList = "settled, accruedOn"),
+		@Index(name = "idx_late_fee_patron", columnList = "patronId")})
+public class LateFee {
+
+	@Id
+	private Long borrowLogId;
+
+	@Column(nullable = false)
+	private Long patronId;
+
+	@Column(nullable = false)
+	private LocalDateTime dueDate;
+
+	private double dailyRate;
+
+	private long overdueDays;
+
+	private double amount;
+
+	// owed from due dates before a renewal; the default fills older rows
+	@Column(nullable = false, columnDefinition = "double default 0")
+	private double carried;
+
+	private LocalDate accruedOn;
+
+	private boolean settled;
+
+	private LocalDateTime settledAt;
+
+	// the nightly accrual and a return can change the same fee at once; the default fills older rows
+	@Version
+	@Column(nullable = false, columnDefinition = "bigint default 0")
+	private long version;
+
+	protected LateFee() {
+	}
+
+	public LateFee(Long borrowLogId, Long patronId, LocalDateTime dueDate, double dailyRate) {
+		this.borrowLogId = borrowLogId;
+		this.patronId = patronId;
+		this.dueDate = dueDate;
+		this.dailyRate = dailyRate;
+	}
+
+	/**
+	 * Brings the fee to {@code overdueDays} days past the current due date
+	 * as of {@code on}.
+	 *
+	 * @return how much the amount changed
+	 */
+	public double accrue(long overdueDays, LocalDate on) {
+		double previous = amount;
+		this.overdueDays = Math.max(0, overdueDays);
+		this.amount = carried + this.overdueDays * dailyRate;
+		this.accruedOn = on;
+		return amount - previous;
+	}
+
+	/**
+	 * Brings the fee to {@code overdueDays} days as of {@code on}, keeps that
+	 * amount as owed, and counts any further days from {@code newDueDate}.
+	 *
+	 * @return how much the amount changed
+	 */
+	public double renew(long overdueDays, LocalDate on, LocalDateTime newDueDate) {
+		double change = accrue(overdueDays, on);
+		this.carried = amount;
+		this.overdueDays = 0;
+		this.dueDate = newDueDate;
+		return change;
+	}
+
+	public Long getBorrowLogId() {
+		return borrowLogId;
+	}
+
+	public Long getPatronId() {
+		return patronId;
+	}
+
+	public LocalDateTime getDueDate() {
+		return dueDate;
+	}
+
+	public double getDailyRate() {
+		return dailyRate;
+	}
+
+	public long getOverdueDays() {
+		return overdueDays;
+	}
+
+	public double getAmount() {
+		return amount;
+	}
+
+	public double getCarried() {
+		return carried;
+	}
+
+	public LocalDate getAccruedOn() {
+		return accruedOn;
+	}
+
+	public boolean isSettled() {
+		return settled;
+	}
+
+	public LocalDateTime getSettledAt() {
+		return settledAt;
+	}
+
+	public void settle(LocalDateTime settledAt) {
+		this.settled = true;
+		this.settledAt = settledAt;
+	}
+
+	public void reopen() {
+		this.settled = false;
+		this.settledAt = null;
+	}
+}
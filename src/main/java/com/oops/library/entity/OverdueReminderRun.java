@@ -0,0 +1,71 @@
+package com.oops.library.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+/**
+ * Progress of one day's overdue reminders over one range of borrower ids,
+ * so a run cut short resumes after the last borrower it finished with
+ * instead of starting over.
+ */
+@Entity
+@Table(name = "overdue_reminder_run")
+public class OverdueReminderRun {
+
+	// "<date>:<fromBorrowerId>-<toBorrowerId>"
+	@Id
+	@Column(length = 100)
+	private String runKey;
+
+	// every borrower up to and including this one has been dealt with; null before the first
+	private Long cursorBorrowerId;
+
+	private long sent;
+
+	private long failed;
+
+	private boolean completed;
+
+	@Column(nullable = false)
+	private LocalDateTime startedAt;
+
+	private LocalDateTime updatedAt;
+
+	protected OverdueReminderRun() {
+	}
+
+	public OverdueReminderRun(String runKey, LocalDateTime startedAt) {
+		this.runKey = runKey;
+		this.startedAt = startedAt;
+		this.updatedAt = startedAt;
+	}
+
+	public String getRunKey() {
+		return runKey;
+	}
+
+	public Long getCursorBorrowerId() {
+		return cursorBorrowerId;
+	}
+
+	public long getSent() {
+		return sent;
+	}
+
+	public long getFailed() {
+		return failed;
+	}
+
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	public LocalDateTime getStartedAt() {
+		return startedAt;
+	}
+
+	public LocalDateTime getUpdatedAt() {
+		return updatedAt;
+	}
+}
@@ -0,0 +1,41 @@
+package com.oops.library.entity;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+/**
+ * Running total of a patron's late fees, kept in step with {@link LateFee}.
+ */
+@Entity
+@Table(name = "patron_balance")
+public class PatronBalance {
+
+	@Id
+	private Long patronId;
+
+	private double balance;
+
+	private LocalDateTime updatedAt;
+
+	protected PatronBalance() {
+	}
+
+	public PatronBalance(Long patronId, double balance) {
+		this.patronId = patronId;
+		this.balance = balance;
+		this.updatedAt = LocalDateTime.now();
+	}
+
+	public Long getPatronId() {
+		return patronId;
+	}
+
+	public double getBalance() {
+		return balance;
+	}
+
+	public LocalDateTime getUpdatedAt() {
+		return updatedAt;
+	}
+}
@@ -0,0 +1,54 @@
+package com.oops.library.entity;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.*;
+
+/**
+ * Marks that a borrower got their overdue reminder on a given day, so no
+ * rerun of that day's reminders sends it again.
+ */
+@Entity
+@Table(name = "reminder_sent", uniqueConstraints = @UniqueConstraint(name = "uk_reminder_sent_borrower_day",
+		columnNames = {"sentOn", "borrowerId"}))
+public class ReminderSent {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+
+	@Column(nullable = false)
+	private Long borrowerId;
+
+	@Column(nullable = false)
+	private LocalDate sentOn;
+
+	private LocalDateTime sentAt;
+
+	protected ReminderSent() {
+	}
+
+	// sentOn is the day of the run, which may have started before midnight
+	public ReminderSent(Long borrowerId, LocalDate sentOn, LocalDateTime sentAt) {
+		this.borrowerId = borrowerId;
+		this.sentOn = sentOn;
+		this.sentAt = sentAt;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public Long getBorrowerId() {
+		return borrowerId;
+	}
+
+	public LocalDate getSentOn() {
+		return sentOn;
+	}
+
+	public LocalDateTime getSentAt() {
+		return sentAt;
+	}
+}
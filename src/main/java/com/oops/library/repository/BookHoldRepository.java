@@ -0,0 +1,58 @@
+package com.oops.library.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.oops.library.entity.Book;
+import com.oops.library.entity.BookHold;
+import com.oops.library.entity.User;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface BookHoldRepository extends JpaRepository<BookHold, Long> {
+
+	// Head of a book's queue; a locking read sees holds committed after the transaction began
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT h FROM BookHold h WHERE h.book.id = :bookId AND h.status = :status ORDER BY h.id")
+	List<BookHold> findForUpdate(@Param("bookId") Long bookId, @Param("status") BookHold.Status status, Limit limit);
+
+	// Holds in one status on any of these books, read with a lock as findForUpdate is
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT h FROM BookHold h WHERE h.book.id IN :bookIds AND h.status = :status ORDER BY h.id")
+	List<BookHold> findAllForUpdate(@Param("bookIds") Collection<Long> bookIds, @Param("status") BookHold.Status status);
+
+	// Keyset batch of holds in one status, for rebuilding the in-memory queues
+	List<BookHold> findByStatusAndIdGreaterThanOrderByIdAsc(BookHold.Status status, Long afterId, Limit limit);
+
+	List<BookHold> findByStatusAndPickupByBefore(BookHold.Status status, LocalDateTime time);
+
+	Optional<BookHold> findFirstByBookIdAndPatronIdAndStatus(Long bookId, Long patronId, BookHold.Status status);
+
+	boolean existsByBookIdAndStatus(Long bookId, BookHold.Status status);
+
+	List<BookHold> findByPatronIdAndStatus(Long patronId, BookHold.Status status);
+
+	boolean existsByBookIdAndPatronIdAndStatusIn(Long bookId, Long patronId, Collection<BookHold.Status> statuses);
+
+	List<BookHold> findByPatronEmailAndStatusInOrderByIdAsc(String email, Collection<BookHold.Status> statuses);
+
+	@Modifying
+	@Transactional
+	void deleteByBook(Book book);
+
+	@Modifying
+	@Transactional
+	void deleteByPatron(User patron);
+}
@@ -1,18 +1,97 @@
 package com.oops.library.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.oops.library.entity.Book;
+import com.oops.library.entity.BookStatus;
+
+import jakarta.persistence.LockModeType;
 
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
-	
+
 	public Book findBookById(Long id);
 
 	@Query(value="SELECT * FROM enchanted_library.book",nativeQuery=true)
 	public List<Book> findAllBooks();
+
+	// Keyset ("seek after id") page of the catalog, ordered by id
+	List<Book> findByIdGreaterThanOrderByIdAsc(Long afterId, Limit limit);
+
+	// Case-insensitive contains filters; patterns come from BookRepository.containsPattern
+	@Query(value = "SELECT b FROM Book b"
+			+ " WHERE (:authorPattern IS NULL OR LOWER(b.author) LIKE :authorPattern ESCAPE '!')"
+			+ " AND (:titlePattern IS NULL OR LOWER(b.title) LIKE :titlePattern ESCAPE '!')",
+			countQuery = "SELECT COUNT(b) FROM Book b"
+			+ " WHERE (:authorPattern IS NULL OR LOWER(b.author) LIKE :authorPattern ESCAPE '!')"
+			+ " AND (:titlePattern IS NULL OR LOWER(b.title) LIKE :titlePattern ESCAPE '!')")
+	Page<Book> searchByAuthorAndTitle(@Param("authorPattern") String authorPattern,
+			@Param("titlePattern") String titlePattern, Pageable pageable);
+
+	// ISBN lookups go through the idx_book_isbn13 index; callers pass Isbn.toIsbn13 keys
+	List<Book> findByIsbn13OrderByIdAsc(String isbn13);
+
+	List<Book> findByIsbn13InOrderByIdAsc(Collection<String> isbn13s);
+
+	// Rows written before isbn13 existed, for the startup backfill
+	List<Book> findByIdGreaterThanAndIsbn13IsNullAndIsbnIsNotNullOrderByIdAsc(Long afterId, Limit limit);
+
+	// Compare-and-set on status; returns 0 when the copy is no longer in status "from"
+	@Modifying(clearAutomatically = true, flushAutomatically = true)
+	@Query("UPDATE Book b SET b.status = :to, b.version = b.version + 1 WHERE b.id = :id AND b.status = :from")
+	int updateStatusIf(@Param("id") Long id, @Param("from") BookStatus from, @Param("to") BookStatus to);
+
+	// Row-locked read; serializes hold placement with the return that would promote it
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT b FROM Book b WHERE b.id = :id")
+	Optional<Book> findByIdForUpdate(@Param("id") Long id);
+
+	// Row-locked read of a group commit's copies, in id order so concurrent groups lock alike
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT b FROM Book b WHERE b.id IN :ids ORDER BY b.id")
+	List<Book> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+	// Set-based form of updateStatusIf for multi-book checkout and return
+	@Modifying(clearAutomatically = true, flushAutomatically = true)
+	@Query("UPDATE Book b SET b.status = :to, b.version = b.version + 1 WHERE b.id IN :ids AND b.status = :from")
+	int updateStatusIfAll(@Param("ids") Collection<Long> ids, @Param("from") BookStatus from, @Param("to") BookStatus to);
+
+	@Query("SELECT b.id FROM Book b WHERE b.status = :status")
+	List<Long> findIdsByStatus(@Param("status") BookStatus status);
+
+	@Query("SELECT b.status, COUNT(b) FROM Book b GROUP BY b.status")
+	List<Object[]> countGroupedByStatus();
+
+	// Keyset batch of (id, status, section, book_type) rows for facet reconciliation
+	@Query(value = "SELECT id, status, section, book_type FROM book WHERE id > :afterId ORDER BY id LIMIT :limit",
+			nativeQuery = true)
+	List<Object[]> findFacetsAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+	/**
+	 * Builds a LIKE pattern matching values that contain {@code query}
+	 * (trimmed, lower-cased), escaping LIKE wildcards with '!'.
+	 * Returns null for a blank query so the filter is skipped.
+	 */
+	static String containsPattern(String query) {
+		if (query == null || query.trim().isEmpty()) {
+			return null;
+		}
+		String escaped = query.trim().toLowerCase()
+				.replace("!", "!!")
+				.replace("%", "!%")
+				.replace("_", "!_");
+		return "%" + escaped + "%";
+	}
 }
@@ -1,18 +1,26 @@
 package com.oops.library.repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.oops.library.entity.*;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface BorrowLogRepository extends JpaRepository<BorrowLog, Long> {
     
@@ -53,6 +61,73 @@ public interface BorrowLogRepository extends JpaRepository<BorrowLog, Long> {
     @Query("SELECT bl FROM BorrowLog bl WHERE bl.borrower = :borrower AND bl.returned = true ORDER BY bl.returnDate DESC")
     List<BorrowLog> findRecentlyReturnedByBorrower(@Param("borrower") User borrower, Pageable pageable);
 
+    boolean existsByBookIdAndBorrowerIdAndReturnedFalse(Long bookId, Long borrowerId);
+
+    List<BorrowLog> findByBookIdAndReturnedFalse(Long bookId);
+
+    // Row-locked read, so concurrent renewals of one loan take turns
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT bl FROM BorrowLog bl WHERE bl.id = :id")
+    Optional<BorrowLog> findByIdForUpdate(@Param("id") Long id);
+
+    // Claims the overdue notice of an open loan for its due date; 0 if a node already has it
+    @Modifying
+    @Transactional
+    @Query("UPDATE BorrowLog bl SET bl.overdueNoticeFor = :due WHERE bl.id = :id AND bl.returned = false "
+            + "AND bl.returnDate = :due AND (bl.overdueNoticeFor IS NULL OR bl.overdueNoticeFor <> :due)")
+    int claimOverdueNotice(@Param("id") Long id, @Param("due") LocalDateTime due);
+
+    // [bookId, borrowLogId] of the open loans of these copies, e.g. the rows a batch checkout just wrote
+    @Query("SELECT bl.book.id, bl.id FROM BorrowLog bl WHERE bl.book.id IN :bookIds AND bl.returned = false")
+    List<Object[]> findOpenLoanIds(@Param("bookIds") Collection<Long> bookIds);
+
+    // [bookId, borrowLogId] of every open loan
+    @Query("SELECT bl.book.id, bl.id FROM BorrowLog bl WHERE bl.returned = false")
+    List<Object[]> findAllOpenLoanIds();
+
+    // [borrowerId, open loans] of these borrowers, leaving out those with none
+    @Query("SELECT bl.borrower.id, COUNT(bl) FROM BorrowLog bl WHERE bl.borrower.id IN :borrowerIds "
+            + "AND bl.returned = false GROUP BY bl.borrower.id")
+    List<Object[]> countOpenLoansByBorrower(@Param("borrowerIds") Collection<Long> borrowerIds);
+
+    /**
+     * Open loans due before {@code now} of borrowers with ids from
+     * {@code fromId} up to (not including) {@code toId}, with their borrower
+     * and book, one borrower's loans after another, each as {@code [BorrowLog, Double]}
+     * with the late fee accrued so far (null before the first accrual).
+     * Rows come from a server-side cursor 500 at a time (useCursorFetch on
+     * the MySQL URL), so the caller must hold a transaction and close the
+     * stream.
+     */
+    @Query("SELECT bl, f.amount FROM BorrowLog bl JOIN FETCH bl.borrower b JOIN FETCH bl.book "
+            + "LEFT JOIN LateFee f ON f.borrowLogId = bl.id "
+            + "WHERE bl.returned = false AND bl.returnDate < :now AND b.id >= :fromId AND b.id < :toId "
+            + "ORDER BY b.id, bl.returnDate")
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")})
+    Stream<Object[]> streamOverdueByBorrower(@Param("now") LocalDateTime now, @Param("fromId") long fromId,
+            @Param("toId") long toId);
+
+    @Query("SELECT COUNT(DISTINCT bl.borrower.id) FROM BorrowLog bl WHERE bl.returned = false AND bl.returnDate < :now "
+            + "AND bl.borrower.id >= :fromId AND bl.borrower.id < :toId")
+    long countOverdueBorrowers(@Param("now") LocalDateTime now, @Param("fromId") long fromId, @Param("toId") long toId);
+
+    // Highest borrower id with an overdue loan, which bounds the reminder partitions; null if none
+    @Query("SELECT MAX(bl.borrower.id) FROM BorrowLog bl WHERE bl.returned = false AND bl.returnDate < :now")
+    Long findMaxOverdueBorrowerId(@Param("now") LocalDateTime now);
+
+    /**
+     * Just the id and due date of a loan.
+     */
+    interface LoanDue {
+        Long getId();
+
+        LocalDateTime getReturnDate();
+    }
+
+    List<LoanDue> findDueDatesByReturnedFalse();
+
     long countByReturnedFalse();
     long countByReturnedFalseAndReturnDateBefore(LocalDateTime date);
 	
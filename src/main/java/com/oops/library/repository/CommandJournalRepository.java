@@ -0,0 +1,28 @@
+package com.oops.library.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.oops.library.entity.CommandJournalEntry;
+
+@Repository
+public interface CommandJournalRepository extends JpaRepository<CommandJournalEntry, Long> {
+
+	// Keyset page of the journal for replay, in append order
+	List<CommandJournalEntry> findBySequenceGreaterThanOrderBySequenceAsc(Long afterSequence, Limit limit);
+
+	Optional<CommandJournalEntry> findFirstByBookIdOrderBySequenceDesc(Long bookId);
+
+	List<CommandJournalEntry> findByBatchIdAndTypeOrderBySequenceDesc(String batchId, CommandJournalEntry.Type type);
+
+	// Highest sequence whose transaction has surely committed by now
+	@Query("SELECT MAX(e.sequence) FROM CommandJournalEntry e WHERE e.recordedAt < :settledBefore")
+	Long findMaxSequenceRecordedBefore(@Param("settledBefore") LocalDateTime settledBefore);
+}
@@ -0,0 +1,38 @@
+package com.oops.library.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.oops.library.entity.IdempotencyRecord;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+	@Modifying
+	@Transactional
+	@Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :cutoff")
+	int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+
+	// Pending claim on a key; a duplicate key means another request holds it
+	@Modifying
+	@Transactional
+	@Query(value = "INSERT INTO idempotency_record (scoped_key, view, created_at, pending) VALUES (:key, '', :now, true)",
+			nativeQuery = true)
+	int claim(@Param("key") String scopedKey, @Param("now") LocalDateTime now);
+
+	@Modifying
+	@Transactional
+	@Query("DELETE FROM IdempotencyRecord r WHERE r.scopedKey = :key AND r.pending = true")
+	int releaseClaim(@Param("key") String scopedKey);
+
+	@Modifying
+	@Transactional
+	@Query("DELETE FROM IdempotencyRecord r WHERE r.scopedKey = :key AND r.createdAt < :cutoff")
+	int deleteIfCreatedBefore(@Param("key") String scopedKey, @Param("cutoff") LocalDateTime cutoff);
+}
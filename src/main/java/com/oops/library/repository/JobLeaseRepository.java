@@ -0,0 +1,44 @@
+package com.oops.library.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.oops.library.entity.JobLease;
+
+@Repository
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+
+	// Takes a free lease for a run not yet completed, with the next fencing token; 0 if it is not free
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE JobLease l SET l.owner = :owner, l.fencingToken = l.fencingToken + 1, l.expiresAt = :until "
+			+ "WHERE l.name = :name AND l.expiresAt <= :now AND (l.completedRun IS NULL OR l.completedRun <> :run)")
+	int acquire(@Param("name") String name, @Param("owner") String owner, @Param("run") String run,
+			@Param("now") LocalDateTime now, @Param("until") LocalDateTime until);
+
+	// 0 if the lease has passed to another holder
+	@Modifying
+	@Query("UPDATE JobLease l SET l.expiresAt = :until "
+			+ "WHERE l.name = :name AND l.owner = :owner AND l.fencingToken = :token")
+	int renew(@Param("name") String name, @Param("owner") String owner, @Param("token") long token,
+			@Param("until") LocalDateTime until);
+
+	@Modifying
+	@Query("UPDATE JobLease l SET l.expiresAt = :now, l.completedRun = :run, l.completedAt = :now "
+			+ "WHERE l.name = :name AND l.owner = :owner AND l.fencingToken = :token")
+	int complete(@Param("name") String name, @Param("owner") String owner, @Param("token") long token,
+			@Param("run") String run, @Param("now") LocalDateTime now);
+
+	// Frees the lease without marking the run done, so another node may retry it
+	@Modifying
+	@Query("UPDATE JobLease l SET l.expiresAt = :now "
+			+ "WHERE l.name = :name AND l.owner = :owner AND l.fencingToken = :token")
+	int release(@Param("name") String name, @Param("owner") String owner, @Param("token") long token,
+			@Param("now") LocalDateTime now);
+
+	boolean existsByNameAndOwnerAndFencingToken(String name, String owner, long fencingToken);
+}
@@ -0,0 +1,16 @@
+package com.oops.library.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.oops.library.entity.JournalCheckpoint;
+
+@Repository
+public interface JournalCheckpointRepository extends JpaRepository<JournalCheckpoint, Long> {
+
+	Optional<JournalCheckpoint> findFirstByOrderBySequenceDesc();
+
+	void deleteBySequenceLessThan(long sequence);
+}
@@ -0,0 +1,43 @@
+package com.oops.library.repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.oops.library.entity.BorrowLog;
+import com.oops.library.entity.LateFee;
+
+@Repository
+public interface LateFeeRepository extends JpaRepository<LateFee, Long> {
+
+	List<LateFee> findByBorrowLogIdIn(Collection<Long> borrowLogIds);
+
+	// Loans a day or more overdue that have no fee yet
+	@Query("SELECT bl FROM BorrowLog bl JOIN FETCH bl.book WHERE bl.returned = false AND bl.returnDate < :cutoff "
+			+ "AND NOT EXISTS (SELECT f FROM LateFee f WHERE f.borrowLogId = bl.id) ORDER BY bl.id")
+	List<BorrowLog> findOverdueWithoutFee(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+	// Open fees of loans still out that were last accrued before today
+	@Query("SELECT f FROM LateFee f WHERE f.settled = false AND f.accruedOn < :today "
+			+ "AND EXISTS (SELECT bl FROM BorrowLog bl WHERE bl.id = f.borrowLogId AND bl.returned = false) "
+			+ "ORDER BY f.borrowLogId")
+	List<LateFee> findDueForAccrual(@Param("today") LocalDate today, Limit limit);
+
+	// Open fees whose loan came back without being settled, with the return time
+	@Query("SELECT f, bl.returnDate FROM LateFee f, BorrowLog bl "
+			+ "WHERE f.settled = false AND bl.id = f.borrowLogId AND bl.returned = true ORDER BY f.borrowLogId")
+	List<Object[]> findReturnedUnsettled(Limit limit);
+
+	@Modifying
+	@Transactional
+	void deleteByPatronId(Long patronId);
+}
@@ -0,0 +1,36 @@
+package com.oops.library.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.oops.library.entity.OverdueReminderRun;
+
+@Repository
+public interface OverdueReminderRunRepository extends JpaRepository<OverdueReminderRun, String> {
+
+	// Senders finish out of order, so a checkpoint never moves the cursor back
+	@Modifying
+	@Query("UPDATE OverdueReminderRun r SET r.cursorBorrowerId = :cursor, r.sent = :sent, r.failed = :failed, "
+			+ "r.updatedAt = :now WHERE r.runKey = :runKey "
+			+ "AND (r.cursorBorrowerId IS NULL OR r.cursorBorrowerId < :cursor)")
+	int advance(@Param("runKey") String runKey, @Param("cursor") long cursor, @Param("sent") long sent,
+			@Param("failed") long failed, @Param("now") LocalDateTime now);
+
+	@Modifying
+	@Query("UPDATE OverdueReminderRun r SET r.completed = true, r.sent = :sent, r.failed = :failed, r.updatedAt = :now "
+			+ "WHERE r.runKey = :runKey")
+	int complete(@Param("runKey") String runKey, @Param("sent") long sent, @Param("failed") long failed,
+			@Param("now") LocalDateTime now);
+
+	boolean existsByRunKeyStartingWithAndCompletedFalse(String prefix);
+
+	@Modifying
+	@Transactional
+	long deleteByStartedAtBefore(LocalDateTime cutoff);
+}
@@ -0,0 +1,20 @@
+package com.oops.library.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.oops.library.entity.PatronBalance;
+
+@Repository
+public interface PatronBalanceRepository extends JpaRepository<PatronBalance, Long> {
+
+	// Atomic increment; 0 if the patron has no balance row yet
+	@Modifying
+	@Query("UPDATE PatronBalance p SET p.balance = p.balance + :delta, p.updatedAt = :now WHERE p.patronId = :patronId")
+	int addToBalance(@Param("patronId") Long patronId, @Param("delta") double delta, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,24 @@
+package com.oops.library.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.oops.library.entity.ReminderSent;
+
+@Repository
+public interface ReminderSentRepository extends JpaRepository<ReminderSent, Long> {
+
+	@Query("SELECT r.borrowerId FROM ReminderSent r WHERE r.sentOn = :day AND r.borrowerId >= :fromId AND r.borrowerId < :toId")
+	List<Long> findBorrowerIdsSentOn(@Param("day") LocalDate day, @Param("fromId") long fromId, @Param("toId") long toId);
+
+	@Modifying
+	@Transactional
+	long deleteBySentOnBefore(LocalDate day);
+}
@@ -1,18 +1,37 @@
 package com.oops.library.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.oops.library.entity.User;
 import com.oops.library.entity.Role;
 
+import jakarta.persistence.LockModeType;
+
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
 	Optional<User> findByEmail(String email);
 
 	List<User> findByRole(Role role);
+
+	@Query("SELECT u.id, u.role FROM User u")
+	List<Object[]> findAllRoles();
+
+	// Row-locked read; serializes one patron's borrows so their loan count can't be outrun
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT u FROM User u WHERE u.id = :id")
+	Optional<User> findByIdForUpdate(@Param("id") Long id);
+
+	// The same for the borrowers of a group commit, in id order
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT u FROM User u WHERE u.id IN :ids ORDER BY u.id")
+	List<User> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
 }
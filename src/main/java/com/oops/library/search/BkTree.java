@@ -0,0 +1,121 @@
+package com.oops.library.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Burkhard-Keller tree over terms under Levenshtein distance.
+ *
+ * Every child edge is labelled with its distance to the parent, so by the
+ * triangle inequality a search within {@code k} edits of the query only has
+ * to descend into children whose label lies in {@code [d - k, d + k]}, where
+ * {@code d} is the distance from the query to the current node. That keeps
+ * fuzzy lookups sub-linear in the vocabulary size.
+ *
+ * BK-trees do not support removal, so callers filter results against their
+ * live vocabulary and rebuild once too many dead terms accumulate.
+ * Not thread-safe; callers guard it with their own lock.
+ */
+public class BkTree {
+
+	private Node root;
+	private final Set<String> terms = new HashSet<>();
+
+	public boolean add(String term) {
+		if (!terms.add(term)) {
+			return false;
+		}
+		if (root == null) {
+			root = new Node(term);
+			return true;
+		}
+		Node node = root;
+		while (true) {
+			int distance = levenshtein(term, node.term);
+			Node child = node.children.get(distance);
+			if (child == null) {
+				node.children.put(distance, new Node(term));
+				return true;
+			}
+			node = child;
+		}
+	}
+
+	public boolean contains(String term) {
+		return terms.contains(term);
+	}
+
+	public int size() {
+		return terms.size();
+	}
+
+	public void clear() {
+		root = null;
+		terms.clear();
+	}
+
+	/**
+	 * Every term within {@code maxDistance} edits of {@code query}.
+	 */
+	public List<String> search(String query, int maxDistance) {
+		List<String> result = new ArrayList<>();
+		if (root == null) {
+			return result;
+		}
+		Deque<Node> pending = new ArrayDeque<>();
+		pending.push(root);
+		while (!pending.isEmpty()) {
+			Node node = pending.pop();
+			int distance = levenshtein(query, node.term);
+			if (distance <= maxDistance) {
+				result.add(node.term);
+			}
+			for (Map.Entry<Integer, Node> child : node.children.entrySet()) {
+				int edge = child.getKey();
+				if (edge >= distance - maxDistance && edge <= distance + maxDistance) {
+					pending.push(child.getValue());
+				}
+			}
+		}
+		return result;
+	}
+
+	static int levenshtein(String a, String b) {
+		if (a.equals(b)) {
+			return 0;
+		}
+		int[] previous = new int[b.length() + 1];
+		int[] current = new int[b.length() + 1];
+		for (int j = 0; j <= b.length(); j++) {
+			previous[j] = j;
+		}
+		for (int i = 1; i <= a.length(); i++) {
+			current[0] = i;
+			char ca = a.charAt(i - 1);
+			for (int j = 1; j <= b.length(); j++) {
+				int substitution = previous[j - 1] + (ca == b.charAt(j - 1) ? 0 : 1);
+				current[j] = Math.min(substitution, Math.min(previous[j] + 1, current[j - 1] + 1));
+			}
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return previous[b.length()];
+	}
+
+	private static final class Node {
+
+		private final String term;
+		private final Map<Integer, Node> children = new HashMap<>(4);
+
+		Node(String term) {
+			this.term = term;
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package com.oops.library.search;
+
+/**
+ * A dashboard search. With free {@code text} the catalog is searched by
+ * relevance across all text fields, narrowed by author/title words when
+ * given. Otherwise, in fuzzy mode every query word has to be within
+ * {@code maxEdits} edits of a word in the field, and in the default mode
+ * the field has to contain the query text (case-insensitive).
+ */
+public record CatalogQuery(String author, String title, boolean fuzzy, int maxEdits, String text) {
+
+	public static CatalogQuery contains(String author, String title) {
+		return new CatalogQuery(author, title, false, 0, null);
+	}
+
+	public static CatalogQuery fuzzy(String author, String title, int maxEdits) {
+		return new CatalogQuery(author, title, true, Math.max(0, maxEdits), null);
+	}
+
+	public static CatalogQuery ranked(String text, String author, String title) {
+		return new CatalogQuery(author, title, false, 0, text);
+	}
+
+	public boolean isRanked() {
+		return text != null && !text.trim().isEmpty();
+	}
+
+	/**
+	 * Equal for queries that match the same books: fields are trimmed and
+	 * lower-cased the way the indexes normalize them.
+	 */
+	public String cacheKey() {
+		String mode = isRanked() ? "ranked" : fuzzy ? "fuzzy" + maxEdits : "contains";
+		return mode + '\u0000' + key(text) + '\u0000' + key(author) + '\u0000' + key(title);
+	}
+
+	private static String key(String value) {
+		String normalized = InvertedCatalogIndex.normalizeQuery(value);
+		return normalized == null ? "" : normalized;
+	}
+
+	public boolean isBlank() {
+		return (author == null || author.trim().isEmpty())
+				&& (title == null || title.trim().isEmpty())
+				&& !isRanked();
+	}
+}
@@ -0,0 +1,195 @@
+package com.oops.library.search;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Prefix completions over book titles, authors and ISBNs.
+ *
+ * Titles and authors are lower-cased and accent-folded, and are keyed from
+ * the start of every word, so "pott" completes "Harry Potter". ISBNs are
+ * keyed without hyphens or spaces, and also by their ISBN-13 form. The
+ * last indexed values of every book are kept so an update can take its old
+ * keys out of the tries.
+ */
+public class CompletionIndex {
+
+	public enum Field { TITLE, AUTHOR, ISBN }
+
+	public record Completion(Field field, String value) {
+	}
+
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+	private static final Pattern ISBN_SEPARATORS = Pattern.compile("[^\\p{Alnum}]+");
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<Long, String[]> documents = new HashMap<>();
+	private final Map<Field, PrefixTrie> tries = new EnumMap<>(Field.class);
+
+	public CompletionIndex() {
+		for (Field field : Field.values()) {
+			tries.put(field, new PrefixTrie());
+		}
+	}
+
+	public void put(Long id, String title, String author, String isbn) {
+		String[] values = { display(title), display(author), display(isbn) };
+		lock.writeLock().lock();
+		try {
+			unindex(documents.put(id, values));
+			index(values);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(Long id) {
+		lock.writeLock().lock();
+		try {
+			unindex(documents.remove(id));
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			documents.clear();
+			tries.values().forEach(PrefixTrie::clear);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return documents.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Up to {@code limit} completions of {@code prefix}, taking one from each
+	 * requested field in turn so no single field crowds out the others.
+	 */
+	public List<Completion> complete(String prefix, Set<Field> fields, int limit) {
+		List<Completion> result = new ArrayList<>();
+		if (prefix == null || prefix.isBlank() || limit <= 0) {
+			return result;
+		}
+		List<List<Completion>> perField = new ArrayList<>();
+		lock.readLock().lock();
+		try {
+			for (Field field : fields) {
+				String key = queryKey(field, prefix);
+				if (key.isEmpty()) {
+					continue;
+				}
+				List<Completion> completions = new ArrayList<>();
+				for (String value : tries.get(field).complete(key, limit)) {
+					completions.add(new Completion(field, value));
+				}
+				perField.add(completions);
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		for (int i = 0; result.size() < limit; i++) {
+			boolean any = false;
+			for (List<Completion> completions : perField) {
+				if (i < completions.size() && result.size() < limit) {
+					result.add(completions.get(i));
+					any = true;
+				}
+			}
+			if (!any) {
+				break;
+			}
+		}
+		return result;
+	}
+
+	private void index(String[] values) {
+		for (Field field : Field.values()) {
+			String value = values[field.ordinal()];
+			if (value != null) {
+				for (String key : keys(field, value)) {
+					tries.get(field).add(key, value);
+				}
+			}
+		}
+	}
+
+	private void unindex(String[] values) {
+		if (values == null) {
+			return;
+		}
+		for (Field field : Field.values()) {
+			String value = values[field.ordinal()];
+			if (value != null) {
+				for (String key : keys(field, value)) {
+					tries.get(field).remove(key, value);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Trie keys for a stored value: one per word start for text fields, the
+	 * bare digits and the ISBN-13 for ISBNs.
+	 */
+	static Set<String> keys(Field field, String value) {
+		Set<String> keys = new LinkedHashSet<>();
+		String normalized = normalize(field, value);
+		if (normalized.isEmpty()) {
+			return keys;
+		}
+		if (field == Field.ISBN) {
+			keys.add(normalized);
+			// so ISBN-10 values also complete from ISBN-13 scans
+			String isbn13 = Isbn.toIsbn13(value);
+			if (isbn13 != null) {
+				keys.add(isbn13);
+			}
+			return keys;
+		}
+		for (int i = 0; i < normalized.length(); i++) {
+			boolean wordChar = Character.isLetterOrDigit(normalized.charAt(i));
+			if (wordChar && (i == 0 || !Character.isLetterOrDigit(normalized.charAt(i - 1)))) {
+				keys.add(normalized.substring(i));
+			}
+		}
+		return keys;
+	}
+
+	static String queryKey(Field field, String prefix) {
+		String normalized = normalize(field, prefix);
+		// a trailing space means the user finished a word; keep it
+		if (field != Field.ISBN && !normalized.isEmpty() && Character.isWhitespace(prefix.charAt(prefix.length() - 1))) {
+			normalized = normalized + " ";
+		}
+		return normalized;
+	}
+
+	private static String normalize(Field field, String value) {
+		if (field == Field.ISBN) {
+			return ISBN_SEPARATORS.matcher(value).replaceAll("").toLowerCase();
+		}
+		return WHITESPACE.matcher(InvertedCatalogIndex.fold(value.toLowerCase())).replaceAll(" ").trim();
+	}
+
+	private static String display(String value) {
+		return value == null || value.isBlank() ? null : value.trim();
+	}
+}
@@ -0,0 +1,88 @@
+package com.oops.library.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Item counts per facet value (for example books per status), kept current
+ * one item at a time.
+ *
+ * The last values seen for every item are remembered, so an update moves the
+ * item out of its old buckets and into the new ones. Applying the same values
+ * twice is a no-op, so callers can replay writes without double counting.
+ * Null facet values are not counted. Thread-safe.
+ */
+public class FacetCounts {
+
+	private final ConcurrentHashMap<Long, List<Object>> items = new ConcurrentHashMap<>();
+	private final List<ConcurrentHashMap<Object, LongAdder>> buckets;
+
+	public FacetCounts(int facets) {
+		List<ConcurrentHashMap<Object, LongAdder>> maps = new ArrayList<>(facets);
+		for (int i = 0; i < facets; i++) {
+			maps.add(new ConcurrentHashMap<>());
+		}
+		this.buckets = List.copyOf(maps);
+	}
+
+	/**
+	 * Sets the facet values of an item, one per facet in declaration order.
+	 */
+	public void put(Long id, Object... values) {
+		if (values.length != buckets.size()) {
+			throw new IllegalArgumentException("Expected " + buckets.size() + " facet values");
+		}
+		List<Object> current = Arrays.asList(values.clone());
+		move(items.put(id, current), current);
+	}
+
+	public void remove(Long id) {
+		move(items.remove(id), null);
+	}
+
+	public int size() {
+		return items.size();
+	}
+
+	public long count(int facet, Object value) {
+		LongAdder adder = buckets.get(facet).get(value);
+		return adder == null ? 0L : adder.sum();
+	}
+
+	/**
+	 * Non-zero counts of one facet.
+	 */
+	public Map<Object, Long> counts(int facet) {
+		Map<Object, Long> result = new HashMap<>();
+		buckets.get(facet).forEach((value, adder) -> {
+			long count = adder.sum();
+			if (count != 0) {
+				result.put(value, count);
+			}
+		});
+		return result;
+	}
+
+	// Concurrent puts of one id each undo exactly the values they replaced,
+	// so the buckets always add up to the surviving values.
+	private void move(List<Object> from, List<Object> to) {
+		for (int i = 0; i < buckets.size(); i++) {
+			Object old = from != null ? from.get(i) : null;
+			Object value = to != null ? to.get(i) : null;
+			if (old != null && old.equals(value)) {
+				continue;
+			}
+			if (old != null) {
+				buckets.get(i).computeIfAbsent(old, k -> new LongAdder()).decrement();
+			}
+			if (value != null) {
+				buckets.get(i).computeIfAbsent(value, k -> new LongAdder()).increment();
+			}
+		}
+	}
+}
@@ -0,0 +1,318 @@
+package com.oops.library.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over book authors and titles.
+ *
+ * Each field keeps token -> book id posting lists. Query tokens may be
+ * partial words, so each one is resolved to the indexed tokens containing it
+ * through a {@link TrigramIndex} over the field vocabulary. The postings of
+ * the query tokens are intersected and the surviving candidates verified
+ * against the stored lower-cased values, so the result is exactly the
+ * "case-insensitive contains" match the dashboard has always used.
+ *
+ * For typo-tolerant searches each field also keeps accent-folded tokens in a
+ * {@link BkTree}, so misspelt or differently transliterated names are found
+ * without computing edit distances against every book.
+ */
+public class InvertedCatalogIndex {
+
+	private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+	private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+	private final FieldIndex authors = new FieldIndex();
+	private final FieldIndex titles = new FieldIndex();
+	private final Map<Long, IndexedBook> documents = new HashMap<>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Indexes or re-indexes a book.
+	 *
+	 * @return false if the book was already indexed with this author and title
+	 */
+	public boolean put(Long id, String author, String title) {
+		IndexedBook updated = new IndexedBook(normalize(author), normalize(title));
+		lock.writeLock().lock();
+		try {
+			IndexedBook previous = documents.put(id, updated);
+			if (updated.equals(previous)) {
+				return false;
+			}
+			if (previous != null) {
+				authors.remove(id, previous.author());
+				titles.remove(id, previous.title());
+			}
+			authors.add(id, updated.author());
+			titles.add(id, updated.title());
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(Long id) {
+		lock.writeLock().lock();
+		try {
+			IndexedBook previous = documents.remove(id);
+			if (previous != null) {
+				authors.remove(id, previous.author());
+				titles.remove(id, previous.title());
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			documents.clear();
+			authors.clear();
+			titles.clear();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return documents.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Ids of books whose author contains {@code author} and whose title
+	 * contains {@code title} (case-insensitive). Blank criteria are ignored.
+	 * Ids are returned in ascending order.
+	 */
+	public List<Long> search(String author, String title) {
+		String authorQuery = normalizeQuery(author);
+		String titleQuery = normalizeQuery(title);
+
+		lock.readLock().lock();
+		try {
+			List<Set<Long>> postingLists = new ArrayList<>();
+			if (authorQuery != null) {
+				for (String token : tokenize(authorQuery)) {
+					postingLists.add(authors.containing(token));
+				}
+			}
+			if (titleQuery != null) {
+				for (String token : tokenize(titleQuery)) {
+					postingLists.add(titles.containing(token));
+				}
+			}
+
+			Set<Long> candidates = postingLists.isEmpty() ? documents.keySet() : intersect(postingLists);
+
+			List<Long> matches = new ArrayList<>();
+			for (Long id : candidates) {
+				IndexedBook book = documents.get(id);
+				if (book == null) {
+					continue;
+				}
+				if (authorQuery != null && !book.author().contains(authorQuery)) {
+					continue;
+				}
+				if (titleQuery != null && !book.title().contains(titleQuery)) {
+					continue;
+				}
+				matches.add(id);
+			}
+			Collections.sort(matches);
+			return matches;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Ids of books where every word of {@code author} (and of {@code title})
+	 * is within {@code maxEdits} edits of a word in that field, after case
+	 * and accent folding. Short words allow fewer edits, see
+	 * {@link #allowedEdits}. Ids are returned in ascending order.
+	 */
+	public List<Long> fuzzySearch(String author, String title, int maxEdits) {
+		String authorQuery = normalizeQuery(author);
+		String titleQuery = normalizeQuery(title);
+
+		lock.readLock().lock();
+		try {
+			List<Set<Long>> postingLists = new ArrayList<>();
+			if (authorQuery != null) {
+				for (String token : tokenize(fold(authorQuery))) {
+					postingLists.add(authors.similarTo(token, allowedEdits(token, maxEdits)));
+				}
+			}
+			if (titleQuery != null) {
+				for (String token : tokenize(fold(titleQuery))) {
+					postingLists.add(titles.similarTo(token, allowedEdits(token, maxEdits)));
+				}
+			}
+			List<Long> matches = new ArrayList<>(postingLists.isEmpty() ? documents.keySet() : intersect(postingLists));
+			Collections.sort(matches);
+			return matches;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Caps the edit distance by word length so that two-letter words do not
+	 * match every other short word: 0 edits up to 2 characters, 1 up to 5,
+	 * otherwise {@code maxEdits}.
+	 */
+	static int allowedEdits(String token, int maxEdits) {
+		int byLength = token.length() <= 2 ? 0 : token.length() <= 5 ? 1 : 2;
+		return Math.min(maxEdits, byLength);
+	}
+
+	/**
+	 * Strips diacritics so "Kāḷidāsa" and "kalidasa" fold to the same token.
+	 */
+	static String fold(String normalized) {
+		return COMBINING_MARKS.matcher(Normalizer.normalize(normalized, Normalizer.Form.NFD)).replaceAll("");
+	}
+
+	private static Set<Long> intersect(List<Set<Long>> postingLists) {
+		postingLists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+		Set<Long> result = new HashSet<>(postingLists.get(0));
+		for (int i = 1; i < postingLists.size() && !result.isEmpty(); i++) {
+			result.retainAll(postingLists.get(i));
+		}
+		return result;
+	}
+
+	static String normalize(String value) {
+		return value == null ? "" : value.toLowerCase();
+	}
+
+	static String normalizeQuery(String query) {
+		if (query == null || query.trim().isEmpty()) {
+			return null;
+		}
+		return query.trim().toLowerCase();
+	}
+
+	/**
+	 * Splits on anything that is not a letter or digit. Applied to both
+	 * stored values and queries, every token of a substring query is itself
+	 * a substring of some token of the matching value.
+	 */
+	static Set<String> tokenize(String normalized) {
+		Set<String> tokens = new LinkedHashSet<>();
+		for (String token : TOKEN_SEPARATOR.split(normalized)) {
+			if (!token.isEmpty()) {
+				tokens.add(token);
+			}
+		}
+		return tokens;
+	}
+
+	private record IndexedBook(String author, String title) {
+	}
+
+	/**
+	 * Posting lists for a single field, plus a trigram index over the
+	 * field's vocabulary for substring lookups and a BK-tree over the
+	 * accent-folded vocabulary for fuzzy lookups.
+	 */
+	private static final class FieldIndex {
+
+		private final Map<String, Set<Long>> postings = new HashMap<>();
+		private final TrigramIndex vocabulary = new TrigramIndex();
+		private final Map<String, Set<Long>> foldedPostings = new HashMap<>();
+		private final BkTree foldedVocabulary = new BkTree();
+
+		void add(Long id, String value) {
+			for (String token : tokenize(value)) {
+				postings.computeIfAbsent(token, t -> {
+					vocabulary.add(t);
+					return new HashSet<>();
+				}).add(id);
+			}
+			for (String token : tokenize(fold(value))) {
+				foldedPostings.computeIfAbsent(token, t -> {
+					foldedVocabulary.add(t);
+					return new HashSet<>();
+				}).add(id);
+			}
+		}
+
+		void remove(Long id, String value) {
+			for (String token : tokenize(value)) {
+				Set<Long> ids = postings.get(token);
+				if (ids != null) {
+					ids.remove(id);
+					if (ids.isEmpty()) {
+						postings.remove(token);
+						vocabulary.remove(token);
+					}
+				}
+			}
+			for (String token : tokenize(fold(value))) {
+				Set<Long> ids = foldedPostings.get(token);
+				if (ids != null) {
+					ids.remove(id);
+					if (ids.isEmpty()) {
+						foldedPostings.remove(token);
+					}
+				}
+			}
+			// the BK-tree keeps dead terms; rebuild once they dominate
+			if (foldedVocabulary.size() > 2 * foldedPostings.size() + 64) {
+				foldedVocabulary.clear();
+				foldedPostings.keySet().forEach(foldedVocabulary::add);
+			}
+		}
+
+		void clear() {
+			postings.clear();
+			vocabulary.clear();
+			foldedPostings.clear();
+			foldedVocabulary.clear();
+		}
+
+		/**
+		 * Union of the postings of every indexed token that contains the
+		 * query token, found through the vocabulary trigram index.
+		 */
+		Set<Long> containing(String queryToken) {
+			Set<Long> result = new HashSet<>();
+			for (String term : vocabulary.termsContaining(queryToken)) {
+				result.addAll(postings.get(term));
+			}
+			return result;
+		}
+
+		/**
+		 * Union of the postings of every live folded token within
+		 * {@code maxEdits} edits of the folded query token.
+		 */
+		Set<Long> similarTo(String foldedToken, int maxEdits) {
+			Set<Long> result = new HashSet<>();
+			for (String term : foldedVocabulary.search(foldedToken, maxEdits)) {
+				Set<Long> ids = foldedPostings.get(term);
+				if (ids != null) {
+					result.addAll(ids);
+				}
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package com.oops.library.search;
+
+import java.util.regex.Pattern;
+
+/**
+ * ISBN normalization. ISBN-10 and ISBN-13 forms of the same book normalize
+ * to the same ISBN-13, so a scan in either format finds the same entry.
+ */
+public final class Isbn {
+
+	private static final Pattern PREFIX = Pattern.compile("^\\s*isbn(-1[03])?:?", Pattern.CASE_INSENSITIVE);
+	private static final Pattern SEPARATORS = Pattern.compile("[\\s-]+");
+
+	private Isbn() {
+	}
+
+	/**
+	 * The ISBN-13 for an ISBN-10 or ISBN-13, ignoring spaces, hyphens and an
+	 * "ISBN" label; null when {@code raw} is not a well-formed ISBN with a
+	 * correct check digit.
+	 */
+	public static String toIsbn13(String raw) {
+		if (raw == null) {
+			return null;
+		}
+		String digits = SEPARATORS.matcher(PREFIX.matcher(raw).replaceFirst("")).replaceAll("").toUpperCase();
+		if (digits.length() == 10 && isValidIsbn10(digits)) {
+			String body = "978" + digits.substring(0, 9);
+			return body + isbn13CheckDigit(body);
+		}
+		if (digits.length() == 13 && digits.chars().allMatch(Character::isDigit)
+				&& isbn13CheckDigit(digits.substring(0, 12)) == digits.charAt(12) - '0') {
+			return digits;
+		}
+		return null;
+	}
+
+	private static boolean isValidIsbn10(String digits) {
+		int sum = 0;
+		for (int i = 0; i < 10; i++) {
+			char c = digits.charAt(i);
+			int value;
+			if (Character.isDigit(c)) {
+				value = c - '0';
+			} else if (c == 'X' && i == 9) {
+				value = 10;
+			} else {
+				return false;
+			}
+			sum += (10 - i) * value;
+		}
+		return sum % 11 == 0;
+	}
+
+	private static int isbn13CheckDigit(String first12) {
+		int sum = 0;
+		for (int i = 0; i < 12; i++) {
+			sum += (first12.charAt(i) - '0') * (i % 2 == 0 ? 1 : 3);
+		}
+		return (10 - sum % 10) % 10;
+	}
+}
@@ -0,0 +1,249 @@
+package com.oops.library.search;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.core.LowerCaseFilterFactory;
+import org.apache.lucene.analysis.custom.CustomAnalyzer;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilterFactory;
+import org.apache.lucene.analysis.standard.StandardTokenizerFactory;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+
+import com.oops.library.entity.AncientScript;
+import com.oops.library.entity.Book;
+import com.oops.library.entity.RareBook;
+
+/**
+ * Lucene full-text index over every book subtype, ranked by relevance.
+ *
+ * Writes go straight to an {@link IndexWriter} and become searchable when
+ * {@link #refresh()} reopens the near-real-time searcher; they survive a
+ * restart once {@link #commit()} has run. Free text is parsed with
+ * {@link SimpleQueryParser}, which accepts any user input without syntax
+ * errors, and is matched across the weighted fields below. A query that is
+ * itself an ISBN also matches the book's normalized ISBN-13 exactly.
+ */
+public class LuceneCatalogIndex implements Closeable {
+
+	public static final String ID = "id";
+	public static final String TITLE = "title";
+	public static final String AUTHOR = "author";
+	public static final String ISBN = "isbn";
+	public static final String SECTION = "section";
+	public static final String STATUS = "status";
+	public static final String TYPE = "type";
+	public static final String ORIGINAL_LANGUAGE = "originalLanguage";
+	public static final String TRANSLATION_NOTES = "translationNotes";
+	public static final String PRESERVATION_METHOD = "preservationMethod";
+
+	private static final String ID_SORT = "id_sort";
+	private static final Map<String, Float> TEXT_FIELD_WEIGHTS = Map.of(
+			TITLE, 4f, AUTHOR, 3f, ORIGINAL_LANGUAGE, 1.5f, TRANSLATION_NOTES, 1f,
+			PRESERVATION_METHOD, 1f, SECTION, 0.5f);
+
+	public record Hits(List<Long> ids, int total) {
+	}
+
+	private final Directory directory;
+	private final Analyzer analyzer;
+	private final IndexWriter writer;
+	private final SearcherManager searcherManager;
+	private final AtomicLong generation = new AtomicLong();
+
+	public LuceneCatalogIndex(Directory directory) throws IOException {
+		this.directory = directory;
+		this.analyzer = CustomAnalyzer.builder()
+				.withTokenizer(StandardTokenizerFactory.class)
+				.addTokenFilter(LowerCaseFilterFactory.class)
+				.addTokenFilter(ASCIIFoldingFilterFactory.class)
+				.build();
+		this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+				.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+		this.searcherManager = new SearcherManager(writer, null);
+		this.searcherManager.addListener(new ReferenceManager.RefreshListener() {
+			@Override
+			public void beforeRefresh() {
+			}
+
+			@Override
+			public void afterRefresh(boolean didRefresh) {
+				if (didRefresh) {
+					generation.incrementAndGet();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Builds the document for a book. Pure, so callers may build documents
+	 * on several threads.
+	 */
+	public static Document toDocument(Book book) {
+		Document doc = new Document();
+		doc.add(new StringField(ID, book.getId().toString(), Field.Store.YES));
+		doc.add(new NumericDocValuesField(ID_SORT, book.getId()));
+		doc.add(new StringField(TYPE, book.getType(), Field.Store.NO));
+		if (book.getStatus() != null) {
+			doc.add(new StringField(STATUS, book.getStatus().name(), Field.Store.NO));
+		}
+		addText(doc, TITLE, book.getTitle());
+		addText(doc, AUTHOR, book.getAuthor());
+		addText(doc, SECTION, book.getSection());
+		if (book.getIsbn13() != null) {
+			doc.add(new StringField(ISBN, book.getIsbn13(), Field.Store.NO));
+		}
+		if (book instanceof AncientScript ancient) {
+			addText(doc, ORIGINAL_LANGUAGE, ancient.getOriginalLanguage());
+			addText(doc, TRANSLATION_NOTES, ancient.getTranslationNotes());
+		} else if (book instanceof RareBook rare) {
+			addText(doc, PRESERVATION_METHOD, rare.getPreservationMethod());
+		}
+		return doc;
+	}
+
+	private static void addText(Document doc, String field, String value) {
+		if (value != null && !value.isBlank()) {
+			doc.add(new TextField(field, value, Field.Store.NO));
+		}
+	}
+
+	public void upsert(Book book) throws IOException {
+		upsert(book.getId(), toDocument(book));
+	}
+
+	public void upsert(Long id, Document doc) throws IOException {
+		writer.updateDocument(new Term(ID, id.toString()), doc);
+	}
+
+	public void delete(Long id) throws IOException {
+		writer.deleteDocuments(new Term(ID, id.toString()));
+	}
+
+	public void deleteAll() throws IOException {
+		writer.deleteAll();
+	}
+
+	/**
+	 * Makes writes so far visible to searches.
+	 */
+	public void refresh() throws IOException {
+		searcherManager.maybeRefresh();
+	}
+
+	/**
+	 * Changes whenever a refresh exposes new writes to searches.
+	 */
+	public long generation() {
+		return generation.get();
+	}
+
+	public void commit() throws IOException {
+		writer.commit();
+	}
+
+	public int numDocs() throws IOException {
+		IndexSearcher searcher = searcherManager.acquire();
+		try {
+			return searcher.getIndexReader().numDocs();
+		} finally {
+			searcherManager.release(searcher);
+		}
+	}
+
+	/**
+	 * Ids of books matching free {@code text} (across all text fields) and,
+	 * when given, {@code author} and {@code title}, best match first with
+	 * ties in id order.
+	 */
+	public Hits search(String text, String author, String title, int offset, int limit) throws IOException {
+		Query query = buildQuery(text, author, title);
+		IndexSearcher searcher = searcherManager.acquire();
+		try {
+			int total = searcher.count(query);
+			if (offset >= total || limit <= 0) {
+				return new Hits(new ArrayList<>(), total);
+			}
+			Sort byRelevance = new Sort(SortField.FIELD_SCORE, new SortField(ID_SORT, SortField.Type.LONG));
+			TopDocs top = searcher.search(query, Math.min(offset + limit, total), byRelevance);
+			StoredFields stored = searcher.storedFields();
+			List<Long> ids = new ArrayList<>();
+			for (int i = offset; i < top.scoreDocs.length; i++) {
+				ScoreDoc hit = top.scoreDocs[i];
+				ids.add(Long.valueOf(stored.document(hit.doc).get(ID)));
+			}
+			return new Hits(ids, total);
+		} finally {
+			searcherManager.release(searcher);
+		}
+	}
+
+	Query buildQuery(String text, String author, String title) {
+		BooleanQuery.Builder query = new BooleanQuery.Builder();
+		boolean any = false;
+		if (text != null && !text.isBlank()) {
+			Query parsed = parser(TEXT_FIELD_WEIGHTS).parse(text);
+			String isbn13 = Isbn.toIsbn13(text);
+			if (isbn13 != null) {
+				parsed = new BooleanQuery.Builder()
+						.add(parsed, Occur.SHOULD)
+						.add(new BoostQuery(new TermQuery(new Term(ISBN, isbn13)), 10f), Occur.SHOULD)
+						.build();
+			}
+			query.add(parsed, Occur.MUST);
+			any = true;
+		}
+		if (author != null && !author.isBlank()) {
+			query.add(parser(Map.of(AUTHOR, 1f)).parse(author), Occur.MUST);
+			any = true;
+		}
+		if (title != null && !title.isBlank()) {
+			query.add(parser(Map.of(TITLE, 1f)).parse(title), Occur.MUST);
+			any = true;
+		}
+		return any ? query.build() : new MatchAllDocsQuery();
+	}
+
+	private SimpleQueryParser parser(Map<String, Float> weights) {
+		SimpleQueryParser parser = new SimpleQueryParser(analyzer, weights);
+		parser.setDefaultOperator(Occur.MUST);
+		return parser;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			searcherManager.close();
+			writer.close();
+		} finally {
+			directory.close();
+		}
+	}
+}
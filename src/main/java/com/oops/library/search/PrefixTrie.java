@@ -0,0 +1,168 @@
+package com.oops.library.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Character trie from normalized keys to display values, for completing a
+ * typed prefix. Several keys may point at the same value (for example one
+ * key per word of a title) and a key may hold several values; every
+ * (key, value) pair is reference counted so duplicates can be removed one
+ * at a time.
+ *
+ * Children are kept in sorted parallel arrays rather than maps, which keeps
+ * nodes small and lets a completion walk them in key order and stop as soon
+ * as it has enough values. Not thread-safe; callers guard it with their own
+ * lock.
+ */
+public class PrefixTrie {
+
+	private static final char[] NO_LABELS = new char[0];
+	private static final Node[] NO_CHILDREN = new Node[0];
+
+	private final Node root = new Node();
+	private int size;
+
+	public void add(String key, String value) {
+		Node node = root;
+		for (int i = 0; i < key.length(); i++) {
+			node = node.childOrCreate(key.charAt(i));
+		}
+		if (node.values == null) {
+			node.values = new TreeMap<>();
+		}
+		if (node.values.merge(value, 1, Integer::sum) == 1) {
+			size++;
+		}
+	}
+
+	public void remove(String key, String value) {
+		Node[] path = new Node[key.length() + 1];
+		path[0] = root;
+		for (int i = 0; i < key.length(); i++) {
+			path[i + 1] = path[i].child(key.charAt(i));
+			if (path[i + 1] == null) {
+				return;
+			}
+		}
+		Node node = path[key.length()];
+		if (node.values == null || !node.values.containsKey(value)) {
+			return;
+		}
+		if (node.values.merge(value, -1, Integer::sum) == 0) {
+			node.values.remove(value);
+			size--;
+			if (node.values.isEmpty()) {
+				node.values = null;
+			}
+		}
+		// prune the now-empty tail of the path
+		for (int i = key.length(); i > 0 && path[i].isEmpty(); i--) {
+			path[i - 1].removeChild(key.charAt(i - 1));
+		}
+	}
+
+	/**
+	 * Up to {@code limit} distinct values whose key starts with
+	 * {@code prefix}, in key order.
+	 */
+	public List<String> complete(String prefix, int limit) {
+		Node node = root;
+		for (int i = 0; i < prefix.length() && node != null; i++) {
+			node = node.child(prefix.charAt(i));
+		}
+		if (node == null || limit <= 0) {
+			return new ArrayList<>();
+		}
+		Set<String> result = new LinkedHashSet<>();
+		Deque<Node> pending = new ArrayDeque<>();
+		pending.push(node);
+		while (!pending.isEmpty() && result.size() < limit) {
+			Node current = pending.pop();
+			if (current.values != null) {
+				for (String value : current.values.keySet()) {
+					result.add(value);
+					if (result.size() == limit) {
+						break;
+					}
+				}
+			}
+			for (int c = current.labels.length - 1; c >= 0; c--) {
+				pending.push(current.children[c]);
+			}
+		}
+		return new ArrayList<>(result);
+	}
+
+	/**
+	 * Number of distinct (key, value) pairs.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		root.labels = NO_LABELS;
+		root.children = NO_CHILDREN;
+		root.values = null;
+		size = 0;
+	}
+
+	private static final class Node {
+
+		private char[] labels = NO_LABELS;
+		private Node[] children = NO_CHILDREN;
+		private Map<String, Integer> values;
+
+		Node child(char label) {
+			int at = Arrays.binarySearch(labels, label);
+			return at >= 0 ? children[at] : null;
+		}
+
+		Node childOrCreate(char label) {
+			int at = Arrays.binarySearch(labels, label);
+			if (at >= 0) {
+				return children[at];
+			}
+			int insert = -at - 1;
+			char[] newLabels = new char[labels.length + 1];
+			Node[] newChildren = new Node[children.length + 1];
+			System.arraycopy(labels, 0, newLabels, 0, insert);
+			System.arraycopy(children, 0, newChildren, 0, insert);
+			System.arraycopy(labels, insert, newLabels, insert + 1, labels.length - insert);
+			System.arraycopy(children, insert, newChildren, insert + 1, children.length - insert);
+			Node child = new Node();
+			newLabels[insert] = label;
+			newChildren[insert] = child;
+			labels = newLabels;
+			children = newChildren;
+			return child;
+		}
+
+		void removeChild(char label) {
+			int at = Arrays.binarySearch(labels, label);
+			if (at < 0) {
+				return;
+			}
+			char[] newLabels = new char[labels.length - 1];
+			Node[] newChildren = new Node[children.length - 1];
+			System.arraycopy(labels, 0, newLabels, 0, at);
+			System.arraycopy(children, 0, newChildren, 0, at);
+			System.arraycopy(labels, at + 1, newLabels, at, labels.length - at - 1);
+			System.arraycopy(children, at + 1, newChildren, at, children.length - at - 1);
+			labels = newLabels.length == 0 ? NO_LABELS : newLabels;
+			children = newChildren.length == 0 ? NO_CHILDREN : newChildren;
+		}
+
+		boolean isEmpty() {
+			return values == null && labels.length == 0;
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package com.oops.library.search;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of search results with a time-to-live, tied to a
+ * catalog version.
+ *
+ * Callers pass the catalog version they read before running the search.
+ * Seeing a newer version drops every entry, and a result computed against
+ * an older version is never stored, so a write can't leave stale results
+ * behind. Thread-safe; the search itself runs outside the lock.
+ */
+public class QueryResultCache<V> {
+
+	public record Stats(long hits, long misses, long evictions, long invalidations, int size, int capacity) {
+
+		public double hitRatio() {
+			long lookups = hits + misses;
+			return lookups == 0 ? 0.0 : (double) hits / lookups;
+		}
+	}
+
+	private record Entry<V>(V value, long expiresAt) {
+	}
+
+	private final int capacity;
+	private final long ttlMillis;
+	private final LongSupplier clock;
+	private final Map<String, Entry<V>> entries;  // access-ordered; guarded by this
+	private long version = Long.MIN_VALUE;
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long invalidations;
+
+	public QueryResultCache(int capacity, long ttlMillis) {
+		this(capacity, ttlMillis, System::currentTimeMillis);
+	}
+
+	public QueryResultCache(int capacity, long ttlMillis, LongSupplier clock) {
+		this.capacity = capacity;
+		this.ttlMillis = ttlMillis;
+		this.clock = clock;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+				if (size() > QueryResultCache.this.capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * The cached result for {@code key} at catalog {@code version}, computing
+	 * and caching it on a miss.
+	 */
+	public V get(String key, long version, Supplier<V> search) {
+		synchronized (this) {
+			advance(version);
+			Entry<V> entry = entries.get(key);
+			if (entry != null && entry.expiresAt() > clock.getAsLong()) {
+				hits++;
+				return entry.value();
+			}
+			if (entry != null) {
+				entries.remove(key);
+			}
+			misses++;
+		}
+		V value = search.get();
+		synchronized (this) {
+			// a write while searching may have made the result stale
+			if (capacity > 0 && this.version == version) {
+				entries.put(key, new Entry<>(value, clock.getAsLong() + ttlMillis));
+			}
+		}
+		return value;
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	public synchronized Stats stats() {
+		return new Stats(hits, misses, evictions, invalidations, entries.size(), capacity);
+	}
+
+	private void advance(long seen) {
+		if (seen > version) {
+			if (!entries.isEmpty()) {
+				invalidations++;
+				entries.clear();
+			}
+			version = seen;
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.oops.library.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Trigram (3-gram) index over a set of terms, used to find every term that
+ * contains a given substring without scanning all of them.
+ *
+ * A term can only contain the query if it contains every trigram of the
+ * query, so the smallest trigram posting list bounds the candidates and each
+ * candidate is then verified with {@link String#contains}. Queries shorter
+ * than {@link #GRAM_LENGTH} have no trigrams and are answered by scanning.
+ *
+ * Not thread-safe; callers guard it with their own lock.
+ */
+public class TrigramIndex {
+
+	public static final int GRAM_LENGTH = 3;
+
+	private final Map<String, Set<String>> postings = new HashMap<>();
+	private final Set<String> terms = new HashSet<>();
+
+	public void add(String term) {
+		if (!terms.add(term)) {
+			return;
+		}
+		for (String gram : trigrams(term)) {
+			postings.computeIfAbsent(gram, g -> new HashSet<>()).add(term);
+		}
+	}
+
+	public void remove(String term) {
+		if (!terms.remove(term)) {
+			return;
+		}
+		for (String gram : trigrams(term)) {
+			Set<String> matching = postings.get(gram);
+			if (matching != null) {
+				matching.remove(term);
+				if (matching.isEmpty()) {
+					postings.remove(gram);
+				}
+			}
+		}
+	}
+
+	public void clear() {
+		postings.clear();
+		terms.clear();
+	}
+
+	public int size() {
+		return terms.size();
+	}
+
+	/**
+	 * Every indexed term that contains {@code query}.
+	 */
+	public List<String> termsContaining(String query) {
+		List<String> result = new ArrayList<>();
+		if (query.length() < GRAM_LENGTH) {
+			for (String term : terms) {
+				if (term.contains(query)) {
+					result.add(term);
+				}
+			}
+			return result;
+		}
+
+		List<Set<String>> lists = new ArrayList<>();
+		for (String gram : trigrams(query)) {
+			Set<String> matching = postings.get(gram);
+			if (matching == null) {
+				return result;
+			}
+			lists.add(matching);
+		}
+		lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+		Collection<String> smallest = lists.get(0);
+		for (String term : smallest) {
+			if (containsAll(lists, term) && term.contains(query)) {
+				result.add(term);
+			}
+		}
+		return result;
+	}
+
+	private static boolean containsAll(List<Set<String>> lists, String term) {
+		for (int i = 1; i < lists.size(); i++) {
+			if (!lists.get(i).contains(term)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static Set<String> trigrams(String value) {
+		Set<String> grams = new LinkedHashSet<>();
+		for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+			grams.add(value.substring(i, i + GRAM_LENGTH));
+		}
+		return grams;
+	}
+}
@@ -1,9 +1,16 @@
 package com.oops.library.service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.oops.library.design.patterns.CatalogManager;
+
 import com.oops.library.repository.BookRepository;
 import com.oops.library.repository.BorrowLogRepository;
 import com.oops.library.enchanted.exception.EnchantedLibraryException;
@@ -12,6 +19,9 @@ import java.util.*;
 
 @Service
 public class BookService {
+
+    private static final Logger log = LoggerFactory.getLogger(BookService.class);
+    private static final int ISBN_BACKFILL_BATCH_SIZE = 500;
     
     @Autowired
     private BookRepository bookRepository;
@@ -19,6 +29,9 @@ public class BookService {
     @Autowired
     private BorrowLogRepository borrowLogRepository;
 
+    @Autowired
+    private HoldService holdService;
+
     @Autowired
     private FileStorageService fileStorageService;
     
@@ -34,6 +47,56 @@ public class BookService {
         }
     }
 
+    /**
+     * Keyset page of the catalog: up to {@code limit} books with id greater
+     * than {@code afterId}, ordered by id.
+     */
+    public List<Book> getBooksAfter(Long afterId, int limit) {
+        return bookRepository.findByIdGreaterThanOrderByIdAsc(afterId != null ? afterId : 0L, Limit.of(limit));
+    }
+
+    public long countBooks() {
+        return bookRepository.count();
+    }
+
+    public Map<BookStatus, Long> countBooksByStatus() {
+        Map<BookStatus, Long> counts = new EnumMap<>(BookStatus.class);
+        for (Object[] row : bookRepository.countGroupedByStatus()) {
+            if (row[0] != null) {
+                counts.put((BookStatus) row[0], (Long) row[1]);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Fills in isbn13 for rows saved before the column existed. Rows whose
+     * isbn is not a valid ISBN keep a null isbn13.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIsbn13() {
+        long lastId = 0L;
+        int updated = 0;
+        List<Book> batch;
+        do {
+            batch = bookRepository.findByIdGreaterThanAndIsbn13IsNullAndIsbnIsNotNullOrderByIdAsc(
+                    lastId, Limit.of(ISBN_BACKFILL_BATCH_SIZE));
+            List<Book> changed = new ArrayList<>();
+            for (Book book : batch) {
+                lastId = book.getId();
+                book.setIsbn(book.getIsbn());
+                if (book.getIsbn13() != null) {
+                    changed.add(book);
+                }
+            }
+            bookRepository.saveAll(changed);
+            updated += changed.size();
+        } while (batch.size() == ISBN_BACKFILL_BATCH_SIZE);
+        if (updated > 0) {
+            log.info("Backfilled isbn13 for {} books", updated);
+        }
+    }
+
     public Book getBookById(Long bookId) {
         return bookRepository.findBookById(bookId);
     }
@@ -56,6 +119,7 @@ public class BookService {
 
         // Delete associated borrow logs first
         borrowLogRepository.deleteByBook(book);
+        holdService.deleteHolds(book);
 
         // Delete any associated files
         if (book.getCoverImagePath() != null && !book.getCoverImagePath().isEmpty()) {
@@ -70,5 +134,12 @@ public class BookService {
 
         // Finally delete the book
         bookRepository.delete(book);
+
+        // Evict only once the delete is visible, or a concurrent read could re-cache the row
+        Transactions.afterCommit(() -> CatalogManager.getInstance(bookRepository).notifyRemoved(bookId));
+    }
+
+    public CatalogManager.CacheStats getCatalogCacheStats() {
+        return CatalogManager.getInstance(bookRepository).getCacheStats();
     }
 }
\ No newline at end of file
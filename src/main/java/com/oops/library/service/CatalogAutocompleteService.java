@@ -0,0 +1,110 @@
+package com.oops.library.service;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import com.oops.library.design.patterns.CatalogListener;
+import com.oops.library.design.patterns.CatalogManager;
+import com.oops.library.entity.Book;
+import com.oops.library.repository.BookRepository;
+import com.oops.library.search.CompletionIndex;
+import com.oops.library.search.CompletionIndex.Completion;
+import com.oops.library.search.CompletionIndex.Field;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Search-box completions for titles, authors and ISBNs, answered from an
+ * in-memory trie that follows {@link CatalogManager} write events.
+ */
+@Service
+public class CatalogAutocompleteService implements CatalogListener {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogAutocompleteService.class);
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private final BookRepository bookRepository;
+    private final CompletionIndex index = new CompletionIndex();
+    private final Object loadLock = new Object();
+    private volatile boolean loaded;
+
+    public CatalogAutocompleteService(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    @PostConstruct
+    void register() {
+        CatalogManager.getInstance(bookRepository).addListener(this);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Thread loader = new Thread(this::ensureLoaded, "catalog-autocomplete-warmup");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public List<Completion> complete(String prefix, Field field, int limit) {
+        ensureLoaded();
+        Set<Field> fields = field != null ? EnumSet.of(field) : EnumSet.allOf(Field.class);
+        return index.complete(prefix, fields, limit);
+    }
+
+    @Override
+    public void onBookSaved(Book book) {
+        if (book == null || book.getId() == null || !awaitLoaded()) {
+            return;
+        }
+        index.put(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn());
+    }
+
+    @Override
+    public void onBookRemoved(Long bookId) {
+        if (bookId == null || !awaitLoaded()) {
+            return;
+        }
+        index.remove(bookId);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (loaded) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            long lastId = 0L;
+            List<Book> batch;
+            do {
+                batch = bookRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(LOAD_BATCH_SIZE));
+                for (Book book : batch) {
+                    index.put(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn());
+                    lastId = book.getId();
+                }
+            } while (batch.size() == LOAD_BATCH_SIZE);
+            loaded = true;
+            log.info("Autocomplete trie built with {} books in {} ms",
+                    index.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    // same ordering argument as CatalogSearchService#awaitLoaded
+    private boolean awaitLoaded() {
+        if (loaded) {
+            return true;
+        }
+        synchronized (loadLock) {
+            return loaded;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.oops.library.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Offline rebuild of the Lucene catalog index. Started with
+ * {@code --reindex-catalog} the application rebuilds the index from the
+ * database and exits, e.g.
+ *
+ * <pre>
+ * java -jar enchanted-library.jar --reindex-catalog --spring.main.web-application-type=none
+ * </pre>
+ */
+@Component
+public class CatalogReindexRunner implements ApplicationRunner {
+
+    static final String OPTION = "reindex-catalog";
+    private static final Logger log = LoggerFactory.getLogger(CatalogReindexRunner.class);
+
+    private final LuceneCatalogService luceneCatalogService;
+    private final ApplicationContext context;
+
+    public CatalogReindexRunner(LuceneCatalogService luceneCatalogService, ApplicationContext context) {
+        this.luceneCatalogService = luceneCatalogService;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption(OPTION)) {
+            return;
+        }
+        int exitCode = 0;
+        try {
+            int indexed = luceneCatalogService.rebuild();
+            log.info("Offline reindex finished: {} books", indexed);
+        } catch (RuntimeException e) {
+            log.error("Offline reindex failed", e);
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+}
@@ -0,0 +1,245 @@
+package com.oops.library.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import com.oops.library.design.patterns.CatalogListener;
+import com.oops.library.design.patterns.CatalogManager;
+import com.oops.library.entity.Book;
+import com.oops.library.repository.BookRepository;
+import com.oops.library.search.CatalogQuery;
+import com.oops.library.search.InvertedCatalogIndex;
+import com.oops.library.search.LuceneCatalogIndex;
+import com.oops.library.search.QueryResultCache;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Answers dashboard author/title searches from an in-memory inverted index
+ * instead of loading and filtering the whole book table on every request.
+ * The index is built in the background after startup and afterwards kept
+ * current by {@link CatalogManager} write events. Until it is ready,
+ * contains searches are answered by a paginated SQL query; fuzzy searches
+ * always need the index. Free-text queries are ranked by the Lucene index
+ * ({@link LuceneCatalogService}); until that is ready they match titles
+ * containing the text.
+ *
+ * Result ids of repeated searches, and of catalog browse pages, come from
+ * a {@link QueryResultCache} keyed by the normalized query. They depend only
+ * on which books exist and their authors and titles, so the cache is
+ * invalidated when a book is added or removed or one of those changes, not
+ * on every borrow or return; the books themselves are read through the
+ * {@link CatalogManager} cache.
+ */
+@Service
+public class CatalogSearchService implements CatalogListener {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSearchService.class);
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private final BookRepository bookRepository;
+    private final LuceneCatalogService luceneCatalogService;
+    private final CatalogManager catalog;
+    private final int maxFuzzyEdits;
+    private final QueryResultCache<List<Long>> results;
+    private final QueryResultCache<LuceneCatalogIndex.Hits> rankedResults;
+    private final InvertedCatalogIndex index = new InvertedCatalogIndex();
+    private final Object loadLock = new Object();
+    // bumped after each change that can alter result ids
+    private final AtomicLong listingVersion = new AtomicLong();
+    private volatile boolean loaded;
+
+    public CatalogSearchService(BookRepository bookRepository,
+                                LuceneCatalogService luceneCatalogService,
+                                @Value("${app.search.fuzzy.max-edits:2}") int maxFuzzyEdits,
+                                @Value("${app.search.cache.capacity:500}") int cacheCapacity,
+                                @Value("${app.search.cache.ttl-ms:300000}") long cacheTtlMillis) {
+        this.bookRepository = bookRepository;
+        this.luceneCatalogService = luceneCatalogService;
+        this.catalog = CatalogManager.getInstance(bookRepository);
+        this.maxFuzzyEdits = maxFuzzyEdits;
+        this.results = new QueryResultCache<>(cacheCapacity, cacheTtlMillis);
+        this.rankedResults = new QueryResultCache<>(cacheCapacity, cacheTtlMillis);
+    }
+
+    @PostConstruct
+    void register() {
+        catalog.addListener(this);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Thread loader = new Thread(this::ensureLoaded, "catalog-index-warmup");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public boolean isReady() {
+        return loaded;
+    }
+
+    public int getMaxFuzzyEdits() {
+        return maxFuzzyEdits;
+    }
+
+    public List<Long> searchIds(String author, String title) {
+        return searchIds(CatalogQuery.contains(author, title));
+    }
+
+    /**
+     * Matching ids in ascending order. Fuzzy edit distances are capped at
+     * {@code app.search.fuzzy.max-edits}.
+     */
+    public List<Long> searchIds(CatalogQuery query) {
+        ensureLoaded();
+        CatalogQuery capped = query.fuzzy()
+                ? CatalogQuery.fuzzy(query.author(), query.title(), Math.min(query.maxEdits(), maxFuzzyEdits))
+                : query;
+        return results.get(capped.cacheKey(), listingVersion.get(), () -> List.copyOf(capped.fuzzy()
+                ? index.fuzzySearch(capped.author(), capped.title(), capped.maxEdits())
+                : index.search(capped.author(), capped.title())));
+    }
+
+    public List<Book> search(String author, String title) {
+        return catalog.getBooksByIds(searchIds(author, title));
+    }
+
+    /**
+     * Up to {@code limit} books with ids above {@code afterId}, in id order.
+     */
+    public List<Book> browse(Long afterId, int limit) {
+        long after = afterId != null ? afterId : 0L;
+        List<Book> fetched = new ArrayList<>();
+        List<Long> ids = results.get("browse\u0000" + after + '\u0000' + limit, listingVersion.get(), () -> {
+            fetched.addAll(bookRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(limit)));
+            return fetched.stream().map(Book::getId).toList();
+        });
+        return fetched.isEmpty() ? catalog.getBooksByIds(ids) : fetched;
+    }
+
+    public Page<Book> search(String author, String title, Pageable pageable) {
+        return search(CatalogQuery.contains(author, title), pageable);
+    }
+
+    /**
+     * One page of matching books: by relevance for free-text queries,
+     * otherwise ordered by id.
+     */
+    public Page<Book> search(CatalogQuery query, Pageable pageable) {
+        if (query.isRanked()) {
+            if (!luceneCatalogService.isReady()) {
+                String title = query.title() == null || query.title().isBlank() ? query.text() : query.title();
+                return search(CatalogQuery.contains(query.author(), title), pageable);
+            }
+            int offset = (int) pageable.getOffset();
+            int size = pageable.getPageSize();
+            // searches only see Lucene writes after a refresh, so that counts as a change too
+            long version = catalog.getVersion() + luceneCatalogService.searcherGeneration();
+            LuceneCatalogIndex.Hits hits = rankedResults.get(query.cacheKey() + '\u0000' + offset + '\u0000' + size, version,
+                    () -> luceneCatalogService.search(query.text(), query.author(), query.title(), offset, size));
+            return new PageImpl<>(catalog.getBooksByIds(hits.ids()), pageable, hits.total());
+        }
+        if (!loaded && !query.fuzzy()) {
+            Pageable byId = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by("id"));
+            return bookRepository.searchByAuthorAndTitle(
+                    BookRepository.containsPattern(query.author()), BookRepository.containsPattern(query.title()), byId);
+        }
+        List<Long> ids = searchIds(query);
+        int from = (int) Math.min(pageable.getOffset(), ids.size());
+        int to = Math.min(from + pageable.getPageSize(), ids.size());
+        return new PageImpl<>(catalog.getBooksByIds(ids.subList(from, to)), pageable, ids.size());
+    }
+
+    public QueryResultCache.Stats getResultCacheStats() {
+        QueryResultCache.Stats plain = results.stats();
+        QueryResultCache.Stats ranked = rankedResults.stats();
+        return new QueryResultCache.Stats(plain.hits() + ranked.hits(), plain.misses() + ranked.misses(),
+                plain.evictions() + ranked.evictions(), plain.invalidations() + ranked.invalidations(),
+                plain.size() + ranked.size(), plain.capacity() + ranked.capacity());
+    }
+
+    @Override
+    public void onBookSaved(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        // without the index there is no telling what changed
+        if (!awaitLoaded() || index.put(book.getId(), book.getAuthor(), book.getTitle())) {
+            listingVersion.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onBookRemoved(Long bookId) {
+        if (bookId == null) {
+            return;
+        }
+        if (awaitLoaded()) {
+            index.remove(bookId);
+        }
+        listingVersion.incrementAndGet();
+    }
+
+    /**
+     * Drops the index; the next search rebuilds it from the database.
+     */
+    public void invalidate() {
+        synchronized (loadLock) {
+            loaded = false;
+            index.clear();
+            results.clear();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (loaded) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            long lastId = 0L;
+            List<Book> batch;
+            do {
+                batch = bookRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(LOAD_BATCH_SIZE));
+                for (Book book : batch) {
+                    index.put(book.getId(), book.getAuthor(), book.getTitle());
+                    lastId = book.getId();
+                }
+            } while (batch.size() == LOAD_BATCH_SIZE);
+            loaded = true;
+            log.info("Catalog search index built with {} books in {} ms",
+                    index.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Writes that race with the initial build wait for it to finish so they
+     * are applied on top of the snapshot; writes before any build are already
+     * in the database the build will read.
+     */
+    private boolean awaitLoaded() {
+        if (loaded) {
+            return true;
+        }
+        synchronized (loadLock) {
+            return loaded;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.oops.library.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.oops.library.command.LoanLedger;
+import com.oops.library.entity.CommandJournalEntry;
+import com.oops.library.entity.JournalCheckpoint;
+import com.oops.library.repository.CommandJournalRepository;
+import com.oops.library.repository.JournalCheckpointRepository;
+
+/**
+ * Append-only journal of every borrow and return, numbered in append order.
+ *
+ * Entries are written in the transaction of the command they describe, so
+ * the journal never disagrees with the loan tables. The open loans are kept
+ * in a {@link LoanLedger} that is rebuilt after a restart from the latest
+ * checkpoint plus the entries after it; checkpoints are taken every
+ * {@code app.journal.checkpoint-ms}. This node's ledger only sees what was
+ * appended here since it recovered; {@link LoanReconciler} checks the books
+ * and loan table against a ledger rebuilt from the table.
+ *
+ * Sequence numbers are handed out at insert but become visible at commit,
+ * so a checkpoint only covers entries older than
+ * {@code app.journal.settle-ms}, by which time every transaction that drew
+ * a lower number has finished.
+ */
+@Service
+public class CommandJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandJournal.class);
+    private static final int REPLAY_BATCH_SIZE = 1000;
+
+    public record Stats(boolean recovered, long ledgerSequence, long checkpointSequence,
+                        int openLoans, long lastReplayMillis, long lastReplayEntries) {
+    }
+
+    private final CommandJournalRepository journalRepository;
+    private final JournalCheckpointRepository checkpointRepository;
+    private final long settleMillis;
+
+    private final Object ledgerLock = new Object();
+    private LoanLedger ledger;  // guarded by ledgerLock; null until recovered
+    private long checkpointSequence;
+    private long lastReplayMillis;
+    private long lastReplayEntries;
+    private final List<Consumer<CommandJournalEntry>> listeners = new CopyOnWriteArrayList<>();
+
+    public CommandJournal(CommandJournalRepository journalRepository,
+                          JournalCheckpointRepository checkpointRepository,
+                          @Value("${app.journal.settle-ms:60000}") long settleMillis) {
+        this.journalRepository = journalRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.settleMillis = settleMillis;
+    }
+
+    public static String newBatchId() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Appends entries in the caller's transaction; the in-memory ledger
+     * sees them once it commits.
+     */
+    public List<CommandJournalEntry> append(List<CommandJournalEntry> entries) {
+        List<CommandJournalEntry> saved = journalRepository.saveAll(entries);
+        Transactions.afterCommit(() -> {
+            synchronized (ledgerLock) {
+                if (ledger != null) {
+                    saved.forEach(ledger::apply);
+                }
+            }
+            for (CommandJournalEntry entry : saved) {
+                for (Consumer<CommandJournalEntry> listener : listeners) {
+                    try {
+                        listener.accept(entry);
+                    } catch (RuntimeException e) {
+                        log.error("Journal listener failed on entry {}", entry.getSequence(), e);
+                    }
+                }
+            }
+        });
+        return saved;
+    }
+
+    /**
+     * Calls {@code listener} with every entry appended from now on, once its
+     * transaction has committed.
+     */
+    public void addListener(Consumer<CommandJournalEntry> listener) {
+        listeners.add(listener);
+    }
+
+    public List<CommandJournalEntry> findReturns(String batchId) {
+        return journalRepository.findByBatchIdAndTypeOrderBySequenceDesc(batchId, CommandJournalEntry.Type.RETURN);
+    }
+
+    public List<CommandJournalEntry> entriesAfter(long sequence, int limit) {
+        return journalRepository.findBySequenceGreaterThanOrderBySequenceAsc(sequence, Limit.of(limit));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        Thread loader = new Thread(() -> {
+            try {
+                recover();
+            } catch (RuntimeException e) {
+                log.error("Loan ledger recovery failed", e);
+            }
+        }, "command-journal-recovery");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Rebuilds the loan ledger from the latest checkpoint and the entries after it.
+     */
+    public LoanLedger recover() {
+        long start = System.currentTimeMillis();
+        LoanLedger recovered = latestCheckpoint();
+        long fromSequence = recovered.sequence();
+        long replayed = replay(recovered, fromSequence, Long.MAX_VALUE);
+        synchronized (ledgerLock) {
+            // entries committed during the replay were skipped by append(); pick them up too
+            replayed += replay(recovered, recovered.sequence(), Long.MAX_VALUE);
+            ledger = recovered;
+            checkpointSequence = fromSequence;
+            lastReplayEntries = replayed;
+            lastReplayMillis = System.currentTimeMillis() - start;
+        }
+        log.info("Loan ledger recovered from checkpoint {} plus {} journal entries in {} ms ({} open loans)",
+                fromSequence, replayed, lastReplayMillis, recovered.size());
+        return recovered;
+    }
+
+    /**
+     * A ledger of the caller's own, built like {@link #recover()} from the
+     * table, so it includes entries appended on every node.
+     */
+    public LoanLedger rebuild() {
+        LoanLedger rebuilt = latestCheckpoint();
+        replay(rebuilt, rebuilt.sequence(), Long.MAX_VALUE);
+        return rebuilt;
+    }
+
+    /**
+     * The last entry appended for {@code bookId} on any node.
+     */
+    public Optional<CommandJournalEntry> lastEntry(Long bookId) {
+        return journalRepository.findFirstByBookIdOrderBySequenceDesc(bookId);
+    }
+
+    /**
+     * Writes the open loans as of the last settled entry and drops older checkpoints.
+     */
+    @Transactional
+    public void checkpoint() {
+        Long settled = journalRepository.findMaxSequenceRecordedBefore(LocalDateTime.now().minus(Duration.ofMillis(settleMillis)));
+        if (settled == null || settled <= checkpointSequence) {
+            return;
+        }
+        LoanLedger snapshot = latestCheckpoint();
+        replay(snapshot, snapshot.sequence(), settled);
+        checkpointRepository.save(new JournalCheckpoint(settled, snapshot.encode()));
+        checkpointRepository.deleteBySequenceLessThan(settled);
+        synchronized (ledgerLock) {
+            checkpointSequence = settled;
+        }
+        log.info("Journal checkpoint at sequence {} with {} open loans", settled, snapshot.size());
+    }
+
+    public Stats getStats() {
+        synchronized (ledgerLock) {
+            return new Stats(ledger != null, ledger != null ? ledger.sequence() : 0L, checkpointSequence,
+                    ledger != null ? ledger.size() : 0, lastReplayMillis, lastReplayEntries);
+        }
+    }
+
+    /**
+     * The open loan of {@code bookId} per the journal; null if there is none
+     * or recovery has not run yet.
+     */
+    public LoanLedger.OpenLoan openLoan(Long bookId) {
+        synchronized (ledgerLock) {
+            return ledger != null ? ledger.openLoan(bookId) : null;
+        }
+    }
+
+    private LoanLedger latestCheckpoint() {
+        return checkpointRepository.findFirstByOrderBySequenceDesc()
+                .map(checkpoint -> LoanLedger.decode(checkpoint.getSequence(), checkpoint.getOpenLoans()))
+                .orElseGet(LoanLedger::new);
+    }
+
+    private long replay(LoanLedger target, long afterSequence, long upToSequence) {
+        long applied = 0;
+        long last = afterSequence;
+        List<CommandJournalEntry> batch;
+        do {
+            batch = journalRepository.findBySequenceGreaterThanOrderBySequenceAsc(last, Limit.of(REPLAY_BATCH_SIZE));
+            for (CommandJournalEntry entry : batch) {
+                if (entry.getSequence() > upToSequence) {
+                    return applied;
+                }
+                target.apply(entry);
+                last = entry.getSequence();
+                applied++;
+            }
+        } while (batch.size() == REPLAY_BATCH_SIZE);
+        return applied;
+    }
+}
@@ -0,0 +1,136 @@
+package com.oops.library.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Sends confirmation, hold and overdue notice emails off the request thread.
+ *
+ * Messages wait in a bounded queue ({@code app.mail.dispatch.queue-capacity})
+ * served by {@code app.mail.dispatch.threads} sender threads, so a slow SMTP
+ * server delays the emails but not the borrow or return that triggered
+ * them. When the queue is full the email is dropped and counted rather than
+ * blocking the caller.
+ */
+@Service
+public class EmailDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailDispatcher.class);
+
+    public record Stats(int queueDepth, int queueCapacity, int activeSenders,
+                        long submitted, long sent, long failed, long dropped) {
+    }
+
+    private final EmailService emailService;
+    private final int queueCapacity;
+    private final long shutdownGraceMillis;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public EmailDispatcher(EmailService emailService,
+                           @Value("${app.mail.dispatch.threads:2}") int threads,
+                           @Value("${app.mail.dispatch.queue-capacity:1000}") int queueCapacity,
+                           @Value("${app.mail.dispatch.shutdown-grace-ms:10000}") long shutdownGraceMillis) {
+        this.emailService = emailService;
+        this.queueCapacity = queueCapacity;
+        this.shutdownGraceMillis = shutdownGraceMillis;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "email-dispatch-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public boolean dispatchBorrowConfirmation(String recipient, String name, String bookTitle, LocalDateTime dueDate) {
+        return dispatch("borrow confirmation to " + recipient,
+                () -> emailService.sendBorrowConfirmation(recipient, name, bookTitle, dueDate));
+    }
+
+    public boolean dispatchReturnConfirmation(String recipient, String name, String bookTitle) {
+        return dispatch("return confirmation to " + recipient,
+                () -> emailService.sendReturnConfirmation(recipient, name, bookTitle));
+    }
+
+    public boolean dispatchBorrowConfirmation(String recipient, String name, List<String> bookTitles, LocalDateTime dueDate) {
+        return dispatch("borrow confirmation for " + bookTitles.size() + " books to " + recipient,
+                () -> emailService.sendBorrowConfirmation(recipient, name, bookTitles, dueDate));
+    }
+
+    public boolean dispatchReturnConfirmation(String recipient, String name, List<String> bookTitles) {
+        return dispatch("return confirmation for " + bookTitles.size() + " books to " + recipient,
+                () -> emailService.sendReturnConfirmation(recipient, name, bookTitles));
+    }
+
+    public boolean dispatchHoldReady(String recipient, String name, String bookTitle, LocalDateTime pickupBy) {
+        return dispatch("hold ready notice to " + recipient,
+                () -> emailService.sendHoldReady(recipient, name, bookTitle, pickupBy));
+    }
+
+    public boolean dispatchOverdueNotice(String recipient, String name, String bookTitle, LocalDateTime dueDate) {
+        return dispatch("overdue notice to " + recipient,
+                () -> emailService.sendOverdueNotice(recipient, name, bookTitle, dueDate));
+    }
+
+    /**
+     * Queues {@code send}; false if the queue was full and the email dropped.
+     */
+    boolean dispatch(String description, BooleanSupplier send) {
+        submitted.increment();
+        try {
+            executor.execute(() -> {
+                try {
+                    if (send.getAsBoolean()) {
+                        sent.increment();
+                    } else {
+                        failed.increment();
+                    }
+                } catch (RuntimeException e) {
+                    failed.increment();
+                    log.error("Sending {} failed", description, e);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+            log.warn("Email queue full ({} waiting); dropped {}", executor.getQueue().size(), description);
+            return false;
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(executor.getQueue().size(), queueCapacity, executor.getActiveCount(),
+                submitted.sum(), sent.sum(), failed.sum(), dropped.sum());
+    }
+
+    /**
+     * Gives queued emails {@code app.mail.dispatch.shutdown-grace-ms} to go out.
+     */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(shutdownGraceMillis, TimeUnit.MILLISECONDS)) {
+            int abandoned = executor.shutdownNow().size();
+            log.warn("Email dispatcher stopped with {} emails unsent", abandoned);
+        }
+    }
+}
@@ -32,6 +32,7 @@ public class EmailService {
     private final String baseUrl;
 
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd MMM yyyy");
+    private static final DateTimeFormatter DUE_FORMAT = DateTimeFormatter.ofPattern("dd MMM yyyy HH:mm");
     private static final Logger log = LoggerFactory.getLogger(EmailService.class);
 
     public EmailService(JavaMailSender mailSender,
@@ -167,6 +168,30 @@ public class EmailService {
         return true;
     }
 
+    /**
+     * One confirmation for several books borrowed together.
+     */
+    public boolean sendBorrowConfirmation(String recipient, String name, List<String> bookTitles, LocalDateTime dueDate) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("name", name);
+        variables.put("bookTitles", bookTitles);
+        variables.put("dueDate", DATE_FORMAT.format(dueDate));
+
+        boolean htmlSent = sendTemplatedMessage(recipient,
+                "Books Borrowed Successfully",
+                "borrow-confirmation",
+                variables);
+
+        if (!htmlSent) {
+            return sendSimpleMessage(recipient,
+                    "Books Borrowed Successfully",
+                    "Hi " + name + ",\n\nYou have borrowed:\n" + bulletList(bookTitles)
+                            + "\nPlease return them by " + DATE_FORMAT.format(dueDate) + "."
+                            + "\n\nHappy Reading!\nEnchanted Library Team");
+        }
+        return true;
+    }
+
     public boolean sendReturnConfirmation(String recipient, String name, String bookTitle) {
         Map<String, Object> variables = new HashMap<>();
         variables.put("name", name);
@@ -186,6 +211,82 @@ public class EmailService {
         return true;
     }
 
+    /**
+     * One confirmation for several books returned together.
+     */
+    public boolean sendReturnConfirmation(String recipient, String name, List<String> bookTitles) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("name", name);
+        variables.put("bookTitles", bookTitles);
+
+        boolean htmlSent = sendTemplatedMessage(recipient,
+                "Book Return Confirmation",
+                "return-confirmation",
+                variables);
+
+        if (!htmlSent) {
+            return sendSimpleMessage(recipient,
+                    "Book Return Confirmation",
+                    "Hi " + name + ",\n\nThank you for returning:\n" + bulletList(bookTitles)
+                            + "\nWe hope you enjoyed them!\n\nSee you again soon.\nEnchanted Library Team");
+        }
+        return true;
+    }
+
+    /**
+     * Tells a patron the copy they were waiting for is set aside for them.
+     */
+    public boolean sendHoldReady(String recipient, String name, String bookTitle, LocalDateTime pickupBy) {
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("name", name);
+        variables.put("bookTitle", bookTitle);
+        variables.put("pickupBy", DATE_FORMAT.format(pickupBy));
+
+        boolean htmlSent = sendTemplatedMessage(recipient,
+                "Your Hold Is Ready",
+                "hold-ready",
+                variables);
+
+        if (!htmlSent) {
+            return sendSimpleMessage(recipient,
+                    "Your Hold Is Ready",
+                    "Hi " + name + ",\n\n'" + bookTitle + "' is back and reserved for you."
+                            + "\nBorrow it by " + DATE_FORMAT.format(pickupBy) + " or it passes to the next reader."
+                            + "\n\nHappy Reading!\nEnchanted Library Team");
+        }
+        return true;
+    }
+
+    public boolean sendOverdueNotice(String recipient, String name, String bookTitle, LocalDateTime dueDate) {
+        String due = DUE_FORMAT.format(dueDate);
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("name", name);
+        variables.put("bookTitle", bookTitle);
+        variables.put("dueDate", due);
+
+        boolean htmlSent = sendTemplatedMessage(recipient,
+                "Your Loan Is Overdue",
+                "loan-overdue",
+                variables);
+
+        if (!htmlSent) {
+            return sendSimpleMessage(recipient,
+                    "Your Loan Is Overdue",
+                    "Hi " + name + ",\n\n'" + bookTitle + "' was due back on " + due + "."
+                            + "\nPlease return it as soon as you can; late fees apply from today."
+                            + "\n\nEnchanted Library Team");
+        }
+        return true;
+    }
+
+    private static String bulletList(List<String> items) {
+        StringBuilder list = new StringBuilder();
+        for (String item : items) {
+            list.append(" - ").append(item).append('\n');
+        }
+        return list.toString();
+    }
+
     public void sendOverdueSummary(List<String> librarianEmails, String summaryBody) {
         if (librarianEmails == null || librarianEmails.isEmpty()) {
             log.warn("Attempted to send overdue summary to empty email list");
@@ -0,0 +1,246 @@
+package com.oops.library.service;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.oops.library.design.patterns.CatalogListener;
+import com.oops.library.design.patterns.CatalogManager;
+import com.oops.library.entity.Book;
+import com.oops.library.entity.BookStatus;
+import com.oops.library.entity.Role;
+import com.oops.library.entity.User;
+import com.oops.library.repository.BookRepository;
+import com.oops.library.repository.UserRepository;
+import com.oops.library.search.FacetCounts;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Book counts per status, section and type, and user counts per role, so
+ * dashboards do not have to load every book and user to count them.
+ *
+ * Counts are loaded from the database on first use and then follow catalog
+ * write events and user registrations/deletions. A periodic reconcile
+ * rebuilds them from the database to correct drift from writes that bypass
+ * those hooks; writes that arrive during a rebuild are replayed on top of it.
+ */
+@Service
+public class FacetCountService implements CatalogListener {
+
+    private static final Logger log = LoggerFactory.getLogger(FacetCountService.class);
+    private static final int LOAD_BATCH_SIZE = 1000;
+    private static final int STATUS = 0, SECTION = 1, TYPE = 2;
+    private static final Object[] REMOVED = new Object[0];
+
+    private final BookRepository bookRepository;
+    private final UserRepository userRepository;
+
+    private volatile FacetCounts books;
+    private volatile FacetCounts users;
+
+    // writers share the read lock; a reconcile swaps the counts under the write lock
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Object reconcileLock = new Object();
+    private volatile boolean reconciling;
+    private final Map<Long, Object[]> pendingBooks = new ConcurrentHashMap<>();
+    private final Map<Long, Object[]> pendingUsers = new ConcurrentHashMap<>();
+
+    public FacetCountService(BookRepository bookRepository, UserRepository userRepository) {
+        this.bookRepository = bookRepository;
+        this.userRepository = userRepository;
+    }
+
+    @PostConstruct
+    void register() {
+        CatalogManager.getInstance(bookRepository).addListener(this);
+    }
+
+    public long totalBooks() {
+        return bookCounts().size();
+    }
+
+    public long totalUsers() {
+        return userCounts().size();
+    }
+
+    public Map<BookStatus, Long> countBooksByStatus() {
+        Map<BookStatus, Long> counts = new EnumMap<>(BookStatus.class);
+        bookCounts().counts(STATUS).forEach((status, count) -> counts.put((BookStatus) status, count));
+        return counts;
+    }
+
+    public Map<String, Long> countBooksBySection() {
+        Map<String, Long> counts = new TreeMap<>();
+        bookCounts().counts(SECTION).forEach((section, count) -> counts.put((String) section, count));
+        return counts;
+    }
+
+    public Map<String, Long> countBooksByType() {
+        Map<String, Long> counts = new TreeMap<>();
+        bookCounts().counts(TYPE).forEach((type, count) -> counts.put((String) type, count));
+        return counts;
+    }
+
+    public Map<Role, Long> countUsersByRole() {
+        Map<Role, Long> counts = new EnumMap<>(Role.class);
+        userCounts().counts(0).forEach((role, count) -> counts.put((Role) role, count));
+        return counts;
+    }
+
+    @Override
+    public void onBookSaved(Book book) {
+        if (book != null && book.getId() != null) {
+            apply(book.getId(), new Object[] { book.getStatus(), book.getSection(), book.getType() }, true);
+        }
+    }
+
+    @Override
+    public void onBookRemoved(Long bookId) {
+        if (bookId != null) {
+            apply(bookId, REMOVED, true);
+        }
+    }
+
+    public void onUserSaved(User user) {
+        if (user != null && user.getId() != null) {
+            apply(user.getId(), new Object[] { user.getRole() }, false);
+        }
+    }
+
+    public void onUserRemoved(Long userId) {
+        if (userId != null) {
+            apply(userId, REMOVED, false);
+        }
+    }
+
+    /**
+     * Rebuilds every count from the database.
+     */
+    @Scheduled(fixedDelayString = "${app.facets.reconcile-interval-ms:600000}",
+               initialDelayString = "${app.facets.reconcile-interval-ms:600000}")
+    public void reconcile() {
+        synchronized (reconcileLock) {
+            reconciling = true;
+            try {
+                FacetCounts freshBooks = loadBooks();
+                FacetCounts freshUsers = loadUsers();
+
+                swapLock.writeLock().lock();
+                try {
+                    replay(pendingBooks, freshBooks);
+                    replay(pendingUsers, freshUsers);
+                    if (books != null && (drifted(books, freshBooks, 3) || drifted(users, freshUsers, 1))) {
+                        log.warn("Facet counts drifted from the database and were reset");
+                    }
+                    books = freshBooks;
+                    users = freshUsers;
+                    reconciling = false;
+                } finally {
+                    swapLock.writeLock().unlock();
+                }
+            } finally {
+                reconciling = false;
+                pendingBooks.clear();
+                pendingUsers.clear();
+            }
+        }
+    }
+
+    private void apply(Long id, Object[] values, boolean book) {
+        swapLock.readLock().lock();
+        try {
+            FacetCounts counts = book ? books : users;
+            if (counts != null) {
+                put(counts, id, values);
+            }
+            if (reconciling) {
+                (book ? pendingBooks : pendingUsers).put(id, values);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private FacetCounts bookCounts() {
+        FacetCounts counts = books;
+        if (counts == null) {
+            ensureLoaded();
+            counts = books;
+        }
+        return counts;
+    }
+
+    private FacetCounts userCounts() {
+        FacetCounts counts = users;
+        if (counts == null) {
+            ensureLoaded();
+            counts = users;
+        }
+        return counts;
+    }
+
+    private void ensureLoaded() {
+        synchronized (reconcileLock) {
+            if (books == null) {
+                reconcile();
+            }
+        }
+    }
+
+    private FacetCounts loadBooks() {
+        FacetCounts counts = new FacetCounts(3);
+        long lastId = 0L;
+        List<Object[]> batch;
+        do {
+            batch = bookRepository.findFacetsAfter(lastId, LOAD_BATCH_SIZE);
+            for (Object[] row : batch) {
+                lastId = ((Number) row[0]).longValue();
+                BookStatus status = row[1] != null ? BookStatus.valueOf(row[1].toString()) : null;
+                counts.put(lastId, status, row[2], row[3]);
+            }
+        } while (batch.size() == LOAD_BATCH_SIZE);
+        return counts;
+    }
+
+    private FacetCounts loadUsers() {
+        FacetCounts counts = new FacetCounts(1);
+        for (Object[] row : userRepository.findAllRoles()) {
+            counts.put((Long) row[0], row[1]);
+        }
+        return counts;
+    }
+
+    private static void replay(Map<Long, Object[]> pending, FacetCounts counts) {
+        pending.forEach((id, values) -> put(counts, id, values));
+    }
+
+    private static void put(FacetCounts counts, Long id, Object[] values) {
+        if (values == REMOVED) {
+            counts.remove(id);
+        } else {
+            counts.put(id, values);
+        }
+    }
+
+    private static boolean drifted(FacetCounts live, FacetCounts fresh, int facets) {
+        if (live.size() != fresh.size()) {
+            return true;
+        }
+        for (int facet = 0; facet < facets; facet++) {
+            if (!live.counts(facet).equals(fresh.counts(facet))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
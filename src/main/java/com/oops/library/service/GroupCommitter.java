@@ -0,0 +1,237 @@
+package com.oops.library.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.oops.library.enchanted.exception.EnchantedLibraryException;
+import com.oops.library.entity.BorrowLog;
+import com.oops.library.entity.User;
+import com.oops.library.strategy.LendingStrategy;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Opt-in group commit for single borrows and returns.
+ *
+ * With {@code app.lending.group-commit.enabled} set, requests are queued to
+ * one committer thread that gathers whatever arrives within
+ * {@code app.lending.group-commit.window-micros} of the first (at most
+ * {@code app.lending.group-commit.max-group-size}) and runs the lot through
+ * {@link LendingService#commitGroup} in one transaction. That takes each
+ * step once for the whole group (one locking read of the borrowers and of
+ * the copies, one claiming update, one batch of borrow log rows), so a
+ * burst pays for a handful of statements and one commit instead of both
+ * per request. Each caller waits for its own
+ * result; a request refused by the lending rules fails alone. If the group
+ * transaction itself fails (a deadlock, say) its requests are retried one
+ * by one in their own transactions.
+ *
+ * Switched off, every call goes straight to {@link LendingService}.
+ */
+@Service
+public class GroupCommitter {
+
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitter.class);
+
+    /**
+     * A borrow or return waiting for its group.
+     */
+    public sealed interface Write permits Borrow, Return {
+    }
+
+    public record Borrow(Long bookId, User borrower, LendingStrategy strategy) implements Write {
+    }
+
+    public record Return(Long borrowLogId, String borrowerEmail) implements Write {
+    }
+
+    public record Stats(boolean enabled, long groups, long writes, int largestGroup, long fallbacks, int waiting) {
+    }
+
+    private record Pending(Write write, CompletableFuture<Object> result) {
+    }
+
+    // tells the committer thread to stop
+    private static final Pending STOP = new Pending(null, null);
+
+    private final LendingService lendingService;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final int maxGroupSize;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+
+    private Thread committer;
+    private volatile boolean stopped;
+    private volatile int largestGroup;
+    private final LongAdder groups = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    public GroupCommitter(LendingService lendingService,
+                          @Value("${app.lending.group-commit.enabled:false}") boolean enabled,
+                          @Value("${app.lending.group-commit.window-micros:2000}") long windowMicros,
+                          @Value("${app.lending.group-commit.max-group-size:64}") int maxGroupSize) {
+        this.lendingService = lendingService;
+        this.enabled = enabled;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxGroupSize = Math.max(1, maxGroupSize);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        committer = new Thread(this::commitLoop, "lending-group-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * As {@link LendingService#borrow}, possibly committed along with other requests.
+     */
+    public BorrowLog borrow(Long bookId, User borrower, LendingStrategy strategy) throws EnchantedLibraryException {
+        if (!enabled) {
+            return lendingService.borrow(bookId, borrower, strategy);
+        }
+        return (BorrowLog) submit(new Borrow(bookId, borrower, strategy));
+    }
+
+    /**
+     * As {@link LendingService#returnBook}, possibly committed along with other requests.
+     */
+    public String returnBook(Long borrowLogId, String borrowerEmail) throws EnchantedLibraryException {
+        if (!enabled) {
+            return lendingService.returnBook(borrowLogId, borrowerEmail);
+        }
+        return (String) submit(new Return(borrowLogId, borrowerEmail));
+    }
+
+    public Stats getStats() {
+        return new Stats(enabled, groups.sum(), writes.sum(), largestGroup, fallbacks.sum(), queue.size());
+    }
+
+    private Object submit(Write write) throws EnchantedLibraryException {
+        Pending pending = new Pending(write, new CompletableFuture<>());
+        queue.add(pending);
+        // shutdown may have drained the queue already; then nobody else will run it
+        if (stopped && queue.remove(pending)) {
+            pending.result().complete(runAlone(write));
+        }
+        Object outcome;
+        try {
+            outcome = pending.result().join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        if (outcome instanceof EnchantedLibraryException refused) {
+            throw refused;
+        }
+        return outcome;
+    }
+
+    private void commitLoop() {
+        List<Pending> group = new ArrayList<>(maxGroupSize);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                Pending first = queue.take();
+                stopping = first == STOP;
+                if (!stopping) {
+                    group.add(first);
+                }
+                long deadline = System.nanoTime() + windowNanos;
+                while (!stopping && group.size() < maxGroupSize) {
+                    long left = deadline - System.nanoTime();
+                    Pending next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    if (next == STOP) {
+                        stopping = true;
+                    } else {
+                        group.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                stopping = true;
+            }
+            commit(group);
+            group.clear();
+        }
+    }
+
+    private void commit(List<Pending> group) {
+        if (group.isEmpty()) {
+            return;
+        }
+        groups.increment();
+        writes.add(group.size());
+        largestGroup = Math.max(largestGroup, group.size());
+        if (group.size() > 1) {
+            try {
+                List<Object> outcomes = lendingService.commitGroup(group.stream().map(Pending::write).toList());
+                for (int i = 0; i < group.size(); i++) {
+                    group.get(i).result().complete(outcomes.get(i));
+                }
+                return;
+            } catch (RuntimeException e) {
+                fallbacks.increment();
+                log.warn("Group commit of {} writes failed; retrying them one at a time", group.size(), e);
+            }
+        }
+        for (Pending pending : group) {
+            try {
+                pending.result().complete(runAlone(pending.write()));
+            } catch (RuntimeException e) {
+                pending.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Runs {@code write} in its own transaction; a refusal is returned, not thrown.
+     */
+    private Object runAlone(Write write) {
+        try {
+            if (write instanceof Borrow borrow) {
+                return lendingService.borrow(borrow.bookId(), borrow.borrower(), borrow.strategy());
+            }
+            Return ret = (Return) write;
+            return lendingService.returnBook(ret.borrowLogId(), ret.borrowerEmail());
+        } catch (EnchantedLibraryException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Commits what is queued, then runs late arrivals on the calling thread.
+     */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        stopped = true;
+        if (committer == null) {
+            return;
+        }
+        queue.add(STOP);
+        committer.join();
+        Pending left;
+        while ((left = queue.poll()) != null) {
+            if (left != STOP) {
+                commit(List.of(left));
+            }
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.oops.library.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.oops.library.design.patterns.CatalogManager;
+import com.oops.library.enchanted.exception.EnchantedLibraryException;
+import com.oops.library.entity.Book;
+import com.oops.library.entity.BookHold;
+import com.oops.library.entity.BookStatus;
+import com.oops.library.entity.User;
+import com.oops.library.repository.BookHoldRepository;
+import com.oops.library.repository.BookRepository;
+import com.oops.library.repository.BorrowLogRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Per-book FIFO hold queues.
+ *
+ * The book_hold table is the record; the WAITING holds of each book are
+ * mirrored in memory so queue lengths and positions can be shown on every
+ * dashboard row without a query. The mirror only follows this node's
+ * changes, so it is for display: decisions such as refusing a renewal
+ * read the table. When a copy comes back it goes straight
+ * to the oldest WAITING hold: the copy turns RESERVED and the patron is
+ * emailed and given {@code app.holds.pickup-hours} to borrow it, after which
+ * the hold lapses and the next patron in line gets the copy.
+ *
+ * Placing a hold locks the copy's row, so it is ordered against the return
+ * that would promote it: either the return sees the new hold, or the hold
+ * sees the copy back on the shelf and is refused. Promotion claims the copy
+ * with the same conditional status update as a borrow.
+ */
+@Service
+public class HoldService {
+
+    private static final Logger log = LoggerFactory.getLogger(HoldService.class);
+    private static final int LOAD_BATCH_SIZE = 1000;
+    private static final Set<BookHold.Status> ACTIVE = Set.of(BookHold.Status.WAITING, BookHold.Status.READY);
+
+    public record Stats(int queuedBooks, int waitingHolds, long promoted, long expired) {
+    }
+
+    private final BookHoldRepository holdRepository;
+    private final BookRepository bookRepository;
+    private final BorrowLogRepository borrowLogRepository;
+    private final EmailDispatcher emailDispatcher;
+    private final Duration pickupWindow;
+
+    // bookId -> ids of its WAITING holds; ids grow, so iteration order is queue order
+    private final Map<Long, NavigableSet<Long>> queues = new ConcurrentHashMap<>();
+    // holds that left a queue before their after-commit enqueue ran; guarded by queues
+    private final Map<Long, Long> departed = new HashMap<>();
+    private long promoted;
+    private long expired;
+
+    public HoldService(BookHoldRepository holdRepository, BookRepository bookRepository,
+                       BorrowLogRepository borrowLogRepository, EmailDispatcher emailDispatcher,
+                       @Value("${app.holds.pickup-hours:48}") long pickupHours) {
+        this.holdRepository = holdRepository;
+        this.bookRepository = bookRepository;
+        this.borrowLogRepository = borrowLogRepository;
+        this.emailDispatcher = emailDispatcher;
+        this.pickupWindow = Duration.ofHours(pickupHours);
+    }
+
+    /**
+     * Loads the waiting holds before the server takes requests, so the
+     * mirror never races with the after-commit updates.
+     */
+    @PostConstruct
+    void loadQueues() {
+        long lastId = 0L;
+        List<BookHold> batch;
+        int loaded = 0;
+        do {
+            batch = holdRepository.findByStatusAndIdGreaterThanOrderByIdAsc(BookHold.Status.WAITING, lastId,
+                    Limit.of(LOAD_BATCH_SIZE));
+            for (BookHold hold : batch) {
+                enqueue(hold.getBook().getId(), hold.getId());
+                lastId = hold.getId();
+            }
+            loaded += batch.size();
+        } while (batch.size() == LOAD_BATCH_SIZE);
+        log.info("Loaded {} waiting holds on {} books", loaded, queues.size());
+    }
+
+    /**
+     * Queues {@code patron} for a copy that is out.
+     *
+     * @throws EnchantedLibraryException if the copy is available to borrow,
+     *         missing, or already on loan to or held by {@code patron}
+     */
+    @Transactional(rollbackFor = EnchantedLibraryException.class)
+    public BookHold placeHold(Long bookId, User patron) throws EnchantedLibraryException {
+        Book book = bookRepository.findByIdForUpdate(bookId)
+                .orElseThrow(() -> new EnchantedLibraryException("Book not found with id: " + bookId));
+        if (book.getStatus() == BookStatus.AVAILABLE) {
+            throw new EnchantedLibraryException("'" + book.getTitle() + "' is available; borrow it instead.");
+        }
+        if (book.getStatus() == BookStatus.RESTORATION_NEEDED) {
+            throw new EnchantedLibraryException("'" + book.getTitle() + "' is being restored.");
+        }
+        if (borrowLogRepository.existsByBookIdAndBorrowerIdAndReturnedFalse(bookId, patron.getId())) {
+            throw new EnchantedLibraryException("You already have '" + book.getTitle() + "' on loan.");
+        }
+        if (holdRepository.existsByBookIdAndPatronIdAndStatusIn(bookId, patron.getId(), ACTIVE)) {
+            throw new EnchantedLibraryException("You already have a hold on '" + book.getTitle() + "'.");
+        }
+        BookHold hold = new BookHold();
+        hold.setBook(book);
+        hold.setPatron(patron);
+        hold.setStatus(BookHold.Status.WAITING);
+        hold.setPlacedAt(LocalDateTime.now());
+        BookHold saved = holdRepository.save(hold);
+        Transactions.afterCommit(() -> enqueue(bookId, saved.getId()));
+        return saved;
+    }
+
+    /**
+     * Hands a copy that has just become AVAILABLE to the oldest waiting
+     * hold, in the caller's transaction. The queue is read with a locking
+     * read so holds committed after the caller's snapshot are seen.
+     *
+     * @return true if the copy was reserved
+     */
+    @Transactional
+    public boolean promote(Long bookId) {
+        // lock the copy first (flushing the caller's pending return), as placeHold does
+        Book copy = bookRepository.findByIdForUpdate(bookId).orElse(null);
+        if (copy == null || copy.getStatus() != BookStatus.AVAILABLE) {
+            return false;
+        }
+        List<BookHold> head = holdRepository.findForUpdate(bookId, BookHold.Status.WAITING, Limit.of(1));
+        if (head.isEmpty()
+                || bookRepository.updateStatusIf(bookId, BookStatus.AVAILABLE, BookStatus.RESERVED) == 0) {
+            return false;
+        }
+        BookHold hold = head.get(0);
+        LocalDateTime now = LocalDateTime.now();
+        hold.setStatus(BookHold.Status.READY);
+        hold.setReadyAt(now);
+        hold.setPickupBy(now.plus(pickupWindow));
+        holdRepository.save(hold);
+
+        Book book = bookRepository.findBookById(bookId);
+        User patron = hold.getPatron();
+        LocalDateTime pickupBy = hold.getPickupBy();
+        Transactions.afterCommit(() -> {
+            dequeue(bookId, hold.getId());
+            synchronized (queues) {
+                promoted++;
+            }
+            CatalogManager.getInstance(bookRepository).notifySaved(book);
+            emailDispatcher.dispatchHoldReady(patron.getEmail(), patron.getName(), book.getTitle(), pickupBy);
+        });
+        return true;
+    }
+
+    /**
+     * {@link #promote} for each of {@code bookIds} that has a waiting hold,
+     * found with one locking read.
+     *
+     * @return the copies that were reserved
+     */
+    @Transactional
+    public Set<Long> promoteAll(Collection<Long> bookIds) {
+        Set<Long> waitedFor = new TreeSet<>();
+        for (BookHold hold : holdRepository.findAllForUpdate(bookIds, BookHold.Status.WAITING)) {
+            waitedFor.add(hold.getBook().getId());
+        }
+        Set<Long> reserved = new HashSet<>();
+        for (Long bookId : waitedFor) {
+            if (promote(bookId)) {
+                reserved.add(bookId);
+            }
+        }
+        return reserved;
+    }
+
+    /**
+     * Completes {@code borrower}'s READY hold on {@code bookId} by moving the
+     * copy from RESERVED to BORROWED, in the caller's transaction.
+     *
+     * @return false if {@code borrower} holds no reservation for the copy
+     */
+    @Transactional
+    public boolean pickUp(Long bookId, User borrower) {
+        BookHold hold = holdRepository
+                .findFirstByBookIdAndPatronIdAndStatus(bookId, borrower.getId(), BookHold.Status.READY)
+                .orElse(null);
+        if (hold == null
+                || bookRepository.updateStatusIf(bookId, BookStatus.RESERVED, BookStatus.BORROWED) == 0) {
+            return false;
+        }
+        hold.setStatus(BookHold.Status.FULFILLED);
+        holdRepository.save(hold);
+        return true;
+    }
+
+    /**
+     * Withdraws one of {@code email}'s holds; a reserved copy passes to the
+     * next in line.
+     */
+    @Transactional(rollbackFor = EnchantedLibraryException.class)
+    public void cancelHold(Long holdId, String email) throws EnchantedLibraryException {
+        BookHold hold = holdRepository.findById(holdId)
+                .orElseThrow(() -> new EnchantedLibraryException("Hold not found with id: " + holdId));
+        if (!hold.getPatron().getEmail().equals(email)) {
+            throw new EnchantedLibraryException("Hold " + holdId + " is not yours to cancel.");
+        }
+        if (!ACTIVE.contains(hold.getStatus())) {
+            throw new EnchantedLibraryException("Hold " + holdId + " is no longer active.");
+        }
+        release(hold, BookHold.Status.CANCELLED);
+    }
+
+    /**
+     * Lapses READY holds whose pickup window has passed and passes each copy on.
+     */
+    @Transactional
+    public void expireLapsedHolds() {
+        List<BookHold> lapsed = holdRepository.findByStatusAndPickupByBefore(BookHold.Status.READY, LocalDateTime.now());
+        for (BookHold hold : lapsed) {
+            release(hold, BookHold.Status.EXPIRED);
+        }
+        if (!lapsed.isEmpty()) {
+            int count = lapsed.size();
+            Transactions.afterCommit(() -> {
+                synchronized (queues) {
+                    expired += count;
+                }
+            });
+            log.info("Expired {} uncollected holds", count);
+        }
+    }
+
+    public List<BookHold> findActiveHolds(String email) {
+        return holdRepository.findByPatronEmailAndStatusInOrderByIdAsc(email, ACTIVE);
+    }
+
+    public boolean hasWaiting(Long bookId) {
+        return holdRepository.existsByBookIdAndStatus(bookId, BookHold.Status.WAITING);
+    }
+
+    /**
+     * Deletes every hold on {@code book}, in the caller's transaction.
+     */
+    @Transactional
+    public void deleteHolds(Book book) {
+        holdRepository.deleteByBook(book);
+        Long bookId = book.getId();
+        Transactions.afterCommit(() -> {
+            synchronized (queues) {
+                queues.remove(bookId);
+            }
+        });
+    }
+
+    /**
+     * Deletes every hold {@code patron} has placed, in the caller's transaction.
+     */
+    @Transactional
+    public void deleteHolds(User patron) {
+        List<BookHold> waiting = holdRepository.findByPatronIdAndStatus(patron.getId(), BookHold.Status.WAITING);
+        holdRepository.deleteByPatron(patron);
+        Transactions.afterCommit(() -> waiting.forEach(hold -> dequeue(hold.getBook().getId(), hold.getId())));
+    }
+
+    public int queueLength(Long bookId) {
+        NavigableSet<Long> queue = queues.get(bookId);
+        return queue != null ? queue.size() : 0;
+    }
+
+    /**
+     * Queue lengths of the given books, leaving out books nobody waits for.
+     */
+    public Map<Long, Integer> queueLengths(Collection<Long> bookIds) {
+        Map<Long, Integer> lengths = new HashMap<>();
+        for (Long bookId : bookIds) {
+            int length = queueLength(bookId);
+            if (length > 0) {
+                lengths.put(bookId, length);
+            }
+        }
+        return lengths;
+    }
+
+    /**
+     * 1-based place of a WAITING hold in its book's queue; 0 if not queued.
+     */
+    public int position(Long bookId, Long holdId) {
+        NavigableSet<Long> queue = queues.get(bookId);
+        return queue != null && queue.contains(holdId) ? queue.headSet(holdId, true).size() : 0;
+    }
+
+    public Stats getStats() {
+        synchronized (queues) {
+            int waiting = queues.values().stream().mapToInt(Set::size).sum();
+            return new Stats(queues.size(), waiting, promoted, expired);
+        }
+    }
+
+    private void release(BookHold hold, BookHold.Status outcome) {
+        Long bookId = hold.getBook().getId();
+        boolean wasReady = hold.getStatus() == BookHold.Status.READY;
+        hold.setStatus(outcome);
+        holdRepository.save(hold);
+        if (!wasReady) {
+            Transactions.afterCommit(() -> dequeue(bookId, hold.getId()));
+            return;
+        }
+        if (bookRepository.updateStatusIf(bookId, BookStatus.RESERVED, BookStatus.AVAILABLE) > 0 && !promote(bookId)) {
+            Book book = bookRepository.findBookById(bookId);
+            Transactions.afterCommit(() -> CatalogManager.getInstance(bookRepository).notifySaved(book));
+        }
+    }
+
+    private void enqueue(Long bookId, Long holdId) {
+        synchronized (queues) {
+            if (departed.remove(holdId) == null) {
+                queues.computeIfAbsent(bookId, id -> new ConcurrentSkipListSet<>()).add(holdId);
+            }
+        }
+    }
+
+    private void dequeue(Long bookId, Long holdId) {
+        synchronized (queues) {
+            NavigableSet<Long> queue = queues.get(bookId);
+            if (queue == null || !queue.remove(holdId)) {
+                departed.put(holdId, bookId);
+            } else if (queue.isEmpty()) {
+                queues.remove(bookId);
+            }
+        }
+    }
+}
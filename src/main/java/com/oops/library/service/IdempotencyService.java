@@ -0,0 +1,316 @@
+package com.oops.library.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.oops.library.entity.IdempotencyRecord;
+import com.oops.library.repository.IdempotencyRecordRepository;
+
+/**
+ * Runs a POST handler at most once per idempotency key.
+ *
+ * Outcomes (the view plus its flash attributes) are kept in a bounded LRU
+ * map for {@code app.idempotency.ttl-ms} and written through to the
+ * idempotency_record table, which answers retries after an eviction or a
+ * restart. A request claims its key in the table before its handler runs,
+ * so a retry that arrives while the first request is still running, on
+ * this node or another, waits for its outcome rather than running alongside
+ * it. A claim left for {@code app.idempotency.claim-ms} by a node that died
+ * is taken over.
+ *
+ * Keys are scoped to the patron and must be 1-64 characters of
+ * {@code [A-Za-z0-9_-]}; requests without a usable key just run. The
+ * table stores a SHA-256 of the scoped key.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+    private static final Pattern KEY = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final long POLL_MILLIS = 50;
+    private static final TypeReference<Map<String, String>> ATTRIBUTES = new TypeReference<>() {
+    };
+
+    /**
+     * What a handler answered: the view name and the attributes to show with it.
+     */
+    public record Outcome(String view, Map<String, String> attributes) {
+
+        public static Outcome of(String view) {
+            return new Outcome(view, Map.of());
+        }
+
+        public Outcome with(String name, String value) {
+            Map<String, String> copy = new LinkedHashMap<>(attributes);
+            copy.put(name, value);
+            return new Outcome(view, copy);
+        }
+    }
+
+    public record Stats(long executed, long memoryHits, long databaseHits, long joined, int size, int capacity) {
+    }
+
+    private record Entry(Outcome outcome, long expiresAt) {
+    }
+
+    private final IdempotencyRecordRepository repository;
+    private final ObjectMapper json = new ObjectMapper();
+    private final int capacity;
+    private final long ttlMillis;
+    private final long claimMillis;
+    private final LongSupplier clock;
+
+    private final Map<String, Entry> recent;  // access-ordered; guarded by this
+    private final Map<String, CompletableFuture<Outcome>> running = new ConcurrentHashMap<>();
+    private long executed;
+    private long memoryHits;
+    private long databaseHits;
+    private long joined;
+
+    @Autowired
+    public IdempotencyService(IdempotencyRecordRepository repository,
+                              @Value("${app.idempotency.capacity:10000}") int capacity,
+                              @Value("${app.idempotency.ttl-ms:86400000}") long ttlMillis,
+                              @Value("${app.idempotency.claim-ms:60000}") long claimMillis) {
+        this(repository, capacity, ttlMillis, claimMillis, System::currentTimeMillis);
+    }
+
+    IdempotencyService(IdempotencyRecordRepository repository, int capacity, long ttlMillis, long claimMillis,
+                       LongSupplier clock) {
+        this.repository = repository;
+        this.capacity = capacity;
+        this.ttlMillis = ttlMillis;
+        this.claimMillis = claimMillis;
+        this.clock = clock;
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > IdempotencyService.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * The outcome recorded for {@code key} by {@code scope}, or that of
+     * running {@code handler} now and recording it.
+     */
+    public Outcome run(String scope, String key, Supplier<Outcome> handler) {
+        if (key == null || !KEY.matcher(key).matches()) {
+            return handler.get();
+        }
+        String scopedKey = digest(scope + "|" + key);
+        Outcome done = lookup(scopedKey);
+        if (done != null) {
+            return done;
+        }
+        CompletableFuture<Outcome> mine = new CompletableFuture<>();
+        CompletableFuture<Outcome> other = running.putIfAbsent(scopedKey, mine);
+        if (other != null) {
+            synchronized (this) {
+                joined++;
+            }
+            try {
+                return other.join();
+            } catch (CompletionException e) {
+                // the first request's own exception, as it got it
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+        try {
+            // the first request may have finished between the lookup and claiming the key
+            done = lookup(scopedKey);
+            if (done == null) {
+                done = claimAndRun(scopedKey, handler);
+            }
+            mine.complete(done);
+            return done;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            running.remove(scopedKey, mine);
+        }
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(executed, memoryHits, databaseHits, joined, recent.size(), capacity);
+    }
+
+    public void purgeExpired() {
+        int purged = repository.deleteCreatedBefore(LocalDateTime.now().minus(Duration.ofMillis(ttlMillis)));
+        if (purged > 0) {
+            log.info("Purged {} expired idempotency records", purged);
+        }
+    }
+
+    private Outcome lookup(String scopedKey) {
+        long now = clock.getAsLong();
+        synchronized (this) {
+            Entry entry = recent.get(scopedKey);
+            if (entry != null && entry.expiresAt() > now) {
+                memoryHits++;
+                return entry.outcome();
+            }
+        }
+        IdempotencyRecord stored;
+        try {
+            stored = repository.findById(scopedKey).orElse(null);
+        } catch (DataAccessException e) {
+            log.warn("Idempotency lookup failed; running the request", e);
+            return null;
+        }
+        if (stored == null || stored.isPending()
+                || stored.getCreatedAt().plus(Duration.ofMillis(ttlMillis)).isBefore(LocalDateTime.now())) {
+            return null;
+        }
+        Outcome outcome = new Outcome(stored.getView(), decode(stored.getAttributes()));
+        synchronized (this) {
+            databaseHits++;
+            recent.put(scopedKey, new Entry(outcome, now + ttlMillis));
+        }
+        return outcome;
+    }
+
+    // runs the handler once the key is claimed, or answers with the outcome of the request that holds it
+    private Outcome claimAndRun(String scopedKey, Supplier<Outcome> handler) {
+        while (true) {
+            if (claim(scopedKey)) {
+                Outcome outcome;
+                try {
+                    outcome = handler.get();
+                } catch (RuntimeException e) {
+                    release(scopedKey);
+                    throw e;
+                }
+                record(scopedKey, outcome);
+                return outcome;
+            }
+            Outcome stored = awaitOutcome(scopedKey);
+            if (stored != null) {
+                return stored;
+            }
+        }
+    }
+
+    private boolean claim(String scopedKey) {
+        try {
+            return repository.claim(scopedKey, LocalDateTime.now()) == 1;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        } catch (DataAccessException e) {
+            log.warn("Idempotency claim failed; running the request", e);
+            return true;
+        }
+    }
+
+    private void release(String scopedKey) {
+        try {
+            repository.releaseClaim(scopedKey);
+        } catch (DataAccessException e) {
+            // a retry waits until the claim goes stale
+            log.warn("Could not release idempotency claim {}", scopedKey, e);
+        }
+    }
+
+    /**
+     * Waits for the request holding {@code scopedKey} to record its outcome;
+     * null once the key is free to claim again.
+     */
+    private Outcome awaitOutcome(String scopedKey) {
+        while (true) {
+            IdempotencyRecord stored = repository.findById(scopedKey).orElse(null);
+            if (stored == null) {
+                return null;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            if (stored.isPending()) {
+                LocalDateTime cutoff = now.minus(Duration.ofMillis(claimMillis));
+                if (stored.getCreatedAt().isBefore(cutoff)) {
+                    log.warn("Taking over idempotency claim {} left since {}", scopedKey, stored.getCreatedAt());
+                    repository.deleteIfCreatedBefore(scopedKey, cutoff);
+                    return null;
+                }
+            } else {
+                LocalDateTime cutoff = now.minus(Duration.ofMillis(ttlMillis));
+                if (stored.getCreatedAt().isBefore(cutoff)) {
+                    repository.deleteIfCreatedBefore(scopedKey, cutoff);
+                    return null;
+                }
+                Outcome outcome = new Outcome(stored.getView(), decode(stored.getAttributes()));
+                synchronized (this) {
+                    joined++;
+                    recent.put(scopedKey, new Entry(outcome, clock.getAsLong() + ttlMillis));
+                }
+                return outcome;
+            }
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for idempotency key " + scopedKey, e);
+            }
+        }
+    }
+
+    private void record(String scopedKey, Outcome outcome) {
+        synchronized (this) {
+            executed++;
+            recent.put(scopedKey, new Entry(outcome, clock.getAsLong() + ttlMillis));
+        }
+        try {
+            // completes this request's claim
+            repository.save(new IdempotencyRecord(scopedKey, outcome.view(), json.writeValueAsString(outcome.attributes())));
+        } catch (DataAccessException | JsonProcessingException e) {
+            // still answered from memory until evicted
+            log.warn("Could not persist idempotency record {}", scopedKey, e);
+        }
+    }
+
+    // fixed length whatever the patron's email, so it always fits the key column
+    private static String digest(String scopedKey) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(scopedKey.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private Map<String, String> decode(String attributes) {
+        if (attributes == null || attributes.isEmpty()) {
+            return Map.of();
+        }
+        try {
+            return json.readValue(attributes, ATTRIBUTES);
+        } catch (JsonProcessingException e) {
+            log.warn("Unreadable idempotency record attributes: {}", attributes, e);
+            return Map.of();
+        }
+    }
+}
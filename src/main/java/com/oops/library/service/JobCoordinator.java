@@ -0,0 +1,303 @@
+package com.oops.library.service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.oops.library.entity.JobLease;
+import com.oops.library.repository.JobLeaseRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Makes sure one node of the cluster runs each scheduled job.
+ *
+ * A job runs under a {@link JobLease} row: the node that takes the lease
+ * renews it every third of {@code app.jobs.lease-ttl-ms} while the job
+ * runs, and marks the run (a day, say, or an interval) complete at the
+ * end, so other nodes and latecomers skip it. If the node dies the lease
+ * runs out and another node may take the job over, with a higher fencing
+ * token; work the old holder still tries to do can be refused with
+ * {@link #fence}. Leases expire by the nodes' clocks, which must agree to
+ * well within the lease time.
+ *
+ * Large jobs can be split with {@link #runPartitioned}: each partition has
+ * its own lease, and every node takes whichever partitions are free.
+ */
+@Service
+public class JobCoordinator {
+
+    private static final Logger log = LoggerFactory.getLogger(JobCoordinator.class);
+
+    public enum Outcome {
+        /** run here */
+        RAN,
+        /** already run by some node */
+        DONE,
+        /** being run by another node */
+        HELD,
+        /** run here and failed; the lease is free for another try */
+        FAILED,
+        /** run here, but the lease passed to another node before it ended */
+        LOST
+    }
+
+    /**
+     * This node, the leases it holds now, and every lease row.
+     */
+    public record Stats(String nodeId, List<String> holding, List<JobLease> leases) {
+    }
+
+    /**
+     * A lease held by this node, for as long as {@link #isHeld()}.
+     */
+    public static final class Lease {
+        private final String name;
+        private final long fencingToken;
+        private final Clock clock;
+        private final long ttlMillis;
+        private volatile long renewedAt;
+        private volatile boolean lost;
+
+        Lease(String name, long fencingToken, Clock clock, Duration ttl) {
+            this.name = name;
+            this.fencingToken = fencingToken;
+            this.clock = clock;
+            this.ttlMillis = ttl.toMillis();
+            this.renewedAt = clock.millis();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getFencingToken() {
+            return fencingToken;
+        }
+
+        // a heartbeat held up past the lease time counts as lost: another node may have it
+        public boolean isHeld() {
+            return !lost && clock.millis() - renewedAt < ttlMillis;
+        }
+    }
+
+    private final JobLeaseRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final String nodeId;
+    private final Duration ttl;
+    private final Clock clock;
+    private final Set<String> created = ConcurrentHashMap.newKeySet();
+    private final Set<Lease> held = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService heartbeat;
+
+    public JobCoordinator(JobLeaseRepository repository, PlatformTransactionManager transactionManager,
+                          @Value("${app.cluster.node-id:}") String nodeId,
+                          @Value("${app.jobs.lease-ttl-ms:120000}") long leaseTtlMillis) {
+        this(repository, transactionManager, nodeId, leaseTtlMillis, Clock.systemDefaultZone());
+    }
+
+    JobCoordinator(JobLeaseRepository repository, PlatformTransactionManager transactionManager,
+                   String nodeId, long leaseTtlMillis, Clock clock) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // lease changes stand alone, whatever transaction the job is in
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.nodeId = nodeId == null || nodeId.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : nodeId;
+        this.ttl = Duration.ofMillis(leaseTtlMillis);
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    void start() {
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long every = heartbeatMillis();
+        heartbeat.scheduleWithFixedDelay(this::renewAll, every, every, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs {@code work} here unless {@code run} of {@code job} is done or
+     * another node has it. A failure is logged and leaves the run open.
+     * The run is only marked complete under the fencing token it started
+     * with; if the lease was taken over meanwhile the outcome is LOST, and
+     * work that must not be done twice should have checked {@link #fence}.
+     */
+    public Outcome runOnce(String job, String run, Consumer<Lease> work) {
+        Lease lease = acquire(job, run);
+        if (lease == null) {
+            boolean done = repository.findById(job).map(l -> run.equals(l.getCompletedRun())).orElse(false);
+            return done ? Outcome.DONE : Outcome.HELD;
+        }
+        held.add(lease);
+        boolean finished = false;
+        boolean lost = false;
+        try {
+            work.accept(lease);
+            finished = true;
+        } catch (RuntimeException e) {
+            log.error("Job {} run {} failed on {}", job, run, nodeId, e);
+        } finally {
+            held.remove(lease);
+            boolean complete = finished;
+            Integer updated = transactionTemplate.execute(status -> complete
+                    ? repository.complete(job, nodeId, lease.getFencingToken(), run, LocalDateTime.now(clock))
+                    : repository.release(job, nodeId, lease.getFencingToken(), LocalDateTime.now(clock)));
+            if (updated == null || updated == 0) {
+                log.warn("Job {} run {} lost its lease before it ended on {}", job, run, nodeId);
+                lost = true;
+            }
+        }
+        if (lost) {
+            return Outcome.LOST;
+        }
+        return finished ? Outcome.RAN : Outcome.FAILED;
+    }
+
+    /**
+     * Runs the partitions of {@code run} that no other node has taken, then
+     * waits for the ones others hold, taking over any whose holder stops
+     * renewing.
+     *
+     * @return how many partitions ran here
+     */
+    public int runPartitioned(String job, String run, int partitions, BiConsumer<Integer, Lease> work) {
+        Set<Integer> settled = new HashSet<>();
+        int ran = 0;
+        while (true) {
+            boolean waiting = false;
+            for (int partition = 0; partition < partitions; partition++) {
+                if (settled.contains(partition)) {
+                    continue;
+                }
+                int current = partition;
+                Outcome outcome = runOnce(job + "#" + partition, run, lease -> work.accept(current, lease));
+                if (outcome == Outcome.HELD) {
+                    waiting = true;
+                } else {
+                    settled.add(partition);
+                }
+                if (outcome == Outcome.RAN) {
+                    ran++;
+                }
+            }
+            if (!waiting) {
+                return ran;
+            }
+            try {
+                Thread.sleep(heartbeatMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return ran;
+            }
+        }
+    }
+
+    /**
+     * Throws unless this node still holds {@code lease}; called in a job's
+     * own transaction before it writes.
+     */
+    public void fence(Lease lease) {
+        if (!lease.isHeld()
+                || !repository.existsByNameAndOwnerAndFencingToken(lease.getName(), nodeId, lease.getFencingToken())) {
+            throw new IllegalStateException("Lease " + lease.getName() + " (token " + lease.getFencingToken()
+                    + ") is no longer held by " + nodeId);
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public Stats getStats() {
+        return new Stats(nodeId, held.stream().map(Lease::getName).sorted().toList(),
+                repository.findAll(Sort.by("name")));
+    }
+
+    /**
+     * Takes the lease for {@code run} of {@code name}; null if it is held or the run is done.
+     */
+    Lease acquire(String name, String run) {
+        createIfMissing(name);
+        return transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now(clock);
+            if (repository.acquire(name, nodeId, run, now, now.plus(ttl)) == 0) {
+                return null;
+            }
+            return new Lease(name, repository.findById(name).orElseThrow().getFencingToken(), clock, ttl);
+        });
+    }
+
+    private void createIfMissing(String name) {
+        if (created.contains(name)) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!repository.existsById(name)) {
+                    repository.saveAndFlush(new JobLease(name));
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // another node created it first
+        }
+        created.add(name);
+    }
+
+    void renewAll() {
+        for (Lease lease : held) {
+            long now = clock.millis();
+            try {
+                Integer renewed = transactionTemplate.execute(status -> repository.renew(lease.getName(), nodeId,
+                        lease.getFencingToken(), LocalDateTime.now(clock).plus(ttl)));
+                if (renewed != null && renewed > 0) {
+                    lease.renewedAt = now;
+                    continue;
+                }
+                log.warn("Lease {} (token {}) was taken over from {}", lease.getName(), lease.getFencingToken(), nodeId);
+            } catch (RuntimeException e) {
+                if (now - lease.renewedAt < ttl.toMillis()) {
+                    log.warn("Renewing lease {} failed; retrying", lease.getName(), e);
+                    continue;
+                }
+                log.error("Lease {} could not be renewed within its lifetime", lease.getName(), e);
+            }
+            lease.lost = true;
+            held.remove(lease);
+        }
+    }
+
+    private long heartbeatMillis() {
+        return Math.max(1, ttl.toMillis() / 3);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+        }
+    }
+}
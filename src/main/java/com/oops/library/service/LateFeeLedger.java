@@ -0,0 +1,276 @@
+package com.oops.library.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.oops.library.entity.Book;
+import com.oops.library.entity.BorrowLog;
+import com.oops.library.entity.CommandJournalEntry;
+import com.oops.library.entity.LateFee;
+import com.oops.library.entity.PatronBalance;
+import com.oops.library.repository.BookRepository;
+import com.oops.library.repository.LateFeeRepository;
+import com.oops.library.repository.PatronBalanceRepository;
+import com.oops.library.strategy.LateFeeService;
+
+/**
+ * Late fees as stored amounts rather than figures recomputed on every view.
+ *
+ * Each overdue loan gets a {@link LateFee} row, brought up to date once a
+ * night ({@code app.late-fees.accrue-cron}, and once at startup to catch
+ * up, both run by {@link ScheduledJobs}) and fixed at the return time when
+ * the loan comes back, which the {@link CommandJournal} reports. A renewal
+ * keeps what the fee has reached and counts on from the new due date.
+ * Every change to a fee is added to the
+ * patron's {@link PatronBalance} in the same transaction, so a balance is
+ * a single row read.
+ *
+ * The nightly run only touches fees not yet accrued today, in pages of
+ * {@value #PAGE_SIZE}, and also settles any return the journal listener
+ * missed. A fee is versioned: when a return settles it while a page is
+ * accruing it, or the other way round, the loser's transaction is rolled
+ * back, balance change included, and run again on fresh rows.
+ */
+@Service
+public class LateFeeLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(LateFeeLedger.class);
+    private static final int PAGE_SIZE = 500;
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * What one accrual run did: fees opened, brought forward and settled, and the total added.
+     */
+    public record Accrual(int opened, int accrued, int settled, double added) {
+    }
+
+    private final LateFeeRepository lateFeeRepository;
+    private final PatronBalanceRepository balanceRepository;
+    private final BookRepository bookRepository;
+    private final LateFeeService lateFeeService;
+    private final TransactionTemplate transactionTemplate;
+
+    public LateFeeLedger(LateFeeRepository lateFeeRepository, PatronBalanceRepository balanceRepository,
+                         BookRepository bookRepository, LateFeeService lateFeeService, CommandJournal journal,
+                         PlatformTransactionManager transactionManager) {
+        this.lateFeeRepository = lateFeeRepository;
+        this.balanceRepository = balanceRepository;
+        this.bookRepository = bookRepository;
+        this.lateFeeService = lateFeeService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // journal listeners run after the lending transaction commits, which must not be joined
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        journal.addListener(this::onJournalEntry);
+    }
+
+    /**
+     * Opens fees for newly overdue loans, brings open fees to today and
+     * settles fees of loans returned unnoticed.
+     */
+    public Accrual accrue() {
+        return accrue(() -> {
+        });
+    }
+
+    /**
+     * As {@link #accrue()}, calling {@code beforeEachPage} in each page's
+     * transaction before it writes.
+     */
+    synchronized Accrual accrue(Runnable beforeEachPage) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+        int settled = 0;
+        int opened = 0;
+        int accrued = 0;
+        double[] added = {0};
+
+        int page;
+        do {
+            page = inTransaction(status -> {
+                beforeEachPage.run();
+                List<Object[]> rows = lateFeeRepository.findReturnedUnsettled(Limit.of(PAGE_SIZE));
+                Map<Long, Double> deltas = new HashMap<>();
+                for (Object[] row : rows) {
+                    LateFee fee = (LateFee) row[0];
+                    LocalDateTime returnedAt = (LocalDateTime) row[1];
+                    settle(fee, returnedAt, today, deltas);
+                }
+                added[0] += applyToBalances(deltas);
+                return rows.size();
+            });
+            settled += page;
+        } while (page == PAGE_SIZE);
+
+        do {
+            page = inTransaction(status -> {
+                beforeEachPage.run();
+                List<BorrowLog> loans = lateFeeRepository.findOverdueWithoutFee(now.minusDays(1), Limit.of(PAGE_SIZE));
+                Map<Long, Double> deltas = new HashMap<>();
+                for (BorrowLog loan : loans) {
+                    LateFee fee = new LateFee(loan.getId(), loan.getBorrower().getId(), loan.getReturnDate(),
+                            loan.getBook().getLateFeeRate());
+                    deltas.merge(fee.getPatronId(), fee.accrue(lateFeeService.overdueDays(fee.getDueDate(), now), today),
+                            Double::sum);
+                    lateFeeRepository.save(fee);
+                }
+                added[0] += applyToBalances(deltas);
+                return loans.size();
+            });
+            opened += page;
+        } while (page == PAGE_SIZE);
+
+        do {
+            page = inTransaction(status -> {
+                beforeEachPage.run();
+                List<LateFee> fees = lateFeeRepository.findDueForAccrual(today, Limit.of(PAGE_SIZE));
+                Map<Long, Double> deltas = new HashMap<>();
+                for (LateFee fee : fees) {
+                    deltas.merge(fee.getPatronId(), fee.accrue(lateFeeService.overdueDays(fee.getDueDate(), now), today),
+                            Double::sum);
+                }
+                lateFeeRepository.saveAll(fees);
+                added[0] += applyToBalances(deltas);
+                return fees.size();
+            });
+            accrued += page;
+        } while (page == PAGE_SIZE);
+
+        Accrual accrual = new Accrual(opened, accrued, settled, added[0]);
+        log.info("Late fees accrued: {}", accrual);
+        return accrual;
+    }
+
+    /**
+     * The fee recorded so far for each of {@code borrowLogIds} that has one.
+     */
+    public Map<Long, Double> accruedFees(Collection<Long> borrowLogIds) {
+        if (borrowLogIds.isEmpty()) {
+            return Map.of();
+        }
+        return lateFeeRepository.findByBorrowLogIdIn(borrowLogIds).stream()
+                .collect(Collectors.toMap(LateFee::getBorrowLogId, LateFee::getAmount));
+    }
+
+    public double balance(Long patronId) {
+        return balanceRepository.findById(patronId).map(PatronBalance::getBalance).orElse(0.0);
+    }
+
+    void onJournalEntry(CommandJournalEntry entry) {
+        if (entry.getBorrowLogId() == null) {
+            return;
+        }
+        if (entry.getType() == CommandJournalEntry.Type.RETURN) {
+            inTransaction(status -> {
+                settleReturn(entry);
+                return null;
+            });
+        } else if (entry.getType() == CommandJournalEntry.Type.RENEW) {
+            inTransaction(status -> {
+                settleRenewal(entry);
+                return null;
+            });
+        } else if (entry.getType() == CommandJournalEntry.Type.UNDO_RETURN) {
+            // accrual picks the loan up again from the same due date
+            inTransaction(status -> {
+                lateFeeRepository.findById(entry.getBorrowLogId())
+                        .filter(LateFee::isSettled)
+                        .ifPresent(fee -> {
+                            fee.reopen();
+                            lateFeeRepository.save(fee);
+                        });
+                return null;
+            });
+        }
+    }
+
+    private void settleReturn(CommandJournalEntry entry) {
+        LocalDateTime returnedAt = entry.getRecordedAt();
+        LateFee fee = lateFeeRepository.findById(entry.getBorrowLogId()).orElse(null);
+        if (fee == null) {
+            // late by less than the time since the last accrual
+            if (entry.getDueDate() == null || lateFeeService.overdueDays(entry.getDueDate(), returnedAt) == 0) {
+                return;
+            }
+            Book book = bookRepository.findBookById(entry.getBookId());
+            if (book == null) {
+                return;
+            }
+            fee = new LateFee(entry.getBorrowLogId(), entry.getBorrowerId(), entry.getDueDate(), book.getLateFeeRate());
+        } else if (fee.isSettled()) {
+            return;
+        }
+        Map<Long, Double> deltas = new HashMap<>();
+        settle(fee, returnedAt, returnedAt.toLocalDate(), deltas);
+        applyToBalances(deltas);
+    }
+
+    // keeps what the loan owed up to the renewal and restarts the count from the new due date
+    private void settleRenewal(CommandJournalEntry entry) {
+        LateFee fee = lateFeeRepository.findById(entry.getBorrowLogId()).orElse(null);
+        // without a fee the loan was late by less than the time since the last accrual
+        if (fee == null || fee.isSettled() || entry.getDueDate() == null || entry.getDueDate().equals(fee.getDueDate())) {
+            return;
+        }
+        LocalDateTime renewedAt = entry.getRecordedAt();
+        Map<Long, Double> deltas = new HashMap<>();
+        deltas.put(fee.getPatronId(), fee.renew(lateFeeService.overdueDays(fee.getDueDate(), renewedAt),
+                renewedAt.toLocalDate(), entry.getDueDate()));
+        lateFeeRepository.save(fee);
+        applyToBalances(deltas);
+    }
+
+    /**
+     * Runs {@code work} in a transaction of its own, again from the start
+     * if a fee it wrote was changed or created meanwhile by another.
+     */
+    private <T> T inTransaction(TransactionCallback<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(work);
+            } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                log.info("Late fee changed concurrently; retrying ({})", e.getMessage());
+            }
+        }
+    }
+
+    private void settle(LateFee fee, LocalDateTime returnedAt, LocalDate on, Map<Long, Double> deltas) {
+        deltas.merge(fee.getPatronId(), fee.accrue(lateFeeService.overdueDays(fee.getDueDate(), returnedAt), on),
+                Double::sum);
+        fee.settle(returnedAt);
+        lateFeeRepository.save(fee);
+    }
+
+    private double applyToBalances(Map<Long, Double> deltas) {
+        LocalDateTime now = LocalDateTime.now();
+        double total = 0;
+        for (Map.Entry<Long, Double> delta : deltas.entrySet()) {
+            if (delta.getValue() == 0) {
+                continue;
+            }
+            if (balanceRepository.addToBalance(delta.getKey(), delta.getValue(), now) == 0) {
+                balanceRepository.save(new PatronBalance(delta.getKey(), delta.getValue()));
+            }
+            total += delta.getValue();
+        }
+        return total;
+    }
+}
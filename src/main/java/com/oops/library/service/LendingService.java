@@ -0,0 +1,631 @@
+package com.oops.library.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.oops.library.command.ReturnBookCommand;
+import com.oops.library.design.patterns.CatalogManager;
+import com.oops.library.enchanted.exception.EnchantedLibraryException;
+import com.oops.library.entity.Book;
+import com.oops.library.entity.BookStatus;
+import com.oops.library.entity.BorrowLog;
+import com.oops.library.entity.CommandJournalEntry;
+import com.oops.library.entity.User;
+import com.oops.library.repository.BookRepository;
+import com.oops.library.repository.BorrowLogRepository;
+import com.oops.library.repository.UserRepository;
+import com.oops.library.strategy.LendingPolicy;
+import com.oops.library.strategy.LendingStrategy;
+import com.oops.library.strategy.LoanTerms;
+
+/**
+ * Borrowing without read-check-write races.
+ *
+ * A borrow is a single conditional UPDATE that moves the copy from
+ * AVAILABLE to BORROWED (bumping its {@code @Version}); of any number of
+ * concurrent callers exactly one sees an updated row, the rest are told the
+ * copy is unavailable. No row lock is held beyond that statement, and the
+ * borrow log is written in the same transaction.
+ *
+ * Desk checkouts and returns of several books run as one transaction: the
+ * whole set is checked with one query, the book rows change in one
+ * statement and the borrow log rows are written as one JDBC batch.
+ *
+ * Every borrow and return is also appended to the {@link CommandJournal} in
+ * the same transaction, tagged with a batch id per request, so a batch of
+ * mistaken returns can be undone later.
+ *
+ * A returned copy goes to the next patron queued in {@link HoldService}
+ * before anyone else can borrow it.
+ *
+ * Who may borrow what, for how long and how many at once comes from the
+ * {@link LendingPolicy}; a borrow type's {@link LendingStrategy} can only
+ * shorten the loan period the policy allows. The borrower's row is locked
+ * while their open loans are counted, so two borrows by one patron at
+ * once can't both slip under the limit.
+ *
+ * Under burst load single borrows and returns can be queued through the
+ * {@link GroupCommitter}, which commits many of them in one transaction.
+ */
+@Service
+public class LendingService {
+
+    public static final int MAX_BATCH_SIZE = 50;
+
+    private static final String INSERT_BORROW_LOG =
+            "INSERT INTO borrow_log (borrower_id, book_id, borrow_date, return_date, returned, reading_room) "
+            + "VALUES (?, ?, ?, ?, false, ?)";
+    private static final String MARK_RETURNED =
+            "UPDATE borrow_log SET returned = true, return_date = ? WHERE id = ? AND returned = false";
+
+    /**
+     * Books lent or taken back by a batch, with the dates that applied.
+     */
+    public record Batch(String batchId, List<Book> books, LocalDateTime borrowDate, LocalDateTime dueDate) {
+
+        public List<String> titles() {
+            return books.stream().map(Book::getTitle).toList();
+        }
+    }
+
+    private final BookRepository bookRepository;
+    private final BorrowLogRepository borrowLogRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final CommandJournal journal;
+    private final HoldService holdService;
+    private final LendingPolicy lendingPolicy;
+    private final UserRepository userRepository;
+
+    /**
+     * Outcome of undoing a batch of returns: loans reopened, and the titles
+     * that could not be because the copy is out again.
+     */
+    public record Undo(int reopened, List<String> skipped) {
+    }
+
+    public LendingService(BookRepository bookRepository, BorrowLogRepository borrowLogRepository,
+                          JdbcTemplate jdbcTemplate, CommandJournal journal, HoldService holdService,
+                          LendingPolicy lendingPolicy, UserRepository userRepository) {
+        this.bookRepository = bookRepository;
+        this.borrowLogRepository = borrowLogRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.journal = journal;
+        this.holdService = holdService;
+        this.lendingPolicy = lendingPolicy;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Lends an available copy to {@code borrower}, due per {@code strategy},
+     * or the copy reserved for {@code borrower} by a hold.
+     *
+     * @throws EnchantedLibraryException if the copy does not exist or is not
+     *         available, or the policy forbids the loan
+     */
+    @Transactional(rollbackFor = EnchantedLibraryException.class)
+    public BorrowLog borrow(Long bookId, User borrower, LendingStrategy strategy) throws EnchantedLibraryException {
+        return lend(bookId, borrower, strategy);
+    }
+
+    /**
+     * Runs a group of borrows and returns in one transaction for the
+     * {@link GroupCommitter}, each step taken for the whole group at once
+     * as {@link #borrowAll} and {@link #returnAll} do: the borrows first,
+     * then the returns. A write refused by the lending rules is rejected
+     * before it changes anything, so it gets its exception in place of a
+     * result while the rest of the group still commits.
+     *
+     * @return per write, in order: the {@link BorrowLog} of a borrow, the
+     *         journal batch id of a return, or the
+     *         {@link EnchantedLibraryException} that refused it
+     */
+    @Transactional
+    public List<Object> commitGroup(List<GroupCommitter.Write> writes) {
+        Object[] outcomes = new Object[writes.size()];
+        lendGroup(writes, outcomes);
+        takeBackGroup(writes, outcomes);
+        return Arrays.asList(outcomes);
+    }
+
+    // the borrowers and copies are locked, so every check below holds until commit
+    private void lendGroup(List<GroupCommitter.Write> writes, Object[] outcomes) {
+        Map<Integer, GroupCommitter.Borrow> borrows = new LinkedHashMap<>();
+        for (int i = 0; i < writes.size(); i++) {
+            if (writes.get(i) instanceof GroupCommitter.Borrow borrow) {
+                borrows.put(i, borrow);
+            }
+        }
+        if (borrows.isEmpty()) {
+            return;
+        }
+        Set<Long> borrowerIds = borrows.values().stream().map(borrow -> borrow.borrower().getId())
+                .collect(Collectors.toCollection(TreeSet::new));
+        userRepository.findAllByIdForUpdate(borrowerIds);
+        Map<Long, Long> open = borrowLogRepository.countOpenLoansByBorrower(borrowerIds).stream()
+                .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
+        Map<Long, Book> copies = bookRepository.findAllByIdForUpdate(
+                        borrows.values().stream().map(GroupCommitter.Borrow::bookId).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(Book::getId, Function.identity()));
+
+        LocalDateTime borrowDate = LocalDateTime.now();
+        Set<Long> claimed = new LinkedHashSet<>();
+        Map<Integer, LocalDateTime> lent = new LinkedHashMap<>();
+        for (Map.Entry<Integer, GroupCommitter.Borrow> pending : borrows.entrySet()) {
+            GroupCommitter.Borrow borrow = pending.getValue();
+            User borrower = borrow.borrower();
+            try {
+                Book copy = copies.get(borrow.bookId());
+                if (copy == null) {
+                    throw new EnchantedLibraryException("Book unavailable.");
+                }
+                LoanTerms terms = strictestTerms(borrower, List.of(copy));
+                checkLimit(terms, open.getOrDefault(borrower.getId(), 0L), 1);
+                boolean taken = copy.getStatus() == BookStatus.AVAILABLE
+                        ? claimed.add(copy.getId())
+                        : holdService.pickUp(copy.getId(), borrower);
+                if (!taken) {
+                    throw new EnchantedLibraryException("Book unavailable.");
+                }
+                open.merge(borrower.getId(), 1L, Long::sum);
+                lent.put(pending.getKey(), dueDate(borrow.strategy(), terms, borrowDate));
+            } catch (EnchantedLibraryException e) {
+                outcomes[pending.getKey()] = e;
+            }
+        }
+        if (!claimed.isEmpty()
+                && bookRepository.updateStatusIfAll(claimed, BookStatus.AVAILABLE, BookStatus.BORROWED) != claimed.size()) {
+            throw new IllegalStateException("Locked copies changed status during a group commit");
+        }
+        if (lent.isEmpty()) {
+            return;
+        }
+
+        List<Integer> order = new ArrayList<>(lent.keySet());
+        jdbcTemplate.batchUpdate(INSERT_BORROW_LOG, order, order.size(), (ps, i) -> {
+            GroupCommitter.Borrow borrow = borrows.get(i);
+            ps.setLong(1, borrow.borrower().getId());
+            ps.setLong(2, borrow.bookId());
+            ps.setTimestamp(3, Timestamp.valueOf(borrowDate));
+            ps.setTimestamp(4, Timestamp.valueOf(lent.get(i)));
+            ps.setBoolean(5, borrow.strategy().isReadingRoom());
+        });
+        Set<Long> bookIds = order.stream().map(i -> borrows.get(i).bookId()).collect(Collectors.toSet());
+        Map<Long, Long> logIds = borrowLogRepository.findOpenLoanIds(bookIds).stream()
+                .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
+        // the claim cleared the persistence context, so these are the rows as changed
+        Map<Long, Book> books = bookRepository.findAllById(bookIds).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<CommandJournalEntry> entries = new ArrayList<>();
+        for (Integer i : order) {
+            GroupCommitter.Borrow borrow = borrows.get(i);
+            BorrowLog borrowLog = new BorrowLog();
+            borrowLog.setId(logIds.get(borrow.bookId()));
+            borrowLog.setBorrower(borrow.borrower());
+            borrowLog.setBook(books.get(borrow.bookId()));
+            borrowLog.setBorrowDate(borrowDate);
+            borrowLog.setReturnDate(lent.get(i));
+            borrowLog.setReadingRoom(borrow.strategy().isReadingRoom());
+            outcomes[i] = borrowLog;
+            entries.add(new CommandJournalEntry(CommandJournalEntry.Type.BORROW, CommandJournal.newBatchId(),
+                    borrow.bookId(), borrowLog.getId(), borrow.borrower().getId(), borrowLog.getReturnDate()));
+        }
+        journal.append(entries);
+        Transactions.afterCommit(() -> {
+            CatalogManager catalog = CatalogManager.getInstance(bookRepository);
+            books.values().forEach(catalog::notifySaved);
+        });
+    }
+
+    private void takeBackGroup(List<GroupCommitter.Write> writes, Object[] outcomes) {
+        Map<Integer, GroupCommitter.Return> returns = new LinkedHashMap<>();
+        for (int i = 0; i < writes.size(); i++) {
+            if (writes.get(i) instanceof GroupCommitter.Return ret) {
+                returns.put(i, ret);
+            }
+        }
+        if (returns.isEmpty()) {
+            return;
+        }
+        Map<Long, BorrowLog> logs = borrowLogRepository.findAllById(
+                        returns.values().stream().map(GroupCommitter.Return::borrowLogId).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(BorrowLog::getId, Function.identity()));
+
+        Set<Long> seen = new HashSet<>();
+        Map<Integer, BorrowLog> accepted = new LinkedHashMap<>();
+        for (Map.Entry<Integer, GroupCommitter.Return> pending : returns.entrySet()) {
+            GroupCommitter.Return ret = pending.getValue();
+            BorrowLog borrowLog = logs.get(ret.borrowLogId());
+            if (borrowLog == null) {
+                outcomes[pending.getKey()] = new EnchantedLibraryException("Unknown loan in return.");
+            } else if (borrowLog.getBorrower() == null || !borrowLog.getBorrower().getEmail().equals(ret.borrowerEmail())) {
+                outcomes[pending.getKey()] = new EnchantedLibraryException(
+                        "Loan " + ret.borrowLogId() + " is not yours to return.");
+            } else if (borrowLog.isReturned() || !seen.add(borrowLog.getId())) {
+                outcomes[pending.getKey()] = new EnchantedLibraryException(
+                        "'" + borrowLog.getBook().getTitle() + "' was already returned.");
+            } else {
+                accepted.put(pending.getKey(), borrowLog);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        List<Integer> order = new ArrayList<>(accepted.keySet());
+        LocalDateTime returnDate = LocalDateTime.now();
+        int[][] counts = jdbcTemplate.batchUpdate(MARK_RETURNED, order, order.size(), (ps, i) -> {
+            ps.setTimestamp(1, Timestamp.valueOf(returnDate));
+            ps.setLong(2, accepted.get(i).getId());
+        });
+        int row = 0;
+        for (int[] chunk : counts) {
+            for (int count : chunk) {
+                Integer i = order.get(row++);
+                if (count == 0) {
+                    // returned by another request since it was read
+                    BorrowLog borrowLog = accepted.remove(i);
+                    outcomes[i] = new EnchantedLibraryException(
+                            "'" + borrowLog.getBook().getTitle() + "' was already returned.");
+                }
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+        Set<Long> bookIds = accepted.values().stream().map(borrowLog -> borrowLog.getBook().getId())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        List<CommandJournalEntry> entries = new ArrayList<>();
+        for (Map.Entry<Integer, BorrowLog> taken : accepted.entrySet()) {
+            String batchId = CommandJournal.newBatchId();
+            entries.add(returnEntry(batchId, taken.getValue()));
+            outcomes[taken.getKey()] = batchId;
+        }
+        bookRepository.updateStatusIfAll(bookIds, BookStatus.BORROWED, BookStatus.AVAILABLE);
+        journal.append(entries);
+        // a copy handed to the next hold is announced by HoldService
+        Set<Long> shelved = new HashSet<>(bookIds);
+        shelved.removeAll(holdService.promoteAll(bookIds));
+        if (!shelved.isEmpty()) {
+            List<Book> books = bookRepository.findAllById(shelved);
+            Transactions.afterCommit(() -> {
+                CatalogManager catalog = CatalogManager.getInstance(bookRepository);
+                books.forEach(catalog::notifySaved);
+            });
+        }
+    }
+
+    // every refusal is thrown before the first write
+    private BorrowLog lend(Long bookId, User borrower, LendingStrategy strategy) throws EnchantedLibraryException {
+        Book copy = bookRepository.findBookById(bookId);
+        if (copy == null) {
+            throw new EnchantedLibraryException("Book unavailable.");
+        }
+        LoanTerms terms = checkTerms(borrower, List.of(copy));
+        if (bookRepository.updateStatusIf(bookId, BookStatus.AVAILABLE, BookStatus.BORROWED) == 0
+                && !holdService.pickUp(bookId, borrower)) {
+            throw new EnchantedLibraryException("Book unavailable.");
+        }
+        Book book = bookRepository.findBookById(bookId);
+
+        LocalDateTime borrowDate = LocalDateTime.now();
+        BorrowLog borrowLog = new BorrowLog();
+        borrowLog.setBorrower(borrower);
+        borrowLog.setBook(book);
+        borrowLog.setBorrowDate(borrowDate);
+        borrowLog.setReturnDate(dueDate(strategy, terms, borrowDate));
+        borrowLog.setReturned(false);
+        borrowLog.setReadingRoom(strategy.isReadingRoom());
+        BorrowLog saved = borrowLogRepository.save(borrowLog);
+        journal.append(List.of(new CommandJournalEntry(CommandJournalEntry.Type.BORROW, CommandJournal.newBatchId(),
+                bookId, saved.getId(), borrower.getId(), saved.getReturnDate())));
+
+        Transactions.afterCommit(() -> CatalogManager.getInstance(bookRepository).notifySaved(book));
+        return saved;
+    }
+
+    /**
+     * Lends every copy in {@code bookIds} to {@code borrower}, or none of them.
+     * A copy on the shelf is claimed; a RESERVED copy is lent only on the
+     * borrower's own hold.
+     *
+     * The loans share one due date, the earliest any of the copies allows.
+     *
+     * @throws EnchantedLibraryException naming the copies that can't be lent
+     */
+    @Transactional(rollbackFor = EnchantedLibraryException.class)
+    public Batch borrowAll(Collection<Long> bookIds, User borrower, LendingStrategy strategy)
+            throws EnchantedLibraryException {
+        Set<Long> ids = checkBatch(bookIds);
+        Map<Long, Book> books = bookRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        List<String> unavailable = new ArrayList<>();
+        Set<Long> shelved = new TreeSet<>();
+        Set<Long> reserved = new TreeSet<>();
+        for (Long id : ids) {
+            Book book = books.get(id);
+            if (book == null) {
+                unavailable.add("#" + id);
+            } else if (book.getStatus() == BookStatus.AVAILABLE) {
+                shelved.add(id);
+            } else if (book.getStatus() == BookStatus.RESERVED) {
+                reserved.add(id);
+            } else {
+                unavailable.add(book.getTitle());
+            }
+        }
+        if (!unavailable.isEmpty()) {
+            throw new EnchantedLibraryException("Unavailable: " + String.join(", ", unavailable));
+        }
+        LoanTerms terms = checkTerms(borrower, books.values());
+        for (Long id : reserved) {
+            if (!holdService.pickUp(id, borrower)) {
+                unavailable.add(books.get(id).getTitle());
+            }
+        }
+        if (!unavailable.isEmpty()) {
+            throw new EnchantedLibraryException("Reserved for someone else: " + String.join(", ", unavailable));
+        }
+        // the check above was a plain read; this is the claim that counts
+        if (!shelved.isEmpty()
+                && bookRepository.updateStatusIfAll(shelved, BookStatus.AVAILABLE, BookStatus.BORROWED) != shelved.size()) {
+            throw new EnchantedLibraryException("Some of these books were just borrowed by someone else.");
+        }
+
+        LocalDateTime borrowDate = LocalDateTime.now();
+        LocalDateTime dueDate = dueDate(strategy, terms, borrowDate);
+        jdbcTemplate.batchUpdate(INSERT_BORROW_LOG, ids, ids.size(), (ps, bookId) -> {
+            ps.setLong(1, borrower.getId());
+            ps.setLong(2, bookId);
+            ps.setTimestamp(3, Timestamp.valueOf(borrowDate));
+            ps.setTimestamp(4, Timestamp.valueOf(dueDate));
+            ps.setBoolean(5, strategy.isReadingRoom());
+        });
+        // each copy was claimed above, so its one open loan is the row just written
+        Map<Long, Long> logIds = borrowLogRepository.findOpenLoanIds(ids).stream()
+                .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
+        String batchId = CommandJournal.newBatchId();
+        List<CommandJournalEntry> entries = new ArrayList<>();
+        for (Long bookId : ids) {
+            entries.add(new CommandJournalEntry(CommandJournalEntry.Type.BORROW, batchId, bookId, logIds.get(bookId),
+                    borrower.getId(), dueDate));
+        }
+        journal.append(entries);
+        return finish(batchId, ids, borrowDate, dueDate);
+    }
+
+    /**
+     * Extends one of {@code borrowerEmail}'s loans by the policy's loan
+     * period, counted from the due date or from now if it is overdue.
+     *
+     * @throws EnchantedLibraryException if the loan is not theirs, is a
+     *         reading-room loan, is out of renewals, or someone is waiting
+     *         for the copy
+     */
+    @Transactional(rollbackFor = EnchantedLibraryException.class)
+    public BorrowLog renew(Long borrowLogId, String borrowerEmail) throws EnchantedLibraryException {
+        // locked, so two renewals can't both pass the renewal count
+        BorrowLog borrowLog = borrowLogRepository.findByIdForUpdate(borrowLogId)
+                .orElseThrow(() -> new EnchantedLibraryException("Unknown loan in renewal."));
+        User borrower = borrowLog.getBorrower();
+        if (borrower == null || !borrower.getEmail().equals(borrowerEmail) || borrowLog.isReturned()) {
+            throw new EnchantedLibraryException("Loan " + borrowLogId + " is not yours to renew.");
+        }
+        Book book = borrowLog.getBook();
+        if (borrowLog.isReadingRoom()) {
+            throw new EnchantedLibraryException("'" + book.getTitle() + "' is a reading-room loan and can't be renewed.");
+        }
+        LoanTerms terms = lendingPolicy.terms(borrower.getRole(), book);
+        if (borrowLog.getRenewals() >= terms.renewals()) {
+            throw new EnchantedLibraryException("'" + book.getTitle() + "' can't be renewed again.");
+        }
+        if (holdService.hasWaiting(book.getId())) {
+            throw new EnchantedLibraryException("'" + book.getTitle() + "' is on hold for another reader.");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime from = borrowLog.getReturnDate() != null && borrowLog.getReturnDate().isAfter(now)
+                ? borrowLog.getReturnDate() : now;
+        borrowLog.setReturnDate(from.plus(terms.loanPeriod()));
+        borrowLog.setRenewals(borrowLog.getRenewals() + 1);
+        BorrowLog saved = borrowLogRepository.save(borrowLog);
+        journal.append(List.of(new CommandJournalEntry(CommandJournalEntry.Type.RENEW, CommandJournal.newBatchId(),
+                book.getId(), saved.getId(), borrower.getId(), saved.getReturnDate())));
+        return saved;
+    }
+
+    /**
+     * Takes back every open loan in {@code borrowLogIds}, which must all
+     * belong to {@code borrowerEmail}, or none of them.
+     */
+    @Transactional(rollbackFor = EnchantedLibraryException.class)
+    public Batch returnAll(Collection<Long> borrowLogIds, String borrowerEmail) throws EnchantedLibraryException {
+        Set<Long> ids = checkBatch(borrowLogIds);
+        List<BorrowLog> logs = borrowLogRepository.findAllById(ids);
+        if (logs.size() != ids.size()) {
+            throw new EnchantedLibraryException("Unknown loan in return.");
+        }
+        Set<Long> bookIds = new LinkedHashSet<>();
+        for (BorrowLog log : logs) {
+            if (log.getBorrower() == null || !log.getBorrower().getEmail().equals(borrowerEmail)) {
+                throw new EnchantedLibraryException("Loan " + log.getId() + " is not yours to return.");
+            }
+            if (log.isReturned()) {
+                throw new EnchantedLibraryException("'" + log.getBook().getTitle() + "' was already returned.");
+            }
+            bookIds.add(log.getBook().getId());
+        }
+
+        LocalDateTime returnDate = LocalDateTime.now();
+        int[][] counts = jdbcTemplate.batchUpdate(MARK_RETURNED, ids, ids.size(), (ps, logId) -> {
+            ps.setTimestamp(1, Timestamp.valueOf(returnDate));
+            ps.setLong(2, logId);
+        });
+        for (int[] chunk : counts) {
+            for (int count : chunk) {
+                if (count == 0) {
+                    throw new EnchantedLibraryException("Some of these books were just returned.");
+                }
+            }
+        }
+        bookRepository.updateStatusIfAll(bookIds, BookStatus.BORROWED, BookStatus.AVAILABLE);
+        bookIds.forEach(holdService::promote);
+        String batchId = CommandJournal.newBatchId();
+        journal.append(logs.stream().map(log -> returnEntry(batchId, log)).toList());
+        return finish(batchId, bookIds, returnDate, null);
+    }
+
+    /**
+     * Takes back one loan of {@code borrowerEmail}.
+     *
+     * @return the journal batch id of the return
+     */
+    @Transactional(rollbackFor = EnchantedLibraryException.class)
+    public String returnBook(Long borrowLogId, String borrowerEmail) throws EnchantedLibraryException {
+        return takeBack(borrowLogId, borrowerEmail);
+    }
+
+    // every refusal is thrown before the first write
+    private String takeBack(Long borrowLogId, String borrowerEmail) throws EnchantedLibraryException {
+        BorrowLog borrowLog = borrowLogRepository.findById(borrowLogId)
+                .orElseThrow(() -> new EnchantedLibraryException("Unknown loan in return."));
+        if (borrowLog.getBorrower() == null || !borrowLog.getBorrower().getEmail().equals(borrowerEmail)) {
+            throw new EnchantedLibraryException("Loan " + borrowLogId + " is not yours to return.");
+        }
+        if (borrowLog.isReturned()) {
+            throw new EnchantedLibraryException("'" + borrowLog.getBook().getTitle() + "' was already returned.");
+        }
+        String batchId = CommandJournal.newBatchId();
+        CommandJournalEntry entry = returnEntry(batchId, borrowLog);
+        Book book = borrowLog.getBook();
+        new ReturnBookCommand(borrowLog, book, borrowLogRepository, bookRepository).execute();
+        journal.append(List.of(entry));
+        // a copy handed to the next hold is announced by HoldService
+        if (!holdService.promote(book.getId())) {
+            Transactions.afterCommit(() -> CatalogManager.getInstance(bookRepository).notifySaved(book));
+        }
+        return batchId;
+    }
+
+    /**
+     * Reopens every loan returned in journal batch {@code batchId}, latest
+     * first, restoring the due dates. Copies lent again since are skipped.
+     */
+    @Transactional
+    public Undo undoReturns(String batchId) {
+        String undoBatchId = CommandJournal.newBatchId();
+        List<CommandJournalEntry> undone = new ArrayList<>();
+        List<Book> reopened = new ArrayList<>();
+        List<String> skipped = new ArrayList<>();
+        for (CommandJournalEntry entry : journal.findReturns(batchId)) {
+            BorrowLog borrowLog = entry.getBorrowLogId() == null ? null
+                    : borrowLogRepository.findById(entry.getBorrowLogId()).orElse(null);
+            if (borrowLog == null || !borrowLog.isReturned()) {
+                continue;  // gone, or already undone
+            }
+            Book book = borrowLog.getBook();
+            try {
+                new ReturnBookCommand(borrowLog, book, entry.getDueDate(), borrowLogRepository, bookRepository).undo();
+            } catch (IllegalStateException e) {
+                skipped.add(book.getTitle());
+                continue;
+            }
+            undone.add(new CommandJournalEntry(CommandJournalEntry.Type.UNDO_RETURN, undoBatchId, book.getId(),
+                    borrowLog.getId(), entry.getBorrowerId(), entry.getDueDate()));
+            reopened.add(book);
+        }
+        if (!undone.isEmpty()) {
+            journal.append(undone);
+            List<Book> books = bookRepository.findAllById(reopened.stream().map(Book::getId).toList());
+            Transactions.afterCommit(() -> {
+                CatalogManager catalog = CatalogManager.getInstance(bookRepository);
+                books.forEach(catalog::notifySaved);
+            });
+        }
+        return new Undo(undone.size(), skipped);
+    }
+
+    private static CommandJournalEntry returnEntry(String batchId, BorrowLog borrowLog) {
+        // the log's return date is still the due date here
+        return new CommandJournalEntry(CommandJournalEntry.Type.RETURN, batchId, borrowLog.getBook().getId(),
+                borrowLog.getId(), borrowLog.getBorrower().getId(), borrowLog.getReturnDate());
+    }
+
+    private Batch finish(String batchId, Set<Long> bookIds, LocalDateTime date, LocalDateTime dueDate) {
+        // updateStatusIfAll cleared the persistence context, so these are the committed rows
+        List<Book> books = bookRepository.findAllById(bookIds);
+        Transactions.afterCommit(() -> {
+            CatalogManager catalog = CatalogManager.getInstance(bookRepository);
+            books.forEach(catalog::notifySaved);
+        });
+        return new Batch(batchId, books, date, dueDate);
+    }
+
+    /**
+     * The strictest terms among {@code books} for {@code borrower}, after
+     * checking each may be lent to them and the loans fit their limit.
+     */
+    private LoanTerms checkTerms(User borrower, Collection<Book> books) throws EnchantedLibraryException {
+        LoanTerms strictest = strictestTerms(borrower, books);
+        // held until commit, so the next borrow by this patron counts this one's loans
+        userRepository.findByIdForUpdate(borrower.getId());
+        checkLimit(strictest, borrowLogRepository.countByBorrowerAndReturnedFalse(borrower), books.size());
+        return strictest;
+    }
+
+    private LoanTerms strictestTerms(User borrower, Collection<Book> books) throws EnchantedLibraryException {
+        LoanTerms strictest = null;
+        for (Book book : books) {
+            LoanTerms terms = lendingPolicy.terms(borrower.getRole(), book);
+            if (!terms.lendable()) {
+                throw new EnchantedLibraryException("'" + book.getTitle() + "' can't be lent to "
+                        + (borrower.getRole() != null ? borrower.getRole().name().toLowerCase() : "unregistered")
+                        + " patrons.");
+            }
+            strictest = strictest == null ? terms : new LoanTerms(
+                    terms.loanPeriod().compareTo(strictest.loanPeriod()) < 0 ? terms.loanPeriod() : strictest.loanPeriod(),
+                    Math.min(terms.maxLoans(), strictest.maxLoans()),
+                    Math.min(terms.renewals(), strictest.renewals()));
+        }
+        return strictest;
+    }
+
+    private static void checkLimit(LoanTerms terms, long open, int more) throws EnchantedLibraryException {
+        if (open + more > terms.maxLoans()) {
+            throw new EnchantedLibraryException("Loan limit reached: at most " + terms.maxLoans()
+                    + " books at a time, and you have " + open + ".");
+        }
+    }
+
+    private static LocalDateTime dueDate(LendingStrategy strategy, LoanTerms terms, LocalDateTime borrowDate) {
+        LocalDateTime requested = strategy.calculateReturnDate(borrowDate);
+        LocalDateTime allowed = borrowDate.plus(terms.loanPeriod());
+        return requested.isBefore(allowed) ? requested : allowed;
+    }
+
+    private static Set<Long> checkBatch(Collection<Long> ids) throws EnchantedLibraryException {
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        distinct.remove(null);
+        if (distinct.isEmpty()) {
+            throw new EnchantedLibraryException("No books selected.");
+        }
+        if (distinct.size() > MAX_BATCH_SIZE) {
+            throw new EnchantedLibraryException("At most " + MAX_BATCH_SIZE + " books at a time.");
+        }
+        return distinct;
+    }
+}
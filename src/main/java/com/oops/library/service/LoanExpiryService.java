@@ -0,0 +1,190 @@
+package com.oops.library.service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.oops.library.enchanted.exception.EnchantedLibraryException;
+import com.oops.library.entity.BorrowLog;
+import com.oops.library.entity.CommandJournalEntry;
+import com.oops.library.repository.BorrowLogRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Acts on each loan the moment it falls due, instead of waiting for the
+ * daily overdue run.
+ *
+ * Open loans sit in a {@link TimingWheel} keyed by borrow log id: loaded
+ * from the due dates of the open loans at startup and kept current from the
+ * {@link CommandJournal}, which reports every borrow, renewal, return and
+ * undone return. The wheel turns every {@code app.loan-expiry.tick-ms}.
+ *
+ * When a loan comes due, a loan issued as a reading-room loan (see
+ * {@link BorrowLog#isReadingRoom()}) is returned automatically; any other
+ * loan gets an overdue notice, sent by whichever node first marks the loan
+ * (see {@link BorrowLogRepository#claimOverdueNotice}). Loans that were
+ * already overdue at startup get no notice here; the daily reminders cover
+ * them.
+ */
+@Service
+public class LoanExpiryService {
+
+    private static final Logger log = LoggerFactory.getLogger(LoanExpiryService.class);
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 5;
+
+    public record Stats(boolean loaded, int scheduled, long fired, long autoReturned,
+                        long overdueNotices, long skipped) {
+    }
+
+    private final BorrowLogRepository borrowLogRepository;
+    private final LendingService lendingService;
+    private final EmailDispatcher emailDispatcher;
+    private final long tickMillis;
+    private final LongSupplier clock;
+    private final TimingWheel<Long> wheel;
+    private final long startedAt;
+
+    private ScheduledExecutorService ticker;
+    private volatile boolean loaded;
+    private final LongAdder fired = new LongAdder();
+    private final LongAdder autoReturned = new LongAdder();
+    private final LongAdder overdueNotices = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    @Autowired
+    public LoanExpiryService(BorrowLogRepository borrowLogRepository, LendingService lendingService,
+                             CommandJournal journal, EmailDispatcher emailDispatcher,
+                             @Value("${app.loan-expiry.tick-ms:1000}") long tickMillis) {
+        this(borrowLogRepository, lendingService, journal, emailDispatcher, tickMillis, System::currentTimeMillis);
+    }
+
+    LoanExpiryService(BorrowLogRepository borrowLogRepository, LendingService lendingService,
+                      CommandJournal journal, EmailDispatcher emailDispatcher,
+                      long tickMillis, LongSupplier clock) {
+        this.borrowLogRepository = borrowLogRepository;
+        this.lendingService = lendingService;
+        this.emailDispatcher = emailDispatcher;
+        this.tickMillis = tickMillis;
+        this.clock = clock;
+        this.startedAt = clock.getAsLong();
+        this.wheel = new TimingWheel<>(tickMillis, WHEEL_SIZE, WHEEL_LEVELS, startedAt);
+        // registered before the load so nothing committed meanwhile is missed
+        journal.addListener(this::onJournalEntry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        load();
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "loan-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schedules every open loan by its due date.
+     */
+    void load() {
+        List<BorrowLogRepository.LoanDue> open = borrowLogRepository.findDueDatesByReturnedFalse();
+        for (BorrowLogRepository.LoanDue loan : open) {
+            if (loan.getReturnDate() != null) {
+                wheel.schedule(loan.getId(), toMillis(loan.getReturnDate()));
+            }
+        }
+        loaded = true;
+        log.info("Loan expiry wheel loaded with {} open loans", open.size());
+    }
+
+    void onJournalEntry(CommandJournalEntry entry) {
+        Long borrowLogId = entry.getBorrowLogId();
+        if (borrowLogId == null) {
+            return;
+        }
+        if (entry.getType() == CommandJournalEntry.Type.RETURN) {
+            wheel.cancel(borrowLogId);
+        } else if (entry.getDueDate() != null) {
+            wheel.schedule(borrowLogId, toMillis(entry.getDueDate()));
+        }
+    }
+
+    /**
+     * Turns the wheel to now and handles the loans that came due.
+     */
+    void tick() {
+        for (Long borrowLogId : wheel.advance(clock.getAsLong())) {
+            fired.increment();
+            try {
+                expire(borrowLogId);
+            } catch (RuntimeException e) {
+                log.error("Handling the due date of loan {} failed", borrowLogId, e);
+            }
+        }
+    }
+
+    public Stats getStats() {
+        return new Stats(loaded, wheel.size(), fired.sum(), autoReturned.sum(), overdueNotices.sum(), skipped.sum());
+    }
+
+    private void expire(Long borrowLogId) {
+        BorrowLog loan = borrowLogRepository.findById(borrowLogId).orElse(null);
+        if (loan == null || loan.isReturned() || loan.getReturnDate() == null) {
+            skipped.increment();
+            return;
+        }
+        long due = toMillis(loan.getReturnDate());
+        if (due > clock.getAsLong()) {
+            // renewed since it was scheduled
+            wheel.schedule(borrowLogId, due);
+            return;
+        }
+        if (loan.isReadingRoom()) {
+            try {
+                lendingService.returnBook(borrowLogId, loan.getBorrower().getEmail());
+            } catch (EnchantedLibraryException e) {
+                skipped.increment();
+                log.info("Reading-room loan {} not returned automatically: {}", borrowLogId, e.getMessage());
+                return;
+            }
+            autoReturned.increment();
+            emailDispatcher.dispatchReturnConfirmation(loan.getBorrower().getEmail(), loan.getBorrower().getName(),
+                    loan.getBook().getTitle());
+            log.info("Reading-room loan {} of '{}' returned at its due time", borrowLogId, loan.getBook().getTitle());
+        } else if (due < startedAt
+                || borrowLogRepository.claimOverdueNotice(borrowLogId, loan.getReturnDate()) == 0) {
+            // every node's wheel fires; only the one that claims the notice sends it
+            skipped.increment();
+        } else {
+            overdueNotices.increment();
+            emailDispatcher.dispatchOverdueNotice(loan.getBorrower().getEmail(), loan.getBorrower().getName(),
+                    loan.getBook().getTitle(), loan.getReturnDate());
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+}
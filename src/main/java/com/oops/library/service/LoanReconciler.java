@@ -0,0 +1,145 @@
+package com.oops.library.service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.oops.library.command.LoanLedger;
+import com.oops.library.design.patterns.CatalogManager;
+import com.oops.library.entity.Book;
+import com.oops.library.entity.BookStatus;
+import com.oops.library.entity.BorrowLog;
+import com.oops.library.entity.CommandJournalEntry;
+import com.oops.library.repository.BookRepository;
+import com.oops.library.repository.BorrowLogRepository;
+
+/**
+ * Checks the books, the loan table and the {@link CommandJournal} against
+ * each other and repairs the books that disagree.
+ *
+ * The journal is read through a ledger rebuilt from its table for the run,
+ * since the node's own ledger misses what other nodes appended. The
+ * candidates are the books on which the three disagree: BORROWED with no
+ * open loan, on loan but not BORROWED, or on a loan the ledger does not
+ * have. Each is locked, brought up to the book's last journal entry, and
+ * settled by its open BorrowLog: a copy without one goes back on the shelf
+ * (or to its next hold), a copy with one is marked BORROWED, and the
+ * journal gets the BORROW or RETURN entry it is missing. Copies left out on
+ * loan by a deleted patron and loans older than the journal are the usual
+ * finds.
+ */
+@Service
+public class LoanReconciler {
+
+    private static final Logger log = LoggerFactory.getLogger(LoanReconciler.class);
+
+    public record Result(int checked, int booksShelved, int booksMarkedBorrowed,
+                         int loansJournaled, int returnsJournaled) {
+    }
+
+    private final CommandJournal journal;
+    private final BookRepository bookRepository;
+    private final BorrowLogRepository borrowLogRepository;
+    private final HoldService holdService;
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile Result lastResult;
+
+    public LoanReconciler(CommandJournal journal, BookRepository bookRepository,
+                          BorrowLogRepository borrowLogRepository, HoldService holdService,
+                          PlatformTransactionManager transactionManager) {
+        this.journal = journal;
+        this.bookRepository = bookRepository;
+        this.borrowLogRepository = borrowLogRepository;
+        this.holdService = holdService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public Result reconcile() {
+        LoanLedger ledger = journal.rebuild();
+        Map<Long, LoanLedger.OpenLoan> ledgerLoans = ledger.openLoans();
+        Set<Long> borrowed = new HashSet<>(bookRepository.findIdsByStatus(BookStatus.BORROWED));
+        Map<Long, Long> loans = new HashMap<>();
+        for (Object[] row : borrowLogRepository.findAllOpenLoanIds()) {
+            loans.put((Long) row[0], (Long) row[1]);
+        }
+        // a copy is settled when it is BORROWED under the one loan the journal has for it
+        Set<Long> candidates = new TreeSet<>();
+        Stream.of(borrowed, loans.keySet(), ledgerLoans.keySet()).flatMap(Set::stream)
+                .filter(bookId -> !borrowed.contains(bookId) || loans.get(bookId) == null
+                        || ledgerLoans.get(bookId) == null
+                        || !loans.get(bookId).equals(ledgerLoans.get(bookId).borrowLogId()))
+                .forEach(candidates::add);
+
+        int[] counts = new int[4];
+        for (Long bookId : candidates) {
+            transactionTemplate.executeWithoutResult(status -> reconcile(bookId, ledger, counts));
+        }
+        Result result = new Result(candidates.size(), counts[0], counts[1], counts[2], counts[3]);
+        lastResult = result;
+        log.info("Loan reconciliation checked {} books: {} shelved, {} marked borrowed, {} loans and {} returns journaled",
+                result.checked(), result.booksShelved(), result.booksMarkedBorrowed(),
+                result.loansJournaled(), result.returnsJournaled());
+        return result;
+    }
+
+    /**
+     * The last run's result; null if none has run on this node.
+     */
+    public Result getLastResult() {
+        return lastResult;
+    }
+
+    // the book row lock holds off borrows and returns of the copy while it is settled
+    private void reconcile(Long bookId, LoanLedger ledger, int[] counts) {
+        Book book = bookRepository.findByIdForUpdate(bookId).orElse(null);
+        List<BorrowLog> open = borrowLogRepository.findByBookIdAndReturnedFalse(bookId);
+        // anything committed for the copy since the rebuild
+        journal.lastEntry(bookId).ifPresent(ledger::apply);
+        LoanLedger.OpenLoan journaled = ledger.openLoan(bookId);
+        String batchId = CommandJournal.newBatchId();
+
+        if (open.isEmpty()) {
+            if (journaled != null) {
+                journal.append(List.of(new CommandJournalEntry(CommandJournalEntry.Type.RETURN, batchId, bookId,
+                        journaled.borrowLogId(), journaled.borrowerId(), journaled.dueDate())));
+                counts[3]++;
+            }
+            if (book != null && bookRepository.updateStatusIf(bookId, BookStatus.BORROWED, BookStatus.AVAILABLE) > 0) {
+                log.warn("Book {} was BORROWED with no open loan; returned it to the shelf", bookId);
+                counts[0]++;
+                if (!holdService.promote(bookId)) {
+                    notifySaved(bookId);
+                }
+            }
+            return;
+        }
+
+        BorrowLog loan = open.get(0);
+        if (journaled == null || !loan.getId().equals(journaled.borrowLogId())) {
+            journal.append(List.of(new CommandJournalEntry(CommandJournalEntry.Type.BORROW, batchId, bookId,
+                    loan.getId(), loan.getBorrower().getId(), loan.getReturnDate())));
+            counts[2]++;
+        }
+        if (bookRepository.updateStatusIf(bookId, BookStatus.AVAILABLE, BookStatus.BORROWED) > 0) {
+            log.warn("Book {} was AVAILABLE while on loan under borrow log {}; marked it BORROWED", bookId, loan.getId());
+            counts[1]++;
+            notifySaved(bookId);
+        }
+    }
+
+    private void notifySaved(Long bookId) {
+        Book book = bookRepository.findBookById(bookId);
+        Transactions.afterCommit(() -> CatalogManager.getInstance(bookRepository).notifySaved(book));
+    }
+}
@@ -0,0 +1,255 @@
+package com.oops.library.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.oops.library.design.patterns.CatalogListener;
+import com.oops.library.design.patterns.CatalogManager;
+import com.oops.library.entity.Book;
+import com.oops.library.repository.BookRepository;
+import com.oops.library.search.LuceneCatalogIndex;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps the on-disk Lucene catalog index ({@code app.search.lucene.dir})
+ * in step with {@link CatalogManager} writes and answers ranked full-text
+ * searches from it.
+ *
+ * Writes are applied to the index writer immediately and become visible at
+ * the next refresh ({@code app.search.lucene.refresh-ms}); commits to disk
+ * happen every {@code app.search.lucene.commit-ms} and on shutdown. An empty
+ * index is rebuilt from the database after startup; see
+ * {@link CatalogReindexRunner} for rebuilding on demand.
+ */
+@Service
+public class LuceneCatalogService implements CatalogListener {
+
+    private static final Logger log = LoggerFactory.getLogger(LuceneCatalogService.class);
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    private final BookRepository bookRepository;
+    private final Path indexDir;
+    private final int rebuildThreads;
+    private LuceneCatalogIndex index;
+
+    private final Object rebuildLock = new Object();
+    private volatile boolean rebuilding;
+    private volatile boolean ready;
+    // latest write per book while a rebuild is running; empty means removed
+    private final Map<Long, Optional<Book>> writesDuringRebuild = new ConcurrentHashMap<>();
+
+    public LuceneCatalogService(BookRepository bookRepository,
+                                @Value("${app.search.lucene.dir:catalog-index}") String indexDir,
+                                @Value("${app.search.lucene.rebuild-threads:0}") int rebuildThreads) {
+        this.bookRepository = bookRepository;
+        this.indexDir = Path.of(indexDir);
+        this.rebuildThreads = rebuildThreads > 0 ? rebuildThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    @PostConstruct
+    void open() throws IOException {
+        index = new LuceneCatalogIndex(FSDirectory.open(indexDir));
+        ready = index.numDocs() > 0;
+        CatalogManager.getInstance(bookRepository).addListener(this);
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        CatalogManager.getInstance(bookRepository).removeListener(this);
+        index.commit();
+        index.close();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (ready) {
+            return;
+        }
+        Thread loader = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.error("Initial catalog index build failed", e);
+            }
+        }, "lucene-catalog-warmup");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * False until the index holds the catalog; callers fall back to another
+     * search path meanwhile.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public LuceneCatalogIndex.Hits search(String text, String author, String title, int offset, int limit) {
+        try {
+            return index.search(text, author, title, offset, limit);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Changes whenever searches start seeing new writes.
+     */
+    public long searcherGeneration() {
+        return index.generation();
+    }
+
+    @Override
+    public void onBookSaved(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        if (rebuilding) {
+            writesDuringRebuild.put(book.getId(), Optional.of(book));
+        }
+        try {
+            index.upsert(book);
+        } catch (IOException e) {
+            log.warn("Could not index book {}; it will be picked up by the next rebuild", book.getId(), e);
+        }
+    }
+
+    @Override
+    public void onBookRemoved(Long bookId) {
+        if (bookId == null) {
+            return;
+        }
+        if (rebuilding) {
+            writesDuringRebuild.put(bookId, Optional.empty());
+        }
+        try {
+            index.delete(bookId);
+        } catch (IOException e) {
+            log.warn("Could not remove book {} from the index", bookId, e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.lucene.refresh-ms:500}")
+    public void refresh() throws IOException {
+        // a refresh mid-rebuild would expose a partly rebuilt index
+        if (!rebuilding) {
+            index.refresh();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.search.lucene.commit-ms:60000}")
+    public void commit() throws IOException {
+        if (!rebuilding) {
+            index.commit();
+        }
+    }
+
+    /**
+     * Reindexes every book from the database. Batches are read in id order
+     * while documents are built on {@code app.search.lucene.rebuild-threads}
+     * worker threads. Searches keep seeing the previous index until the
+     * rebuild commits; writes made meanwhile are replayed on top.
+     */
+    public int rebuild() {
+        synchronized (rebuildLock) {
+            long start = System.currentTimeMillis();
+            boolean rebuilt = false;
+            rebuilding = true;
+            ExecutorService workers = Executors.newFixedThreadPool(rebuildThreads, runnable -> {
+                Thread thread = new Thread(runnable, "lucene-catalog-rebuild");
+                thread.setDaemon(true);
+                return thread;
+            });
+            Semaphore inFlight = new Semaphore(rebuildThreads * 2);
+            try {
+                index.deleteAll();
+                List<Future<Integer>> pending = new ArrayList<>();
+                long lastId = 0L;
+                List<Book> batch;
+                do {
+                    batch = bookRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(REBUILD_BATCH_SIZE));
+                    if (!batch.isEmpty()) {
+                        lastId = batch.get(batch.size() - 1).getId();
+                        List<Book> books = batch;
+                        // bound the batches held in memory when reading outpaces indexing
+                        inFlight.acquire();
+                        pending.add(workers.submit(() -> {
+                            try {
+                                return indexBatch(books);
+                            } finally {
+                                inFlight.release();
+                            }
+                        }));
+                    }
+                } while (batch.size() == REBUILD_BATCH_SIZE);
+                int indexed = 0;
+                for (Future<Integer> done : pending) {
+                    indexed += done.get();
+                }
+
+                for (Map.Entry<Long, Optional<Book>> write : writesDuringRebuild.entrySet()) {
+                    if (write.getValue().isPresent()) {
+                        index.upsert(write.getValue().get());
+                    } else {
+                        index.delete(write.getKey());
+                    }
+                }
+                index.commit();
+                rebuilding = false;
+                index.refresh();
+                ready = true;
+                rebuilt = true;
+                log.info("Catalog index rebuilt with {} books on {} threads in {} ms",
+                        indexed, rebuildThreads, System.currentTimeMillis() - start);
+                return indexed;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Catalog index rebuild interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Catalog index rebuild failed", e.getCause());
+            } finally {
+                if (!rebuilt) {
+                    // the writer now holds a partial index; keep searches off it until a rebuild succeeds
+                    ready = false;
+                }
+                rebuilding = false;
+                writesDuringRebuild.clear();
+                workers.shutdownNow();
+            }
+        }
+    }
+
+    private int indexBatch(List<Book> books) throws IOException {
+        for (Book book : books) {
+            Document doc = LuceneCatalogIndex.toDocument(book);
+            index.upsert(book.getId(), doc);
+        }
+        return books.size();
+    }
+}
@@ -1,118 +1,395 @@
 package com.oops.library.service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.oops.library.entity.BorrowLog;
+import com.oops.library.entity.OverdueReminderRun;
 import com.oops.library.entity.Role;
 import com.oops.library.entity.User;
 import com.oops.library.repository.BorrowLogRepository;
 import com.oops.library.repository.UserRepository;
-import com.oops.library.strategy.LateFeeService;
+
+import jakarta.persistence.EntityManager;
 
 @Component
 public class OverdueNotificationScheduler {
 
     private static final Logger log = LoggerFactory.getLogger(OverdueNotificationScheduler.class);
-    
+
+    /**
+     * Where the current (or last) reminder run stands; remaining counts the
+     * overdue patrons not yet sent to, given up on or skipped as reminded
+     * earlier that day.
+     */
+    public record Progress(boolean running, LocalDateTime startedAt, long patrons,
+                           long sent, long failed, long skipped, long remaining) {
+    }
+
+    // borrowers finished between two checkpoints of the run record
+    private static final int CHECKPOINT_EVERY = 25;
+
     private final BorrowLogRepository borrowLogRepository;
     private final UserRepository userRepository;
     private final EmailService emailService;
-    private final LateFeeService lateFeeService;
+    private final EntityManager entityManager;
+    private final ReminderCheckpoints checkpoints;
+    private final int senderThreads;
+    private final double sendsPerSecond;
+    private final int summaryLines;
+
+    private volatile ReminderRun lastRun;
 
     public OverdueNotificationScheduler(BorrowLogRepository borrowLogRepository,
                                         UserRepository userRepository,
                                         EmailService emailService,
-                                        LateFeeService lateFeeService) {  // Added LateFeeService parameter
+                                        EntityManager entityManager,
+                                        ReminderCheckpoints checkpoints,
+                                        @Value("${app.overdue.reminder.threads:8}") int senderThreads,
+                                        @Value("${app.overdue.reminder.sends-per-second:10}") double sendsPerSecond,
+                                        @Value("${app.overdue.reminder.summary-lines:100}") int summaryLines) {
         this.borrowLogRepository = borrowLogRepository;
         this.userRepository = userRepository;
         this.emailService = emailService;
-        this.lateFeeService = lateFeeService;
+        this.entityManager = entityManager;
+        this.checkpoints = checkpoints;
+        this.senderThreads = Math.max(1, senderThreads);
+        this.sendsPerSecond = sendsPerSecond;
+        this.summaryLines = Math.max(0, summaryLines);
     }
 
-    @Scheduled(cron = "0 0 18 * * *")
+    /**
+     * Sends every overdue reminder from this node. The daily run is started
+     * by {@link ScheduledJobs}, which makes sure only one node sends each.
+     */
+    @Transactional(readOnly = true)
     public void sendOverdueReminders() {
-        LocalDateTime now = LocalDateTime.now();
-        List<BorrowLog> overdueLogs = borrowLogRepository.findByReturnedFalseAndReturnDateBefore(now);
-        
-        if (overdueLogs.isEmpty()) {
+        sendOverdueReminders(LocalDateTime.now(), 0, Long.MAX_VALUE, () -> true);
+    }
+
+    /**
+     * Reminds the borrowers with ids from {@code fromBorrowerId} up to (not
+     * including) {@code toBorrowerId}, for as long as {@code stillHeld} says
+     * this node still owns the run.
+     *
+     * The run is recorded by {@link ReminderCheckpoints}: a rerun the same
+     * day picks up after the last borrower checkpointed and skips anyone
+     * already reminded that day, and a finished run is not repeated.
+     *
+     * Walks the overdue loans as one streamed, fetch-joined query ordered by
+     * borrower. Each borrower's reminder is handed to a pool of
+     * {@code app.overdue.reminder.threads} senders as soon as their last loan
+     * has been read, and all senders together stay under
+     * {@code app.overdue.reminder.sends-per-second}. The scan waits while
+     * every sender is busy and one more borrower is queued for each, so only
+     * those borrowers' loans are held.
+     */
+    @Transactional(readOnly = true)
+    public void sendOverdueReminders(LocalDateTime now, long fromBorrowerId, long toBorrowerId,
+                                     BooleanSupplier stillHeld) {
+        LocalDate day = now.toLocalDate();
+        String runKey = ReminderCheckpoints.runKey(day, fromBorrowerId, toBorrowerId);
+        OverdueReminderRun record = checkpoints.open(runKey, now);
+        if (record.isCompleted()) {
+            log.info("Overdue reminders {} were already sent", runKey);
+            return;
+        }
+        Long cursor = record.getCursorBorrowerId();
+        long resumeFrom = cursor != null ? Math.max(fromBorrowerId, cursor + 1) : fromBorrowerId;
+        if (cursor != null) {
+            log.info("Resuming overdue reminders {} after borrower {}", runKey, cursor);
+        }
+        long patrons = borrowLogRepository.countOverdueBorrowers(now, resumeFrom, toBorrowerId);
+        if (patrons == 0) {
             log.info("No overdue books found.");
+            checkpoints.complete(runKey, record.getSent(), record.getFailed());
             return;
         }
+        Set<Long> remindedToday = checkpoints.sentOn(day, resumeFrom, toBorrowerId);
+        ReminderRun run = new ReminderRun(runKey, now, patrons, senderThreads, sendsPerSecond,
+                record.getSent(), record.getFailed());
+        lastRun = run;
 
-        // Group overdue logs by user for personalized emails
-        Map<User, List<BorrowLog>> overdueByUser = overdueLogs.stream()
-                .collect(Collectors.groupingBy(BorrowLog::getBorrower));
-
-        // Send personalized reminders to each user
-        sendUserReminders(overdueByUser, now);
+        boolean handedOver = false;
+        try (Stream<Object[]> overdueLogs = borrowLogRepository.streamOverdueByBorrower(now, resumeFrom, toBorrowerId)) {
+            // late fees as accrued by the LateFeeLedger
+            Map<BorrowLog, Double> userOverdueLogs = new LinkedHashMap<>();
+            Iterator<Object[]> rows = overdueLogs.iterator();
+            while (rows.hasNext()) {
+                Object[] row = rows.next();
+                BorrowLog next = (BorrowLog) row[0];
+                if (!userOverdueLogs.isEmpty()
+                        && !next.getBorrower().getId().equals(firstLoan(userOverdueLogs).getBorrower().getId())) {
+                    if (!stillHeld.getAsBoolean()) {
+                        handedOver = true;
+                        break;
+                    }
+                    remindBorrower(run, userOverdueLogs, now, remindedToday);
+                    userOverdueLogs = new LinkedHashMap<>();
+                }
+                userOverdueLogs.put(next, row[1] != null ? (Double) row[1] : 0.0);
+            }
+            if (!handedOver && !userOverdueLogs.isEmpty()) {
+                remindBorrower(run, userOverdueLogs, now, remindedToday);
+            }
+        } finally {
+            run.awaitSenders();
+            checkpoint(run, run.flush());
+        }
+        if (handedOver) {
+            // the node that took the run over sends the summary
+            log.warn("Overdue reminder run handed over after {} patrons", run.usersNotified);
+            return;
+        }
+        checkpoints.complete(runKey, run.totalSent(), run.totalFailed());
+        log.info("📧 Successfully sent {} user reminders ({} failed, {} already reminded)",
+                run.sent.sum(), run.failed.sum(), run.skipped.sum());
 
         // Send summary to librarians
-        sendLibrarianSummary(overdueLogs, overdueByUser.size());
+        String scope = fromBorrowerId == 0 && toBorrowerId == Long.MAX_VALUE ? ""
+                : String.format(" (borrower ids %d-%d)", fromBorrowerId, toBorrowerId - 1);
+        if (cursor != null) {
+            scope += String.format(" (resumed after borrower %d)", cursor);
+        }
+        sendLibrarianSummary(run, now, scope);
     }
 
-    private void sendUserReminders(Map<User, List<BorrowLog>> overdueByUser, LocalDateTime now) {
-        int remindersSent = 0;
-        
-        for (Map.Entry<User, List<BorrowLog>> entry : overdueByUser.entrySet()) {
-            User user = entry.getKey();
-            List<BorrowLog> userOverdueLogs = entry.getValue();
-            
+    public Progress getProgress() {
+        ReminderRun run = lastRun;
+        if (run == null) {
+            return new Progress(false, null, 0, 0, 0, 0, 0);
+        }
+        long sent = run.sent.sum();
+        long failed = run.failed.sum();
+        long skipped = run.skipped.sum();
+        return new Progress(!run.senders.isTerminated(), run.startedAt, run.patrons, sent, failed, skipped,
+                Math.max(0, run.patrons - sent - failed - skipped));
+    }
+
+    /**
+     * One reminder run: its sender pool and counters. The summary keeps a line
+     * for each of the first {@code app.overdue.reminder.summary-lines} loans
+     * and totals for the rest; the loans themselves are let go.
+     *
+     * Senders finish out of order, so the checkpoint cursor only moves past a
+     * borrower once every borrower before them is done.
+     */
+    private static final class ReminderRun {
+        private final String runKey;
+        private final LocalDateTime startedAt;
+        private final long patrons;
+        private final ThreadPoolExecutor senders;
+        private final Semaphore queued;
+        private final SendRateLimiter rateLimiter;
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder skipped = new LongAdder();
+        // sent and failed by earlier, interrupted attempts
+        private final long sentBefore;
+        private final long failedBefore;
+        // guarded by itself: borrowers handed out and not yet passed by the cursor, in order
+        private final Deque<Long> inFlight = new ArrayDeque<>();
+        private final Set<Long> done = new HashSet<>();
+        private Long cursor;
+        private int sinceCheckpoint;
+        // scan thread only
+        private final StringBuilder summary = new StringBuilder();
+        private int summarized;
+        private int overdueItems;
+        private int usersNotified;
+        private double totalLateFees;
+
+        ReminderRun(String runKey, LocalDateTime startedAt, long patrons, int threads, double sendsPerSecond,
+                    long sentBefore, long failedBefore) {
+            this.runKey = runKey;
+            this.sentBefore = sentBefore;
+            this.failedBefore = failedBefore;
+            this.startedAt = startedAt;
+            this.patrons = patrons;
+            this.queued = new Semaphore(threads * 2);
+            this.rateLimiter = new SendRateLimiter(sendsPerSecond);
+            AtomicInteger count = new AtomicInteger();
+            this.senders = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "overdue-reminder-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+
+        void started(Long borrowerId) {
+            synchronized (inFlight) {
+                inFlight.addLast(borrowerId);
+            }
+        }
+
+        /**
+         * @return the cursor to checkpoint, or null if it is not time yet
+         */
+        Long finished(Long borrowerId) {
+            synchronized (inFlight) {
+                done.add(borrowerId);
+                while (!inFlight.isEmpty() && done.remove(inFlight.peekFirst())) {
+                    cursor = inFlight.pollFirst();
+                    sinceCheckpoint++;
+                }
+                if (sinceCheckpoint < CHECKPOINT_EVERY) {
+                    return null;
+                }
+                sinceCheckpoint = 0;
+                return cursor;
+            }
+        }
+
+        Long flush() {
+            synchronized (inFlight) {
+                sinceCheckpoint = 0;
+                return cursor;
+            }
+        }
+
+        long totalSent() {
+            return sentBefore + sent.sum();
+        }
+
+        long totalFailed() {
+            return failedBefore + failed.sum();
+        }
+
+        void awaitSenders() {
+            senders.shutdown();
             try {
-                // Calculate total late fee for this user
-                double totalLateFee = userOverdueLogs.stream()
-                        .mapToDouble(lateFeeService::calculateLateFee)
-                        .sum();
-                
-                // Prepare template variables
-                Map<String, Object> variables = new HashMap<>();
-                variables.put("userName", user.getName());
-                variables.put("overdueBooks", userOverdueLogs);
-                variables.put("totalLateFee", totalLateFee);
-                variables.put("currentDate", now.format(DateTimeFormatter.ofPattern("MMM dd, yyyy")));
-                variables.put("now", now);
-                
-                // Send templated email to user
-                boolean sent = emailService.sendTemplatedMessage(
-                    user.getEmail(),
-                    "📚 Overdue Book Reminder - Action Required",
-                    "overdue-reminder-user",  // We'll create this template
-                    variables
-                );
-                
-                if (sent) {
-                    remindersSent++;
-                    log.info("✅ Sent overdue reminder to user: {} ({})", user.getName(), user.getEmail());
+                while (!senders.awaitTermination(1, TimeUnit.MINUTES)) {
+                    log.info("Overdue reminders still sending: {} sent, {} failed of {}", sent.sum(), failed.sum(), patrons);
+                }
+            } catch (InterruptedException e) {
+                senders.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static BorrowLog firstLoan(Map<BorrowLog, Double> userOverdueLogs) {
+        return userOverdueLogs.keySet().iterator().next();
+    }
+
+    private void remindBorrower(ReminderRun run, Map<BorrowLog, Double> userOverdueLogs, LocalDateTime now,
+                                Set<Long> remindedToday) {
+        appendSummary(run, userOverdueLogs, now);
+        run.overdueItems += userOverdueLogs.size();
+        User borrower = firstLoan(userOverdueLogs).getBorrower();
+        Long borrowerId = borrower.getId();
+        run.started(borrowerId);
+        if (remindedToday.contains(borrowerId)) {
+            run.skipped.increment();
+            checkpoint(run, run.finished(borrowerId));
+            entityManager.clear();
+            return;
+        }
+        run.usersNotified++;
+        run.queued.acquireUninterruptibly();
+        run.senders.execute(() -> {
+            try {
+                if (sendUserReminder(run.rateLimiter, borrower, userOverdueLogs, now)) {
+                    run.sent.increment();
+                    checkpoints.markSent(borrowerId, now.toLocalDate());
                 } else {
-                    log.warn("⚠️ Failed to send templated email to user: {} ({}), falling back to plain text", 
-                            user.getName(), user.getEmail());
-                    
-                    // Fallback to plain text
-                    sendPlainTextUserReminder(user, userOverdueLogs, totalLateFee, now);
+                    run.failed.increment();
                 }
-                
-            } catch (Exception e) {
-                log.error("❌ Failed to send reminder to user: {} ({})", user.getName(), user.getEmail(), e);
+            } catch (RuntimeException e) {
+                log.error("Recording the reminder to borrower {} failed", borrowerId, e);
+            } finally {
+                run.queued.release();
+                checkpoint(run, run.finished(borrowerId));
             }
+        });
+        // the senders only read fields that are already loaded
+        entityManager.clear();
+    }
+
+    private void checkpoint(ReminderRun run, Long cursor) {
+        if (cursor == null) {
+            return;
         }
-        
-        log.info("📧 Successfully sent {} user reminders", remindersSent);
+        try {
+            checkpoints.advance(run.runKey, cursor, run.totalSent(), run.totalFailed());
+        } catch (RuntimeException e) {
+            // the sent markers still keep a rerun from reminding anyone twice
+            log.warn("Checkpointing overdue reminders {} at borrower {} failed", run.runKey, cursor, e);
+        }
+    }
+
+    private boolean sendUserReminder(SendRateLimiter rateLimiter, User user, Map<BorrowLog, Double> userOverdueLogs, LocalDateTime now) {
+        try {
+            // Calculate total late fee for this user
+            double totalLateFee = userOverdueLogs.values().stream()
+                    .mapToDouble(Double::doubleValue)
+                    .sum();
+
+            // Prepare template variables
+            Map<String, Object> variables = new HashMap<>();
+            variables.put("userName", user.getName());
+            variables.put("overdueBooks", new ArrayList<>(userOverdueLogs.keySet()));
+            variables.put("totalLateFee", totalLateFee);
+            variables.put("currentDate", now.format(DateTimeFormatter.ofPattern("MMM dd, yyyy")));
+            variables.put("now", now);
+
+            // Send templated email to user
+            rateLimiter.acquire();
+            boolean sent = emailService.sendTemplatedMessage(
+                user.getEmail(),
+                "📚 Overdue Book Reminder - Action Required",
+                "overdue-reminder-user",
+                variables
+            );
+
+            if (sent) {
+                log.info("✅ Sent overdue reminder to user: {} ({})", user.getName(), user.getEmail());
+                return true;
+            }
+            log.warn("⚠️ Failed to send templated email to user: {} ({}), falling back to plain text",
+                    user.getName(), user.getEmail());
+
+            // Fallback to plain text
+            rateLimiter.acquire();
+            return sendPlainTextUserReminder(user, userOverdueLogs, totalLateFee, now);
+        } catch (Exception e) {
+            log.error("❌ Failed to send reminder to user: {} ({})", user.getName(), user.getEmail(), e);
+        }
+        return false;
     }
 
-    private void sendPlainTextUserReminder(User user, List<BorrowLog> userOverdueLogs, double totalLateFee, LocalDateTime now) {
-        String userSummary = userOverdueLogs.stream()
+    private boolean sendPlainTextUserReminder(User user, Map<BorrowLog, Double> userOverdueLogs, double totalLateFee, LocalDateTime now) {
+        String userSummary = userOverdueLogs.keySet().stream()
                 .map(log -> {
-                    double lateFee = lateFeeService.calculateLateFee(log);
+                    double lateFee = userOverdueLogs.get(log);
                     long overdueDays = ChronoUnit.DAYS.between(log.getReturnDate(), now);
                     return String.format("• %s by %s | Due: %s | Overdue: %d days | Late Fee: $%.2f",
                             log.getBook().getTitle(),
@@ -133,39 +410,55 @@ public class OverdueNotificationScheduler {
             "Thank you,\nThe Enchanted Library Team",
             user.getName(), userSummary, totalLateFee);
         
-        emailService.sendSimpleMessage(
+        return emailService.sendSimpleMessage(
             user.getEmail(),
             "Overdue Book Reminder - Enchanted Library",
             userMessage
         );
     }
 
-    private void sendLibrarianSummary(List<BorrowLog> overdueLogs, int usersNotified) {
-        LocalDateTime now = LocalDateTime.now();
-        String summary = overdueLogs.stream()
-                .map(log -> {
-                    double lateFee = lateFeeService.calculateLateFee(log);
-                    long overdueDays = ChronoUnit.DAYS.between(log.getReturnDate(), now);
-                    return String.format("• %s | Borrower: %s (%s) | Due: %s | Overdue: %d days | Late Fee: $%.2f",
-                            log.getBook().getTitle(),
-                            log.getBorrower().getName(),
-                            log.getBorrower().getEmail(),
-                            log.getReturnDate().format(DateTimeFormatter.ofPattern("MMM dd, yyyy 'at' hh:mm a")),
-                            overdueDays,
-                            lateFee);
-                })
-                .collect(Collectors.joining("\n"));
+    private void appendSummary(ReminderRun run, Map<BorrowLog, Double> userOverdueLogs, LocalDateTime now) {
+        StringBuilder summary = run.summary;
+        for (Map.Entry<BorrowLog, Double> overdue : userOverdueLogs.entrySet()) {
+            BorrowLog log = overdue.getKey();
+            double lateFee = overdue.getValue();
+            run.totalLateFees += lateFee;
+            if (run.summarized >= summaryLines) {
+                continue;
+            }
+            run.summarized++;
+            long overdueDays = ChronoUnit.DAYS.between(log.getReturnDate(), now);
+            if (summary.length() > 0) {
+                summary.append('\n');
+            }
+            summary.append(String.format("• %s | Borrower: %s (%s) | Due: %s | Overdue: %d days | Late Fee: $%.2f",
+                    log.getBook().getTitle(),
+                    log.getBorrower().getName(),
+                    log.getBorrower().getEmail(),
+                    log.getReturnDate().format(DateTimeFormatter.ofPattern("MMM dd, yyyy 'at' hh:mm a")),
+                    overdueDays,
+                    lateFee));
+        }
+    }
 
+    private void sendLibrarianSummary(ReminderRun run, LocalDateTime now, String scope) {
+        int omitted = run.overdueItems - run.summarized;
+        String details = omitted > 0
+                ? run.summary + String.format("\n… and %d more overdue items", omitted)
+                : run.summary.toString();
         String librarianMessage = String.format(
-            "Overdue Books Summary - %s\n\n" +
+            "Overdue Books Summary - %s%s\n\n" +
             "Total Overdue Items: %d\n" +
-            "Users Notified: %d\n\n" +
+            "Users Notified: %d\n" +
+            "Total Late Fees: $%.2f\n\n" +
             "Details:\n%s\n\n" +
             "Please follow up with borrowers if books are not returned soon.",
             now.format(DateTimeFormatter.ofPattern("MMM dd, yyyy 'at' hh:mm a")),
-            overdueLogs.size(),
-            usersNotified,
-            summary);
+            scope,
+            run.overdueItems,
+            run.usersNotified,
+            run.totalLateFees,
+            details);
 
         List<String> librarianEmails = userRepository.findByRole(Role.LIBRARIAN).stream()
                 .map(User::getEmail)
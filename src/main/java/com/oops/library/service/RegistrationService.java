@@ -16,14 +16,17 @@ public class RegistrationService {
 	private final UserRepository userRepository;
 	private final PasswordEncoder passwordEncoder;
 	private final EmailService emailService;
+	private final FacetCountService facetCountService;
 	private static final Logger log = LoggerFactory.getLogger(RegistrationService.class);
 
 	public RegistrationService(UserRepository userRepository,
 								 PasswordEncoder passwordEncoder,
-								 EmailService emailService) {
+								 EmailService emailService,
+								 FacetCountService facetCountService) {
 		this.userRepository = userRepository;
 		this.passwordEncoder = passwordEncoder;
 		this.emailService = emailService;
+		this.facetCountService = facetCountService;
 	}
 
 //	@Transactional
@@ -61,6 +64,7 @@ public class RegistrationService {
 	        
 	        User persisted = userRepository.saveAndFlush(user);
 	        log.info("User saved to database with id: {}", persisted.getId());
+	        facetCountService.onUserSaved(persisted);
 	        
 	        log.info("Attempting to send confirmation email to: {}", persisted.getEmail());
 	        boolean emailSent = emailService.sendSignupConfirmation(persisted.getEmail(), persisted.getName());
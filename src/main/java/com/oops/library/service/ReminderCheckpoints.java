@@ -0,0 +1,94 @@
+package com.oops.library.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.oops.library.entity.OverdueReminderRun;
+import com.oops.library.entity.ReminderSent;
+import com.oops.library.repository.OverdueReminderRunRepository;
+import com.oops.library.repository.ReminderSentRepository;
+
+/**
+ * Durable progress of the overdue reminders: a run record per day and
+ * borrower range with a cursor, and a marker per borrower reminded each
+ * day. Every write commits on its own, whatever transaction the run is
+ * reading in, so a crash loses at most the borrowers since the last
+ * checkpoint, and those are skipped by their markers.
+ */
+@Service
+public class ReminderCheckpoints {
+
+    private static final int KEEP_DAYS = 7;
+
+    private final OverdueReminderRunRepository runRepository;
+    private final ReminderSentRepository sentRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public ReminderCheckpoints(OverdueReminderRunRepository runRepository, ReminderSentRepository sentRepository,
+                               PlatformTransactionManager transactionManager) {
+        this.runRepository = runRepository;
+        this.sentRepository = sentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public static String runKey(LocalDate day, long fromBorrowerId, long toBorrowerId) {
+        return day + ":" + fromBorrowerId + "-" + toBorrowerId;
+    }
+
+    /**
+     * The record of {@code runKey}, started now if there is none; starting
+     * one drops records and markers older than a week.
+     */
+    public OverdueReminderRun open(String runKey, LocalDateTime now) {
+        return transactionTemplate.execute(status -> runRepository.findById(runKey).orElseGet(() -> {
+            runRepository.deleteByStartedAtBefore(now.minusDays(KEEP_DAYS));
+            sentRepository.deleteBySentOnBefore(now.toLocalDate().minusDays(KEEP_DAYS));
+            return runRepository.save(new OverdueReminderRun(runKey, now));
+        }));
+    }
+
+    /**
+     * Borrowers in the range already reminded on {@code day}.
+     */
+    public Set<Long> sentOn(LocalDate day, long fromBorrowerId, long toBorrowerId) {
+        return new HashSet<>(sentRepository.findBorrowerIdsSentOn(day, fromBorrowerId, toBorrowerId));
+    }
+
+    public void markSent(Long borrowerId, LocalDate day) {
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    sentRepository.save(new ReminderSent(borrowerId, day, LocalDateTime.now())));
+        } catch (DataIntegrityViolationException e) {
+            // marked already
+        }
+    }
+
+    /**
+     * Records that every borrower up to {@code cursorBorrowerId} is done.
+     */
+    public void advance(String runKey, long cursorBorrowerId, long sent, long failed) {
+        transactionTemplate.executeWithoutResult(status ->
+                runRepository.advance(runKey, cursorBorrowerId, sent, failed, LocalDateTime.now()));
+    }
+
+    public void complete(String runKey, long sent, long failed) {
+        transactionTemplate.executeWithoutResult(status ->
+                runRepository.complete(runKey, sent, failed, LocalDateTime.now()));
+    }
+
+    /**
+     * Whether some range of {@code day}'s reminders was started and not finished.
+     */
+    public boolean hasUnfinished(LocalDate day) {
+        return runRepository.existsByRunKeyStartingWithAndCompletedFalse(day + ":");
+    }
+}
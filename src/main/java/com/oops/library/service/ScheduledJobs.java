@@ -0,0 +1,167 @@
+package com.oops.library.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.oops.library.repository.BorrowLogRepository;
+
+/**
+ * The scheduled jobs that work on the shared database, each run by one
+ * node of the cluster through the {@link JobCoordinator}.
+ *
+ * A daily job runs once per date; an interval job once per interval, so
+ * the nodes between them keep the configured pace. Jobs that only touch
+ * one node's memory (search index, facet counts) stay in their services.
+ *
+ * With {@code app.overdue.reminder.partition-size} set, the overdue
+ * reminders are split into borrower id ranges of that size that the nodes
+ * share out between them.
+ */
+@Component
+public class ScheduledJobs {
+
+    private static final Logger log = LoggerFactory.getLogger(ScheduledJobs.class);
+
+    static final String OVERDUE_REMINDERS = "overdue-reminders";
+    static final String LATE_FEE_ACCRUAL = "late-fee-accrual";
+    static final String HOLD_EXPIRY = "hold-expiry";
+    static final String JOURNAL_CHECKPOINT = "journal-checkpoint";
+    static final String IDEMPOTENCY_PURGE = "idempotency-purge";
+    static final String LOAN_RECONCILIATION = "loan-reconciliation";
+
+    private final JobCoordinator coordinator;
+    private final OverdueNotificationScheduler overdueNotificationScheduler;
+    private final BorrowLogRepository borrowLogRepository;
+    private final ReminderCheckpoints reminderCheckpoints;
+    private final LateFeeLedger lateFeeLedger;
+    private final HoldService holdService;
+    private final CommandJournal commandJournal;
+    private final IdempotencyService idempotencyService;
+    private final LoanReconciler loanReconciler;
+    private final long reminderPartitionSize;
+    private final long holdExpiryMillis;
+    private final long checkpointMillis;
+    private final long purgeMillis;
+
+    public ScheduledJobs(JobCoordinator coordinator, OverdueNotificationScheduler overdueNotificationScheduler,
+                         BorrowLogRepository borrowLogRepository, ReminderCheckpoints reminderCheckpoints,
+                         LateFeeLedger lateFeeLedger,
+                         HoldService holdService, CommandJournal commandJournal,
+                         IdempotencyService idempotencyService, LoanReconciler loanReconciler,
+                         @Value("${app.overdue.reminder.partition-size:0}") long reminderPartitionSize,
+                         @Value("${app.holds.expiry-check-ms:60000}") long holdExpiryMillis,
+                         @Value("${app.journal.checkpoint-ms:900000}") long checkpointMillis,
+                         @Value("${app.idempotency.purge-ms:3600000}") long purgeMillis) {
+        this.coordinator = coordinator;
+        this.overdueNotificationScheduler = overdueNotificationScheduler;
+        this.borrowLogRepository = borrowLogRepository;
+        this.reminderCheckpoints = reminderCheckpoints;
+        this.lateFeeLedger = lateFeeLedger;
+        this.holdService = holdService;
+        this.commandJournal = commandJournal;
+        this.idempotencyService = idempotencyService;
+        this.loanReconciler = loanReconciler;
+        this.reminderPartitionSize = reminderPartitionSize;
+        this.holdExpiryMillis = holdExpiryMillis;
+        this.checkpointMillis = checkpointMillis;
+        this.purgeMillis = purgeMillis;
+    }
+
+    /**
+     * Every node waits until each range is done, so one whose holder dies
+     * is taken over when the lease runs out and resumed from its checkpoint.
+     */
+    @Scheduled(cron = "0 0 18 * * *")
+    public void overdueReminders() {
+        LocalDateTime now = LocalDateTime.now();
+        String run = now.toLocalDate().toString();
+        int partitions = 1;
+        if (reminderPartitionSize > 0) {
+            Long highest = borrowLogRepository.findMaxOverdueBorrowerId(now);
+            if (highest == null) {
+                log.info("No overdue books found.");
+                return;
+            }
+            // fixed-width ranges, so every node splits the run the same way
+            partitions = (int) (highest / reminderPartitionSize) + 1;
+        }
+        int ran = coordinator.runPartitioned(OVERDUE_REMINDERS, run, partitions, (partition, lease) -> {
+            long from = reminderPartitionSize > 0 ? partition * reminderPartitionSize : 0;
+            long to = reminderPartitionSize > 0 ? from + reminderPartitionSize : Long.MAX_VALUE;
+            overdueNotificationScheduler.sendOverdueReminders(now, from, to, lease::isHeld);
+        });
+        log.info("Sent {} of {} overdue reminder partitions from {}", ran, partitions, coordinator.getNodeId());
+    }
+
+    /**
+     * Finishes today's reminders if a node went down sending them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOverdueReminders() {
+        if (!reminderCheckpoints.hasUnfinished(LocalDate.now())) {
+            return;
+        }
+        Thread runner = new Thread(this::overdueReminders, "overdue-reminder-resume");
+        runner.setDaemon(true);
+        runner.start();
+    }
+
+    @Scheduled(cron = "${app.late-fees.accrue-cron:0 30 0 * * *}")
+    public void accrueLateFees() {
+        coordinator.runOnce(LATE_FEE_ACCRUAL, LocalDate.now().toString(),
+                lease -> lateFeeLedger.accrue(() -> coordinator.fence(lease)));
+    }
+
+    /**
+     * Brings late fees up to date at startup unless some node already has today.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void catchUpLateFees() {
+        Thread runner = new Thread(this::accrueLateFees, "late-fee-catch-up");
+        runner.setDaemon(true);
+        runner.start();
+    }
+
+    @Scheduled(fixedDelayString = "${app.holds.expiry-check-ms:60000}")
+    public void expireLapsedHolds() {
+        coordinator.runOnce(HOLD_EXPIRY, interval(holdExpiryMillis), lease -> holdService.expireLapsedHolds());
+    }
+
+    @Scheduled(fixedDelayString = "${app.journal.checkpoint-ms:900000}", initialDelayString = "${app.journal.checkpoint-ms:900000}")
+    public void checkpointJournal() {
+        coordinator.runOnce(JOURNAL_CHECKPOINT, interval(checkpointMillis), lease -> commandJournal.checkpoint());
+    }
+
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-ms:3600000}")
+    public void purgeIdempotencyRecords() {
+        coordinator.runOnce(IDEMPOTENCY_PURGE, interval(purgeMillis), lease -> idempotencyService.purgeExpired());
+    }
+
+    @Scheduled(cron = "${app.journal.reconcile-cron:0 0 4 * * *}")
+    public void reconcileLoans() {
+        coordinator.runOnce(LOAN_RECONCILIATION, LocalDate.now().toString(), lease -> loanReconciler.reconcile());
+    }
+
+    /**
+     * Checks the loans against the journal at startup unless some node already has today.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileLoansAtStartup() {
+        Thread runner = new Thread(this::reconcileLoans, "loan-reconciliation");
+        runner.setDaemon(true);
+        runner.start();
+    }
+
+    // the run an interval job is on: the same on every node for one interval
+    private static String interval(long intervalMillis) {
+        return Long.toString(System.currentTimeMillis() / Math.max(1, intervalMillis));
+    }
+}
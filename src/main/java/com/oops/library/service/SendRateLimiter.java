@@ -0,0 +1,42 @@
+package com.oops.library.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Spaces sends evenly at no more than {@code permitsPerSecond}, shared by
+ * every thread that calls {@link #acquire()}. A rate of zero or less means
+ * no limit.
+ */
+class SendRateLimiter {
+
+    private final long intervalNanos;
+    private long nextFreeNanos;  // guarded by this
+
+    SendRateLimiter(double permitsPerSecond) {
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+    /**
+     * Blocks until the caller may send.
+     */
+    void acquire() {
+        if (intervalNanos == 0) {
+            return;
+        }
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            // an idle spell does not bank permits for a burst later
+            long slot = Math.max(nextFreeNanos, now);
+            nextFreeNanos = slot + intervalNanos;
+            wait = slot - now;
+        }
+        while (wait > 0) {
+            long start = System.nanoTime();
+            LockSupport.parkNanos(wait);
+            wait -= System.nanoTime() - start;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.oops.library.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hierarchical timing wheel: keys scheduled at a deadline come back from
+ * {@link #advance} once the clock passes it.
+ *
+ * Level 0 has {@code wheelSize} slots of one tick each; every level above
+ * has slots {@code wheelSize} times wider. A key is filed in the lowest
+ * level whose span reaches its deadline and moves down a level each time
+ * the wheel above turns over to its slot, so scheduling and cancelling are
+ * O(1) and a tick only touches the slots that come due. Deadlines beyond
+ * the top level wait in its farthest slot and are refiled from there.
+ *
+ * Deadlines are in epoch milliseconds and resolved to whole ticks.
+ */
+class TimingWheel<K> {
+
+    private record Timer<K>(long deadlineTick, Set<K> slot) {
+    }
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final long[] span;  // ticks covered by one slot at each level
+    private final List<List<Set<K>>> levels = new ArrayList<>();
+    private final Set<K> due = new LinkedHashSet<>();
+    private final Map<K, Timer<K>> timers = new HashMap<>();
+    private long currentTick;
+
+    TimingWheel(long tickMillis, int wheelSize, int levelCount, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.span = new long[levelCount];
+        for (int level = 0; level < levelCount; level++) {
+            span[level] = level == 0 ? 1 : span[level - 1] * wheelSize;
+            List<Set<K>> slots = new ArrayList<>(wheelSize);
+            for (int slot = 0; slot < wheelSize; slot++) {
+                slots.add(new LinkedHashSet<>());
+            }
+            levels.add(slots);
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedules {@code key} for {@code deadlineMillis}, replacing any earlier
+     * schedule of it. A deadline already past comes out of the next advance.
+     */
+    synchronized void schedule(K key, long deadlineMillis) {
+        cancel(key);
+        file(key, deadlineMillis / tickMillis);
+    }
+
+    synchronized boolean cancel(K key) {
+        Timer<K> timer = timers.remove(key);
+        if (timer == null) {
+            return false;
+        }
+        timer.slot().remove(key);
+        return true;
+    }
+
+    /**
+     * Moves the clock to {@code nowMillis}.
+     *
+     * @return the keys that came due, earliest first
+     */
+    synchronized List<K> advance(long nowMillis) {
+        List<K> expired = new ArrayList<>();
+        drain(due, expired);
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            // a level turns over when every level below it has wrapped
+            int level = 1;
+            while (level < span.length && currentTick % span[level] == 0) {
+                level++;
+            }
+            for (int upper = level - 1; upper >= 1; upper--) {
+                Set<K> slot = slotAt(upper, currentTick);
+                List<K> refile = new ArrayList<>(slot);
+                slot.clear();
+                for (K key : refile) {
+                    file(key, timers.remove(key).deadlineTick());
+                }
+            }
+            drain(slotAt(0, currentTick), expired);
+            drain(due, expired);
+        }
+        return expired;
+    }
+
+    synchronized int size() {
+        return timers.size();
+    }
+
+    private void file(K key, long deadlineTick) {
+        long delta = deadlineTick - currentTick;
+        Set<K> slot;
+        if (delta <= 0) {
+            slot = due;
+        } else {
+            int level = 0;
+            while (level < span.length - 1 && delta >= span[level + 1]) {
+                level++;
+            }
+            long top = span[span.length - 1] * wheelSize;
+            // beyond the top level: park in its farthest slot and refile when it turns over
+            slot = slotAt(level, delta < top ? deadlineTick : currentTick + top - 1);
+        }
+        slot.add(key);
+        timers.put(key, new Timer<>(deadlineTick, slot));
+    }
+
+    private Set<K> slotAt(int level, long tick) {
+        return levels.get(level).get((int) ((tick / span[level]) % wheelSize));
+    }
+
+    private void drain(Set<K> slot, List<K> expired) {
+        for (K key : slot) {
+            timers.remove(key);
+            expired.add(key);
+        }
+        slot.clear();
+    }
+}
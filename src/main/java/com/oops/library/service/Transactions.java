@@ -0,0 +1,31 @@
+package com.oops.library.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Transaction helpers shared by the services.
+ */
+final class Transactions {
+
+    private Transactions() {
+    }
+
+    /**
+     * Runs {@code action} once the current transaction commits, so caches and
+     * queues never see a write that is rolled back; runs it right away when
+     * there is no transaction.
+     */
+    static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
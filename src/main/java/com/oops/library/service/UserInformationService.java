@@ -6,6 +6,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import com.oops.library.repository.BookRepository;
 import com.oops.library.repository.BorrowLogRepository;
+import com.oops.library.repository.LateFeeRepository;
+import com.oops.library.repository.PatronBalanceRepository;
 import com.oops.library.repository.UserRepository;
 
 import jakarta.persistence.EntityManager;
@@ -34,9 +36,21 @@ public class UserInformationService {
 	@Autowired
 	private BookRepository bookRepository;
 	
+	@Autowired
+	private HoldService holdService;
+	
+	@Autowired
+	private LateFeeRepository lateFeeRepository;
+	
+	@Autowired
+	private PatronBalanceRepository patronBalanceRepository;
+	
 	@Autowired
 	private EntityManager entityManager;
 	
+	@Autowired
+	private FacetCountService facetCountService;
+	
 //	public List<User> getAllRegisteredUsers() {
 //	    return userRepository.findAll();
 //	}
@@ -186,6 +200,17 @@ public class UserInformationService {
 	    } catch (Exception e) {
 	        System.out.println("Note deleting borrow logs: " + e.getMessage());
 	    }
+	    try {
+	        holdService.deleteHolds(user);
+	    } catch (Exception e) {
+	        System.out.println("Note deleting holds: " + e.getMessage());
+	    }
+	    try {
+	        lateFeeRepository.deleteByPatronId(userId);
+	        patronBalanceRepository.deleteById(userId);
+	    } catch (Exception e) {
+	        System.out.println("Note deleting late fees: " + e.getMessage());
+	    }
 	    
 	    // 3. Delete profile image
 	    if (user.getProfileImagePath() != null && !user.getProfileImagePath().isEmpty()) {
@@ -194,6 +219,7 @@ public class UserInformationService {
 	    
 	    // 4. Delete user
 	    userRepository.delete(user);
+	    facetCountService.onUserRemoved(user.getId());
 	}
 	
 	@Transactional
@@ -266,37 +292,23 @@ public class UserInformationService {
         Map<String, Object> stats = new HashMap<>();
         
         // Basic counts
-        long totalUsers = userRepository.count();
-        long totalBooks = bookRepository.count();
-        
-        stats.put("totalUsers", totalUsers);
-        stats.put("totalBooks", totalBooks);
+        stats.put("totalUsers", facetCountService.totalUsers());
+        stats.put("totalBooks", facetCountService.totalBooks());
         
         // User role distribution
-        List<User> allUsers = userRepository.findAll();
         Map<String, Long> userRoleDistribution = new HashMap<>();
-        for (User user : allUsers) {
-            String role = user.getRole() != null ? user.getRole().name() : "UNKNOWN";
-            userRoleDistribution.put(role, userRoleDistribution.getOrDefault(role, 0L) + 1);
-        }
+        facetCountService.countUsersByRole().forEach((role, count) -> userRoleDistribution.put(role.name(), count));
         stats.put("userRoleDistribution", userRoleDistribution);
         
-        // User type distribution
-        Map<String, Long> userTypeDistribution = new HashMap<>();
-        for (User user : allUsers) {
-            String type = user.getType();
-            userTypeDistribution.put(type, userTypeDistribution.getOrDefault(type, 0L) + 1);
-        }
-        stats.put("userTypeDistribution", userTypeDistribution);
+        // User type distribution (UserFactory picks the subtype from the role, so they coincide)
+        stats.put("userTypeDistribution", new HashMap<>(userRoleDistribution));
         
         // Book status distribution
-        List<Book> allBooks = bookRepository.findAll();
         Map<String, Long> bookStatusDistribution = new HashMap<>();
-        for (Book book : allBooks) {
-            String status = book.getStatus() != null ? book.getStatus().name() : "UNKNOWN";
-            bookStatusDistribution.put(status, bookStatusDistribution.getOrDefault(status, 0L) + 1);
-        }
+        facetCountService.countBooksByStatus().forEach((status, count) -> bookStatusDistribution.put(status.name(), count));
         stats.put("bookStatusDistribution", bookStatusDistribution);
+        stats.put("bookSectionDistribution", facetCountService.countBooksBySection());
+        stats.put("bookTypeDistribution", facetCountService.countBooksByType());
         
         // Active borrowings count
         long activeBorrowings = borrowLogRepository.countByReturnedFalse();
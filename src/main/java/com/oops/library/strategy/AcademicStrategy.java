@@ -1,15 +1,23 @@
 package com.oops.library.strategy;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component("academic")
 public class AcademicStrategy implements LendingStrategy{
 
+	private final Duration period;
+
+	public AcademicStrategy(@Value("${app.lending.borrow-type.academic:P3D}") Duration period) {
+		this.period = period;
+	}
+
 	@Override
 	public LocalDateTime calculateReturnDate(LocalDateTime borrowDate) {
-		return borrowDate.plusDays(3);
+		return borrowDate.plus(period);
 	}
 	
 	
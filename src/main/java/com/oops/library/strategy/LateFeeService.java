@@ -10,14 +10,17 @@ import com.oops.library.entity.BorrowLog;
 @Service
 public class LateFeeService {
     public double calculateLateFee(BorrowLog borrowLog) {
-        LocalDateTime today = LocalDateTime.now();
         LocalDateTime returnDate = borrowLog.getReturnDate();
-
-        if (returnDate != null && today.isAfter(returnDate)) {
-            long overdueDays = ChronoUnit.DAYS.between(returnDate, today);
-            double lateFeeRate = borrowLog.getBook().getLateFeeRate();
-            return overdueDays * lateFeeRate;
+        if (returnDate == null) {
+            return 0.0;
         }
-        return 0.0;
+        return overdueDays(returnDate, LocalDateTime.now()) * borrowLog.getBook().getLateFeeRate();
+    }
+
+    /**
+     * Whole days from {@code dueDate} to {@code asOf}; 0 if not yet due.
+     */
+    public long overdueDays(LocalDateTime dueDate, LocalDateTime asOf) {
+        return asOf.isAfter(dueDate) ? ChronoUnit.DAYS.between(dueDate, asOf) : 0;
     }
-}
\ No newline at end of file
+}
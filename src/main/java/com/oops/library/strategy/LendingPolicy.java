@@ -0,0 +1,141 @@
+package com.oops.library.strategy;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.oops.library.entity.Book;
+import com.oops.library.entity.Role;
+
+/**
+ * Loan rules by patron role, book type and section, from
+ * {@code app.lending.rules}.
+ *
+ * Each rule reads {@code ROLE BOOK_TYPE SECTION LOAN_PERIOD MAX_LOANS RENEWALS},
+ * rules are separated by commas, {@code *} matches anything and the loan
+ * period is an ISO-8601 duration such as {@code P14D} or {@code PT30M}. The
+ * most specific matching rule wins, role counting most and section least;
+ * among equally specific rules the later one wins. A combination no rule
+ * matches can't be lent.
+ *
+ * The rules are resolved for every combination once, at startup, into a
+ * table; {@link #terms(Role, Book)} is three index lookups and allocates
+ * nothing.
+ */
+@Component
+public class LendingPolicy {
+
+	private record Rule(Role role, String bookType, String section, LoanTerms terms) {
+
+		int specificity() {
+			return (role != null ? 4 : 0) + (bookType != null ? 2 : 0) + (section != null ? 1 : 0);
+		}
+
+		boolean matches(Role role, String bookType, String section) {
+			return (this.role == null || this.role == role)
+					&& (this.bookType == null || this.bookType.equals(bookType))
+					&& (this.section == null || this.section.equals(section));
+		}
+	}
+
+	private final Map<String, Integer> bookTypes = new LinkedHashMap<>();
+	private final Map<String, Integer> sections = new LinkedHashMap<>();
+	// [role ordinal, or last for none][book type, or last for others][section, or last for others]
+	private final LoanTerms[][][] table;
+
+	// section spellings seen on the borrow path, mapped to their column
+	private final Map<String, Integer> sectionLookups = new ConcurrentHashMap<>();
+	private final Function<String, Integer> sectionResolver = this::resolveSection;
+
+	public LendingPolicy(@Value("${app.lending.rules:* * * P14D 5 1}") String rules) {
+		List<Rule> parsed = parse(rules);
+		for (Rule rule : parsed) {
+			if (rule.bookType() != null) {
+				bookTypes.putIfAbsent(rule.bookType(), bookTypes.size());
+			}
+			if (rule.section() != null) {
+				sections.putIfAbsent(rule.section(), sections.size());
+			}
+		}
+		Role[] roles = Role.values();
+		List<String> typeNames = new ArrayList<>(bookTypes.keySet());
+		List<String> sectionNames = new ArrayList<>(sections.keySet());
+		table = new LoanTerms[roles.length + 1][typeNames.size() + 1][sectionNames.size() + 1];
+		for (int r = 0; r <= roles.length; r++) {
+			for (int t = 0; t <= typeNames.size(); t++) {
+				for (int s = 0; s <= sectionNames.size(); s++) {
+					table[r][t][s] = resolve(parsed,
+							r < roles.length ? roles[r] : null,
+							t < typeNames.size() ? typeNames.get(t) : null,
+							s < sectionNames.size() ? sectionNames.get(s) : null);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Terms for lending {@code book} to a patron with {@code role}.
+	 */
+	public LoanTerms terms(Role role, Book book) {
+		int r = role != null ? role.ordinal() : table.length - 1;
+		LoanTerms[][] byType = table[r];
+		Integer t = book.getType() != null ? bookTypes.get(book.getType()) : null;
+		LoanTerms[] bySection = byType[t != null ? t : byType.length - 1];
+		String section = book.getSection();
+		int s = section != null ? sectionLookups.computeIfAbsent(section, sectionResolver) : bySection.length - 1;
+		return bySection[s];
+	}
+
+	private int resolveSection(String section) {
+		Integer index = sections.get(section.trim().toUpperCase(Locale.ROOT));
+		return index != null ? index : sections.size();
+	}
+
+	private static LoanTerms resolve(List<Rule> rules, Role role, String bookType, String section) {
+		Rule best = null;
+		// a null type or section stands for the unnamed ones, which only wildcards match
+		for (Rule rule : rules) {
+			if (rule.matches(role, bookType, section)
+					&& (best == null || rule.specificity() >= best.specificity())) {
+				best = rule;
+			}
+		}
+		return best != null ? best.terms() : LoanTerms.NOT_LENDABLE;
+	}
+
+	private static List<Rule> parse(String rules) {
+		List<Rule> parsed = new ArrayList<>();
+		for (String line : rules.split(",")) {
+			if (line.isBlank()) {
+				continue;
+			}
+			String[] fields = line.trim().split("\\s+");
+			if (fields.length != 6) {
+				throw new IllegalArgumentException("Lending rule needs 6 fields: '" + line.trim() + "'");
+			}
+			try {
+				parsed.add(new Rule(
+						fields[0].equals("*") ? null : Role.valueOf(fields[0].toUpperCase(Locale.ROOT)),
+						wildcard(fields[1]),
+						wildcard(fields[2]),
+						new LoanTerms(Duration.parse(fields[3]), Integer.parseInt(fields[4]), Integer.parseInt(fields[5]))));
+			} catch (IllegalArgumentException | DateTimeParseException e) {
+				throw new IllegalArgumentException("Bad lending rule '" + line.trim() + "': " + e.getMessage(), e);
+			}
+		}
+		return parsed;
+	}
+
+	private static String wildcard(String field) {
+		return field.equals("*") ? null : field.toUpperCase(Locale.ROOT);
+	}
+}
@@ -5,4 +5,9 @@ import java.time.LocalDateTime;
 public interface LendingStrategy {
 
 	LocalDateTime calculateReturnDate(LocalDateTime borrowDate);
+
+	// Reading-room loans are taken back automatically when they fall due
+	default boolean isReadingRoom() {
+		return false;
+	}
 }
@@ -0,0 +1,16 @@
+package com.oops.library.strategy;
+
+import java.time.Duration;
+
+/**
+ * What a patron may do with a copy: how long a loan runs, how many loans
+ * they may hold at once, and how often a loan may be renewed.
+ */
+public record LoanTerms(Duration loanPeriod, int maxLoans, int renewals) {
+
+	public static final LoanTerms NOT_LENDABLE = new LoanTerms(Duration.ZERO, 0, 0);
+
+	public boolean lendable() {
+		return maxLoans > 0 && !loanPeriod.isZero();
+	}
+}
@@ -1,15 +1,23 @@
 package com.oops.library.strategy;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component("public")
 public class PublicLendingStrategy implements LendingStrategy{
 
+	private final Duration period;
+
+	public PublicLendingStrategy(@Value("${app.lending.borrow-type.public:P2D}") Duration period) {
+		this.period = period;
+	}
+
 	@Override
 	public LocalDateTime calculateReturnDate(LocalDateTime borrowDate) {
-	    return borrowDate.plusDays(2);	
+	    return borrowDate.plus(period);	
 	    
 	}
 
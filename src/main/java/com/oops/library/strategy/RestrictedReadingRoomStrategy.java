@@ -1,15 +1,28 @@
 package com.oops.library.strategy;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component("restricted")
 public class RestrictedReadingRoomStrategy implements LendingStrategy {
 
+	private final Duration period;
+
+	public RestrictedReadingRoomStrategy(@Value("${app.lending.borrow-type.restricted:PT30M}") Duration period) {
+		this.period = period;
+	}
+
 	@Override
 	public LocalDateTime calculateReturnDate(LocalDateTime borrowDate) {
-		return borrowDate.plusMinutes(30);
+		return borrowDate.plus(period);
+	}
+
+	@Override
+	public boolean isReadingRoom() {
+		return true;
 	}
 
 }
@@ -0,0 +1,13 @@
+-- Indexes for the filters the repositories run most.
+
+-- Open loans by due date: overdue reminders, late fee accrual, the loan expiry load, dashboard counts
+CREATE INDEX idx_borrow_log_open_due ON borrow_log (returned, return_date);
+
+-- A patron's open loans and their count, checked on every borrow
+CREATE INDEX idx_borrow_log_borrower_open ON borrow_log (borrower_id, returned);
+
+-- Status facet counts and their reconciliation
+CREATE INDEX idx_book_status ON book (status);
+
+-- Librarians for the overdue summary, role facet counts
+CREATE INDEX idx_user_role ON user (role);
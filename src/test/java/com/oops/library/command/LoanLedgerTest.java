@@ -0,0 +1,70 @@
+package com.oops.library.command;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+
+import com.oops.library.entity.CommandJournalEntry;
+import com.oops.library.entity.CommandJournalEntry.Type;
+
+class LoanLedgerTest {
+
+	private static final LocalDateTime DUE = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+	private static CommandJournalEntry entry(long sequence, Type type, long bookId, Long borrowLogId) {
+		CommandJournalEntry entry = mock(CommandJournalEntry.class);
+		when(entry.getSequence()).thenReturn(sequence);
+		when(entry.getType()).thenReturn(type);
+		when(entry.getBookId()).thenReturn(bookId);
+		when(entry.getBorrowLogId()).thenReturn(borrowLogId);
+		when(entry.getBorrowerId()).thenReturn(7L);
+		when(entry.getDueDate()).thenReturn(DUE);
+		return entry;
+	}
+
+	@Test
+	void testReplayTracksOpenLoans() {
+		LoanLedger ledger = new LoanLedger();
+		ledger.apply(entry(1, Type.BORROW, 10, 100L));
+		ledger.apply(entry(2, Type.BORROW, 11, 101L));
+		ledger.apply(entry(3, Type.RETURN, 10, 100L));
+
+		assertEquals(3, ledger.sequence());
+		assertEquals(1, ledger.size());
+		assertNull(ledger.openLoan(10L));
+		assertEquals(new LoanLedger.OpenLoan(101L, 7L, DUE), ledger.openLoan(11L));
+
+		ledger.apply(entry(4, Type.UNDO_RETURN, 10, 100L));
+		assertEquals(100L, ledger.openLoan(10L).borrowLogId());
+	}
+
+	@Test
+	void testStaleEntryDoesNotOverrideLaterOne() {
+		LoanLedger ledger = new LoanLedger();
+		CommandJournalEntry borrow = entry(1, Type.BORROW, 10, 100L);
+		ledger.apply(borrow);
+		ledger.apply(entry(2, Type.RETURN, 10, 100L));
+		ledger.apply(borrow);
+
+		assertNull(ledger.openLoan(10L));
+		assertEquals(2, ledger.sequence());
+	}
+
+	@Test
+	void testCheckpointRoundTrip() {
+		LoanLedger ledger = new LoanLedger();
+		ledger.apply(entry(1, Type.BORROW, 10, 100L));
+		ledger.apply(entry(2, Type.BORROW, 11, null));
+
+		LoanLedger restored = LoanLedger.decode(ledger.sequence(), ledger.encode());
+
+		assertEquals(2, restored.sequence());
+		assertEquals(ledger.openLoans(), restored.openLoans());
+		assertNull(restored.openLoan(11L).borrowLogId());
+		assertEquals(0, LoanLedger.decode(5, "").size());
+	}
+}
@@ -32,7 +32,18 @@ import com.oops.library.entity.Role;
 import com.oops.library.entity.User;
 import com.oops.library.entity.UserDetailsDTO;
 import com.oops.library.service.BookService;
+import com.oops.library.service.CatalogSearchService;
+import com.oops.library.service.CommandJournal;
+import com.oops.library.service.EmailDispatcher;
 import com.oops.library.service.FileStorageService;
+import com.oops.library.service.GroupCommitter;
+import com.oops.library.service.HoldService;
+import com.oops.library.service.IdempotencyService;
+import com.oops.library.service.JobCoordinator;
+import com.oops.library.service.LendingService;
+import com.oops.library.service.LoanExpiryService;
+import com.oops.library.service.LoanReconciler;
+import com.oops.library.service.OverdueNotificationScheduler;
 import com.oops.library.service.UserInformationService;
 
 @WebMvcTest(AdminController.class)
@@ -51,6 +62,39 @@ class AdminControllerTest {
     @MockBean
     private FileStorageService fileStorageService;
 
+    @MockBean
+    private CatalogSearchService catalogSearchService;
+
+    @MockBean
+    private EmailDispatcher emailDispatcher;
+
+    @MockBean
+    private CommandJournal commandJournal;
+
+    @MockBean
+    private LendingService lendingService;
+
+    @MockBean
+    private HoldService holdService;
+
+    @MockBean
+    private IdempotencyService idempotencyService;
+
+    @MockBean
+    private GroupCommitter groupCommitter;
+
+    @MockBean
+    private OverdueNotificationScheduler overdueNotificationScheduler;
+
+    @MockBean
+    private LoanExpiryService loanExpiryService;
+
+    @MockBean
+    private JobCoordinator jobCoordinator;
+
+    @MockBean
+    private LoanReconciler loanReconciler;
+
 
     // ---------------------------------------------------------
     // 1️⃣ TEST: showAdminDashboard()
@@ -3,10 +3,11 @@ package com.oops.library.controller;
 import com.oops.library.entity.BorrowLog;
 import com.oops.library.entity.Book;
 import com.oops.library.service.BorrowLogService;
-import com.oops.library.strategy.LateFeeService;
+import com.oops.library.service.LateFeeLedger;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.ui.Model;
 
 import java.util.*;
@@ -17,20 +18,21 @@ import static org.junit.jupiter.api.Assertions.*;
 class BorrowLogControllerTest {
 
     private BorrowLogService borrowLogService;
-    private LateFeeService lateFeeService;
+    private LateFeeLedger lateFeeLedger;
     private BorrowLogController controller;
     private Model model;
 
     @BeforeEach
     void setUp() {
         borrowLogService = mock(BorrowLogService.class);
-        lateFeeService = mock(LateFeeService.class);
+        lateFeeLedger = mock(LateFeeLedger.class);
         model = mock(Model.class);
 
-        controller = new BorrowLogController(borrowLogService, lateFeeService);
+        controller = new BorrowLogController(borrowLogService, lateFeeLedger);
     }
 
     @Test
+    @SuppressWarnings("unchecked")
     void testViewBorrowLogs_success() {
         // Arrange
         BorrowLog log1 = mock(BorrowLog.class);
@@ -38,13 +40,15 @@ class BorrowLogControllerTest {
 
         Book book = mock(Book.class);
 
+        when(log1.getId()).thenReturn(1L);
         when(log1.getBook()).thenReturn(book);
+        when(log2.getId()).thenReturn(2L);
         when(log2.getBook()).thenReturn(null); // test null safety
 
         List<BorrowLog> logs = Arrays.asList(log1, log2);
 
         when(borrowLogService.findAll()).thenReturn(logs);
-        when(lateFeeService.calculateLateFee(log1)).thenReturn(50.0);
+        when(lateFeeLedger.accruedFees(List.of(1L, 2L))).thenReturn(Map.of(1L, 50.0));
 
         // Act
         String viewName = controller.viewBorrowLogs(model);
@@ -56,17 +60,21 @@ class BorrowLogControllerTest {
         verify(model).addAttribute("borrowLogs", logs);
 
         // Capture "lateFees" map
-        verify(model).addAttribute(eq("lateFees"), any(Map.class));
-
-        // Validate interactions
-        verify(lateFeeService).calculateLateFee(log1); // for valid book
-        verifyNoMoreInteractions(lateFeeService); // should NOT calculate for log2
+        ArgumentCaptor<Map<BorrowLog, Double>> lateFees = ArgumentCaptor.forClass(Map.class);
+        verify(model).addAttribute(eq("lateFees"), lateFees.capture());
+        assertEquals(50.0, lateFees.getValue().get(log1));
+        assertEquals(0.0, lateFees.getValue().get(log2)); // no fee recorded
+
+        // fees read once for the whole page
+        verify(lateFeeLedger).accruedFees(List.of(1L, 2L));
+        verifyNoMoreInteractions(lateFeeLedger);
     }
 
     @Test
     void testViewBorrowLogs_emptyList() {
         // Arrange
         when(borrowLogService.findAll()).thenReturn(Collections.emptyList());
+        when(lateFeeLedger.accruedFees(anyCollection())).thenReturn(Map.of());
 
         // Act
         String view = controller.viewBorrowLogs(model);
@@ -75,6 +83,5 @@ class BorrowLogControllerTest {
         assertEquals("borrowlogs", view);
         verify(model).addAttribute("borrowLogs", Collections.emptyList());
         verify(model).addAttribute(eq("lateFees"), any(Map.class));
-        verifyNoInteractions(lateFeeService);
     }
 }
@@ -0,0 +1,237 @@
+package com.oops.library.design.patterns;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.oops.library.entity.Book;
+import com.oops.library.entity.GeneralBook;
+import com.oops.library.repository.BookRepository;
+
+class CatalogManagerTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    private CatalogManager catalog;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        catalog = new CatalogManager(bookRepository, 2);
+    }
+
+    private static Book book(long id, String title) {
+        GeneralBook book = new GeneralBook();
+        book.setId(id);
+        book.setTitle(title);
+        return book;
+    }
+
+    @Test
+    void testGetBookById_ReadsThrough() {
+        Book hobbit = book(1L, "The Hobbit");
+        when(bookRepository.findBookById(1L)).thenReturn(hobbit);
+
+        assertSame(hobbit, catalog.getBookById(1L));
+        assertSame(hobbit, catalog.getBookById(1L));
+
+        verify(bookRepository, times(1)).findBookById(1L);
+        CatalogManager.CacheStats stats = catalog.getCacheStats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(0.5, stats.hitRatio());
+    }
+
+    @Test
+    void testGetBookById_MissingBookIsNotCached() {
+        assertNull(catalog.getBookById(7L));
+        assertNull(catalog.getBookById(7L));
+
+        verify(bookRepository, times(2)).findBookById(7L);
+        assertEquals(0, catalog.getCacheStats().size());
+    }
+
+    @Test
+    void testCacheIsBoundedLru() {
+        when(bookRepository.findBookById(anyLong())).thenAnswer(inv -> book(inv.getArgument(0), "t"));
+
+        catalog.getBookById(1L);
+        catalog.getBookById(2L);
+        catalog.getBookById(1L);   // 2 is now least recently used
+        catalog.getBookById(3L);
+
+        CatalogManager.CacheStats stats = catalog.getCacheStats();
+        assertEquals(2, stats.size());
+        assertEquals(1, stats.evictions());
+
+        catalog.getBookById(1L);
+        catalog.getBookById(2L);
+        verify(bookRepository, times(1)).findBookById(1L);
+        verify(bookRepository, times(2)).findBookById(2L);
+    }
+
+    @Test
+    void testUpdateBook_ReplacesOnlyThatEntry() {
+        Book hobbit = book(1L, "The Hobbit");
+        Book rings = book(2L, "The Lord of the Rings");
+        when(bookRepository.findBookById(1L)).thenReturn(hobbit);
+        when(bookRepository.findBookById(2L)).thenReturn(rings);
+        catalog.getBookById(1L);
+        catalog.getBookById(2L);
+
+        Book renamed = book(1L, "There and Back Again");
+        when(bookRepository.save(renamed)).thenReturn(renamed);
+        catalog.updateBook(renamed);
+
+        assertSame(renamed, catalog.getBookById(1L));
+        assertSame(rings, catalog.getBookById(2L));
+        verify(bookRepository, times(1)).findBookById(1L);
+        verify(bookRepository, times(1)).findBookById(2L);
+    }
+
+    @Test
+    void testUpdateBook_FailedSaveDropsEntry() {
+        Book hobbit = book(1L, "The Hobbit");
+        when(bookRepository.findBookById(1L)).thenReturn(hobbit);
+        when(bookRepository.save(hobbit)).thenThrow(new RuntimeException("DB Error"));
+        catalog.getBookById(1L).setTitle("Edited");
+
+        assertThrows(RuntimeException.class, () -> catalog.updateBook(hobbit));
+
+        catalog.getBookById(1L);
+        verify(bookRepository, times(2)).findBookById(1L);
+    }
+
+    @Test
+    void testLoadBookForEdit_EditsStayOutOfTheCache() {
+        when(bookRepository.findBookById(1L)).thenAnswer(inv -> book(1L, "The Hobbit"));
+        Book cached = catalog.getBookById(1L);
+
+        Book editing = catalog.loadBookForEdit(1L);
+        editing.setTitle("Edited");
+
+        assertNotSame(cached, editing);
+        assertEquals("The Hobbit", catalog.getBookById(1L).getTitle());
+        assertEquals(1, catalog.getCacheStats().misses());
+    }
+
+    @Test
+    void testRemoveBook_EvictsEntry() {
+        when(bookRepository.findBookById(1L)).thenReturn(book(1L, "The Hobbit"));
+        catalog.getBookById(1L);
+
+        catalog.removeBook(1L);
+
+        verify(bookRepository).deleteById(1L);
+        assertEquals(0, catalog.getCacheStats().size());
+    }
+
+    @Test
+    void testGetAllBooks_SnapshotRetiredByWrites() {
+        Book hobbit = book(1L, "The Hobbit");
+        when(bookRepository.findAll()).thenReturn(List.of(hobbit));
+
+        assertEquals(List.of(hobbit), catalog.getAllBooks());
+        catalog.getAllBooks();
+        verify(bookRepository, times(1)).findAll();
+
+        long before = catalog.getVersion();
+        catalog.notifySaved(book(2L, "Beowulf"));
+        assertTrue(catalog.getVersion() > before);
+
+        catalog.getAllBooks();
+        verify(bookRepository, times(2)).findAll();
+        CatalogManager.CacheStats stats = catalog.getCacheStats();
+        assertEquals(1, stats.snapshotHits());
+        assertEquals(2, stats.snapshotMisses());
+    }
+
+    @Test
+    void testCachedBooksAndSnapshotExpire() {
+        AtomicLong now = new AtomicLong();
+        catalog = new CatalogManager(bookRepository, 2, 1_000, now::get);
+        Book hobbit = book(1L, "The Hobbit");
+        // changed on another node, which this one never hears about
+        Book renamed = book(1L, "The Hobbit, or There and Back Again");
+        when(bookRepository.findBookById(1L)).thenReturn(hobbit, renamed);
+        when(bookRepository.findAll()).thenReturn(List.of(hobbit), List.of(renamed));
+        catalog.getBookById(1L);
+        catalog.getAllBooks();
+
+        now.set(999);
+        assertSame(hobbit, catalog.getBookById(1L));
+        assertEquals(List.of(hobbit), catalog.getAllBooks());
+
+        now.set(1_000);
+        assertSame(renamed, catalog.getBookById(1L));
+        assertEquals(List.of(renamed), catalog.getAllBooks());
+        verify(bookRepository, times(2)).findBookById(1L);
+        verify(bookRepository, times(2)).findAll();
+    }
+
+    @Test
+    void testNotifyFiresListeners() {
+        CatalogListener listener = mock(CatalogListener.class);
+        catalog.addListener(listener);
+        Book hobbit = book(1L, "The Hobbit");
+
+        catalog.notifySaved(hobbit);
+        catalog.notifyRemoved(1L);
+
+        verify(listener).onBookSaved(hobbit);
+        verify(listener).onBookRemoved(1L);
+    }
+
+    @Test
+    void testGetBooksByIsbn_NormalizesIsbn10() {
+        Book copy = book(1L, "Data Structures");
+        when(bookRepository.findByIsbn13OrderByIdAsc("9780306406157")).thenReturn(List.of(copy));
+
+        assertEquals(List.of(copy), catalog.getBooksByIsbn("0-306-40615-2"));
+        assertTrue(catalog.getBooksByIsbn("not an isbn").isEmpty());
+
+        // resolved copies are now cached by id
+        assertSame(copy, catalog.getBookById(1L));
+        verify(bookRepository, never()).findBookById(1L);
+    }
+
+    @Test
+    void testGetBooksByIsbns_SingleQuery() {
+        Book first = book(1L, "Data Structures");
+        first.setIsbn("9780306406157");
+        Book second = book(2L, "Data Structures");
+        second.setIsbn("0-306-40615-2");
+        when(bookRepository.findByIsbn13InOrderByIdAsc(any())).thenReturn(List.of(first, second));
+
+        Map<String, List<Book>> result = catalog.getBooksByIsbns(
+                List.of("0306406152", "978-0-306-40615-7", "9780439420891", "garbage"));
+
+        assertEquals(Map.of("9780306406157", List.of(first, second), "9780439420891", List.of()), result);
+        verify(bookRepository, times(1)).findByIsbn13InOrderByIdAsc(Set.of("9780306406157", "9780439420891"));
+    }
+
+    @Test
+    void testGetBooksByIds_LoadsOnlyMissesInOrder() {
+        Book hobbit = book(1L, "The Hobbit");
+        Book rings = book(2L, "The Lord of the Rings");
+        when(bookRepository.findBookById(1L)).thenReturn(hobbit);
+        when(bookRepository.findAllById(List.of(2L, 3L))).thenReturn(List.of(rings));
+        catalog.getBookById(1L);
+
+        assertEquals(List.of(rings, hobbit), catalog.getBooksByIds(List.of(2L, 1L, 3L)));
+
+        verify(bookRepository).findAllById(List.of(2L, 3L));
+        assertSame(rings, catalog.getBookById(2L));
+        verify(bookRepository, never()).findBookById(2L);
+    }
+}
@@ -0,0 +1,148 @@
+package com.oops.library.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.oops.library.config.SchemaMigrations;
+import com.oops.library.entity.Role;
+import com.oops.library.entity.Scholar;
+import com.oops.library.entity.User;
+
+/**
+ * Runs the main loan, book and user queries and explains the SQL Hibernate
+ * sent for each; none may scan a whole table. H2's planner stands in for
+ * MySQL's here, so this checks that an index fits each filter rather than
+ * which one MySQL would pick.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.oops.library.repository.QueryPlanTest$SqlCapture")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import(SchemaMigrations.class)
+class QueryPlanTest {
+
+    /**
+     * Keeps the SQL of every statement Hibernate prepares.
+     */
+    public static class SqlCapture implements StatementInspector {
+        static final List<String> statements = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            synchronized (statements) {
+                statements.add(sql);
+            }
+            return sql;
+        }
+    }
+
+    @Autowired
+    private BorrowLogRepository borrowLogRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private SchemaMigrations schemaMigrations;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void testMainQueriesUseAnIndex() {
+        Scholar scholar = new Scholar();
+        scholar.setName("Plan Scholar");
+        scholar.setEmail("plan.scholar@library.com");
+        scholar.setPassword("secret");
+        scholar.setRole(Role.SCHOLAR);
+        User borrower = userRepository.saveAndFlush(scholar);
+        LocalDateTime now = LocalDateTime.now();
+        assertIndexed("streamOverdueByBorrower", () -> {
+            try (Stream<Object[]> rows = borrowLogRepository.streamOverdueByBorrower(now, 0, Long.MAX_VALUE)) {
+                rows.count();
+            }
+        });
+        assertIndexed("countOverdueBorrowers", () -> borrowLogRepository.countOverdueBorrowers(now, 0, 100));
+        assertIndexed("findMaxOverdueBorrowerId", () -> borrowLogRepository.findMaxOverdueBorrowerId(now));
+        assertIndexed("findDueDatesByReturnedFalse", () -> borrowLogRepository.findDueDatesByReturnedFalse());
+        assertIndexed("countByReturnedFalse", () -> borrowLogRepository.countByReturnedFalse());
+        assertIndexed("countByReturnedFalseAndReturnDateBefore",
+                () -> borrowLogRepository.countByReturnedFalseAndReturnDateBefore(now));
+        assertIndexed("findByBorrowerAndReturnedFalse", () -> borrowLogRepository.findByBorrowerAndReturnedFalse(borrower));
+        assertIndexed("countByBorrowerAndReturnedFalse",
+                () -> borrowLogRepository.countByBorrowerAndReturnedFalse(borrower));
+        assertIndexed("countGroupedByStatus", () -> bookRepository.countGroupedByStatus());
+        assertIndexed("findByRole", () -> userRepository.findByRole(Role.LIBRARIAN));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)  // H2 commits on DDL
+    void testMigrationsApplyOnce() throws Exception {
+        assertEquals(List.of(), schemaMigrations.migrate());
+        assertEquals(Integer.valueOf(1), jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM schema_migration WHERE version = 1 AND success", Integer.class));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testUnfinishedClaimIsWaitedForThenStopsStartup() throws Exception {
+        jdbcTemplate.update("UPDATE schema_migration SET success = FALSE WHERE version = 1");
+        try {
+            assertThrows(IllegalStateException.class, () -> new SchemaMigrations(dataSource, 100).migrate());
+
+            Thread finisher = new Thread(() -> {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                jdbcTemplate.update("UPDATE schema_migration SET success = TRUE WHERE version = 1");
+            });
+            finisher.start();
+            assertEquals(List.of(), new SchemaMigrations(dataSource, 10_000).migrate());
+            finisher.join();
+        } finally {
+            jdbcTemplate.update("UPDATE schema_migration SET success = TRUE WHERE version = 1");
+        }
+    }
+
+    private void assertIndexed(String query, Runnable run) {
+        synchronized (SqlCapture.statements) {
+            SqlCapture.statements.clear();
+        }
+        run.run();
+        List<String> statements;
+        synchronized (SqlCapture.statements) {
+            statements = List.copyOf(SqlCapture.statements);
+        }
+        assertFalse(statements.isEmpty(), query + " sent no SQL");
+        for (String sql : statements) {
+            String plan = String.join("\n", jdbcTemplate.query(con -> con.prepareStatement("EXPLAIN " + sql),
+                    (row, i) -> row.getString(1)));
+            assertFalse(plan.contains("tableScan"), query + " scans a whole table:\n" + plan);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.oops.library.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BkTreeTest {
+
+    private BkTree tree;
+
+    @BeforeEach
+    void setUp() {
+        tree = new BkTree();
+        for (String term : List.of("tolkien", "tolstoy", "rowling", "kalidasa", "homer", "hooper")) {
+            tree.add(term);
+        }
+    }
+
+    @Test
+    void testSearch_FindsTermsWithinDistance() {
+        assertEquals(List.of("tolkien"), tree.search("tolkein", 2));
+        assertEquals(Set.of("homer", "hooper"), new HashSet<>(tree.search("hoomer", 2)));
+    }
+
+    @Test
+    void testSearch_ZeroDistanceIsExact() {
+        assertEquals(List.of("rowling"), tree.search("rowling", 0));
+        assertTrue(tree.search("rowlin", 0).isEmpty());
+    }
+
+    @Test
+    void testAdd_IgnoresDuplicates() {
+        assertFalse(tree.add("homer"));
+        assertEquals(6, tree.size());
+    }
+
+    @Test
+    void testLevenshtein() {
+        assertEquals(0, BkTree.levenshtein("kalidasa", "kalidasa"));
+        assertEquals(3, BkTree.levenshtein("kitten", "sitting"));
+        assertEquals(5, BkTree.levenshtein("", "homer"));
+    }
+}
@@ -0,0 +1,85 @@
+package com.oops.library.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.oops.library.search.CompletionIndex.Completion;
+import com.oops.library.search.CompletionIndex.Field;
+
+class CompletionIndexTest {
+
+    private CompletionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new CompletionIndex();
+        index.put(1L, "Harry Potter and the Philosopher's Stone", "J.K. Rowling", "978-0-7475-3269-9");
+        index.put(2L, "The Hobbit", "J.R.R. Tolkien", "978-0-261-10221-7");
+        index.put(3L, "Śakuntalā", "Kālidāsa", null);
+    }
+
+    private List<String> titles(String prefix) {
+        return index.complete(prefix, EnumSet.of(Field.TITLE), 10).stream().map(Completion::value).toList();
+    }
+
+    @Test
+    void testCompletesFromAnyWordStart() {
+        assertEquals(List.of("Harry Potter and the Philosopher's Stone"), titles("pott"));
+        // key order: "the hobbit" < "the philosopher's stone"
+        assertEquals(List.of("The Hobbit", "Harry Potter and the Philosopher's Stone"), titles("th"));
+        assertTrue(titles("otter").isEmpty());
+    }
+
+    @Test
+    void testCompletesAcrossWordsAndFoldsAccents() {
+        assertEquals(List.of("Harry Potter and the Philosopher's Stone"), titles("  HARRY   pot"));
+        assertEquals(List.of("Śakuntalā"), titles("sakun"));
+    }
+
+    @Test
+    void testCompletesIsbnWithoutHyphens() {
+        List<Completion> result = index.complete("978026", EnumSet.of(Field.ISBN), 10);
+
+        assertEquals(List.of(new Completion(Field.ISBN, "978-0-261-10221-7")), result);
+    }
+
+    @Test
+    void testInterleavesFields() {
+        index.put(4L, "Tolkien: A Biography", "Humphrey Carpenter", null);
+
+        List<Completion> result = index.complete("tolk", Set.of(Field.TITLE, Field.AUTHOR), 10);
+
+        assertEquals(2, result.size());
+        assertNotEquals(result.get(0).field(), result.get(1).field());
+    }
+
+    @Test
+    void testUpdateRemovesOldKeys() {
+        index.put(2L, "The Silmarillion", "J.R.R. Tolkien", null);
+
+        assertEquals(List.of("The Silmarillion"), titles("sil"));
+        assertTrue(titles("hob").isEmpty());
+        assertTrue(index.complete("978026", EnumSet.of(Field.ISBN), 10).isEmpty());
+    }
+
+    @Test
+    void testRemove() {
+        index.remove(1L);
+
+        assertTrue(titles("harry").isEmpty());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void testKeys() {
+        assertEquals(Set.of("the hobbit", "hobbit"), CompletionIndex.keys(Field.TITLE, "The  Hobbit"));
+        assertEquals(Set.of("9780261102217"), CompletionIndex.keys(Field.ISBN, "978-0-261-10221-7"));
+        assertEquals(Set.of("0306406152", "9780306406157"), CompletionIndex.keys(Field.ISBN, "0-306-40615-2"));
+    }
+}
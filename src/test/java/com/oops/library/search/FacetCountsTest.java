@@ -0,0 +1,69 @@
+package com.oops.library.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FacetCountsTest {
+
+    private FacetCounts counts;
+
+    @BeforeEach
+    void setUp() {
+        counts = new FacetCounts(2);
+        counts.put(1L, "AVAILABLE", "General");
+        counts.put(2L, "AVAILABLE", "Restricted");
+        counts.put(3L, "BORROWED", "General");
+    }
+
+    @Test
+    void testCountsPerFacet() {
+        assertEquals(3, counts.size());
+        assertEquals(Map.of("AVAILABLE", 2L, "BORROWED", 1L), counts.counts(0));
+        assertEquals(2L, counts.count(1, "General"));
+    }
+
+    @Test
+    void testPutMovesItemBetweenBuckets() {
+        counts.put(1L, "BORROWED", "General");
+
+        assertEquals(1L, counts.count(0, "AVAILABLE"));
+        assertEquals(2L, counts.count(0, "BORROWED"));
+        assertEquals(2L, counts.count(1, "General"));
+    }
+
+    @Test
+    void testReplayingSameValuesIsNoOp() {
+        counts.put(3L, "BORROWED", "General");
+        counts.put(3L, "BORROWED", "General");
+
+        assertEquals(3, counts.size());
+        assertEquals(1L, counts.count(0, "BORROWED"));
+    }
+
+    @Test
+    void testRemove() {
+        counts.remove(2L);
+        counts.remove(99L);
+
+        assertEquals(2, counts.size());
+        assertEquals(Map.of("General", 2L), counts.counts(1));
+    }
+
+    @Test
+    void testNullValuesAreNotCounted() {
+        counts.put(4L, null, "General");
+
+        assertEquals(4, counts.size());
+        assertEquals(3L, counts.count(1, "General"));
+        assertEquals(Map.of("AVAILABLE", 2L, "BORROWED", 1L), counts.counts(0));
+    }
+
+    @Test
+    void testWrongArity() {
+        assertThrows(IllegalArgumentException.class, () -> counts.put(5L, "AVAILABLE"));
+    }
+}
@@ -0,0 +1,108 @@
+package com.oops.library.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class InvertedCatalogIndexTest {
+
+    private InvertedCatalogIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new InvertedCatalogIndex();
+        index.put(1L, "J.K. Rowling", "Harry Potter and the Philosopher's Stone");
+        index.put(2L, "J.R.R. Tolkien", "The Hobbit");
+        index.put(3L, "Tolkien", "The Lord of the Rings");
+        index.put(4L, null, "Untitled Scroll");
+    }
+
+    @Test
+    void testSearchByAuthor_CaseInsensitive() {
+        assertEquals(List.of(2L, 3L), index.search("TOLKIEN", null));
+    }
+
+    @Test
+    void testSearchByPartialWordAcrossTokens() {
+        // "ry pot" is a substring of "harry potter" but not a whole token
+        assertEquals(List.of(1L), index.search(null, "ry pot"));
+    }
+
+    @Test
+    void testSearchByAuthorAndTitle_Intersects() {
+        assertEquals(List.of(3L), index.search("tolkien", "rings"));
+        assertTrue(index.search("rowling", "hobbit").isEmpty());
+    }
+
+    @Test
+    void testSearchKeepsExactContainsSemantics() {
+        // tokens match individually but the phrase does not occur
+        assertTrue(index.search(null, "stone philosopher").isEmpty());
+    }
+
+    @Test
+    void testSearchWithPunctuationOnlyQuery() {
+        assertEquals(List.of(1L, 2L), index.search(".", null));
+    }
+
+    @Test
+    void testBlankCriteriaReturnAllBooks() {
+        assertEquals(List.of(1L, 2L, 3L, 4L), index.search("  ", null));
+    }
+
+    @Test
+    void testUpdateReplacesOldTokens() {
+        index.put(2L, "J.R.R. Tolkien", "The Silmarillion");
+
+        assertTrue(index.search(null, "hobbit").isEmpty());
+        assertEquals(List.of(2L), index.search(null, "silmaril"));
+    }
+
+    @Test
+    void testPutReportsWhetherTheEntryChanged() {
+        assertFalse(index.put(2L, "J.R.R. Tolkien", "The Hobbit"));
+        assertTrue(index.put(2L, "J.R.R. Tolkien", "The Hobbit, or There and Back Again"));
+        assertTrue(index.put(5L, "Beowulf Poet", "Beowulf"));
+
+        assertEquals(List.of(2L), index.search(null, "back again"));
+    }
+
+    @Test
+    void testRemove() {
+        index.remove(3L);
+
+        assertEquals(List.of(2L), index.search("tolkien", null));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void testFuzzySearch_ToleratesTypos() {
+        assertEquals(List.of(2L, 3L), index.fuzzySearch("Tolkein", null, 2));
+        assertEquals(List.of(1L), index.fuzzySearch("rowlng", "hary", 2));
+    }
+
+    @Test
+    void testFuzzySearch_FoldsAccents() {
+        index.put(5L, "Kālidāsa", "Abhijñānaśākuntalam");
+
+        assertEquals(List.of(5L), index.fuzzySearch("kalidas", null, 1));
+    }
+
+    @Test
+    void testFuzzySearch_ShortWordsMustMatchExactly() {
+        // "lord" allows one edit, but "of" (two letters) allows none
+        assertEquals(List.of(3L), index.fuzzySearch(null, "lord of", 2));
+        assertTrue(index.fuzzySearch(null, "lord on", 2).isEmpty());
+    }
+
+    @Test
+    void testAllowedEdits() {
+        assertEquals(0, InvertedCatalogIndex.allowedEdits("of", 2));
+        assertEquals(1, InvertedCatalogIndex.allowedEdits("homer", 2));
+        assertEquals(2, InvertedCatalogIndex.allowedEdits("tolkien", 2));
+        assertEquals(1, InvertedCatalogIndex.allowedEdits("tolkien", 1));
+    }
+}
@@ -0,0 +1,34 @@
+package com.oops.library.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class IsbnTest {
+
+    @Test
+    void testIsbn13IsKeptWithoutSeparators() {
+        assertEquals("9780306406157", Isbn.toIsbn13("978-0-306-40615-7"));
+        assertEquals("9780306406157", Isbn.toIsbn13(" ISBN 978 0 306 40615 7 "));
+    }
+
+    @Test
+    void testIsbn10IsConvertedToIsbn13() {
+        assertEquals("9780306406157", Isbn.toIsbn13("0-306-40615-2"));
+    }
+
+    @Test
+    void testIsbn10WithCheckDigitX() {
+        assertEquals("9780439420891", Isbn.toIsbn13("0-439-42089-X"));
+        assertEquals("9780439420891", Isbn.toIsbn13("043942089x"));
+    }
+
+    @Test
+    void testInvalidIsbns() {
+        assertNull(Isbn.toIsbn13(null));
+        assertNull(Isbn.toIsbn13("978-0-306-40615-8"));   // bad check digit
+        assertNull(Isbn.toIsbn13("0-306-40615-3"));
+        assertNull(Isbn.toIsbn13("03064X6152"));
+        assertNull(Isbn.toIsbn13("12345"));
+    }
+}
@@ -0,0 +1,118 @@
+package com.oops.library.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.oops.library.entity.AncientScript;
+import com.oops.library.entity.Book;
+import com.oops.library.entity.GeneralBook;
+import com.oops.library.entity.RareBook;
+
+class LuceneCatalogIndexTest {
+
+    private LuceneCatalogIndex index;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        index = new LuceneCatalogIndex(new ByteBuffersDirectory());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        index.close();
+    }
+
+    private static Book book(Book book, long id, String title, String author) {
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        return book;
+    }
+
+    private List<Long> search(String text) throws IOException {
+        return index.search(text, null, null, 0, 10).ids();
+    }
+
+    @Test
+    void testTitleMatchesRankAboveOtherFields() throws IOException {
+        index.upsert(book(new GeneralBook(), 1L, "Potions for Beginners", "Severus Dragon"));
+        index.upsert(book(new GeneralBook(), 2L, "Dragon Keeping", "Hagrid"));
+        index.refresh();
+
+        assertEquals(List.of(2L, 1L), search("dragon"));
+    }
+
+    @Test
+    void testSubtypeFieldsAreSearchable() throws IOException {
+        AncientScript scroll = (AncientScript) book(new AncientScript(), 1L, "Scroll of Runes", "Unknown");
+        scroll.setOriginalLanguage("Ancient Runic");
+        scroll.setTranslationNotes("Partially translated by Hermione");
+        RareBook rare = (RareBook) book(new RareBook(), 2L, "Bestiary", "Newt");
+        rare.setPreservationMethod("Vacuum sealed vellum");
+        index.upsert(scroll);
+        index.upsert(rare);
+        index.refresh();
+
+        assertEquals(List.of(1L), search("hermione"));
+        assertEquals(List.of(2L), search("vellum"));
+    }
+
+    @Test
+    void testAccentsAndCaseAreFolded() throws IOException {
+        index.upsert(book(new GeneralBook(), 1L, "Les Misérables", "Victor Hugo"));
+        index.refresh();
+
+        assertEquals(List.of(1L), search("MISERABLES"));
+    }
+
+    @Test
+    void testIsbnQueryMatchesEitherForm() throws IOException {
+        Book book = book(new GeneralBook(), 1L, "Data Structures", "Knuth");
+        book.setIsbn("978-0-306-40615-7");
+        index.upsert(book);
+        index.refresh();
+
+        assertEquals(List.of(1L), search("0-306-40615-2"));
+        assertEquals(List.of(1L), search("9780306406157"));
+    }
+
+    @Test
+    void testUpdatesAndDeletesVisibleAfterRefresh() throws IOException {
+        index.upsert(book(new GeneralBook(), 1L, "The Hobbit", "Tolkien"));
+        index.refresh();
+        assertEquals(List.of(1L), search("hobbit"));
+
+        index.upsert(book(new GeneralBook(), 1L, "There and Back Again", "Tolkien"));
+        assertEquals(List.of(1L), search("hobbit"));   // not refreshed yet
+        index.refresh();
+        assertTrue(search("hobbit").isEmpty());
+        assertEquals(List.of(1L), search("back again"));
+
+        index.delete(1L);
+        index.refresh();
+        assertTrue(search("tolkien").isEmpty());
+        assertEquals(0, index.numDocs());
+    }
+
+    @Test
+    void testAuthorAndTitleNarrowAndPage() throws IOException {
+        index.upsert(book(new GeneralBook(), 1L, "Magic Theory", "Bathilda Bagshot"));
+        index.upsert(book(new GeneralBook(), 2L, "Magic History", "Bathilda Bagshot"));
+        index.upsert(book(new GeneralBook(), 3L, "Magic Theory", "Adalbert Waffling"));
+        index.refresh();
+
+        assertEquals(List.of(1L, 2L), index.search("magic", "bagshot", null, 0, 10).ids());
+        assertEquals(List.of(1L), index.search("magic", "bagshot", "theory", 0, 10).ids());
+
+        LuceneCatalogIndex.Hits page = index.search("magic", null, null, 1, 1);
+        assertEquals(3, page.total());
+        assertEquals(List.of(2L), page.ids());
+    }
+}
@@ -0,0 +1,64 @@
+package com.oops.library.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PrefixTrieTest {
+
+    private PrefixTrie trie;
+
+    @BeforeEach
+    void setUp() {
+        trie = new PrefixTrie();
+        trie.add("the hobbit", "The Hobbit");
+        trie.add("hobbit", "The Hobbit");
+        trie.add("harry potter", "Harry Potter");
+        trie.add("hamlet", "Hamlet");
+    }
+
+    @Test
+    void testCompleteInKeyOrder() {
+        assertEquals(List.of("Hamlet", "Harry Potter", "The Hobbit"), trie.complete("h", 10));
+        assertEquals(List.of("Hamlet", "Harry Potter"), trie.complete("ha", 10));
+    }
+
+    @Test
+    void testCompleteStopsAtLimit() {
+        assertEquals(List.of("Hamlet"), trie.complete("h", 1));
+    }
+
+    @Test
+    void testCompleteDeduplicatesValues() {
+        // "The Hobbit" is reachable through both "hobbit" and "the hobbit"
+        assertEquals(List.of("Hamlet", "Harry Potter", "The Hobbit"), trie.complete("", 10));
+    }
+
+    @Test
+    void testUnknownPrefix() {
+        assertTrue(trie.complete("x", 10).isEmpty());
+    }
+
+    @Test
+    void testRemoveIsReferenceCounted() {
+        trie.add("hamlet", "Hamlet");
+        trie.remove("hamlet", "Hamlet");
+        assertEquals(List.of("Hamlet"), trie.complete("ham", 10));
+
+        trie.remove("hamlet", "Hamlet");
+        assertTrue(trie.complete("ham", 10).isEmpty());
+        assertEquals(List.of("Harry Potter"), trie.complete("ha", 10));
+        assertEquals(3, trie.size());
+    }
+
+    @Test
+    void testRemoveKeepsPrefixKeys() {
+        trie.add("ham", "Ham");
+        trie.remove("hamlet", "Hamlet");
+
+        assertEquals(List.of("Ham"), trie.complete("ham", 10));
+    }
+}
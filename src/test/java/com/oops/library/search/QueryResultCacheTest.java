@@ -0,0 +1,95 @@
+package com.oops.library.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class QueryResultCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger searches = new AtomicInteger();
+
+    private List<Long> search() {
+        searches.incrementAndGet();
+        return List.of(1L, 2L);
+    }
+
+    @Test
+    void testRepeatedQueryHitsCache() {
+        QueryResultCache<List<Long>> cache = new QueryResultCache<>(10, 1000, now::get);
+
+        assertEquals(List.of(1L, 2L), cache.get("potter", 1, this::search));
+        assertEquals(List.of(1L, 2L), cache.get("potter", 1, this::search));
+
+        assertEquals(1, searches.get());
+        assertEquals(0.5, cache.stats().hitRatio());
+    }
+
+    @Test
+    void testNewVersionDropsEverything() {
+        QueryResultCache<List<Long>> cache = new QueryResultCache<>(10, 1000, now::get);
+        cache.get("potter", 1, this::search);
+        cache.get("tolkien", 1, this::search);
+
+        cache.get("potter", 2, this::search);
+
+        assertEquals(3, searches.get());
+        assertEquals(1, cache.stats().size());
+        assertEquals(1, cache.stats().invalidations());
+    }
+
+    @Test
+    void testResultFromOlderVersionIsNotStored() {
+        QueryResultCache<List<Long>> cache = new QueryResultCache<>(10, 1000, now::get);
+        // a write lands while the search runs
+        cache.get("potter", 1, () -> {
+            cache.get("other", 2, this::search);
+            return search();
+        });
+
+        cache.get("potter", 2, this::search);
+        assertEquals(3, searches.get());
+    }
+
+    @Test
+    void testEntriesExpire() {
+        QueryResultCache<List<Long>> cache = new QueryResultCache<>(10, 1000, now::get);
+        cache.get("potter", 1, this::search);
+
+        now.set(999);
+        cache.get("potter", 1, this::search);
+        now.set(1001);
+        cache.get("potter", 1, this::search);
+
+        assertEquals(2, searches.get());
+    }
+
+    @Test
+    void testLeastRecentlyUsedIsEvicted() {
+        QueryResultCache<List<Long>> cache = new QueryResultCache<>(2, 1000, now::get);
+        cache.get("a", 1, this::search);
+        cache.get("b", 1, this::search);
+        cache.get("a", 1, this::search);
+        cache.get("c", 1, this::search);   // evicts b
+
+        cache.get("a", 1, this::search);
+        cache.get("b", 1, this::search);
+
+        assertEquals(4, searches.get());
+        assertEquals(2, cache.stats().evictions());
+    }
+
+    @Test
+    void testCacheKeyNormalizesQuery() {
+        assertEquals(CatalogQuery.contains("  Rowling ", null).cacheKey(),
+                CatalogQuery.contains("rowling", "").cacheKey());
+        assertNotEquals(CatalogQuery.contains("rowling", null).cacheKey(),
+                CatalogQuery.contains(null, "rowling").cacheKey());
+        assertNotEquals(CatalogQuery.contains("rowling", null).cacheKey(),
+                CatalogQuery.fuzzy("rowling", null, 1).cacheKey());
+    }
+}
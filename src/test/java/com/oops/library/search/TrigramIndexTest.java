@@ -0,0 +1,58 @@
+package com.oops.library.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TrigramIndexTest {
+
+    private TrigramIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TrigramIndex();
+        index.add("tolkien");
+        index.add("rowling");
+        index.add("bowling");
+        index.add("lin");
+    }
+
+    @Test
+    void testTermsContaining_UsesTrigramCandidates() {
+        assertEquals(Set.of("rowling", "bowling"), new HashSet<>(index.termsContaining("owlin")));
+        assertEquals(List.of("tolkien"), index.termsContaining("olk"));
+    }
+
+    @Test
+    void testTermsContaining_VerifiesCandidates() {
+        // "abcxbcd" holds both trigrams of "abcd" but not the substring itself
+        index.add("abcxbcd");
+
+        assertTrue(index.termsContaining("abcd").isEmpty());
+    }
+
+    @Test
+    void testTermsContaining_ShortQueryScans() {
+        assertEquals(Set.of("rowling", "bowling", "lin"), new HashSet<>(index.termsContaining("li")));
+    }
+
+    @Test
+    void testRemove() {
+        index.remove("rowling");
+
+        assertEquals(List.of("bowling"), index.termsContaining("wling"));
+        assertEquals(3, index.size());
+        assertTrue(index.termsContaining("rowl").isEmpty());
+    }
+
+    @Test
+    void testTrigrams() {
+        assertEquals(List.of("row", "owl"), List.copyOf(TrigramIndex.trigrams("rowl")));
+        assertTrue(TrigramIndex.trigrams("ab").isEmpty());
+    }
+}
@@ -3,6 +3,7 @@ package com.oops.library.service;
 import com.oops.library.enchanted.exception.EnchantedLibraryException;
 import com.oops.library.entity.AncientScript;
 import com.oops.library.entity.Book;
+import com.oops.library.entity.BookStatus;
 import com.oops.library.entity.GeneralBook;
 import com.oops.library.repository.BookRepository;
 import com.oops.library.repository.BorrowLogRepository;
@@ -10,6 +11,8 @@ import com.oops.library.repository.BorrowLogRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.*;
 
@@ -24,6 +27,9 @@ class BookServiceTest {
     @Mock
     private BorrowLogRepository borrowLogRepository;
 
+    @Mock
+    private HoldService holdService;
+
     @Mock
     private FileStorageService fileStorageService;
 
@@ -58,6 +64,46 @@ class BookServiceTest {
         assertTrue(result.isEmpty());
     }
 
+    // -------------------------------------------------------
+    // getBooksAfter() / countBooksByStatus()
+    // -------------------------------------------------------
+    @Test
+    void testGetBooksAfter_UsesKeysetQuery() {
+        List<Book> page = List.of(new GeneralBook());
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc(40L, Limit.of(11))).thenReturn(page);
+
+        assertEquals(page, bookService.getBooksAfter(40L, 11));
+        verify(bookRepository, never()).findAll();
+    }
+
+    @Test
+    void testGetBooksAfter_NullCursorStartsFromBeginning() {
+        when(bookRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(5))).thenReturn(List.of());
+
+        assertTrue(bookService.getBooksAfter(null, 5).isEmpty());
+    }
+
+    @Test
+    void testCountBooksByStatus() {
+        when(bookRepository.countGroupedByStatus()).thenReturn(List.of(
+                new Object[] { BookStatus.AVAILABLE, 7L },
+                new Object[] { BookStatus.BORROWED, 2L },
+                new Object[] { null, 1L }));
+
+        Map<BookStatus, Long> counts = bookService.countBooksByStatus();
+
+        assertEquals(7L, counts.get(BookStatus.AVAILABLE));
+        assertEquals(2L, counts.get(BookStatus.BORROWED));
+        assertFalse(counts.containsKey(BookStatus.RESTORATION_NEEDED));
+    }
+
+    @Test
+    void testContainsPattern_EscapesWildcards() {
+        assertNull(BookRepository.containsPattern("   "));
+        assertEquals("%tolkien%", BookRepository.containsPattern("  Tolkien "));
+        assertEquals("%50!% off!_sale!!%", BookRepository.containsPattern("50% off_sale!"));
+    }
+
     // -------------------------------------------------------
     // getBookById()
     // -------------------------------------------------------
@@ -118,6 +164,7 @@ class BookServiceTest {
         bookService.deleteBook(1L);
 
         verify(borrowLogRepository).deleteByBook(book);
+        verify(holdService).deleteHolds(book);
         verify(fileStorageService).deleteFile("covers/book1.png");
         verify(bookRepository).delete(book);
         verify(fileStorageService, never()).deleteFile(null);
@@ -152,4 +199,24 @@ class BookServiceTest {
         assertThrows(EnchantedLibraryException.class,
                 () -> bookService.deleteBook(99L));
     }
+
+    // -------------------------------------------------------
+    // backfillIsbn13()
+    // -------------------------------------------------------
+    @Test
+    void testBackfillIsbn13_SkipsInvalidIsbns() {
+        GeneralBook valid = new GeneralBook();
+        valid.setId(1L);
+        ReflectionTestUtils.setField(valid, "isbn", "0-306-40615-2");
+        GeneralBook invalid = new GeneralBook();
+        invalid.setId(2L);
+        ReflectionTestUtils.setField(invalid, "isbn", "n/a");
+        when(bookRepository.findByIdGreaterThanAndIsbn13IsNullAndIsbnIsNotNullOrderByIdAsc(eq(0L), any(Limit.class)))
+                .thenReturn(List.of(valid, invalid));
+
+        bookService.backfillIsbn13();
+
+        assertEquals("9780306406157", valid.getIsbn13());
+        verify(bookRepository).saveAll(List.of(valid));
+    }
 }
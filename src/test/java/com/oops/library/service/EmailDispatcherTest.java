@@ -0,0 +1,70 @@
+package com.oops.library.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class EmailDispatcherTest {
+
+    private final EmailService emailService = mock(EmailService.class);
+    private EmailDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void testConfirmationsAreSentInBackground() throws InterruptedException {
+        dispatcher = new EmailDispatcher(emailService, 1, 10, 5000);
+        LocalDateTime due = LocalDateTime.of(2025, 1, 15, 10, 0);
+        when(emailService.sendBorrowConfirmation("a@library.com", "Ann", "Beowulf", due)).thenReturn(true);
+        when(emailService.sendReturnConfirmation("a@library.com", "Ann", "Beowulf")).thenReturn(false);
+
+        assertTrue(dispatcher.dispatchBorrowConfirmation("a@library.com", "Ann", "Beowulf", due));
+        assertTrue(dispatcher.dispatchReturnConfirmation("a@library.com", "Ann", "Beowulf"));
+        dispatcher.shutdown();
+
+        verify(emailService).sendBorrowConfirmation("a@library.com", "Ann", "Beowulf", due);
+        verify(emailService).sendReturnConfirmation("a@library.com", "Ann", "Beowulf");
+        EmailDispatcher.Stats stats = dispatcher.getStats();
+        assertEquals(2, stats.submitted());
+        assertEquals(1, stats.sent());
+        assertEquals(1, stats.failed());
+        assertEquals(0, stats.dropped());
+    }
+
+    @Test
+    void testFullQueueDropsInsteadOfBlocking() throws InterruptedException {
+        dispatcher = new EmailDispatcher(emailService, 1, 1, 5000);
+        CountDownLatch smtpStalled = new CountDownLatch(1);
+        CountDownLatch sending = new CountDownLatch(1);
+
+        assertTrue(dispatcher.dispatch("stalled", () -> {
+            sending.countDown();
+            try {
+                return smtpStalled.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }));
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+        assertTrue(dispatcher.dispatch("queued", () -> true));
+        assertFalse(dispatcher.dispatch("dropped", () -> true));
+
+        EmailDispatcher.Stats stats = dispatcher.getStats();
+        assertEquals(1, stats.queueDepth());
+        assertEquals(1, stats.dropped());
+
+        smtpStalled.countDown();
+        dispatcher.shutdown();
+        assertEquals(2, dispatcher.getStats().sent());
+    }
+}
@@ -0,0 +1,104 @@
+package com.oops.library.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.oops.library.entity.Book;
+import com.oops.library.entity.BookStatus;
+import com.oops.library.entity.GeneralBook;
+import com.oops.library.entity.Guest;
+import com.oops.library.entity.RareBook;
+import com.oops.library.entity.Role;
+import com.oops.library.entity.User;
+import com.oops.library.repository.BookRepository;
+import com.oops.library.repository.UserRepository;
+
+class FacetCountServiceTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private FacetCountService facetCountService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        facetCountService = new FacetCountService(bookRepository, userRepository);
+
+        List<Object[]> bookRows = new ArrayList<>();
+        bookRows.add(new Object[] { 1L, "AVAILABLE", "General", "GENERAL" });
+        bookRows.add(new Object[] { 2L, "BORROWED", "General", "GENERAL" });
+        bookRows.add(new Object[] { 3L, "AVAILABLE", "Restricted", "RARE" });
+        when(bookRepository.findFacetsAfter(eq(0L), anyInt())).thenReturn(bookRows);
+
+        List<Object[]> userRows = new ArrayList<>();
+        userRows.add(new Object[] { 10L, Role.LIBRARIAN });
+        userRows.add(new Object[] { 11L, Role.GUEST });
+        when(userRepository.findAllRoles()).thenReturn(userRows);
+    }
+
+    private static Book book(long id, BookStatus status, String section, Book book) {
+        book.setId(id);
+        book.setStatus(status);
+        book.setSection(section);
+        return book;
+    }
+
+    @Test
+    void testLoadsFromDatabaseOnFirstRead() {
+        assertEquals(3L, facetCountService.totalBooks());
+        assertEquals(Map.of(BookStatus.AVAILABLE, 2L, BookStatus.BORROWED, 1L),
+                facetCountService.countBooksByStatus());
+        assertEquals(Map.of("General", 2L, "Restricted", 1L), facetCountService.countBooksBySection());
+        assertEquals(Map.of("GENERAL", 2L, "RARE", 1L), facetCountService.countBooksByType());
+        assertEquals(Map.of(Role.LIBRARIAN, 1L, Role.GUEST, 1L), facetCountService.countUsersByRole());
+
+        facetCountService.totalUsers();
+        verify(bookRepository, times(1)).findFacetsAfter(eq(0L), anyInt());
+    }
+
+    @Test
+    void testFollowsCatalogAndUserWrites() {
+        facetCountService.totalBooks();
+
+        facetCountService.onBookSaved(book(2L, BookStatus.AVAILABLE, "General", new GeneralBook()));
+        facetCountService.onBookSaved(book(4L, BookStatus.RESTORATION_NEEDED, "Restricted", new RareBook()));
+        facetCountService.onBookRemoved(1L);
+        User guest = new Guest();
+        guest.setId(12L);
+        guest.setRole(Role.GUEST);
+        facetCountService.onUserSaved(guest);
+
+        assertEquals(3L, facetCountService.totalBooks());
+        assertEquals(Map.of(BookStatus.AVAILABLE, 2L, BookStatus.RESTORATION_NEEDED, 1L),
+                facetCountService.countBooksByStatus());
+        assertEquals(Map.of("GENERAL", 1L, "RARE", 2L), facetCountService.countBooksByType());
+        assertEquals(2L, facetCountService.countUsersByRole().get(Role.GUEST));
+    }
+
+    @Test
+    void testReconcileCorrectsDrift() {
+        facetCountService.totalBooks();
+        // a write that bypassed the catalog hooks
+        facetCountService.onBookRemoved(3L);
+        assertEquals(2L, facetCountService.totalBooks());
+
+        facetCountService.reconcile();
+
+        assertEquals(3L, facetCountService.totalBooks());
+        assertEquals(1L, facetCountService.countBooksByType().get("RARE"));
+    }
+}
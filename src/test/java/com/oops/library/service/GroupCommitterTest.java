@@ -0,0 +1,139 @@
+package com.oops.library.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+
+import com.oops.library.enchanted.exception.EnchantedLibraryException;
+import com.oops.library.entity.BorrowLog;
+import com.oops.library.entity.Scholar;
+import com.oops.library.entity.User;
+import com.oops.library.strategy.LendingStrategy;
+
+class GroupCommitterTest {
+
+    private static final LendingStrategy TWO_WEEKS = borrowDate -> borrowDate.plusDays(14);
+
+    private final LendingService lendingService = mock(LendingService.class);
+    private final User borrower = new Scholar();
+    private GroupCommitter committer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        committer.shutdown();
+    }
+
+    private GroupCommitter start(boolean enabled, int maxGroupSize) {
+        committer = new GroupCommitter(lendingService, enabled, 5_000_000, maxGroupSize);
+        committer.start();
+        return committer;
+    }
+
+    @Test
+    void testDisabledCallsGoStraightThrough() throws EnchantedLibraryException {
+        start(false, 4);
+        BorrowLog log = new BorrowLog();
+        when(lendingService.borrow(1L, borrower, TWO_WEEKS)).thenReturn(log);
+
+        assertSame(log, committer.borrow(1L, borrower, TWO_WEEKS));
+        verify(lendingService, never()).commitGroup(anyList());
+    }
+
+    @Test
+    void testConcurrentWritesShareOneTransaction() throws Exception {
+        start(true, 4);
+        BorrowLog log = new BorrowLog();
+        when(lendingService.commitGroup(anyList())).thenAnswer(invocation -> {
+            List<GroupCommitter.Write> writes = invocation.getArgument(0);
+            List<Object> outcomes = new ArrayList<>();
+            for (GroupCommitter.Write write : writes) {
+                if (write instanceof GroupCommitter.Return) {
+                    outcomes.add("batch-1");
+                } else if (((GroupCommitter.Borrow) write).bookId() == 1L) {
+                    outcomes.add(log);
+                } else {
+                    outcomes.add(new EnchantedLibraryException("Book unavailable."));
+                }
+            }
+            return outcomes;
+        });
+
+        List<Future<Object>> results = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            results.add(pool.submit(() -> committer.borrow(1L, borrower, TWO_WEEKS)));
+            results.add(pool.submit(() -> committer.borrow(2L, borrower, TWO_WEEKS)));
+            results.add(pool.submit(() -> committer.returnBook(7L, "a@library.com")));
+            results.add(pool.submit(() -> committer.returnBook(8L, "a@library.com")));
+
+            assertSame(log, results.get(0).get(5, TimeUnit.SECONDS));
+            Exception refused = assertThrows(Exception.class, () -> results.get(1).get(5, TimeUnit.SECONDS));
+            assertInstanceOf(EnchantedLibraryException.class, refused.getCause());
+            assertEquals("batch-1", results.get(2).get(5, TimeUnit.SECONDS));
+            assertEquals("batch-1", results.get(3).get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        verify(lendingService, times(1)).commitGroup(anyList());
+        verify(lendingService, never()).borrow(anyLong(), any(), any());
+        GroupCommitter.Stats stats = committer.getStats();
+        assertEquals(1, stats.groups());
+        assertEquals(4, stats.writes());
+        assertEquals(4, stats.largestGroup());
+    }
+
+    @Test
+    void testFailedGroupIsRetriedOneByOne() throws Exception {
+        start(true, 2);
+        BorrowLog log = new BorrowLog();
+        when(lendingService.commitGroup(anyList())).thenThrow(new CannotAcquireLockException("deadlock"));
+        when(lendingService.borrow(eq(1L), any(), any())).thenReturn(log);
+        when(lendingService.returnBook(7L, "a@library.com")).thenReturn("batch-2");
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<BorrowLog> borrowed = pool.submit(() -> committer.borrow(1L, borrower, TWO_WEEKS));
+            Future<String> returned = pool.submit(() -> committer.returnBook(7L, "a@library.com"));
+
+            assertSame(log, borrowed.get(5, TimeUnit.SECONDS));
+            assertEquals("batch-2", returned.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, committer.getStats().fallbacks());
+    }
+
+    @Test
+    void testQueuedWritesCommitOnShutdown() throws Exception {
+        start(true, 64);
+        when(lendingService.returnBook(7L, "a@library.com")).thenReturn("batch-3");
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> returned = pool.submit(() -> committer.returnBook(7L, "a@library.com"));
+            Thread.sleep(100);
+            committer.shutdown();
+
+            // well inside the 5 s window the write was waiting out
+            assertEquals("batch-3", returned.get(1, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
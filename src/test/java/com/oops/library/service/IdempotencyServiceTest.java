@@ -0,0 +1,235 @@
+package com.oops.library.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import com.oops.library.entity.IdempotencyRecord;
+import com.oops.library.repository.IdempotencyRecordRepository;
+import com.oops.library.service.IdempotencyService.Outcome;
+
+class IdempotencyServiceTest {
+
+    private final IdempotencyRecordRepository repository = mock(IdempotencyRecordRepository.class);
+    private final AtomicLong now = new AtomicLong(1_000);
+    private IdempotencyService service;
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findById(anyString())).thenReturn(Optional.empty());
+        when(repository.claim(anyString(), any())).thenReturn(1);
+        service = new IdempotencyService(repository, 2, 60_000, 60_000, now::get);
+    }
+
+    @Test
+    void testRetryReplaysFirstOutcome() {
+        AtomicInteger calls = new AtomicInteger();
+
+        Outcome first = service.run("a@library.com|borrow/1", "key-1",
+                () -> Outcome.of("redirect:/dashboard").with("borrowMessage", "call " + calls.incrementAndGet()));
+        Outcome retry = service.run("a@library.com|borrow/1", "key-1",
+                () -> Outcome.of("redirect:/dashboard").with("borrowMessage", "call " + calls.incrementAndGet()));
+
+        assertEquals(1, calls.get());
+        assertEquals(first, retry);
+        assertEquals("call 1", retry.attributes().get("borrowMessage"));
+        IdempotencyService.Stats stats = service.getStats();
+        assertEquals(1, stats.executed());
+        assertEquals(1, stats.memoryHits());
+    }
+
+    @Test
+    void testKeysAreScopedToPatronAndEndpoint() {
+        AtomicInteger calls = new AtomicInteger();
+
+        service.run("a@library.com|borrow/1", "key-1", () -> Outcome.of("v" + calls.incrementAndGet()));
+        service.run("b@library.com|borrow/1", "key-1", () -> Outcome.of("v" + calls.incrementAndGet()));
+        service.run("a@library.com|return/1", "key-1", () -> Outcome.of("v" + calls.incrementAndGet()));
+
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void testMissingOrMalformedKeyAlwaysRuns() {
+        AtomicInteger calls = new AtomicInteger();
+
+        service.run("a@library.com|borrow/1", null, () -> Outcome.of("v" + calls.incrementAndGet()));
+        service.run("a@library.com|borrow/1", "", () -> Outcome.of("v" + calls.incrementAndGet()));
+        service.run("a@library.com|borrow/1", "not a key!", () -> Outcome.of("v" + calls.incrementAndGet()));
+        service.run("a@library.com|borrow/1", "not a key!", () -> Outcome.of("v" + calls.incrementAndGet()));
+
+        assertEquals(4, calls.get());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void testEvictedOutcomeIsReadBackFromTheDatabase() {
+        ArgumentCaptor<IdempotencyRecord> saved = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        service.run("a@library.com|borrow/1", "k1", () -> Outcome.of("redirect:/dashboard").with("borrowError", "Unavailable"));
+        verify(repository).save(saved.capture());
+        service.run("a@library.com|borrow/2", "k2", () -> Outcome.of("redirect:/dashboard"));
+        service.run("a@library.com|borrow/3", "k3", () -> Outcome.of("redirect:/dashboard"));
+        when(repository.findById(saved.getValue().getScopedKey())).thenReturn(Optional.of(saved.getValue()));
+
+        Outcome replayed = service.run("a@library.com|borrow/1", "k1", () -> fail("handler ran twice"));
+
+        assertEquals("redirect:/dashboard", replayed.view());
+        assertEquals("Unavailable", replayed.attributes().get("borrowError"));
+        assertEquals(1, service.getStats().databaseHits());
+        assertEquals(2, service.getStats().size());
+    }
+
+    @Test
+    void testLongestScopedKeyFitsTheKeyColumn() {
+        String email = "p".repeat(64) + "@" + "library".repeat(26) + ".com";
+        ArgumentCaptor<IdempotencyRecord> saved = ArgumentCaptor.forClass(IdempotencyRecord.class);
+
+        service.run(email + "|borrow/" + Long.MAX_VALUE, "k".repeat(64), () -> Outcome.of("redirect:/dashboard"));
+
+        verify(repository).save(saved.capture());
+        assertEquals(64, saved.getValue().getScopedKey().length());
+    }
+
+    @Test
+    void testExpiredOutcomeRunsAgain() {
+        AtomicInteger calls = new AtomicInteger();
+        service.run("a@library.com|return/5", "k", () -> Outcome.of("v" + calls.incrementAndGet()));
+
+        now.addAndGet(60_001);
+        Outcome again = service.run("a@library.com|return/5", "k", () -> Outcome.of("v" + calls.incrementAndGet()));
+
+        assertEquals(2, calls.get());
+        assertEquals("v2", again.view());
+    }
+
+    @Test
+    void testFailedHandlerIsNotRecorded() {
+        assertThrows(IllegalStateException.class,
+                () -> service.run("a@library.com|borrow/1", "k", () -> { throw new IllegalStateException("down"); }));
+
+        Outcome retry = service.run("a@library.com|borrow/1", "k", () -> Outcome.of("ok"));
+
+        assertEquals("ok", retry.view());
+        verify(repository, times(1)).save(any());
+        verify(repository, times(1)).releaseClaim(anyString());
+    }
+
+    @Test
+    void testKeyClaimedOnAnotherNodeWaitsForItsOutcome() {
+        IdempotencyRecord claimed = pendingClaim(LocalDateTime.now());
+        IdempotencyRecord done = new IdempotencyRecord("k", "redirect:/dashboard", "{\"borrowMessage\":\"lent\"}");
+        when(repository.claim(anyString(), any())).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(repository.findById(anyString())).thenReturn(Optional.of(claimed), Optional.of(claimed),
+                Optional.of(claimed), Optional.of(done));
+
+        Outcome outcome = service.run("a@library.com|borrow/1", "k", () -> fail("handler ran on both nodes"));
+
+        assertEquals("lent", outcome.attributes().get("borrowMessage"));
+        assertEquals(1, service.getStats().joined());
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    void testStaleClaimIsTakenOver() {
+        IdempotencyRecord abandoned = pendingClaim(LocalDateTime.now().minusMinutes(2));
+        when(repository.claim(anyString(), any()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key")).thenReturn(1);
+        when(repository.findById(anyString())).thenReturn(Optional.of(abandoned));
+
+        Outcome outcome = service.run("a@library.com|borrow/1", "k", () -> Outcome.of("redirect:/dashboard"));
+
+        assertEquals("redirect:/dashboard", outcome.view());
+        verify(repository).deleteIfCreatedBefore(anyString(), any());
+        verify(repository).save(any());
+    }
+
+    private static IdempotencyRecord pendingClaim(LocalDateTime createdAt) {
+        IdempotencyRecord claim = mock(IdempotencyRecord.class);
+        when(claim.isPending()).thenReturn(true);
+        when(claim.getCreatedAt()).thenReturn(createdAt);
+        return claim;
+    }
+
+    @Test
+    void testConcurrentDuplicatesRunOnce() throws Exception {
+        int threads = 8;
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            Future<?>[] results = new Future<?>[threads];
+            for (int i = 0; i < threads; i++) {
+                results[i] = pool.submit(() -> service.run("a@library.com|borrow/1", "double-click", () -> {
+                    calls.incrementAndGet();
+                    entered.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return Outcome.of("redirect:/dashboard");
+                }));
+            }
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            release.countDown();
+            for (Future<?> result : results) {
+                assertEquals(Outcome.of("redirect:/dashboard"), result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, calls.get());
+        verify(repository, times(1)).save(any());
+    }
+
+    @Test
+    void testJoinedDuplicateGetsTheFirstRequestsException() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<Outcome> first = pool.submit(() -> service.run("a@library.com|borrow/1", "k", () -> {
+                entered.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("down");
+            }));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            Future<Outcome> duplicate = pool.submit(() -> service.run("a@library.com|borrow/1", "k",
+                    () -> fail("handler ran twice")));
+            while (service.getStats().joined() == 0) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            ExecutionException firstFailure = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+            ExecutionException joinedFailure = assertThrows(ExecutionException.class, () -> duplicate.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, firstFailure.getCause());
+            assertSame(firstFailure.getCause(), joinedFailure.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.oops.library.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.oops.library.repository.JobLeaseRepository;
+
+/**
+ * Two coordinators with different node ids against one embedded database,
+ * standing in for two nodes of a cluster. Leases expire only when the tests
+ * move the shared clock, so a slow scheduler can't let one lapse.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)  // lease changes commit on their own
+class JobCoordinatorTest {
+
+    @Autowired
+    private JobLeaseRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final MovableClock clock = new MovableClock();
+    private JobCoordinator nodeA;
+    private JobCoordinator nodeB;
+
+    @BeforeEach
+    void setUp() {
+        nodeA = node("node-a", 300);
+        nodeB = node("node-b", 300);
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.stop();
+        nodeB.stop();
+        repository.deleteAll();
+    }
+
+    private JobCoordinator node(String id, long ttlMillis) {
+        JobCoordinator coordinator = new JobCoordinator(repository, transactionManager, id, ttlMillis, clock);
+        coordinator.start();
+        return coordinator;
+    }
+
+    @Test
+    void testEachRunHappensOnOneNode() {
+        AtomicReference<JobCoordinator.Outcome> meanwhile = new AtomicReference<>();
+
+        JobCoordinator.Outcome first = nodeA.runOnce("digest", "2025-03-01",
+                lease -> meanwhile.set(nodeB.runOnce("digest", "2025-03-01", other -> fail("ran twice"))));
+
+        assertEquals(JobCoordinator.Outcome.RAN, first);
+        assertEquals(JobCoordinator.Outcome.HELD, meanwhile.get());
+        assertEquals(JobCoordinator.Outcome.DONE, nodeB.runOnce("digest", "2025-03-01", lease -> fail("ran twice")));
+        assertEquals(JobCoordinator.Outcome.RAN, nodeB.runOnce("digest", "2025-03-02", lease -> { }));
+        assertEquals("node-b", repository.findById("digest").orElseThrow().getOwner());
+    }
+
+    @Test
+    void testLeaseOutlivesItsTtlWhileRenewed() {
+        AtomicReference<JobCoordinator.Outcome> meanwhile = new AtomicReference<>();
+
+        nodeA.runOnce("long", "1", lease -> {
+            for (int beat = 0; beat < 7; beat++) {
+                clock.advance(100);
+                nodeA.renewAll();
+            }
+            meanwhile.set(nodeB.runOnce("long", "1", other -> fail("taken over from a live node")));
+            assertTrue(lease.isHeld());
+            nodeA.fence(lease);
+        });
+
+        assertEquals(JobCoordinator.Outcome.HELD, meanwhile.get());
+    }
+
+    @Test
+    void testDeadHolderIsTakenOverAndFenced() {
+        // taken without a heartbeat, as by a node that died
+        JobCoordinator.Lease stale = nodeA.acquire("sweep", "1");
+        assertNotNull(stale);
+        assertEquals(JobCoordinator.Outcome.HELD, nodeB.runOnce("sweep", "1", lease -> fail("lease still live")));
+
+        clock.advance(400);
+        assertFalse(stale.isHeld());
+        AtomicReference<JobCoordinator.Lease> takenOver = new AtomicReference<>();
+        assertEquals(JobCoordinator.Outcome.RAN, nodeB.runOnce("sweep", "1", takenOver::set));
+
+        assertTrue(takenOver.get().getFencingToken() > stale.getFencingToken());
+        assertThrows(IllegalStateException.class, () -> nodeA.fence(stale));
+    }
+
+    @Test
+    void testFailedRunIsLeftForAnotherNode() {
+        JobCoordinator.Outcome failed = nodeA.runOnce("purge", "7", lease -> {
+            throw new IllegalStateException("database went away");
+        });
+
+        assertEquals(JobCoordinator.Outcome.FAILED, failed);
+        assertEquals(JobCoordinator.Outcome.RAN, nodeB.runOnce("purge", "7", lease -> { }));
+    }
+
+    @Test
+    void testRunWhoseLeaseWasTakenOverIsLost() {
+        AtomicReference<JobCoordinator.Outcome> takeover = new AtomicReference<>();
+
+        JobCoordinator.Outcome first = nodeA.runOnce("stalled", "1", lease -> {
+            // the heartbeat stalls past the lease time
+            clock.advance(400);
+            assertFalse(lease.isHeld());
+            takeover.set(nodeB.runOnce("stalled", "1", other -> { }));
+            assertThrows(IllegalStateException.class, () -> nodeA.fence(lease));
+        });
+
+        assertEquals(JobCoordinator.Outcome.RAN, takeover.get());
+        assertEquals(JobCoordinator.Outcome.LOST, first);
+        assertEquals(JobCoordinator.Outcome.DONE, nodeA.runOnce("stalled", "1", lease -> fail("ran again")));
+    }
+
+    @Test
+    void testPartitionsAreSharedOutAcrossNodes() throws Exception {
+        Map<Integer, Integer> runs = new ConcurrentHashMap<>();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Integer>> counts = List.of(nodeA, nodeB).stream()
+                    .map(node -> pool.submit(() -> node.runPartitioned("reminders", "2025-03-01", 8, (partition, lease) -> {
+                        runs.merge(partition, 1, Integer::sum);
+                        sleep(50);
+                    })))
+                    .toList();
+
+            assertEquals(8, counts.get(0).get(30, TimeUnit.SECONDS) + counts.get(1).get(30, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(8, runs.size());
+        assertTrue(runs.values().stream().allMatch(count -> count == 1));
+        assertEquals(0, nodeA.runPartitioned("reminders", "2025-03-01", 8, (partition, lease) -> fail("ran twice")));
+    }
+
+    private static final class MovableClock extends Clock {
+        private final AtomicLong millis = new AtomicLong(System.currentTimeMillis());
+
+        void advance(long by) {
+            millis.addAndGet(by);
+        }
+
+        @Override
+        public long millis() {
+            return millis.get();
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis.get());
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.oops.library.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.oops.library.entity.CommandJournalEntry;
+import com.oops.library.entity.GeneralBook;
+import com.oops.library.entity.LateFee;
+import com.oops.library.entity.PatronBalance;
+import com.oops.library.repository.BookRepository;
+import com.oops.library.repository.LateFeeRepository;
+import com.oops.library.repository.PatronBalanceRepository;
+import com.oops.library.strategy.LateFeeService;
+
+class LateFeeLedgerTest {
+
+    private final LateFeeRepository lateFeeRepository = mock(LateFeeRepository.class);
+    private final PatronBalanceRepository balanceRepository = mock(PatronBalanceRepository.class);
+    private final BookRepository bookRepository = mock(BookRepository.class);
+    private final CommandJournal journal = mock(CommandJournal.class);
+    private Consumer<CommandJournalEntry> journalListener;
+    private LateFeeLedger ledger;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ledger = new LateFeeLedger(lateFeeRepository, balanceRepository, bookRepository, new LateFeeService(), journal,
+                mock(PlatformTransactionManager.class));
+        ArgumentCaptor<Consumer<CommandJournalEntry>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(journal).addListener(listener.capture());
+        journalListener = listener.getValue();
+    }
+
+    private static CommandJournalEntry returned(LocalDateTime due) {
+        return new CommandJournalEntry(CommandJournalEntry.Type.RETURN, "batch", 5L, 9L, 3L, due);
+    }
+
+    @Test
+    void testLateReturnWithoutFeeOpensSettledFeeAndBalance() {
+        GeneralBook book = new GeneralBook();
+        when(lateFeeRepository.findById(9L)).thenReturn(Optional.empty());
+        when(bookRepository.findBookById(5L)).thenReturn(book);
+        when(balanceRepository.addToBalance(eq(3L), anyDouble(), any())).thenReturn(0);
+
+        journalListener.accept(returned(LocalDateTime.now().minusDays(2).minusHours(1)));
+
+        ArgumentCaptor<LateFee> fee = ArgumentCaptor.forClass(LateFee.class);
+        verify(lateFeeRepository).save(fee.capture());
+        assertTrue(fee.getValue().isSettled());
+        assertEquals(2, fee.getValue().getOverdueDays());
+        ArgumentCaptor<PatronBalance> balance = ArgumentCaptor.forClass(PatronBalance.class);
+        verify(balanceRepository).save(balance.capture());
+        assertEquals(2.0, balance.getValue().getBalance());
+    }
+
+    @Test
+    void testReturnOnTimeOwesNothing() {
+        when(lateFeeRepository.findById(9L)).thenReturn(Optional.empty());
+
+        journalListener.accept(returned(LocalDateTime.now().plusDays(1)));
+
+        verify(lateFeeRepository, never()).save(any());
+        verifyNoInteractions(balanceRepository);
+    }
+
+    @Test
+    void testAccrualPageRereadsAfterAReturnSettledItsFee() {
+        LateFee fee = new LateFee(9L, 3L, LocalDateTime.now().minusDays(4), 1.0);
+        fee.accrue(3, LocalDate.now().minusDays(1));
+        // the return commits between the page's read and its write
+        when(lateFeeRepository.findDueForAccrual(any(), any())).thenReturn(List.of(fee)).thenReturn(List.of());
+        when(lateFeeRepository.saveAll(any()))
+                .thenThrow(new ObjectOptimisticLockingFailureException(LateFee.class, 9L))
+                .thenReturn(List.of());
+
+        LateFeeLedger.Accrual accrual = ledger.accrue();
+
+        assertEquals(0, accrual.accrued());
+        assertEquals(0.0, accrual.added());
+        verify(lateFeeRepository, times(2)).findDueForAccrual(any(), any());
+        verifyNoInteractions(balanceRepository);
+    }
+
+    @Test
+    void testUndoneReturnReopensFee() {
+        LateFee fee = new LateFee(9L, 3L, LocalDateTime.now().minusDays(4), 1.0);
+        fee.accrue(4, LocalDate.now());
+        fee.settle(LocalDateTime.now());
+        when(lateFeeRepository.findById(9L)).thenReturn(Optional.of(fee));
+
+        journalListener.accept(new CommandJournalEntry(CommandJournalEntry.Type.UNDO_RETURN, "batch", 5L, 9L, 3L,
+                fee.getDueDate()));
+
+        assertFalse(fee.isSettled());
+        assertEquals(4.0, fee.getAmount());
+        verify(lateFeeRepository).save(fee);
+        verifyNoInteractions(balanceRepository);
+    }
+}
@@ -0,0 +1,746 @@
+package com.oops.library.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.oops.library.command.LoanLedger;
+import com.oops.library.enchanted.exception.EnchantedLibraryException;
+import com.oops.library.entity.Book;
+import com.oops.library.entity.BookHold;
+import com.oops.library.entity.BookStatus;
+import com.oops.library.entity.BorrowLog;
+import com.oops.library.entity.CommandJournalEntry;
+import com.oops.library.entity.GeneralBook;
+import com.oops.library.entity.LateFee;
+import com.oops.library.entity.Guest;
+import com.oops.library.entity.Role;
+import com.oops.library.entity.Scholar;
+import com.oops.library.entity.User;
+import com.oops.library.repository.BookHoldRepository;
+import com.oops.library.repository.BookRepository;
+import com.oops.library.repository.BorrowLogRepository;
+import com.oops.library.repository.CommandJournalRepository;
+import com.oops.library.repository.LateFeeRepository;
+import com.oops.library.repository.PatronBalanceRepository;
+import com.oops.library.repository.UserRepository;
+import com.oops.library.strategy.LateFeeService;
+import com.oops.library.strategy.LendingPolicy;
+import com.oops.library.strategy.LendingStrategy;
+import com.oops.library.strategy.RestrictedReadingRoomStrategy;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Races many borrowers against the same copies on an embedded database;
+ * every copy must be lent exactly once.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Import({LendingService.class, CommandJournal.class, HoldService.class, LendingPolicy.class,
+        LateFeeLedger.class, LateFeeService.class, LoanReconciler.class})
+@TestPropertySource(properties = {"app.lending.rules=* * * P30D 100 1, GUEST * * P7D 2 0",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)  // each borrow commits on its own thread
+class LendingServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final LendingStrategy TWO_WEEKS = borrowDate -> borrowDate.plusDays(14);
+
+    @Autowired
+    private LendingService lendingService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BorrowLogRepository borrowLogRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CommandJournal journal;
+
+    @Autowired
+    private CommandJournalRepository journalRepository;
+
+    @Autowired
+    private HoldService holdService;
+
+    @Autowired
+    private BookHoldRepository holdRepository;
+
+    @Autowired
+    private LateFeeLedger lateFeeLedger;
+
+    @Autowired
+    private LateFeeRepository lateFeeRepository;
+
+    @Autowired
+    private PatronBalanceRepository balanceRepository;
+
+    @Autowired
+    private LoanReconciler loanReconciler;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private EmailDispatcher emailDispatcher;
+
+    private final List<User> borrowers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < THREADS; i++) {
+            Scholar scholar = new Scholar();
+            scholar.setName("Scholar " + i);
+            scholar.setEmail("scholar" + i + "@library.com");
+            scholar.setPassword("secret");
+            scholar.setRole(Role.SCHOLAR);
+            borrowers.add(userRepository.save(scholar));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        journalRepository.deleteAll();
+        lateFeeRepository.deleteAll();
+        balanceRepository.deleteAll();
+        holdRepository.deleteAll();
+        borrowLogRepository.deleteAll();
+        bookRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    private Book availableBook(String title) {
+        GeneralBook book = new GeneralBook();
+        book.setTitle(title);
+        book.setAuthor("Anonymous");
+        book.setStatus(BookStatus.AVAILABLE);
+        return bookRepository.save(book);
+    }
+
+    @Test
+    void testOnlyOneConcurrentBorrowWins() throws Exception {
+        Long bookId = availableBook("The Only Copy").getId();
+
+        List<Boolean> outcomes = race(THREADS, i -> () -> tryBorrow(bookId, borrowers.get(i)));
+
+        assertEquals(1, outcomes.stream().filter(Boolean::booleanValue).count());
+        assertEquals(1, borrowLogRepository.count());
+        Book book = bookRepository.findBookById(bookId);
+        assertEquals(BookStatus.BORROWED, book.getStatus());
+        assertEquals(1, book.getVersion());
+    }
+
+    @Test
+    void testEveryCopyLentExactlyOnceUnderLoad() throws Exception {
+        List<Long> bookIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            bookIds.add(availableBook("Copy " + i).getId());
+        }
+
+        // every borrower tries every copy, starting at a different one
+        List<Boolean> outcomes = race(THREADS, i -> () -> {
+            for (int j = 0; j < bookIds.size(); j++) {
+                tryBorrow(bookIds.get((i + j) % bookIds.size()), borrowers.get(i));
+            }
+            return true;
+        });
+
+        assertEquals(THREADS, outcomes.size());
+        assertEquals(bookIds.size(), borrowLogRepository.count());
+        for (Long bookId : bookIds) {
+            assertEquals(BookStatus.BORROWED, bookRepository.findBookById(bookId).getStatus());
+        }
+    }
+
+    @Test
+    void testUnavailableCopyIsRejected() {
+        Book book = availableBook("Being Restored");
+        book.setStatus(BookStatus.RESTORATION_NEEDED);
+        Long bookId = bookRepository.save(book).getId();
+
+        assertThrows(EnchantedLibraryException.class, () -> lendingService.borrow(bookId, borrowers.get(0), TWO_WEEKS));
+        assertThrows(EnchantedLibraryException.class, () -> lendingService.borrow(-1L, borrowers.get(0), TWO_WEEKS));
+        assertEquals(0, borrowLogRepository.count());
+    }
+
+    @Test
+    void testBatchBorrowIsAllOrNothing() {
+        Long first = availableBook("First").getId();
+        Book taken = availableBook("Taken");
+        taken.setStatus(BookStatus.BORROWED);
+        Long second = bookRepository.save(taken).getId();
+
+        EnchantedLibraryException error = assertThrows(EnchantedLibraryException.class,
+                () -> lendingService.borrowAll(List.of(first, second), borrowers.get(0), TWO_WEEKS));
+
+        assertEquals("Unavailable: Taken", error.getMessage());
+        assertEquals(BookStatus.AVAILABLE, bookRepository.findBookById(first).getStatus());
+        assertEquals(0, borrowLogRepository.count());
+    }
+
+    @Test
+    void testBatchBorrowPicksUpTheBorrowersReservedCopy() throws Exception {
+        Long onShelf = availableBook("On Shelf").getId();
+        Long held = availableBook("Held").getId();
+        BorrowLog loan = lendingService.borrow(held, borrowers.get(0), TWO_WEEKS);
+        holdService.placeHold(held, borrowers.get(1));
+        lendingService.returnBook(loan.getId(), borrowers.get(0).getEmail());
+        assertEquals(BookStatus.RESERVED, bookRepository.findBookById(held).getStatus());
+
+        EnchantedLibraryException error = assertThrows(EnchantedLibraryException.class,
+                () -> lendingService.borrowAll(List.of(onShelf, held), borrowers.get(2), TWO_WEEKS));
+        assertEquals("Reserved for someone else: Held", error.getMessage());
+        assertEquals(BookStatus.AVAILABLE, bookRepository.findBookById(onShelf).getStatus());
+
+        lendingService.borrowAll(List.of(onShelf, held), borrowers.get(1), TWO_WEEKS);
+
+        assertEquals(BookStatus.BORROWED, bookRepository.findBookById(onShelf).getStatus());
+        assertEquals(BookStatus.BORROWED, bookRepository.findBookById(held).getStatus());
+        assertEquals(2, borrowLogRepository.findByBorrowerAndReturnedFalse(borrowers.get(1)).size());
+        assertEquals(BookHold.Status.FULFILLED, holdRepository.findAll().get(0).getStatus());
+    }
+
+    @Test
+    void testOverlappingBatchesLendEachCopyOnce() throws Exception {
+        List<Long> bookIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            bookIds.add(availableBook("Copy " + i).getId());
+        }
+
+        // each borrower grabs a window of 5 copies overlapping its neighbours'
+        List<Boolean> outcomes = race(THREADS, i -> () -> {
+            List<Long> stack = new ArrayList<>();
+            for (int j = 0; j < 5; j++) {
+                stack.add(bookIds.get((i + j) % bookIds.size()));
+            }
+            try {
+                lendingService.borrowAll(stack, borrowers.get(i), TWO_WEEKS);
+                return true;
+            } catch (EnchantedLibraryException e) {
+                return false;
+            }
+        });
+
+        long winners = outcomes.stream().filter(Boolean::booleanValue).count();
+        assertTrue(winners >= 1);
+        assertEquals(winners * 5, borrowLogRepository.count());
+        long borrowed = bookIds.stream()
+                .filter(id -> bookRepository.findBookById(id).getStatus() == BookStatus.BORROWED).count();
+        assertEquals(winners * 5, borrowed);
+    }
+
+    @Test
+    void testBatchReturn() throws Exception {
+        Long first = availableBook("First").getId();
+        Long second = availableBook("Second").getId();
+        User borrower = borrowers.get(0);
+        LendingService.Batch checkout = lendingService.borrowAll(List.of(first, second), borrower, TWO_WEEKS);
+        assertEquals(2, checkout.books().size());
+        List<Long> logIds = borrowLogRepository.findByBorrowerAndReturnedFalse(borrower).stream()
+                .map(log -> log.getId()).toList();
+        // journaled with the loans' own ids, which the expiry wheel and replay key on
+        List<Long> journaled = journalRepository.findAll().stream()
+                .filter(entry -> entry.getBatchId().equals(checkout.batchId()))
+                .map(entry -> entry.getBorrowLogId()).toList();
+        assertEquals(Set.copyOf(logIds), Set.copyOf(journaled));
+
+        assertThrows(EnchantedLibraryException.class,
+                () -> lendingService.returnAll(logIds, borrowers.get(1).getEmail()));
+
+        LendingService.Batch returned = lendingService.returnAll(logIds, borrower.getEmail());
+
+        assertEquals(2, returned.books().size());
+        assertTrue(borrowLogRepository.findByBorrowerAndReturnedFalse(borrower).isEmpty());
+        assertEquals(BookStatus.AVAILABLE, bookRepository.findBookById(first).getStatus());
+        assertEquals(BookStatus.AVAILABLE, bookRepository.findBookById(second).getStatus());
+        assertThrows(EnchantedLibraryException.class, () -> lendingService.returnAll(logIds, borrower.getEmail()));
+    }
+
+    @Test
+    void testUndoReturnBatchReopensLoans() throws Exception {
+        Long first = availableBook("First").getId();
+        Long second = availableBook("Second").getId();
+        User borrower = borrowers.get(0);
+        LendingService.Batch checkout = lendingService.borrowAll(List.of(first, second), borrower, TWO_WEEKS);
+        List<Long> logIds = borrowLogRepository.findByBorrowerAndReturnedFalse(borrower).stream()
+                .map(log -> log.getId()).toList();
+        LendingService.Batch returned = lendingService.returnAll(logIds, borrower.getEmail());
+        // someone else takes the second copy before the mistake is noticed
+        lendingService.borrow(second, borrowers.get(1), TWO_WEEKS);
+
+        LendingService.Undo undo = lendingService.undoReturns(returned.batchId());
+
+        assertEquals(1, undo.reopened());
+        assertEquals(List.of("Second"), undo.skipped());
+        assertEquals(BookStatus.BORROWED, bookRepository.findBookById(first).getStatus());
+        List<BorrowLog> open = borrowLogRepository.findByBorrowerAndReturnedFalse(borrower);
+        assertEquals(1, open.size());
+        assertEquals(checkout.dueDate().withNano(0), open.get(0).getReturnDate().withNano(0));
+        assertEquals(0, lendingService.undoReturns(returned.batchId()).reopened());
+
+        LoanLedger ledger = journal.recover();
+        assertEquals(2, ledger.size());
+        assertEquals(borrower.getId(), ledger.openLoan(first).borrowerId());
+        assertEquals(borrowers.get(1).getId(), ledger.openLoan(second).borrowerId());
+    }
+
+    @Test
+    void testReconciliationRepairsCopiesTheJournalDisagreesWith() throws Exception {
+        journal.recover();
+        Long stranded = availableBook("Stranded").getId();
+        Long wanted = availableBook("Wanted").getId();
+        Long untracked = availableBook("Untracked").getId();
+        Long onLoan = availableBook("On Loan").getId();
+        lendingService.borrow(stranded, borrowers.get(0), TWO_WEEKS);
+        lendingService.borrow(wanted, borrowers.get(0), TWO_WEEKS);
+        holdService.placeHold(wanted, borrowers.get(1));
+        lendingService.borrow(onLoan, borrowers.get(2), TWO_WEEKS);
+        // the patron is deleted with their loans, leaving both copies out
+        borrowLogRepository.deleteByBorrower(borrowers.get(0));
+        // a loan the journal never saw, on a copy that shows as available
+        BorrowLog unjournaled = new BorrowLog();
+        unjournaled.setBorrower(borrowers.get(3));
+        unjournaled.setBook(bookRepository.findBookById(untracked));
+        unjournaled.setBorrowDate(LocalDateTime.now());
+        unjournaled.setReturnDate(LocalDateTime.now().plusDays(14));
+        unjournaled = borrowLogRepository.save(unjournaled);
+
+        LoanReconciler.Result result = loanReconciler.reconcile();
+
+        assertEquals(new LoanReconciler.Result(3, 2, 1, 1, 2), result);
+        assertEquals(BookStatus.AVAILABLE, bookRepository.findBookById(stranded).getStatus());
+        assertEquals(BookStatus.RESERVED, bookRepository.findBookById(wanted).getStatus());
+        assertEquals(BookStatus.BORROWED, bookRepository.findBookById(untracked).getStatus());
+        assertEquals(BookStatus.BORROWED, bookRepository.findBookById(onLoan).getStatus());
+        assertNull(journal.openLoan(stranded));
+        assertNull(journal.openLoan(wanted));
+        assertEquals(unjournaled.getId(), journal.openLoan(untracked).borrowLogId());
+
+        LoanLedger recovered = journal.recover();
+        assertEquals(Set.of(untracked, onLoan), recovered.openLoans().keySet());
+        assertEquals(new LoanReconciler.Result(0, 0, 0, 0, 0), loanReconciler.reconcile());
+    }
+
+    @Test
+    void testReconciliationSeesLoansJournaledOnAnotherNode() throws Exception {
+        journal.recover();
+        Long bookId = availableBook("Lent Elsewhere").getId();
+        // another node lends the copy; only the tables see it, not this node's ledger
+        BorrowLog loan = new BorrowLog();
+        loan.setBorrower(borrowers.get(0));
+        loan.setBook(bookRepository.findBookById(bookId));
+        loan.setBorrowDate(LocalDateTime.now());
+        loan.setReturnDate(LocalDateTime.now().plusDays(14));
+        loan = borrowLogRepository.save(loan);
+        jdbcTemplate.update("UPDATE book SET status = 'BORROWED' WHERE id = ?", bookId);
+        journalRepository.save(new CommandJournalEntry(CommandJournalEntry.Type.BORROW, CommandJournal.newBatchId(),
+                bookId, loan.getId(), borrowers.get(0).getId(), loan.getReturnDate()));
+        assertNull(journal.openLoan(bookId));
+
+        assertEquals(new LoanReconciler.Result(0, 0, 0, 0, 0), loanReconciler.reconcile());
+        assertEquals(1, journalRepository.count());
+        assertEquals(BookStatus.BORROWED, bookRepository.findBookById(bookId).getStatus());
+    }
+
+    @Test
+    void testOverdueNoticeIsClaimedOncePerDueDate() throws Exception {
+        Long bookId = availableBook("Overdue").getId();
+        BorrowLog loan = lendingService.borrow(bookId, borrowers.get(0), TWO_WEEKS);
+        LocalDateTime due = borrowLogRepository.findById(loan.getId()).orElseThrow().getReturnDate();
+
+        assertEquals(1, borrowLogRepository.claimOverdueNotice(loan.getId(), due));
+        assertEquals(0, borrowLogRepository.claimOverdueNotice(loan.getId(), due));
+
+        // a renewal brings a new due date, and a notice of its own
+        lendingService.renew(loan.getId(), borrowers.get(0).getEmail());
+        LocalDateTime renewedDue = borrowLogRepository.findById(loan.getId()).orElseThrow().getReturnDate();
+        assertEquals(0, borrowLogRepository.claimOverdueNotice(loan.getId(), due));
+        assertEquals(1, borrowLogRepository.claimOverdueNotice(loan.getId(), renewedDue));
+    }
+
+    @Test
+    void testReturnedCopyGoesToHoldsInOrder() throws Exception {
+        Long bookId = availableBook("In Demand").getId();
+        BorrowLog loan = lendingService.borrow(bookId, borrowers.get(0), TWO_WEEKS);
+        assertThrows(EnchantedLibraryException.class, () -> holdService.placeHold(bookId, borrowers.get(0)).getId());
+        BookHold first = holdService.placeHold(bookId, borrowers.get(1));
+        BookHold second = holdService.placeHold(bookId, borrowers.get(2));
+        assertThrows(EnchantedLibraryException.class, () -> holdService.placeHold(bookId, borrowers.get(2)));
+        assertEquals(2, holdService.queueLength(bookId));
+        assertEquals(2, holdService.position(bookId, second.getId()));
+
+        lendingService.returnBook(loan.getId(), borrowers.get(0).getEmail());
+
+        assertEquals(BookStatus.RESERVED, bookRepository.findBookById(bookId).getStatus());
+        assertEquals(BookHold.Status.READY, holdRepository.findById(first.getId()).orElseThrow().getStatus());
+        assertEquals(1, holdService.position(bookId, second.getId()));
+        verify(emailDispatcher).dispatchHoldReady(eq(borrowers.get(1).getEmail()), any(), eq("In Demand"), any());
+        assertFalse(tryBorrow(bookId, borrowers.get(2)));
+
+        assertTrue(tryBorrow(bookId, borrowers.get(1)));
+        assertEquals(BookStatus.BORROWED, bookRepository.findBookById(bookId).getStatus());
+        assertEquals(BookHold.Status.FULFILLED, holdRepository.findById(first.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void testLapsedHoldPassesToNextInLine() throws Exception {
+        Long bookId = availableBook("Uncollected").getId();
+        BorrowLog loan = lendingService.borrow(bookId, borrowers.get(0), TWO_WEEKS);
+        BookHold first = holdService.placeHold(bookId, borrowers.get(1));
+        BookHold second = holdService.placeHold(bookId, borrowers.get(2));
+        lendingService.returnBook(loan.getId(), borrowers.get(0).getEmail());
+
+        BookHold ready = holdRepository.findById(first.getId()).orElseThrow();
+        ready.setPickupBy(LocalDateTime.now().minusMinutes(1));
+        holdRepository.save(ready);
+        holdService.expireLapsedHolds();
+
+        assertEquals(BookHold.Status.EXPIRED, holdRepository.findById(first.getId()).orElseThrow().getStatus());
+        assertEquals(BookHold.Status.READY, holdRepository.findById(second.getId()).orElseThrow().getStatus());
+        assertEquals(BookStatus.RESERVED, bookRepository.findBookById(bookId).getStatus());
+        assertEquals(0, holdService.queueLength(bookId));
+
+        holdService.cancelHold(second.getId(), borrowers.get(2).getEmail());
+        assertEquals(BookStatus.AVAILABLE, bookRepository.findBookById(bookId).getStatus());
+    }
+
+    @Test
+    void testDeletedHoldsNoLongerBlockRenewal() throws Exception {
+        Book held = availableBook("Wanted");
+        Book other = availableBook("Also Wanted");
+        BorrowLog loan = lendingService.borrow(held.getId(), borrowers.get(0), TWO_WEEKS);
+        lendingService.borrow(other.getId(), borrowers.get(0), TWO_WEEKS);
+        holdService.placeHold(held.getId(), borrowers.get(1));
+        holdService.placeHold(other.getId(), borrowers.get(2));
+        assertThrows(EnchantedLibraryException.class,
+                () -> lendingService.renew(loan.getId(), borrowers.get(0).getEmail()));
+
+        // the patron's account is deleted, and the other copy withdrawn
+        holdService.deleteHolds(borrowers.get(1));
+        holdService.deleteHolds(bookRepository.findBookById(other.getId()));
+
+        assertEquals(0, holdService.queueLength(held.getId()));
+        assertEquals(0, holdService.queueLength(other.getId()));
+        assertEquals(1, lendingService.renew(loan.getId(), borrowers.get(0).getEmail()).getRenewals());
+    }
+
+    @Test
+    void testHoldsRacingAReturnAreNeverStranded() throws Exception {
+        Long bookId = availableBook("Contested").getId();
+        BorrowLog loan = lendingService.borrow(bookId, borrowers.get(0), TWO_WEEKS);
+
+        // one thread returns the copy while the others queue for it
+        List<Boolean> outcomes = race(THREADS, i -> () -> {
+            if (i == 0) {
+                lendingService.returnBook(loan.getId(), borrowers.get(0).getEmail());
+                return true;
+            }
+            try {
+                holdService.placeHold(bookId, borrowers.get(i));
+                return true;
+            } catch (EnchantedLibraryException e) {
+                return false;  // the copy was already back on the shelf
+            }
+        });
+
+        long placed = outcomes.stream().filter(Boolean::booleanValue).count() - 1;
+        long ready = holdRepository.findAll().stream().filter(h -> h.getStatus() == BookHold.Status.READY).count();
+        BookStatus status = bookRepository.findBookById(bookId).getStatus();
+        if (placed == 0) {
+            assertEquals(BookStatus.AVAILABLE, status);
+        } else {
+            assertEquals(BookStatus.RESERVED, status);
+            assertEquals(1, ready);
+            assertEquals(placed - 1, holdService.queueLength(bookId));
+        }
+    }
+
+    @Test
+    void testPolicyCapsLoansAndRenewals() throws Exception {
+        Guest guest = new Guest();
+        guest.setName("Visitor");
+        guest.setEmail("visitor@library.com");
+        guest.setPassword("secret");
+        guest.setRole(Role.GUEST);
+        User visitor = userRepository.save(guest);
+        Long first = availableBook("First").getId();
+        Long second = availableBook("Second").getId();
+        Long third = availableBook("Third").getId();
+
+        BorrowLog loan = lendingService.borrow(first, visitor, TWO_WEEKS);
+        // the guest rule allows 7 days, shorter than the two weeks asked for
+        assertEquals(loan.getBorrowDate().plusDays(7), loan.getReturnDate());
+        EnchantedLibraryException limit = assertThrows(EnchantedLibraryException.class,
+                () -> lendingService.borrowAll(List.of(second, third), visitor, TWO_WEEKS));
+        assertTrue(limit.getMessage().startsWith("Loan limit reached"));
+        assertEquals(BookStatus.AVAILABLE, bookRepository.findBookById(second).getStatus());
+
+        BorrowLog scholarLoan = lendingService.borrow(second, borrowers.get(0), TWO_WEEKS);
+        BorrowLog renewed = lendingService.renew(scholarLoan.getId(), borrowers.get(0).getEmail());
+        assertEquals(scholarLoan.getReturnDate().plusDays(30).withNano(0), renewed.getReturnDate().withNano(0));
+        assertEquals(1, renewed.getRenewals());
+        assertThrows(EnchantedLibraryException.class,
+                () -> lendingService.renew(scholarLoan.getId(), borrowers.get(0).getEmail()));
+        assertThrows(EnchantedLibraryException.class, () -> lendingService.renew(loan.getId(), visitor.getEmail()));
+    }
+
+    @Test
+    void testConcurrentRenewalsKeepToTheLimit() throws Exception {
+        Long bookId = availableBook("Popular").getId();
+        BorrowLog loan = lendingService.borrow(bookId, borrowers.get(0), TWO_WEEKS);
+
+        List<Boolean> renewed = race(THREADS, thread -> () -> {
+            try {
+                lendingService.renew(loan.getId(), borrowers.get(0).getEmail());
+                return true;
+            } catch (EnchantedLibraryException e) {
+                return false;
+            }
+        });
+
+        assertEquals(1, renewed.stream().filter(Boolean::booleanValue).count());
+        BorrowLog stored = borrowLogRepository.findById(loan.getId()).orElseThrow();
+        assertEquals(1, stored.getRenewals());
+        assertEquals(loan.getReturnDate().plusDays(30).withNano(0), stored.getReturnDate().withNano(0));
+    }
+
+    @Test
+    void testReadingRoomLoanIsNotRenewed() throws Exception {
+        Long bookId = availableBook("Manuscript").getId();
+        BorrowLog loan = lendingService.borrow(bookId, borrowers.get(0),
+                new RestrictedReadingRoomStrategy(Duration.ofMinutes(30)));
+
+        EnchantedLibraryException refused = assertThrows(EnchantedLibraryException.class,
+                () -> lendingService.renew(loan.getId(), borrowers.get(0).getEmail()));
+
+        assertTrue(refused.getMessage().contains("reading-room"));
+        BorrowLog stored = borrowLogRepository.findById(loan.getId()).orElseThrow();
+        assertEquals(0, stored.getRenewals());
+        assertEquals(loan.getReturnDate().withNano(0), stored.getReturnDate().withNano(0));
+    }
+
+    @Test
+    void testConcurrentBorrowsByOnePatronKeepToTheLimit() throws Exception {
+        Guest guest = new Guest();
+        guest.setName("Hurried");
+        guest.setEmail("hurried@library.com");
+        guest.setPassword("secret");
+        guest.setRole(Role.GUEST);
+        User visitor = userRepository.save(guest);
+        List<Long> bookIds = new ArrayList<>();
+        for (int i = 0; i < THREADS + 1; i++) {
+            bookIds.add(availableBook("Copy " + i).getId());
+        }
+
+        // many tabs borrowing at once, one of them a two-book checkout
+        race(THREADS, i -> () -> {
+            try {
+                if (i == 0) {
+                    lendingService.borrowAll(bookIds.subList(0, 2), visitor, TWO_WEEKS);
+                } else {
+                    lendingService.borrow(bookIds.get(i + 1), visitor, TWO_WEEKS);
+                }
+                return true;
+            } catch (EnchantedLibraryException e) {
+                return false;
+            }
+        });
+
+        // the guest rule allows two loans at a time
+        assertEquals(2, borrowLogRepository.countByBorrowerAndReturnedFalse(visitor));
+        long lent = bookIds.stream()
+                .filter(id -> bookRepository.findBookById(id).getStatus() == BookStatus.BORROWED).count();
+        assertEquals(2, lent);
+    }
+
+    @Test
+    void testGroupCommitRefusesOnlyTheLosingWrite() throws Exception {
+        Long first = availableBook("First").getId();
+        Long second = availableBook("Second").getId();
+        Long third = availableBook("Third").getId();
+        User returner = borrowers.get(2);
+        BorrowLog loan = lendingService.borrow(third, returner, TWO_WEEKS);
+
+        List<Object> outcomes = lendingService.commitGroup(List.of(
+                new GroupCommitter.Borrow(first, borrowers.get(0), TWO_WEEKS),
+                new GroupCommitter.Borrow(first, borrowers.get(1), TWO_WEEKS),
+                new GroupCommitter.Borrow(second, borrowers.get(1), TWO_WEEKS),
+                new GroupCommitter.Return(loan.getId(), returner.getEmail()),
+                new GroupCommitter.Return(loan.getId(), returner.getEmail())));
+
+        assertInstanceOf(BorrowLog.class, outcomes.get(0));
+        assertEquals("Book unavailable.", assertInstanceOf(EnchantedLibraryException.class, outcomes.get(1)).getMessage());
+        assertInstanceOf(BorrowLog.class, outcomes.get(2));
+        assertInstanceOf(String.class, outcomes.get(3));
+        assertInstanceOf(EnchantedLibraryException.class, outcomes.get(4));
+        assertEquals(BookStatus.BORROWED, bookRepository.findBookById(first).getStatus());
+        assertEquals(BookStatus.BORROWED, bookRepository.findBookById(second).getStatus());
+        assertEquals(BookStatus.AVAILABLE, bookRepository.findBookById(third).getStatus());
+        assertEquals(3, borrowLogRepository.count());
+        assertNull(journal.openLoan(third));
+    }
+
+    @Test
+    void testGroupCommitTakesEachStepOnceForTheGroup() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<Long> alone = new ArrayList<>();
+        List<GroupCommitter.Write> group = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            alone.add(availableBook("Alone " + i).getId());
+            group.add(new GroupCommitter.Borrow(availableBook("Grouped " + i).getId(), borrowers.get(i), TWO_WEEKS));
+        }
+
+        statistics.clear();
+        for (int i = 0; i < THREADS; i++) {
+            lendingService.borrow(alone.get(i), borrowers.get(i), TWO_WEEKS);
+        }
+        long oneByOne = statistics.getPrepareStatementCount();
+        statistics.clear();
+        List<Object> outcomes = lendingService.commitGroup(group);
+        long grouped = statistics.getPrepareStatementCount() + 1;  // and the borrow log batch, sent past Hibernate
+
+        assertTrue(outcomes.stream().allMatch(BorrowLog.class::isInstance));
+        assertEquals(2 * THREADS, borrowLogRepository.count());
+        // only the journal still takes a statement per loan
+        assertTrue(grouped * 3 < oneByOne, grouped + " statements grouped, " + oneByOne + " one by one");
+    }
+
+    @Test
+    void testLateFeesAccrueOnceAndSettleOnReturn() throws Exception {
+        Long late = availableBook("Late").getId();
+        Long onTime = availableBook("On Time").getId();
+        User borrower = borrowers.get(0);
+        BorrowLog loan = lendingService.borrow(late, borrower, borrowDate -> borrowDate.minusDays(3).minusHours(1));
+        lendingService.borrow(onTime, borrower, TWO_WEEKS);
+
+        LateFeeLedger.Accrual first = lateFeeLedger.accrue();
+        LateFeeLedger.Accrual again = lateFeeLedger.accrue();
+
+        assertEquals(1, first.opened());
+        assertEquals(3.0, first.added());
+        assertEquals(0, again.opened());
+        assertEquals(0, again.accrued());  // already brought to today
+        assertEquals(3.0, lateFeeLedger.balance(borrower.getId()));
+        assertEquals(3.0, lateFeeLedger.accruedFees(List.of(loan.getId())).get(loan.getId()));
+        LateFee stale = lateFeeRepository.findById(loan.getId()).orElseThrow();
+
+        lendingService.returnBook(loan.getId(), borrower.getEmail());
+
+        // an accrual that read the fee before the return can't write it back unsettled
+        stale.accrue(4, LocalDate.now());
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> lateFeeRepository.save(stale));
+
+        LateFee fee = lateFeeRepository.findById(loan.getId()).orElseThrow();
+        assertTrue(fee.isSettled());
+        assertEquals(3, fee.getOverdueDays());
+        assertEquals(0, lateFeeLedger.accrue().settled());
+        assertEquals(3.0, lateFeeLedger.balance(borrower.getId()));
+    }
+
+    @Test
+    void testRenewalCarriesTheFeeAndRestartsAccrual() throws Exception {
+        Long late = availableBook("Late Again").getId();
+        User borrower = borrowers.get(0);
+        BorrowLog loan = lendingService.borrow(late, borrower, borrowDate -> borrowDate.minusDays(3).minusHours(1));
+        assertEquals(3.0, lateFeeLedger.accrue().added());
+
+        BorrowLog renewed = lendingService.renew(loan.getId(), borrower.getEmail());
+
+        LateFee fee = lateFeeRepository.findById(loan.getId()).orElseThrow();
+        assertFalse(fee.isSettled());
+        assertEquals(3.0, fee.getAmount());
+        assertEquals(3.0, fee.getCarried());
+        assertEquals(renewed.getReturnDate().withNano(0), fee.getDueDate().withNano(0));
+        // the next night's run counts from the new due date, which is weeks away
+        jdbcTemplate.update("UPDATE late_fee SET accrued_on = ? WHERE borrow_log_id = ?",
+                LocalDate.now().minusDays(1), loan.getId());
+        LateFeeLedger.Accrual nextNight = lateFeeLedger.accrue();
+        assertEquals(1, nextNight.accrued());
+        assertEquals(0.0, nextNight.added());
+
+        lendingService.returnBook(loan.getId(), borrower.getEmail());
+
+        fee = lateFeeRepository.findById(loan.getId()).orElseThrow();
+        assertTrue(fee.isSettled());
+        assertEquals(0, fee.getOverdueDays());
+        assertEquals(3.0, fee.getAmount());
+        assertEquals(3.0, lateFeeLedger.balance(borrower.getId()));
+    }
+
+    private boolean tryBorrow(Long bookId, User borrower) throws Exception {
+        try {
+            lendingService.borrow(bookId, borrower, TWO_WEEKS);
+            return true;
+        } catch (EnchantedLibraryException e) {
+            return false;
+        }
+    }
+
+    private interface Task {
+        Callable<Boolean> forThread(int thread);
+    }
+
+    private static List<Boolean> race(int threads, Task task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                Callable<Boolean> work = task.forThread(i);
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return work.call();
+                }));
+            }
+            start.countDown();
+            List<Boolean> outcomes = new ArrayList<>();
+            for (Future<Boolean> future : futures) {
+                outcomes.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return outcomes;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.oops.library.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.oops.library.entity.BorrowLog;
+import com.oops.library.entity.CommandJournalEntry;
+import com.oops.library.entity.GeneralBook;
+import com.oops.library.entity.RareBook;
+import com.oops.library.entity.Scholar;
+import com.oops.library.repository.BorrowLogRepository;
+
+class LoanExpiryServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 9, 0);
+
+    private final BorrowLogRepository borrowLogRepository = mock(BorrowLogRepository.class);
+    private final LendingService lendingService = mock(LendingService.class);
+    private final CommandJournal journal = mock(CommandJournal.class);
+    private final EmailDispatcher emailDispatcher = mock(EmailDispatcher.class);
+    private final AtomicLong now = new AtomicLong(millis(START));
+    private LoanExpiryService service;
+    private Consumer<CommandJournalEntry> journalListener;
+
+    private static long millis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        service = new LoanExpiryService(borrowLogRepository, lendingService, journal, emailDispatcher,
+                1000, now::get);
+        when(borrowLogRepository.claimOverdueNotice(any(), any())).thenReturn(1);
+        ArgumentCaptor<Consumer<CommandJournalEntry>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(journal).addListener(listener.capture());
+        journalListener = listener.getValue();
+    }
+
+    private BorrowLog readingRoomLoan(long id, LocalDateTime borrowed, LocalDateTime due) {
+        BorrowLog loan = loan(id, borrowed, due);
+        loan.setReadingRoom(true);
+        return loan;
+    }
+
+    private BorrowLog loan(long id, LocalDateTime borrowed, LocalDateTime due) {
+        Scholar borrower = new Scholar();
+        borrower.setName("Ann");
+        borrower.setEmail("ann@library.com");
+        GeneralBook book = new GeneralBook();
+        book.setTitle("Beowulf");
+        BorrowLog loan = new BorrowLog();
+        loan.setId(id);
+        loan.setBorrower(borrower);
+        loan.setBook(book);
+        loan.setBorrowDate(borrowed);
+        loan.setReturnDate(due);
+        when(borrowLogRepository.findById(id)).thenReturn(Optional.of(loan));
+        return loan;
+    }
+
+    private void borrowed(BorrowLog loan) {
+        journalListener.accept(new CommandJournalEntry(CommandJournalEntry.Type.BORROW, "b", 1L, loan.getId(), 1L,
+                loan.getReturnDate()));
+    }
+
+    private void advanceTo(LocalDateTime time) {
+        now.set(millis(time));
+        service.tick();
+    }
+
+    @Test
+    void testReadingRoomLoanIsReturnedWhenDue() throws Exception {
+        BorrowLog loan = readingRoomLoan(7L, START, START.plusMinutes(30));
+        borrowed(loan);
+
+        advanceTo(START.plusMinutes(29));
+        verifyNoInteractions(lendingService);
+
+        advanceTo(START.plusMinutes(30));
+        verify(lendingService).returnBook(7L, "ann@library.com");
+        verify(emailDispatcher).dispatchReturnConfirmation("ann@library.com", "Ann", "Beowulf");
+        assertEquals(1, service.getStats().autoReturned());
+    }
+
+    @Test
+    void testLongLoanGetsOverdueNoticeWhenDue() throws Exception {
+        BorrowLog loan = loan(8L, START, START.plusDays(3));
+        borrowed(loan);
+
+        advanceTo(START.plusDays(3));
+
+        verify(emailDispatcher).dispatchOverdueNotice("ann@library.com", "Ann", "Beowulf", START.plusDays(3));
+        verify(lendingService, never()).returnBook(any(), any());
+    }
+
+    @Test
+    void testOverdueNoticeClaimedByAnotherNodeIsNotSent() throws Exception {
+        BorrowLog loan = loan(9L, START, START.plusDays(3));
+        borrowed(loan);
+        when(borrowLogRepository.claimOverdueNotice(9L, START.plusDays(3))).thenReturn(0);
+
+        advanceTo(START.plusDays(3));
+
+        verify(emailDispatcher, never()).dispatchOverdueNotice(any(), any(), any(), any());
+        assertEquals(1, service.getStats().skipped());
+    }
+
+    @Test
+    void testRareBookLoanIsNotReturnedWhenOverdue() throws Exception {
+        BorrowLog loan = loan(14L, START, START.plusDays(7));
+        RareBook rare = new RareBook();
+        rare.setTitle("Codex Gigas");
+        rare.setInLibraryUseOnly(true);
+        loan.setBook(rare);
+        borrowed(loan);
+
+        advanceTo(START.plusDays(8));
+
+        verify(lendingService, never()).returnBook(any(), any());
+        verify(emailDispatcher).dispatchOverdueNotice("ann@library.com", "Ann", "Codex Gigas", START.plusDays(7));
+        assertEquals(0, service.getStats().autoReturned());
+    }
+
+    @Test
+    void testReturnedLoanNeverFires() {
+        BorrowLog loan = loan(9L, START, START.plusDays(3));
+        borrowed(loan);
+        journalListener.accept(new CommandJournalEntry(CommandJournalEntry.Type.RETURN, "r", 1L, 9L, 1L,
+                loan.getReturnDate()));
+
+        advanceTo(START.plusDays(4));
+
+        assertEquals(0, service.getStats().fired());
+        verifyNoInteractions(emailDispatcher);
+    }
+
+    @Test
+    void testRenewalMovesTheDueDate() {
+        BorrowLog loan = loan(10L, START, START.plusDays(3));
+        borrowed(loan);
+        loan.setReturnDate(START.plusDays(10));
+        journalListener.accept(new CommandJournalEntry(CommandJournalEntry.Type.RENEW, "n", 1L, 10L, 1L,
+                loan.getReturnDate()));
+
+        advanceTo(START.plusDays(5));
+        verifyNoInteractions(emailDispatcher);
+
+        advanceTo(START.plusDays(10));
+        verify(emailDispatcher).dispatchOverdueNotice(any(), any(), any(), any());
+    }
+
+    @Test
+    void testLoadSchedulesOpenLoansButSkipsNoticesAlreadyDue() throws Exception {
+        loan(11L, START.minusDays(5), START.minusDays(2));  // overdue before startup
+        readingRoomLoan(12L, START.minusMinutes(40), START.minusMinutes(10));  // overdue
+        loan(13L, START, START.plusHours(2));
+        when(borrowLogRepository.findDueDatesByReturnedFalse()).thenReturn(List.of(
+                due(11L, START.minusDays(2)), due(12L, START.minusMinutes(10)), due(13L, START.plusHours(2))));
+
+        service.load();
+        advanceTo(START.plusSeconds(1));
+
+        verify(lendingService).returnBook(12L, "ann@library.com");
+        verify(emailDispatcher, never()).dispatchOverdueNotice(any(), any(), any(), any());
+        LoanExpiryService.Stats stats = service.getStats();
+        assertTrue(stats.loaded());
+        assertEquals(1, stats.scheduled());
+        assertEquals(1, stats.skipped());
+    }
+
+    private static BorrowLogRepository.LoanDue due(Long id, LocalDateTime returnDate) {
+        return new BorrowLogRepository.LoanDue() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public LocalDateTime getReturnDate() {
+                return returnDate;
+            }
+        };
+    }
+}
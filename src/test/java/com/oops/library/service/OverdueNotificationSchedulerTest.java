@@ -5,14 +5,16 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Stream;
 
 import com.oops.library.entity.*;
-import com.oops.library.strategy.LateFeeService;
 import com.oops.library.repository.*;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import jakarta.persistence.EntityManager;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -30,21 +32,200 @@ class OverdueNotificationSchedulerTest {
     private EmailService emailService;
 
     @Mock
-    private LateFeeService lateFeeService;
+    private EntityManager entityManager;
+
+    @Mock
+    private ReminderCheckpoints checkpoints;
 
-    @InjectMocks
     private OverdueNotificationScheduler scheduler;
 
+    @BeforeEach
+    void setUp() {
+        scheduler = new OverdueNotificationScheduler(borrowLogRepository, userRepository, emailService,
+                entityManager, checkpoints, 4, 0, 100);
+        when(checkpoints.open(anyString(), any())).thenAnswer(call -> new OverdueReminderRun(call.getArgument(0), LocalDateTime.now()));
+    }
+
    
     @Test
     void testSendOverdueReminders_NoOverdueBooks() {
 
-        when(borrowLogRepository.findByReturnedFalseAndReturnDateBefore(any()))
-                .thenReturn(Collections.emptyList());
+        when(borrowLogRepository.countOverdueBorrowers(any(), anyLong(), anyLong())).thenReturn(0L);
 
         scheduler.sendOverdueReminders();
 
         verify(emailService, never()).sendTemplatedMessage(anyString(), anyString(), anyString(), anyMap());
         verify(emailService, never()).sendOverdueSummary(anyList(), anyString());
+        verify(borrowLogRepository, never()).streamOverdueByBorrower(any(), anyLong(), anyLong());
+    }
+
+    private static Object[] row(BorrowLog log, Double fee) {
+        return new Object[] { log, fee };
+    }
+
+    private static BorrowLog overdue(User borrower, String title, int daysLate) {
+        Book book = new GeneralBook();
+        book.setTitle(title);
+        book.setAuthor("Anonymous");
+        BorrowLog log = new BorrowLog();
+        log.setBorrower(borrower);
+        log.setBook(book);
+        log.setReturnDate(LocalDateTime.now().minusDays(daysLate));
+        return log;
+    }
+
+    private static User scholar(long id, String name) {
+        Scholar scholar = new Scholar();
+        scholar.setId(id);
+        scholar.setName(name);
+        scholar.setEmail(name.toLowerCase() + "@library.com");
+        return scholar;
+    }
+
+    @Test
+    void testSendOverdueReminders_OneEmailPerBorrowerRun() {
+        User ann = scholar(1L, "Ann");
+        User bob = scholar(2L, "Bob");
+        boolean[] closed = {false};
+        Stream<Object[]> rows = Stream.of(row(overdue(ann, "Beowulf", 3), 2.0), row(overdue(ann, "Gawain", 1), 1.0),
+                        row(overdue(bob, "Dune", 2), null))
+                .onClose(() -> closed[0] = true);
+        when(borrowLogRepository.countOverdueBorrowers(any(), anyLong(), anyLong())).thenReturn(2L);
+        when(borrowLogRepository.streamOverdueByBorrower(any(), anyLong(), anyLong())).thenReturn(rows);
+        when(emailService.sendTemplatedMessage(anyString(), anyString(), anyString(), anyMap())).thenReturn(true);
+        Librarian librarian = new Librarian();
+        librarian.setEmail("desk@library.com");
+        when(userRepository.findByRole(Role.LIBRARIAN)).thenReturn(List.of(librarian));
+
+        scheduler.sendOverdueReminders();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, Object>> variables = ArgumentCaptor.forClass(Map.class);
+        verify(emailService).sendTemplatedMessage(eq("ann@library.com"), anyString(), eq("overdue-reminder-user"), variables.capture());
+        verify(emailService).sendTemplatedMessage(eq("bob@library.com"), anyString(), eq("overdue-reminder-user"), anyMap());
+        assertEquals(3.0, variables.getValue().get("totalLateFee"));
+        // one persistence context per borrower
+        verify(entityManager, times(2)).clear();
+        ArgumentCaptor<String> summary = ArgumentCaptor.forClass(String.class);
+        verify(emailService).sendOverdueSummary(eq(List.of("desk@library.com")), summary.capture());
+        assertTrue(summary.getValue().contains("Total Overdue Items: 3"));
+        assertTrue(summary.getValue().contains("Users Notified: 2"));
+        assertTrue(summary.getValue().contains("Dune | Borrower: Bob"));
+        assertTrue(closed[0]);
+        OverdueNotificationScheduler.Progress progress = scheduler.getProgress();
+        assertEquals(2, progress.patrons());
+        assertEquals(2, progress.sent());
+        assertEquals(0, progress.remaining());
+    }
+
+    @Test
+    void testSendOverdueReminders_SummaryListsTheFirstLoansAndCountsTheRest() {
+        scheduler = new OverdueNotificationScheduler(borrowLogRepository, userRepository, emailService,
+                entityManager, checkpoints, 4, 0, 2);
+        User ann = scholar(1L, "Ann");
+        User bob = scholar(2L, "Bob");
+        Stream<Object[]> rows = Stream.of(row(overdue(ann, "Beowulf", 3), 2.0), row(overdue(ann, "Gawain", 1), 1.0),
+                row(overdue(bob, "Dune", 2), 0.5));
+        when(borrowLogRepository.countOverdueBorrowers(any(), anyLong(), anyLong())).thenReturn(2L);
+        when(borrowLogRepository.streamOverdueByBorrower(any(), anyLong(), anyLong())).thenReturn(rows);
+        when(emailService.sendTemplatedMessage(anyString(), anyString(), anyString(), anyMap())).thenReturn(true);
+        Librarian librarian = new Librarian();
+        librarian.setEmail("desk@library.com");
+        when(userRepository.findByRole(Role.LIBRARIAN)).thenReturn(List.of(librarian));
+
+        scheduler.sendOverdueReminders();
+
+        ArgumentCaptor<String> summary = ArgumentCaptor.forClass(String.class);
+        verify(emailService).sendOverdueSummary(eq(List.of("desk@library.com")), summary.capture());
+        assertTrue(summary.getValue().contains("Total Overdue Items: 3"));
+        assertTrue(summary.getValue().contains("Total Late Fees: $3.50"));
+        assertTrue(summary.getValue().contains("Gawain | Borrower: Ann"));
+        assertFalse(summary.getValue().contains("Dune"));
+        assertTrue(summary.getValue().contains("… and 1 more overdue items"));
+    }
+
+    @Test
+    void testSendOverdueReminders_OneFailingRecipientDoesNotStopTheRest() {
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= 6; id++) {
+            rows.add(row(overdue(scholar(id, "Patron" + id), "Book " + id, 2), null));
+        }
+        when(borrowLogRepository.countOverdueBorrowers(any(), anyLong(), anyLong())).thenReturn(6L);
+        when(borrowLogRepository.streamOverdueByBorrower(any(), anyLong(), anyLong())).thenReturn(rows.stream());
+        when(emailService.sendTemplatedMessage(anyString(), anyString(), anyString(), anyMap())).thenReturn(true);
+        when(emailService.sendTemplatedMessage(eq("patron3@library.com"), anyString(), anyString(), anyMap()))
+                .thenThrow(new IllegalStateException("SMTP timeout"));
+        when(emailService.sendTemplatedMessage(eq("patron5@library.com"), anyString(), anyString(), anyMap()))
+                .thenReturn(false);
+        when(emailService.sendSimpleMessage(eq("patron5@library.com"), anyString(), anyString())).thenReturn(true);
+
+        scheduler.sendOverdueReminders();
+
+        OverdueNotificationScheduler.Progress progress = scheduler.getProgress();
+        assertFalse(progress.running());
+        assertEquals(5, progress.sent());
+        assertEquals(1, progress.failed());
+        assertEquals(0, progress.remaining());
+        verify(emailService, times(6)).sendTemplatedMessage(anyString(), anyString(), anyString(), anyMap());
+        verify(emailService).sendOverdueSummary(anyList(), contains("Users Notified: 6"));
+    }
+
+    @Test
+    void testSendOverdueReminders_StopsWhenTheRunIsTakenOver() {
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            rows.add(row(overdue(scholar(id, "Patron" + id), "Book " + id, 2), null));
+        }
+        when(borrowLogRepository.countOverdueBorrowers(any(), eq(0L), eq(10L))).thenReturn(3L);
+        when(borrowLogRepository.streamOverdueByBorrower(any(), eq(0L), eq(10L))).thenReturn(rows.stream());
+        when(emailService.sendTemplatedMessage(anyString(), anyString(), anyString(), anyMap())).thenReturn(true);
+        boolean[] held = {true};
+
+        scheduler.sendOverdueReminders(LocalDateTime.now(), 0, 10, () -> {
+            boolean wasHeld = held[0];
+            held[0] = false;  // lost after the first borrower
+            return wasHeld;
+        });
+
+        verify(emailService, times(1)).sendTemplatedMessage(anyString(), anyString(), anyString(), anyMap());
+        // the node that took over sends the summary
+        verify(emailService, never()).sendOverdueSummary(anyList(), anyString());
+    }
+
+    @Test
+    void testSendOverdueReminders_ResumesAfterCheckpointAndSkipsReminded() {
+        OverdueReminderRun interrupted = mock(OverdueReminderRun.class);
+        when(interrupted.getCursorBorrowerId()).thenReturn(2L);
+        when(interrupted.getSent()).thenReturn(2L);
+        when(checkpoints.open(anyString(), any())).thenReturn(interrupted);
+        when(checkpoints.sentOn(any(), eq(3L), eq(Long.MAX_VALUE))).thenReturn(Set.of(3L));
+        when(borrowLogRepository.countOverdueBorrowers(any(), eq(3L), eq(Long.MAX_VALUE))).thenReturn(2L);
+        when(borrowLogRepository.streamOverdueByBorrower(any(), eq(3L), eq(Long.MAX_VALUE))).thenReturn(Stream.of(
+                row(overdue(scholar(3L, "Cleo"), "Iliad", 2), null), row(overdue(scholar(4L, "Dara"), "Odyssey", 2), null)));
+        when(emailService.sendTemplatedMessage(anyString(), anyString(), anyString(), anyMap())).thenReturn(true);
+
+        scheduler.sendOverdueReminders();
+
+        // Cleo was reminded before the interruption
+        verify(emailService, never()).sendTemplatedMessage(eq("cleo@library.com"), anyString(), anyString(), anyMap());
+        verify(emailService).sendTemplatedMessage(eq("dara@library.com"), anyString(), anyString(), anyMap());
+        verify(checkpoints).markSent(eq(4L), any());
+        verify(checkpoints).advance(anyString(), eq(4L), eq(3L), eq(0L));
+        verify(checkpoints).complete(anyString(), eq(3L), eq(0L));
+        OverdueNotificationScheduler.Progress progress = scheduler.getProgress();
+        assertEquals(1, progress.sent());
+        assertEquals(1, progress.skipped());
+        assertEquals(0, progress.remaining());
+    }
+
+    @Test
+    void testSendOverdueReminders_FinishedRunIsNotRepeated() {
+        OverdueReminderRun finished = mock(OverdueReminderRun.class);
+        when(finished.isCompleted()).thenReturn(true);
+        when(checkpoints.open(anyString(), any())).thenReturn(finished);
+
+        scheduler.sendOverdueReminders();
+
+        verifyNoInteractions(borrowLogRepository, emailService);
     }
 }
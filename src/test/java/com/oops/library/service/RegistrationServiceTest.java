@@ -32,6 +32,9 @@ class RegistrationServiceTest {
     @Mock
     private EmailService emailService;
 
+    @Mock
+    private FacetCountService facetCountService;
+
     @InjectMocks
     private RegistrationService registrationService;
 
@@ -58,6 +61,7 @@ class RegistrationServiceTest {
 
         verify(passwordEncoder).encode("leviosa");
         verify(emailService).sendSignupConfirmation("hermione@hogwarts.edu", "Hermione Granger");
+        verify(facetCountService).onUserSaved(userCaptor.getValue());
 
         User savedUser = userCaptor.getValue();
         assertTrue(savedUser instanceof Librarian);
@@ -0,0 +1,97 @@
+package com.oops.library.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.oops.library.entity.OverdueReminderRun;
+import com.oops.library.repository.OverdueReminderRunRepository;
+import com.oops.library.repository.ReminderSentRepository;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)  // checkpoints commit on their own
+class ReminderCheckpointsTest {
+
+    private static final LocalDateTime RUN_START = LocalDateTime.of(2025, 3, 1, 18, 0);
+
+    @Autowired
+    private OverdueReminderRunRepository runRepository;
+
+    @Autowired
+    private ReminderSentRepository sentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ReminderCheckpoints checkpoints;
+
+    @BeforeEach
+    void setUp() {
+        checkpoints = new ReminderCheckpoints(runRepository, sentRepository, transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        runRepository.deleteAll();
+        sentRepository.deleteAll();
+    }
+
+    @Test
+    void testReopenedRunResumesFromItsCursor() {
+        String key = ReminderCheckpoints.runKey(RUN_START.toLocalDate(), 0, 1000);
+        checkpoints.open(key, RUN_START);
+        checkpoints.advance(key, 40, 38, 2);
+        // a sender finishing late must not move the cursor back
+        checkpoints.advance(key, 25, 24, 1);
+
+        OverdueReminderRun reopened = checkpoints.open(key, RUN_START.plusMinutes(5));
+
+        assertEquals(40L, reopened.getCursorBorrowerId());
+        assertEquals(38, reopened.getSent());
+        assertEquals(RUN_START, reopened.getStartedAt());
+        assertTrue(checkpoints.hasUnfinished(RUN_START.toLocalDate()));
+        checkpoints.complete(key, 50, 2);
+        assertFalse(checkpoints.hasUnfinished(RUN_START.toLocalDate()));
+        assertTrue(checkpoints.open(key, RUN_START.plusHours(1)).isCompleted());
+    }
+
+    @Test
+    void testOneMarkerPerBorrowerAndDay() {
+        LocalDate day = RUN_START.toLocalDate();
+        checkpoints.markSent(7L, day);
+        checkpoints.markSent(7L, day);
+        checkpoints.markSent(12L, day);
+        checkpoints.markSent(7L, day.plusDays(1));
+
+        assertEquals(Set.of(7L, 12L), checkpoints.sentOn(day, 0, 100));
+        assertEquals(Set.of(12L), checkpoints.sentOn(day, 10, 100));
+        assertEquals(3, sentRepository.count());
+    }
+
+    @Test
+    void testStartingARunDropsWeekOldRecords() {
+        checkpoints.open(ReminderCheckpoints.runKey(RUN_START.toLocalDate(), 0, 10), RUN_START);
+        checkpoints.markSent(7L, RUN_START.toLocalDate());
+
+        LocalDateTime nextWeek = RUN_START.plusDays(8);
+        checkpoints.open(ReminderCheckpoints.runKey(nextWeek.toLocalDate(), 0, 10), nextWeek);
+
+        assertEquals(1, runRepository.count());
+        assertEquals(0, sentRepository.count());
+    }
+}
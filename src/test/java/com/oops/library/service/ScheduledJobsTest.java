@@ -0,0 +1,85 @@
+package com.oops.library.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.Test;
+
+import com.oops.library.repository.BorrowLogRepository;
+
+class ScheduledJobsTest {
+
+    private final JobCoordinator coordinator = mock(JobCoordinator.class);
+    private final OverdueNotificationScheduler reminders = mock(OverdueNotificationScheduler.class);
+    private final BorrowLogRepository borrowLogRepository = mock(BorrowLogRepository.class);
+    private final HoldService holdService = mock(HoldService.class);
+    private final JobCoordinator.Lease lease = new JobCoordinator.Lease("job", 1, Clock.systemDefaultZone(),
+            Duration.ofMinutes(2));
+
+    private ScheduledJobs jobs(long partitionSize) {
+        return new ScheduledJobs(coordinator, reminders, borrowLogRepository, mock(ReminderCheckpoints.class),
+                mock(LateFeeLedger.class), holdService,
+                mock(CommandJournal.class), mock(IdempotencyService.class), mock(LoanReconciler.class), partitionSize, 60_000, 900_000, 3_600_000);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runEveryPartition() {
+        when(coordinator.runPartitioned(eq(ScheduledJobs.OVERDUE_REMINDERS), anyString(), anyInt(), any()))
+                .thenAnswer(call -> {
+                    BiConsumer<Integer, JobCoordinator.Lease> work = call.getArgument(3);
+                    for (int partition = 0; partition < (int) call.getArgument(2); partition++) {
+                        work.accept(partition, lease);
+                    }
+                    return call.getArgument(2);
+                });
+    }
+
+    @Test
+    void testRemindersSplitIntoFixedBorrowerRanges() {
+        when(borrowLogRepository.findMaxOverdueBorrowerId(any())).thenReturn(2500L);
+        runEveryPartition();
+
+        jobs(1000).overdueReminders();
+
+        verify(coordinator).runPartitioned(eq(ScheduledJobs.OVERDUE_REMINDERS), anyString(), eq(3), any());
+        verify(reminders).sendOverdueReminders(any(LocalDateTime.class), eq(0L), eq(1000L), any(BooleanSupplier.class));
+        verify(reminders).sendOverdueReminders(any(LocalDateTime.class), eq(1000L), eq(2000L), any(BooleanSupplier.class));
+        verify(reminders).sendOverdueReminders(any(LocalDateTime.class), eq(2000L), eq(3000L), any(BooleanSupplier.class));
+    }
+
+    @Test
+    void testUnpartitionedRemindersRunAsOneRange() {
+        runEveryPartition();
+
+        jobs(0).overdueReminders();
+
+        verify(coordinator).runPartitioned(eq(ScheduledJobs.OVERDUE_REMINDERS),
+                eq(LocalDateTime.now().toLocalDate().toString()), eq(1), any());
+        verify(reminders).sendOverdueReminders(any(LocalDateTime.class), eq(0L), eq(Long.MAX_VALUE), any(BooleanSupplier.class));
+        verifyNoInteractions(borrowLogRepository);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testIntervalJobsShareOneRunPerInterval() {
+        when(coordinator.runOnce(eq(ScheduledJobs.HOLD_EXPIRY), anyString(), any())).thenAnswer(call -> {
+            ((Consumer<JobCoordinator.Lease>) call.getArgument(2)).accept(lease);
+            return JobCoordinator.Outcome.RAN;
+        });
+        ScheduledJobs jobs = jobs(0);
+
+        jobs.expireLapsedHolds();
+
+        verify(holdService).expireLapsedHolds();
+        verify(coordinator).runOnce(eq(ScheduledJobs.HOLD_EXPIRY),
+                eq(Long.toString(System.currentTimeMillis() / 60_000)), any());
+    }
+}
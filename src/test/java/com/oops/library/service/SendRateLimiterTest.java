@@ -0,0 +1,37 @@
+package com.oops.library.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class SendRateLimiterTest {
+
+    @Test
+    void testSendsAreSpacedAcrossThreads() throws InterruptedException {
+        SendRateLimiter limiter = new SendRateLimiter(50);  // one per 20 ms
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        long start = System.nanoTime();
+        for (int i = 0; i < 11; i++) {
+            pool.execute(limiter::acquire);
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        // the first goes at once, the other ten 20 ms apart
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 190);
+    }
+
+    @Test
+    void testZeroRateIsUnlimited() {
+        SendRateLimiter limiter = new SendRateLimiter(0);
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire();
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+    }
+}
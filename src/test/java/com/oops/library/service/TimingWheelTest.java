@@ -0,0 +1,84 @@
+package com.oops.library.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+class TimingWheelTest {
+
+    @Test
+    void testKeysFireAtTheirTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 8, 3, 0);
+        wheel.schedule("soon", 3_000);
+        wheel.schedule("later", 20_500);  // level 1
+        wheel.schedule("much later", 300_000);  // level 2
+
+        assertEquals(List.of(), wheel.advance(2_999));
+        assertEquals(List.of("soon"), wheel.advance(3_000));
+        assertEquals(List.of(), wheel.advance(19_999));
+        assertEquals(List.of("later"), wheel.advance(20_000));
+        assertEquals(List.of(), wheel.advance(299_999));
+        assertEquals(List.of("much later"), wheel.advance(300_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testPastDeadlineFiresOnNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 8, 3, 10_000);
+        wheel.schedule("late", 2_000);
+
+        assertEquals(List.of("late"), wheel.advance(10_000));
+    }
+
+    @Test
+    void testCancelAndReschedule() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 8, 3, 0);
+        wheel.schedule("returned", 5_000);
+        wheel.schedule("renewed", 5_000);
+
+        assertTrue(wheel.cancel("returned"));
+        assertFalse(wheel.cancel("returned"));
+        wheel.schedule("renewed", 90_000);
+
+        assertEquals(List.of(), wheel.advance(89_999));
+        assertEquals(List.of("renewed"), wheel.advance(90_000));
+    }
+
+    @Test
+    void testDeadlinesBeyondTheTopLevelAreRefiled() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 4, 2, 0);  // 16 s span
+        wheel.schedule("far", 100_000);
+
+        assertEquals(List.of(), wheel.advance(99_999));
+        assertEquals(List.of("far"), wheel.advance(100_000));
+    }
+
+    @Test
+    void testMatchesSortedDeadlines() {
+        Random random = new Random(42);
+        TimingWheel<Integer> wheel = new TimingWheel<>(1000, 16, 3, 0);
+        TreeMap<Long, List<Integer>> expected = new TreeMap<>();
+        for (int key = 0; key < 2000; key++) {
+            long deadline = random.nextInt(10_000_000);
+            wheel.schedule(key, deadline);
+            expected.computeIfAbsent(deadline / 1000, tick -> new ArrayList<>()).add(key);
+        }
+
+        for (long now = 0; now <= 10_000_000; now += 1000 + random.nextInt(60_000)) {
+            List<Integer> fired = wheel.advance(now);
+            List<Integer> due = new ArrayList<>();
+            expected.headMap(now / 1000, true).values().forEach(due::addAll);
+            expected.headMap(now / 1000, true).clear();
+            assertEquals(due.stream().sorted().toList(), fired.stream().sorted().toList(), "at " + now);
+        }
+        List<Integer> rest = new ArrayList<>();
+        expected.values().forEach(rest::addAll);
+        assertEquals(rest.stream().sorted().toList(), wheel.advance(10_000_000).stream().sorted().toList());
+        assertEquals(0, wheel.size());
+    }
+}
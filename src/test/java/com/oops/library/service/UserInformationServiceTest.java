@@ -20,8 +20,12 @@ class UserInformationServiceTest {
     @Mock private PasswordResetService passwordResetService;
     @Mock private BorrowLogRepository borrowLogRepository;
     @Mock private BookRepository bookRepository;
+    @Mock private HoldService holdService;
+    @Mock private LateFeeRepository lateFeeRepository;
+    @Mock private PatronBalanceRepository patronBalanceRepository;
     @Mock private FileStorageService fileStorageService;
     @Mock private EntityManager entityManager;
+    @Mock private FacetCountService facetCountService;
 
     @InjectMocks
     private UserInformationService userInformationService;
@@ -118,12 +122,14 @@ class UserInformationServiceTest {
         
         // 2. Borrow logs delete
         verify(borrowLogRepository).deleteByBorrower(user);
+        verify(holdService).deleteHolds(user);
 
         // 3. Image delete
         verify(fileStorageService).deleteFile("profile/u1.png");
 
         // 4. User delete
         verify(userRepository).delete(user);
+        verify(facetCountService).onUserRemoved(10L);
     }
 
     @Test
@@ -197,24 +203,12 @@ class UserInformationServiceTest {
     // ----------------------------------------------------------------
     @Test
     void testGetDashboardStatistics() {
-        User u1 = new Admin();
-        u1.setRole(Role.ADMIN);
-        
-
-        User u2 = new Guest();
-        u2.setRole(Role.GUEST);
-        
-
-        Book b1 = new GeneralBook();
-        b1.setStatus(BookStatus.AVAILABLE);
-
-        Book b2 = new GeneralBook();
-        b2.setStatus(BookStatus.BORROWED);
-
-        when(userRepository.count()).thenReturn(2L);
-        when(bookRepository.count()).thenReturn(2L);
-        when(userRepository.findAll()).thenReturn(List.of(u1, u2));
-        when(bookRepository.findAll()).thenReturn(List.of(b1, b2));
+        when(facetCountService.totalUsers()).thenReturn(2L);
+        when(facetCountService.totalBooks()).thenReturn(2L);
+        when(facetCountService.countUsersByRole())
+                .thenReturn(new EnumMap<>(Map.of(Role.ADMIN, 1L, Role.GUEST, 1L)));
+        when(facetCountService.countBooksByStatus())
+                .thenReturn(new EnumMap<>(Map.of(BookStatus.AVAILABLE, 1L, BookStatus.BORROWED, 1L)));
         when(borrowLogRepository.countByReturnedFalse()).thenReturn(5L);
         when(borrowLogRepository.countByReturnedFalseAndReturnDateBefore(any()))
                 .thenReturn(1L);
@@ -225,5 +219,9 @@ class UserInformationServiceTest {
         assertEquals(2L, stats.get("totalBooks"));
         assertEquals(5L, stats.get("activeBorrowings"));
         assertEquals(1L, stats.get("overdueBooks"));
+        assertEquals(Map.of("ADMIN", 1L, "GUEST", 1L), stats.get("userRoleDistribution"));
+        assertEquals(Map.of("AVAILABLE", 1L, "BORROWED", 1L), stats.get("bookStatusDistribution"));
+        verify(userRepository, never()).findAll();
+        verify(bookRepository, never()).findAll();
     }
 }
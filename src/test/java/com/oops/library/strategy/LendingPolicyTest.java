@@ -0,0 +1,63 @@
+package com.oops.library.strategy;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import com.oops.library.entity.AncientScript;
+import com.oops.library.entity.Book;
+import com.oops.library.entity.GeneralBook;
+import com.oops.library.entity.RareBook;
+import com.oops.library.entity.Role;
+
+class LendingPolicyTest {
+
+	private static final String RULES = """
+			*        *        *           P3D   3 1,
+			SCHOLAR  *        *           P14D 10 2,
+			SCHOLAR  RARE     *           P7D   2 0,
+			*        *        RESTRICTED  P1D   1 0,
+			GUEST    *        RESTRICTED  PT0S  0 0
+			""";
+
+	private final LendingPolicy policy = new LendingPolicy(RULES);
+
+	private static Book book(Book book, String section) {
+		book.setSection(section);
+		return book;
+	}
+
+	@Test
+	void testMostSpecificRuleWins() {
+		assertEquals(new LoanTerms(Duration.ofDays(14), 10, 2), policy.terms(Role.SCHOLAR, book(new GeneralBook(), "GENERAL")));
+		assertEquals(new LoanTerms(Duration.ofDays(7), 2, 0), policy.terms(Role.SCHOLAR, book(new RareBook(), "GENERAL")));
+		// role outranks section: the scholar rule beats the restricted-section rule
+		assertEquals(new LoanTerms(Duration.ofDays(14), 10, 2), policy.terms(Role.SCHOLAR, book(new GeneralBook(), "RESTRICTED")));
+		assertEquals(new LoanTerms(Duration.ofDays(1), 1, 0), policy.terms(Role.LIBRARIAN, book(new GeneralBook(), "RESTRICTED")));
+		assertFalse(policy.terms(Role.GUEST, book(new AncientScript(), "RESTRICTED")).lendable());
+	}
+
+	@Test
+	void testUnnamedValuesFallBackToWildcards() {
+		assertEquals(new LoanTerms(Duration.ofDays(3), 3, 1), policy.terms(Role.GUEST, book(new AncientScript(), "Periodicals")));
+		assertEquals(new LoanTerms(Duration.ofDays(3), 3, 1), policy.terms(null, book(new GeneralBook(), null)));
+		// sections are matched case-insensitively
+		assertFalse(policy.terms(Role.GUEST, book(new GeneralBook(), "Restricted")).lendable());
+	}
+
+	@Test
+	void testNoMatchingRuleMeansNotLendable() {
+		LendingPolicy scholarsOnly = new LendingPolicy("SCHOLAR * * P14D 10 2");
+		assertTrue(scholarsOnly.terms(Role.SCHOLAR, book(new GeneralBook(), "GENERAL")).lendable());
+		assertSame(LoanTerms.NOT_LENDABLE, scholarsOnly.terms(Role.GUEST, book(new GeneralBook(), "GENERAL")));
+	}
+
+	@Test
+	void testMalformedRulesAreRejected() {
+		assertThrows(IllegalArgumentException.class, () -> new LendingPolicy("SCHOLAR * * P14D 10"));
+		assertThrows(IllegalArgumentException.class, () -> new LendingPolicy("WIZARD * * P14D 10 2"));
+		assertThrows(IllegalArgumentException.class, () -> new LendingPolicy("* * * fortnight 10 2"));
+	}
+}